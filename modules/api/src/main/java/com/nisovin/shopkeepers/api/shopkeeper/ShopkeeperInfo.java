@@ -0,0 +1,136 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.offers.BookOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+
+/**
+ * An immutable snapshot of the state of a {@link Shopkeeper} at the time the
+ * {@link ShopkeeperReadModel} that contains it was created.
+ * <p>
+ * Unlike the {@link Shopkeeper} itself, this snapshot can be safely accessed from any thread. It
+ * is not updated when the shopkeeper changes.
+ */
+public interface ShopkeeperInfo {
+
+	/**
+	 * Gets the {@link Shopkeeper#getId() id} of the shopkeeper.
+	 *
+	 * @return the shopkeeper id
+	 */
+	public int getId();
+
+	/**
+	 * Gets the {@link Shopkeeper#getUniqueId() unique id} of the shopkeeper.
+	 *
+	 * @return the shopkeeper's unique id, not <code>null</code>
+	 */
+	public UUID getUniqueId();
+
+	/**
+	 * Gets the {@link ShopType#getIdentifier() identifier} of the shopkeeper's shop type.
+	 *
+	 * @return the shop type identifier, not <code>null</code>
+	 */
+	public String getShopTypeId();
+
+	/**
+	 * Gets the identifier of the shopkeeper's shop object type.
+	 *
+	 * @return the shop object type identifier, not <code>null</code>
+	 */
+	public String getShopObjectTypeId();
+
+	/**
+	 * Gets the {@link Shopkeeper#getName() name} of the shopkeeper.
+	 *
+	 * @return the shopkeeper name, not <code>null</code>, can be empty
+	 */
+	public String getName();
+
+	/**
+	 * Checks if the shopkeeper is {@link Shopkeeper#isVirtual() virtual}.
+	 *
+	 * @return <code>true</code> if the shopkeeper is virtual
+	 */
+	public boolean isVirtual();
+
+	/**
+	 * Gets the name of the world the shopkeeper is located in.
+	 *
+	 * @return the world name, or <code>null</code> if the shopkeeper is virtual
+	 */
+	public @Nullable String getWorldName();
+
+	/**
+	 * Gets the shopkeeper's x coordinate.
+	 *
+	 * @return the x coordinate, or <code>0</code> if the shopkeeper is virtual
+	 */
+	public int getX();
+
+	/**
+	 * Gets the shopkeeper's y coordinate.
+	 *
+	 * @return the y coordinate, or <code>0</code> if the shopkeeper is virtual
+	 */
+	public int getY();
+
+	/**
+	 * Gets the shopkeeper's z coordinate.
+	 *
+	 * @return the z coordinate, or <code>0</code> if the shopkeeper is virtual
+	 */
+	public int getZ();
+
+	/**
+	 * Gets the {@link PlayerShopkeeper#getOwnerUUID() unique id of the owner} of a player
+	 * shopkeeper.
+	 *
+	 * @return the owner's unique id, or <code>null</code> if the shopkeeper is not a player
+	 *         shopkeeper
+	 */
+	public @Nullable UUID getOwnerUniqueId();
+
+	/**
+	 * Gets the {@link PlayerShopkeeper#getOwnerName() name of the owner} of a player shopkeeper.
+	 *
+	 * @return the owner's name, or <code>null</code> if the shopkeeper is not a player shopkeeper
+	 */
+	public @Nullable String getOwnerName();
+
+	/**
+	 * Gets the trade offers of the shopkeeper.
+	 * <p>
+	 * These are the offers of regular admin shopkeepers and trading player shopkeepers.
+	 *
+	 * @return an unmodifiable list of the trade offers, empty if the shopkeeper has no trade offers
+	 */
+	public List<? extends TradeOffer> getTradeOffers();
+
+	/**
+	 * Gets the price offers of the shopkeeper.
+	 * <p>
+	 * These are the offers of selling and buying player shopkeepers. The
+	 * {@link #getShopTypeId() shop type} determines whether the shopkeeper sells or buys the
+	 * items.
+	 *
+	 * @return an unmodifiable list of the price offers, empty if the shopkeeper has no price offers
+	 */
+	public List<? extends PriceOffer> getPriceOffers();
+
+	/**
+	 * Gets the book offers of the shopkeeper.
+	 * <p>
+	 * These are the offers of book player shopkeepers.
+	 *
+	 * @return an unmodifiable list of the book offers, empty if the shopkeeper has no book offers
+	 */
+	public List<? extends BookOffer> getBookOffers();
+}
@@ -0,0 +1,70 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable snapshot of all loaded shopkeepers, for read-only bulk queries.
+ * <p>
+ * The read model is periodically recreated from the live shopkeepers, each on the thread that
+ * owns it. Once created, the read model is never modified, so it can be safely queried from any
+ * thread, including asynchronous threads of other plugins, without affecting the live shopkeepers.
+ * However, the read model can be slightly outdated: Use {@link #getTimestamp()} to check when it
+ * was created, or {@link ShopkeeperRegistry#refreshReadModel()} to request an up-to-date read
+ * model.
+ */
+public interface ShopkeeperReadModel {
+
+	/**
+	 * Gets the time at which the creation of this read model was started.
+	 *
+	 * @return the timestamp, not <code>null</code>
+	 */
+	public Instant getTimestamp();
+
+	/**
+	 * Gets all shopkeepers.
+	 *
+	 * @return an unmodifiable collection of all shopkeepers, sorted by their id
+	 */
+	public Collection<? extends ShopkeeperInfo> getAllShopkeepers();
+
+	/**
+	 * Gets the shopkeeper by its {@link ShopkeeperInfo#getUniqueId() unique id}.
+	 *
+	 * @param shopkeeperUniqueId
+	 *            the shopkeeper's unique id
+	 * @return the shopkeeper, or <code>null</code>
+	 */
+	public @Nullable ShopkeeperInfo getShopkeeperByUniqueId(UUID shopkeeperUniqueId);
+
+	/**
+	 * Gets the shopkeeper by its {@link ShopkeeperInfo#getId() id}.
+	 *
+	 * @param shopkeeperId
+	 *            the shopkeeper's id
+	 * @return the shopkeeper, or <code>null</code>
+	 */
+	public @Nullable ShopkeeperInfo getShopkeeperById(int shopkeeperId);
+
+	/**
+	 * Gets all player shopkeepers that are owned by the specified player.
+	 *
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @return an unmodifiable collection of the shopkeepers, sorted by their id, may be empty
+	 */
+	public Collection<? extends ShopkeeperInfo> getShopkeepersByOwner(UUID ownerUUID);
+
+	/**
+	 * Gets all shopkeepers in the specified world.
+	 *
+	 * @param worldName
+	 *            the world name
+	 * @return an unmodifiable collection of the shopkeepers, sorted by their id, may be empty
+	 */
+	public Collection<? extends ShopkeeperInfo> getShopkeepersInWorld(String worldName);
+}
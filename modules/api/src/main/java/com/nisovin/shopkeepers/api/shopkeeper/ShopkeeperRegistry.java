@@ -3,6 +3,7 @@ package com.nisovin.shopkeepers.api.shopkeeper;
 import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.bukkit.Location;
@@ -68,6 +69,34 @@ public interface ShopkeeperRegistry {
 	 */
 	public @Nullable Shopkeeper getShopkeeperById(int shopkeeperId);
 
+	// READ MODEL
+
+	/**
+	 * Gets the latest {@link ShopkeeperReadModel}.
+	 * <p>
+	 * Unlike the other query methods of this registry, this method can be called from any thread.
+	 * The returned read model is immutable, but might not reflect the most recent changes to the
+	 * shopkeepers yet.
+	 * 
+	 * @return the latest read model, not <code>null</code>, but empty if the read model has not
+	 *         been created yet
+	 */
+	public ShopkeeperReadModel getReadModel();
+
+	/**
+	 * Requests the creation of a new {@link ShopkeeperReadModel}.
+	 * <p>
+	 * This method can be called from any thread. The returned future is completed, on an
+	 * unspecified thread, with a read model whose creation was started after this method was
+	 * called. If the plugin is disabled in the meantime, the future is cancelled.
+	 * <p>
+	 * If the region that owns a shopkeeper does not capture the shopkeeper's state in time, the new
+	 * read model contains the shopkeeper's entry of the previous read model instead.
+	 * 
+	 * @return a future that provides the new read model
+	 */
+	public CompletableFuture<? extends ShopkeeperReadModel> refreshReadModel();
+
 	// PLAYER SHOPS
 
 	/**
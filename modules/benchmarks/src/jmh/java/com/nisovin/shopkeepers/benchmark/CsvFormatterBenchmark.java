@@ -0,0 +1,55 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nisovin.shopkeepers.util.csv.CsvFormatter;
+
+/**
+ * Benchmarks the formatting of CSV records, which is used by the CSV trade logger for each logged
+ * trade.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CsvFormatterBenchmark {
+
+	private CsvFormatter formatter;
+	private Object[] plainRecord;
+	private Object[] escapedRecord;
+
+	@Setup
+	public void setUp() {
+		formatter = new CsvFormatter();
+		// Resembles a logged trade:
+		plainRecord = new Object[] {
+				"2024-01-01", "12:00:00", "8f4e9f5a-0c7f-4a6f-9c2b-3c1e6a1f0b7d", "Player",
+				"1", "c0b5e2a1-7f3d-4b8e-a4c6-9d2f1e3b5a7c", "trade", "villager", "Shop",
+				"world", "100", "64", "-200", "diamond_sword", "1", "emerald", "16", "", "", "1"
+		};
+		escapedRecord = new Object[] {
+				"2024-01-01", "12:00:00", "8f4e9f5a-0c7f-4a6f-9c2b-3c1e6a1f0b7d", "Player",
+				"1", "c0b5e2a1-7f3d-4b8e-a4c6-9d2f1e3b5a7c", "trade", "villager",
+				"The \"best\" shop,\nin town", "world", "100", "64", "-200",
+				"{display-name: \"Excalibur\", lore: [\"Line 1\\nLine 2\"]}", "1", "emerald", "16",
+				null, null, "1"
+		};
+	}
+
+	@Benchmark
+	public String formatPlainRecord() {
+		return formatter.formatRecord(plainRecord);
+	}
+
+	@Benchmark
+	public String formatEscapedRecord() {
+		return formatter.formatRecord(escapedRecord);
+	}
+}
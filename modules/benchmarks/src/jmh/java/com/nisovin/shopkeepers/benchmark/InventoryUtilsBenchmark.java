@@ -0,0 +1,104 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
+import com.nisovin.shopkeepers.util.inventory.ItemData;
+
+/**
+ * Benchmarks the searching and removal of items in inventory contents, which is used for example
+ * by player shops to check and update the stock of their shop containers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InventoryUtilsBenchmark {
+
+	/**
+	 * The size of the inventory, e.g. a single or double chest.
+	 */
+	@Param({ "27", "54" })
+	public int inventorySize;
+
+	/**
+	 * The ratio of slots that contain the searched item. The remaining slots are filled with other
+	 * items.
+	 */
+	@Param({ "0.1", "0.5" })
+	public double matchingRatio;
+
+	private ItemStack[] template;
+	private ItemStack[] contents;
+	private ItemData itemData;
+	private int matchingAmount;
+
+	@Setup
+	public void setUp() {
+		BenchmarkServer.setUp();
+
+		ItemStack searchedItem = new ItemStack(Material.EMERALD, 64);
+		ItemMeta meta = searchedItem.getItemMeta();
+		meta.setDisplayName("Coin");
+		searchedItem.setItemMeta(meta);
+		ItemStack otherItem = new ItemStack(Material.EMERALD, 64);
+
+		itemData = new ItemData(searchedItem);
+		template = new ItemStack[inventorySize];
+		int matchingSlots = Math.max(1, (int) (inventorySize * matchingRatio));
+		// Spread the matching items across the inventory:
+		int step = inventorySize / matchingSlots;
+		int placed = 0;
+		for (int slot = 0; slot < inventorySize; slot++) {
+			if (placed < matchingSlots && slot % step == step - 1) {
+				template[slot] = searchedItem.clone();
+				placed++;
+			} else {
+				template[slot] = otherItem.clone();
+			}
+		}
+		matchingAmount = placed * 64;
+	}
+
+	@Setup(Level.Invocation)
+	public void resetContents() {
+		// removeItems modifies the contents:
+		contents = new ItemStack[template.length];
+		for (int i = 0; i < template.length; i++) {
+			contents[i] = template[i].clone();
+		}
+	}
+
+	@Benchmark
+	public boolean containsAtLeastAll() {
+		return InventoryUtils.containsAtLeast(contents, itemData, matchingAmount);
+	}
+
+	@Benchmark
+	public boolean containsAtLeastMissing() {
+		// Has to check all slots:
+		return InventoryUtils.containsAtLeast(contents, itemData, matchingAmount + 1);
+	}
+
+	@Benchmark
+	public int removeItemsSingleStack() {
+		return InventoryUtils.removeItems(contents, itemData, 64);
+	}
+
+	@Benchmark
+	public int removeItemsAll() {
+		return InventoryUtils.removeItems(contents, itemData, matchingAmount);
+	}
+}
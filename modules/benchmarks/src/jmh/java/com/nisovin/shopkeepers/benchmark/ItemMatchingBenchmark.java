@@ -0,0 +1,105 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nisovin.shopkeepers.util.inventory.ItemData;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+
+/**
+ * Benchmarks the matching of items against {@link ItemData}, which is used for example to check
+ * the items offered by players during trades and the contents of shop containers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ItemMatchingBenchmark {
+
+	private ItemStack plainItem;
+	private ItemStack plainData;
+	private ItemStack metaItem;
+	private ItemStack metaData;
+	private ItemStack partialMetaData;
+	private ItemStack differentMetaItem;
+
+	private ItemData plainItemData;
+	private ItemData metaItemData;
+
+	@Setup
+	public void setUp() {
+		BenchmarkServer.setUp();
+
+		plainItem = new ItemStack(Material.DIAMOND, 16);
+		plainData = new ItemStack(Material.DIAMOND);
+
+		metaItem = createItem("Excalibur", Arrays.asList("An old sword.", "Sharp."));
+		metaData = createItem("Excalibur", Arrays.asList("An old sword.", "Sharp."));
+		// Only specifies the display name:
+		partialMetaData = new ItemStack(Material.DIAMOND_SWORD);
+		ItemMeta partialMeta = partialMetaData.getItemMeta();
+		partialMeta.setDisplayName("Excalibur");
+		partialMetaData.setItemMeta(partialMeta);
+		differentMetaItem = createItem("Excalibur", Arrays.asList("An old sword.", "Blunt."));
+
+		plainItemData = new ItemData(plainData);
+		metaItemData = new ItemData(metaData);
+	}
+
+	private static ItemStack createItem(String displayName, List<String> lore) {
+		ItemStack item = new ItemStack(Material.DIAMOND_SWORD);
+		ItemMeta meta = item.getItemMeta();
+		meta.setDisplayName(displayName);
+		meta.setLore(lore);
+		meta.addEnchant(Enchantment.SHARPNESS, 5, true);
+		item.setItemMeta(meta);
+		return item;
+	}
+
+	@Benchmark
+	public boolean matchesDataPlain() {
+		return ItemUtils.matchesData(plainItem, plainData);
+	}
+
+	@Benchmark
+	public boolean matchesDataMeta() {
+		return ItemUtils.matchesData(metaItem, metaData);
+	}
+
+	@Benchmark
+	public boolean matchesDataPartialMeta() {
+		return ItemUtils.matchesData(metaItem, partialMetaData);
+	}
+
+	@Benchmark
+	public boolean matchesDataMetaMismatch() {
+		return ItemUtils.matchesData(differentMetaItem, metaData);
+	}
+
+	@Benchmark
+	public boolean itemDataMatchesPlain() {
+		return plainItemData.matches(plainItem);
+	}
+
+	@Benchmark
+	public boolean itemDataMatchesMeta() {
+		return metaItemData.matches(metaItem);
+	}
+
+	@Benchmark
+	public boolean itemDataMatchesMetaMismatch() {
+		return metaItemData.matches(differentMetaItem);
+	}
+}
@@ -0,0 +1,65 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.nisovin.shopkeepers.benchmark.BenchmarkShopkeepers;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+
+/**
+ * Benchmarks the addition and removal of shopkeepers to and from the {@link ShopkeeperChunkMap},
+ * which happens whenever shopkeepers are loaded, unloaded, created, deleted, or moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShopkeeperChunkMapBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int shopkeeperCount;
+
+	private List<AbstractShopkeeper> shopkeepers;
+	private ShopkeeperChunkMap populatedChunkMap;
+	// Not contained in the populated chunk map:
+	private AbstractShopkeeper extraShopkeeper;
+
+	@Setup
+	public void setUp() {
+		shopkeepers = BenchmarkShopkeepers.createDistributed(shopkeeperCount, 3, 2000, 42L);
+		extraShopkeeper = BenchmarkShopkeepers.create(shopkeeperCount + 1, "world0", 0, 64, 0);
+
+		// Note: The chunk map stores the chunk of each contained shopkeeper inside the shopkeeper.
+		// Each shopkeeper can therefore only be contained by a single chunk map at a time, so the
+		// shopkeepers in the populated chunk map are copies.
+		populatedChunkMap = new ShopkeeperChunkMap();
+		BenchmarkShopkeepers.createDistributed(shopkeeperCount, 3, 2000, 42L)
+				.forEach(populatedChunkMap::addShopkeeper);
+	}
+
+	@Benchmark
+	public ShopkeeperChunkMap addAndRemoveAll() {
+		ShopkeeperChunkMap chunkMap = new ShopkeeperChunkMap();
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			chunkMap.addShopkeeper(shopkeeper);
+		}
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			chunkMap.removeShopkeeper(shopkeeper);
+		}
+		return chunkMap;
+	}
+
+	@Benchmark
+	public ChunkShopkeepers addAndRemoveSingle() {
+		populatedChunkMap.addShopkeeper(extraShopkeeper);
+		return populatedChunkMap.removeShopkeeper(extraShopkeeper);
+	}
+}
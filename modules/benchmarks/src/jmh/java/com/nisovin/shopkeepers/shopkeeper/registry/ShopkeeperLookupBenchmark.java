@@ -0,0 +1,223 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopCreationData;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopCreationData;
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.benchmark.SimulatedScheduler;
+import com.nisovin.shopkeepers.benchmark.server.StubServer;
+import com.nisovin.shopkeepers.benchmark.server.StubWorld;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.living.SKLivingShopObjectType;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Benchmarks the shopkeeper lookups of the {@link SKShopkeeperRegistry}: By id, by unique id, by
+ * chunk, by location, by block, by owner, and the paged queries.
+ * <p>
+ * The benchmarks enable the plugin on a stubbed server (see {@link StubServer}) and create the
+ * shopkeepers via the plugin's registry: Half of them are admin shops, and the other half are
+ * player shops that are owned by a fixed number of players. The shop chunks are not loaded, so no
+ * shop objects are spawned. The lookups by block are therefore misses, which is also their most
+ * common outcome during block interactions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShopkeeperLookupBenchmark {
+
+	private static final int QUERY_COUNT = 1024; // Power of two
+	private static final int WORLD_COUNT = 3;
+	private static final int RANGE = 2000;
+	private static final int OWNER_COUNT = 100;
+	// Like the list command:
+	private static final int PAGE_SIZE = 8;
+
+	@Param({ "1000", "10000" })
+	public int shopkeeperCount;
+
+	private StubServer server;
+	private SKShopkeepersPlugin plugin;
+	private SKShopkeeperRegistry registry;
+
+	// Queries for existing shopkeepers, cycled through by the benchmarks:
+	private final int[] queryIds = new int[QUERY_COUNT];
+	private final UUID[] queryUUIDs = new UUID[QUERY_COUNT];
+	private final ChunkCoords[] queryChunks = new ChunkCoords[QUERY_COUNT];
+	private final Location[] queryLocations = new Location[QUERY_COUNT];
+	private final UUID[] queryOwners = new UUID[QUERY_COUNT];
+	private final int[] queryPages = new int[QUERY_COUNT];
+	private int queryIndex = 0;
+
+	// The scheduler's simulated server thread is the thread that runs the benchmarks.
+	@Setup
+	public void setUp() throws Exception {
+		server = new StubServer(new SimulatedScheduler());
+		List<StubWorld> worlds = new ArrayList<>();
+		for (int i = 0; i < WORLD_COUNT; i++) {
+			worlds.add(server.createWorld("world" + i));
+		}
+		plugin = server.loadPlugin();
+		server.enablePlugin();
+		registry = plugin.getShopkeeperRegistry();
+
+		Random random = new Random(42L);
+		List<Player> owners = new ArrayList<>(OWNER_COUNT);
+		for (int i = 0; i < OWNER_COUNT; i++) {
+			StubWorld world = worlds.get(i % WORLD_COUNT);
+			Location location = new Location(world.getWorld(), 0.5D, StubWorld.GROUND_Y, 0.5D);
+			owners.add(server.joinPlayer("Owner" + i, location).getPlayer());
+		}
+
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>(shopkeeperCount);
+		for (int i = 0; i < shopkeeperCount; i++) {
+			StubWorld world = worlds.get(random.nextInt(WORLD_COUNT));
+			int x = random.nextInt(2 * RANGE + 1) - RANGE;
+			int z = random.nextInt(2 * RANGE + 1) - RANGE;
+			Location location = new Location(
+					world.getWorld(),
+					x + 0.5D,
+					StubWorld.GROUND_Y,
+					z + 0.5D
+			);
+			Player owner = (i % 2 == 0) ? null : owners.get(random.nextInt(OWNER_COUNT));
+			shopkeepers.add(this.createShopkeeper(world, location, owner));
+		}
+
+		int pageCount = (shopkeeperCount / 2 + PAGE_SIZE - 1) / PAGE_SIZE;
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			AbstractShopkeeper shopkeeper = shopkeepers.get((i * 7919) % shopkeeperCount);
+			queryIds[i] = shopkeeper.getId();
+			queryUUIDs[i] = shopkeeper.getUniqueId();
+			queryChunks[i] = shopkeeper.getChunkCoords();
+			queryLocations[i] = shopkeeper.getLocation();
+			queryOwners[i] = owners.get(i % OWNER_COUNT).getUniqueId();
+			queryPages[i] = 1 + (i * 31) % pageCount;
+		}
+	}
+
+	private AbstractShopkeeper createShopkeeper(
+			StubWorld world,
+			Location location,
+			Player owner
+	) throws ShopkeeperCreateException {
+		SKLivingShopObjectType<?> villagerObjectType = Validate.State.notNull(
+				plugin.getLivingShops().getLivingShopObjectTypes().get(EntityType.VILLAGER),
+				"Villager shop object type is not available!"
+		);
+		if (owner == null) {
+			return registry.createShopkeeper(AdminShopCreationData.create(
+					null,
+					plugin.getDefaultShopTypes().getRegularAdminShopType(),
+					villagerObjectType,
+					location,
+					null
+			));
+		} else {
+			// The container is located below the shopkeeper:
+			return registry.createShopkeeper(PlayerShopCreationData.create(
+					owner,
+					plugin.getDefaultShopTypes().getSellingPlayerShopType(),
+					villagerObjectType,
+					location,
+					null,
+					world.getBlock(
+							location.getBlockX(),
+							StubWorld.GROUND_Y - 1,
+							location.getBlockZ()
+					)
+			));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		server.disablePlugin(plugin);
+		server.shutdown();
+	}
+
+	private int nextQuery() {
+		int index = queryIndex;
+		queryIndex = (index + 1) & (QUERY_COUNT - 1);
+		return index;
+	}
+
+	@Benchmark
+	public AbstractShopkeeper byId() {
+		return registry.getShopkeeperById(queryIds[this.nextQuery()]);
+	}
+
+	@Benchmark
+	public AbstractShopkeeper byUniqueId() {
+		return registry.getShopkeeperByUniqueId(queryUUIDs[this.nextQuery()]);
+	}
+
+	@Benchmark
+	public Collection<? extends AbstractShopkeeper> byChunk() {
+		return registry.getShopkeepersInChunk(queryChunks[this.nextQuery()]);
+	}
+
+	@Benchmark
+	public Collection<? extends AbstractShopkeeper> byLocation() {
+		return registry.getShopkeepersAtLocation(queryLocations[this.nextQuery()]);
+	}
+
+	@Benchmark
+	public AbstractShopkeeper byBlock() {
+		Location location = queryLocations[this.nextQuery()];
+		return registry.getShopkeeperByBlock(
+				location.getWorld().getName(),
+				location.getBlockX(),
+				location.getBlockY(),
+				location.getBlockZ()
+		);
+	}
+
+	// The returned collection is a view that looks up the owner's shopkeepers when accessed.
+	@Benchmark
+	public int byOwner() {
+		return registry.getPlayerShopkeepersByOwner(queryOwners[this.nextQuery()]).size();
+	}
+
+	@Benchmark
+	public ShopkeeperPage byOwnerPage() {
+		UUID ownerUUID = queryOwners[this.nextQuery()];
+		return registry.getPlayerShopkeepersByOwnerPage(ownerUUID, 1, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public ShopkeeperPage allPage() {
+		return registry.getAllShopkeepersPage(queryPages[this.nextQuery()], PAGE_SIZE);
+	}
+
+	@Benchmark
+	public ShopkeeperPage adminPage() {
+		return registry.getAdminShopkeepersPage(queryPages[this.nextQuery()], PAGE_SIZE);
+	}
+
+	@Benchmark
+	public ShopkeeperPage playerPage() {
+		return registry.getPlayerShopkeepersPage(queryPages[this.nextQuery()], PAGE_SIZE);
+	}
+}
@@ -0,0 +1,127 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopCreationData;
+import com.nisovin.shopkeepers.benchmark.SimulatedScheduler;
+import com.nisovin.shopkeepers.benchmark.server.StubServer;
+import com.nisovin.shopkeepers.benchmark.server.StubWorld;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.trade.SKTradingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.shopobjects.living.SKLivingShopObjectType;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Benchmarks the saving and loading of all shopkeepers by the {@link SKShopkeeperStorage}.
+ * <p>
+ * The benchmarks enable the plugin on a stubbed server (see {@link StubServer}) and create player
+ * trading shops with a few trade offers via the plugin's registry. The saves are performed
+ * synchronously, so that they include the serialization of the shopkeepers as well as the writing
+ * of the save file. The reloads unload all shopkeepers and load them again from the save file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShopkeeperStorageBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int shopkeeperCount;
+
+	private static final int OFFERS_PER_SHOPKEEPER = 5;
+	private static final int OWNER_COUNT = 100;
+
+	private StubServer server;
+	private SKShopkeepersPlugin plugin;
+	private SKShopkeeperRegistry registry;
+	private SKShopkeeperStorage storage;
+
+	// The scheduler's simulated server thread is the thread that runs the benchmarks.
+	@Setup
+	public void setUp() throws Exception {
+		server = new StubServer(new SimulatedScheduler());
+		StubWorld world = server.createWorld("world");
+		plugin = server.loadPlugin();
+		server.enablePlugin();
+		registry = plugin.getShopkeeperRegistry();
+		storage = plugin.getShopkeeperStorage();
+
+		List<Player> owners = new ArrayList<>(OWNER_COUNT);
+		for (int i = 0; i < OWNER_COUNT; i++) {
+			Location location = new Location(world.getWorld(), 0.5D, StubWorld.GROUND_Y, 0.5D);
+			owners.add(server.joinPlayer("Player" + i, location).getPlayer());
+		}
+
+		ItemStack namedItem = new ItemStack(Material.DIAMOND_SWORD);
+		ItemMeta meta = namedItem.getItemMeta();
+		meta.setDisplayName("Excalibur");
+		namedItem.setItemMeta(meta);
+		List<TradeOffer> offers = new ArrayList<>(OFFERS_PER_SHOPKEEPER);
+		for (int offer = 1; offer <= OFFERS_PER_SHOPKEEPER; offer++) {
+			offers.add(TradeOffer.create(namedItem, new ItemStack(Material.EMERALD, offer), null));
+		}
+
+		SKLivingShopObjectType<?> villagerObjectType = Validate.State.notNull(
+				plugin.getLivingShops().getLivingShopObjectTypes().get(EntityType.VILLAGER),
+				"Villager shop object type is not available!"
+		);
+		for (int id = 1; id <= shopkeeperCount; id++) {
+			int x = id % 1000;
+			int z = id / 1000;
+			// The container is located below the shopkeeper:
+			SKTradingPlayerShopkeeper shopkeeper = (SKTradingPlayerShopkeeper) registry
+					.createShopkeeper(PlayerShopCreationData.create(
+							owners.get(id % OWNER_COUNT),
+							plugin.getDefaultShopTypes().getTradingPlayerShopType(),
+							villagerObjectType,
+							new Location(world.getWorld(), x + 0.5D, StubWorld.GROUND_Y, z + 0.5D),
+							null,
+							world.getBlock(x, StubWorld.GROUND_Y - 1, z)
+					));
+			shopkeeper.setName("Shop " + id);
+			shopkeeper.setOffers(offers);
+		}
+		storage.saveImmediate();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		server.disablePlugin(plugin);
+		server.shutdown();
+	}
+
+	@Benchmark
+	public SKShopkeeperStorage save() {
+		// Saves the data of all shopkeepers, like after a data migration:
+		for (AbstractShopkeeper shopkeeper : registry.getAllShopkeepers()) {
+			shopkeeper.markDirty();
+		}
+		storage.saveImmediate();
+		return storage;
+	}
+
+	@Benchmark
+	public boolean reload() {
+		return storage.reload();
+	}
+}
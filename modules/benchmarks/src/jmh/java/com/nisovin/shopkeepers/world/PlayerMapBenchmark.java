@@ -0,0 +1,189 @@
+package com.nisovin.shopkeepers.world;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.nisovin.shopkeepers.benchmark.BenchmarkServer;
+
+/**
+ * Compares radius queries for nearby players that scan all players of the world with queries that
+ * only inspect the players inside the chunks of the {@link PlayerMap} that overlap the radius.
+ * <p>
+ * Both variants check the exact distance of each inspected player, like
+ * {@link com.nisovin.shopkeepers.util.bukkit.EntityUtils#getNearbyPlayers(Location, double)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerMapBenchmark {
+
+	private static final String WORLD_NAME = "world";
+	private static final int BLOCK_RANGE = 2000;
+	private static final int QUERY_COUNT = 100;
+
+	@Param({ "100", "1000" })
+	public int playerCount;
+
+	@Param({ "16", "48" })
+	public double radius;
+
+	private PlayerMap playerMap;
+	private double[] queryXs;
+	private double[] queryZs;
+
+	@Setup
+	public void setUp() {
+		World world = createWorld(WORLD_NAME);
+		playerMap = new PlayerMap(BenchmarkServer.createPlugin("PlayerMapBenchmark"));
+
+		Random random = new Random(42L);
+		for (int i = 0; i < playerCount; i++) {
+			Location location = new Location(
+					world,
+					random.nextInt(2 * BLOCK_RANGE) - BLOCK_RANGE,
+					64,
+					random.nextInt(2 * BLOCK_RANGE) - BLOCK_RANGE
+			);
+			Player player = createPlayer("player" + i, location);
+			playerMap.updatePlayer(player, location);
+		}
+
+		// Half of the queries are located at players, the other half at random locations:
+		List<? extends Player> players = playerMap.getPlayers(WORLD_NAME);
+		queryXs = new double[QUERY_COUNT];
+		queryZs = new double[QUERY_COUNT];
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			if (i % 2 == 0) {
+				Location location = players.get(random.nextInt(players.size())).getLocation();
+				queryXs[i] = location.getX();
+				queryZs[i] = location.getZ();
+			} else {
+				queryXs[i] = random.nextInt(2 * BLOCK_RANGE) - BLOCK_RANGE;
+				queryZs[i] = random.nextInt(2 * BLOCK_RANGE) - BLOCK_RANGE;
+			}
+		}
+	}
+
+	@Benchmark
+	public void worldScan(Blackhole blackhole) {
+		double radiusSq = radius * radius;
+		Location playerLocation = new Location(null, 0, 0, 0);
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			double x = queryXs[i];
+			double z = queryZs[i];
+			for (Player player : playerMap.getPlayers(WORLD_NAME)) {
+				if (isInRange(player, playerLocation, x, z, radiusSq)) {
+					blackhole.consume(player);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void chunkIndex(Blackhole blackhole) {
+		double radiusSq = radius * radius;
+		Location playerLocation = new Location(null, 0, 0, 0);
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			double x = queryXs[i];
+			double z = queryZs[i];
+			playerMap.forEachNearbyPlayer(WORLD_NAME, x, z, radius, player -> {
+				if (isInRange(player, playerLocation, x, z, radiusSq)) {
+					blackhole.consume(player);
+				}
+			});
+		}
+	}
+
+	private static boolean isInRange(
+			Player player,
+			Location playerLocation,
+			double x,
+			double z,
+			double radiusSq
+	) {
+		player.getLocation(playerLocation);
+		double dx = playerLocation.getX() - x;
+		double dz = playerLocation.getZ() - z;
+		return dx * dx + dz * dz <= radiusSq;
+	}
+
+	private static World createWorld(String name) {
+		return (World) Proxy.newProxyInstance(
+				PlayerMapBenchmark.class.getClassLoader(),
+				new Class<?>[] { World.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getName":
+						return name;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return (proxy == args[0]);
+					case "toString":
+						return name;
+					default:
+						throw new UnsupportedOperationException(
+								"Not supported by the benchmark world: " + method.getName()
+						);
+					}
+				}
+		);
+	}
+
+	// The player only provides its name, unique id, and (fixed) location.
+	private static Player createPlayer(String name, Location location) {
+		UUID uniqueId = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+		return (Player) Proxy.newProxyInstance(
+				PlayerMapBenchmark.class.getClassLoader(),
+				new Class<?>[] { Player.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getName":
+						return name;
+					case "getUniqueId":
+						return uniqueId;
+					case "getWorld":
+						return location.getWorld();
+					case "getLocation":
+						if (args == null || args.length == 0) {
+							return location.clone();
+						}
+						Location target = (Location) args[0];
+						if (target == null) return null;
+						target.setWorld(location.getWorld());
+						target.setX(location.getX());
+						target.setY(location.getY());
+						target.setZ(location.getZ());
+						return target;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return (proxy == args[0]);
+					case "toString":
+						return name;
+					default:
+						throw new UnsupportedOperationException(
+								"Not supported by the benchmark player: " + method.getName()
+						);
+					}
+				}
+		);
+	}
+}
@@ -0,0 +1,98 @@
+package com.nisovin.shopkeepers.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Records the latencies of the operations of a simulated subsystem and reports their throughput
+ * and latency distribution.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class LatencyRecorder {
+
+	private final String name;
+	private long[] latenciesNanos = new long[1024];
+	private int count = 0;
+	private long totalNanos = 0L;
+
+	public LatencyRecorder(String name) {
+		Validate.notEmpty(name, "name is null or empty");
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records the latency of a single operation.
+	 *
+	 * @param latencyNanos
+	 *            the latency in nanoseconds
+	 */
+	public void record(long latencyNanos) {
+		if (count == latenciesNanos.length) {
+			latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+		}
+		latenciesNanos[count++] = latencyNanos;
+		totalNanos += latencyNanos;
+	}
+
+	/**
+	 * Records the latency of an operation that started at the given time.
+	 *
+	 * @param startNanos
+	 *            the start time, as returned by {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		this.record(System.nanoTime() - startNanos);
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	// Nearest-rank percentile of the sorted latencies.
+	private static long percentile(long[] sorted, int count, double percentile) {
+		if (count == 0) return 0L;
+		int rank = (int) Math.ceil(percentile / 100.0D * count);
+		return sorted[Math.max(0, Math.min(rank, count) - 1)];
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L));
+	}
+
+	/**
+	 * Formats a report line with the throughput and latency distribution of the recorded
+	 * operations.
+	 *
+	 * @param elapsedNanos
+	 *            the wall-clock duration of the simulation, used to calculate the throughput
+	 * @return the report line
+	 */
+	public String formatReport(long elapsedNanos) {
+		long[] sorted = Arrays.copyOf(latenciesNanos, count);
+		Arrays.sort(sorted);
+		double elapsedSeconds = Math.max(elapsedNanos, 1L) / (double) TimeUnit.SECONDS.toNanos(1L);
+		double throughput = count / elapsedSeconds;
+		long meanNanos = (count == 0) ? 0L : totalNanos / count;
+		return String.format(Locale.ROOT,
+				"%-18s ops: %9d  ops/s: %12.1f  busy: %9s ms  mean: %8s ms  p50: %8s ms"
+						+ "  p99: %8s ms  p99.9: %8s ms  max: %8s ms",
+				name,
+				count,
+				throughput,
+				formatMillis(totalNanos),
+				formatMillis(meanNanos),
+				formatMillis(percentile(sorted, count, 50.0D)),
+				formatMillis(percentile(sorted, count, 99.0D)),
+				formatMillis(percentile(sorted, count, 99.9D)),
+				formatMillis(count == 0 ? 0L : sorted[count - 1])
+		);
+	}
+}
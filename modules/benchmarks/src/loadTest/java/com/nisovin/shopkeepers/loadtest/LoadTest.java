@@ -0,0 +1,504 @@
+package com.nisovin.shopkeepers.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantInventory;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopCreationData;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.benchmark.SimulatedScheduler;
+import com.nisovin.shopkeepers.benchmark.server.StubMerchantInventory;
+import com.nisovin.shopkeepers.benchmark.server.StubPlayer;
+import com.nisovin.shopkeepers.benchmark.server.StubServer;
+import com.nisovin.shopkeepers.benchmark.server.StubWorld;
+import com.nisovin.shopkeepers.shopkeeper.admin.regular.SKRegularAdminShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.shopobjects.living.LivingEntityAI;
+import com.nisovin.shopkeepers.shopobjects.living.SKLivingShopObjectType;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.timer.Timings;
+
+/**
+ * A headless load test that runs the plugin on a simulated server with many shopkeepers.
+ * <p>
+ * The load test enables the actual plugin on a stubbed server (see {@link StubServer}), creates
+ * the requested number of admin villager shopkeepers distributed across several flat worlds, lets
+ * the requested number of players join, and then simulates the given number of server ticks. Each
+ * tick runs the tasks of the {@link SimulatedScheduler}, which drive the plugin's shopkeeper
+ * ticking and saves, and then simulates chunk load and unload churn, player movement and
+ * teleports, bursts of trades, and periodic offer edits. The simulated events are handled by the
+ * plugin's own listeners and UI handlers. Afterwards, the throughput and latency distribution of
+ * each simulated operation and the plugin's own statistics are reported.
+ * <p>
+ * The simulated ticks are not paced: The load test runs as fast as possible, so the reported
+ * latencies are the pure processing costs of the simulated operations. All regions are simulated
+ * by a single thread, and the Minecraft mob AI is not ticked.
+ * <p>
+ * Usage: <code>./gradlew :shopkeepers-benchmarks:loadTest -PloadTestArgs="--shops=20000"</code>
+ * <p>
+ * Options (with their defaults): <code>--shops=10000</code>, <code>--worlds=3</code>,
+ * <code>--range=2000</code> (block range around the world origin), <code>--ticks=12000</code>,
+ * <code>--players=100</code>, <code>--chunk-churn=4</code> (chunk loads and unloads per tick),
+ * <code>--trade-burst=200</code> (trades per burst), <code>--trade-interval=20</code> (ticks
+ * between bursts), <code>--edit-interval=100</code> (ticks between offer edits),
+ * <code>--seed=42</code>.
+ */
+public final class LoadTest {
+
+	private static final Map<String, Integer> DEFAULT_OPTIONS = new HashMap<>();
+	static {
+		DEFAULT_OPTIONS.put("shops", 10000);
+		DEFAULT_OPTIONS.put("worlds", 3);
+		DEFAULT_OPTIONS.put("range", 2000);
+		DEFAULT_OPTIONS.put("ticks", 12000);
+		DEFAULT_OPTIONS.put("players", 100);
+		DEFAULT_OPTIONS.put("chunk-churn", 4);
+		DEFAULT_OPTIONS.put("trade-burst", 200);
+		DEFAULT_OPTIONS.put("trade-interval", 20);
+		DEFAULT_OPTIONS.put("edit-interval", 100);
+		DEFAULT_OPTIONS.put("seed", 42);
+	}
+
+	// Blocks per tick:
+	private static final double WALKING_SPEED = 0.2D;
+	// Per player and tick:
+	private static final double DIRECTION_CHANGE_CHANCE = 0.01D;
+	private static final double TELEPORT_CHANCE = 0.0005D;
+
+	private static Map<String, Integer> parseOptions(String[] args) {
+		Map<String, Integer> options = new HashMap<>(DEFAULT_OPTIONS);
+		for (String arg : args) {
+			int separatorIndex = arg.indexOf('=');
+			if (!arg.startsWith("--") || separatorIndex < 0) {
+				throw new IllegalArgumentException("Invalid argument: " + arg);
+			}
+			String key = arg.substring(2, separatorIndex);
+			if (!DEFAULT_OPTIONS.containsKey(key)) {
+				throw new IllegalArgumentException("Unknown option: " + key);
+			}
+			int value;
+			try {
+				value = Integer.parseInt(arg.substring(separatorIndex + 1));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value for option " + key + ": " + arg);
+			}
+			if (value <= 0 && !key.equals("seed")) {
+				throw new IllegalArgumentException("Option " + key + " has to be positive: " + arg);
+			}
+			options.put(key, value);
+		}
+		return options;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, Integer> options = parseOptions(args);
+		Logger logger = Logger.getLogger("Shopkeepers-LoadTest");
+		new LoadTest(options, logger).run();
+	}
+
+	private static final class ShopChunk {
+
+		private final StubWorld world;
+		private final int chunkX;
+		private final int chunkZ;
+
+		ShopChunk(StubWorld world, int chunkX, int chunkZ) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		Chunk getChunk() {
+			return world.getChunk(chunkX, chunkZ);
+		}
+	}
+
+	private static final class PlayerState {
+
+		private final StubPlayer player;
+		private double directionX;
+		private double directionZ;
+
+		PlayerState(StubPlayer player) {
+			this.player = player;
+		}
+	}
+
+	private final Map<String, Integer> options;
+	private final Logger logger;
+	private final int range;
+	private final Random random;
+	private final SimulatedScheduler scheduler = new SimulatedScheduler();
+	private final StubServer server = new StubServer(scheduler);
+	private final List<StubWorld> worlds = new ArrayList<>();
+	private final List<ShopChunk> loadedChunks = new ArrayList<>();
+	private final List<ShopChunk> unloadedChunks = new ArrayList<>();
+	private final List<SKRegularAdminShopkeeper> shopkeepers = new ArrayList<>();
+	private final List<PlayerState> players = new ArrayList<>();
+
+	private final LatencyRecorder tickLatencies = new LatencyRecorder("tick");
+	private final LatencyRecorder schedulerLatencies = new LatencyRecorder("scheduler");
+	private final LatencyRecorder chunkLoadLatencies = new LatencyRecorder("chunk-load");
+	private final LatencyRecorder chunkUnloadLatencies = new LatencyRecorder("chunk-unload");
+	private final LatencyRecorder playerMoveLatencies = new LatencyRecorder("player-move");
+	private final LatencyRecorder teleportLatencies = new LatencyRecorder("player-teleport");
+	private final LatencyRecorder uiOpenLatencies = new LatencyRecorder("ui-open");
+	private final LatencyRecorder tradeLatencies = new LatencyRecorder("trade");
+	private final LatencyRecorder tradeBurstLatencies = new LatencyRecorder("trade-burst");
+	private final LatencyRecorder editLatencies = new LatencyRecorder("offer-edit");
+	private int completedTrades = 0;
+
+	private LoadTest(Map<String, Integer> options, Logger logger) {
+		this.options = options;
+		this.logger = logger;
+		this.range = options.get("range");
+		this.random = new Random(options.get("seed"));
+	}
+
+	private void run() throws Exception {
+		int shopCount = options.get("shops");
+		int worldCount = options.get("worlds");
+		int ticks = options.get("ticks");
+		logger.info("Setting up " + shopCount + " shopkeepers in " + worldCount + " worlds: "
+				+ options);
+
+		for (int i = 0; i < worldCount; i++) {
+			worlds.add(server.createWorld("world_" + i));
+		}
+		List<Location> shopLocations = this.setUpShopChunks(shopCount);
+
+		SKShopkeepersPlugin plugin = server.loadPlugin();
+		server.enablePlugin();
+		try {
+			this.createShopkeepers(plugin, shopLocations);
+			this.joinPlayers(options.get("players"));
+
+			logger.info("Simulating " + ticks + " ticks ...");
+			int tradeInterval = options.get("trade-interval");
+			int editInterval = options.get("edit-interval");
+			long startNanos = System.nanoTime();
+			for (int i = 0; i < ticks; i++) {
+				long tickStartNanos = System.nanoTime();
+				scheduler.tick();
+				schedulerLatencies.recordSince(tickStartNanos);
+				long currentTick = scheduler.getCurrentTick();
+				this.churnChunks();
+				this.movePlayers();
+				if (currentTick % tradeInterval == 0) {
+					this.tradeBurst(plugin);
+				}
+				if (currentTick % editInterval == 0) {
+					this.editOffer();
+				}
+				tickLatencies.recordSince(tickStartNanos);
+			}
+			long elapsedNanos = System.nanoTime() - startNanos;
+			logger.info(this.createReport(plugin, ticks, elapsedNanos));
+		} finally {
+			// Saves the shopkeepers and waits for the IO to complete:
+			server.disablePlugin(plugin);
+			server.shutdown();
+		}
+	}
+
+	// Picks the shopkeeper locations and loads half of their chunks.
+	private List<Location> setUpShopChunks(int shopCount) {
+		List<Location> shopLocations = new ArrayList<>(shopCount);
+		Map<ChunkCoords, ShopChunk> shopChunks = new LinkedHashMap<>();
+		for (int i = 0; i < shopCount; i++) {
+			StubWorld world = worlds.get(random.nextInt(worlds.size()));
+			int blockX = random.nextInt(2 * range + 1) - range;
+			int blockZ = random.nextInt(2 * range + 1) - range;
+			shopLocations.add(new Location(
+					world.getWorld(),
+					blockX + 0.5D,
+					StubWorld.GROUND_Y,
+					blockZ + 0.5D
+			));
+			ChunkCoords chunkCoords = ChunkCoords.fromBlock(world.getName(), blockX, blockZ);
+			shopChunks.computeIfAbsent(chunkCoords, key -> new ShopChunk(
+					world,
+					key.getChunkX(),
+					key.getChunkZ()
+			));
+		}
+
+		for (ShopChunk shopChunk : shopChunks.values()) {
+			if (random.nextBoolean()) {
+				shopChunk.world.setChunkLoaded(shopChunk.chunkX, shopChunk.chunkZ, true);
+				loadedChunks.add(shopChunk);
+			} else {
+				unloadedChunks.add(shopChunk);
+			}
+		}
+		return shopLocations;
+	}
+
+	private void createShopkeepers(
+			SKShopkeepersPlugin plugin,
+			List<Location> shopLocations
+	) throws ShopkeeperCreateException {
+		SKShopkeeperRegistry registry = plugin.getShopkeeperRegistry();
+		SKLivingShopObjectType<?> villagerObjectType = Validate.State.notNull(
+				plugin.getLivingShops().getLivingShopObjectTypes().get(EntityType.VILLAGER),
+				"Villager shop object type is not available!"
+		);
+		for (Location location : shopLocations) {
+			AdminShopCreationData creationData = AdminShopCreationData.create(
+					null,
+					plugin.getDefaultShopTypes().getRegularAdminShopType(),
+					villagerObjectType,
+					location,
+					null
+			);
+			SKRegularAdminShopkeeper shopkeeper = (SKRegularAdminShopkeeper) registry
+					.createShopkeeper(creationData);
+			shopkeeper.setOffers(List.of(this.createOffer()));
+			shopkeepers.add(shopkeeper);
+		}
+		// Saves the created shopkeepers asynchronously:
+		plugin.getShopkeeperStorage().save();
+	}
+
+	private TradeOffer createOffer() {
+		return TradeOffer.create(
+				new ItemStack(Material.BREAD, 1 + random.nextInt(16)),
+				new ItemStack(Material.EMERALD, 1 + random.nextInt(8)),
+				null
+		);
+	}
+
+	private Location getRandomLocation() {
+		StubWorld world = worlds.get(random.nextInt(worlds.size()));
+		return new Location(
+				world.getWorld(),
+				random.nextInt(2 * range + 1) - range + 0.5D,
+				StubWorld.GROUND_Y,
+				random.nextInt(2 * range + 1) - range + 0.5D
+		);
+	}
+
+	private void joinPlayers(int playerCount) {
+		for (int i = 0; i < playerCount; i++) {
+			StubPlayer player = server.joinPlayer("Player" + i, this.getRandomLocation());
+			PlayerState playerState = new PlayerState(player);
+			this.changeDirection(playerState);
+			players.add(playerState);
+		}
+	}
+
+	private void changeDirection(PlayerState playerState) {
+		double angle = random.nextDouble() * 2.0D * Math.PI;
+		playerState.directionX = Math.cos(angle);
+		playerState.directionZ = Math.sin(angle);
+	}
+
+	private static <T> T removeRandom(List<T> list, Random random) {
+		int index = random.nextInt(list.size());
+		T element = list.get(index);
+		// Swap-remove:
+		T last = list.remove(list.size() - 1);
+		if (index < list.size()) {
+			list.set(index, last);
+		}
+		return element;
+	}
+
+	private void churnChunks() {
+		int chunkChurn = options.get("chunk-churn");
+		for (int i = 0; i < chunkChurn; i++) {
+			if (!loadedChunks.isEmpty()) {
+				ShopChunk shopChunk = removeRandom(loadedChunks, random);
+				long startNanos = System.nanoTime();
+				// The chunk is still loaded while the event is called:
+				Bukkit.getPluginManager().callEvent(new ChunkUnloadEvent(shopChunk.getChunk()));
+				shopChunk.world.setChunkLoaded(shopChunk.chunkX, shopChunk.chunkZ, false);
+				chunkUnloadLatencies.recordSince(startNanos);
+				unloadedChunks.add(shopChunk);
+			}
+			if (!unloadedChunks.isEmpty()) {
+				ShopChunk shopChunk = removeRandom(unloadedChunks, random);
+				long startNanos = System.nanoTime();
+				shopChunk.world.setChunkLoaded(shopChunk.chunkX, shopChunk.chunkZ, true);
+				ChunkLoadEvent chunkLoadEvent = new ChunkLoadEvent(shopChunk.getChunk(), false);
+				Bukkit.getPluginManager().callEvent(chunkLoadEvent);
+				chunkLoadLatencies.recordSince(startNanos);
+				loadedChunks.add(shopChunk);
+			}
+		}
+	}
+
+	private void movePlayers() {
+		for (PlayerState playerState : players) {
+			StubPlayer player = playerState.player;
+			if (random.nextDouble() < TELEPORT_CHANCE) {
+				long startNanos = System.nanoTime();
+				player.teleport(this.getRandomLocation(), TeleportCause.COMMAND);
+				teleportLatencies.recordSince(startNanos);
+				continue;
+			}
+
+			if (random.nextDouble() < DIRECTION_CHANGE_CHANCE) {
+				this.changeDirection(playerState);
+			}
+			Location location = player.getLocation();
+			double x = location.getX() + playerState.directionX * WALKING_SPEED;
+			double z = location.getZ() + playerState.directionZ * WALKING_SPEED;
+			// Turn around at the border of the simulated area:
+			if (Math.abs(x) > range || Math.abs(z) > range) {
+				playerState.directionX = -playerState.directionX;
+				playerState.directionZ = -playerState.directionZ;
+				continue;
+			}
+			location.setX(x);
+			location.setZ(z);
+			long startNanos = System.nanoTime();
+			player.move(location);
+			playerMoveLatencies.recordSince(startNanos);
+		}
+	}
+
+	private void tradeBurst(SKShopkeepersPlugin plugin) {
+		int tradeBurst = options.get("trade-burst");
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < tradeBurst; i++) {
+			PlayerState playerState = players.get(random.nextInt(players.size()));
+			SKRegularAdminShopkeeper shopkeeper = shopkeepers.get(
+					random.nextInt(shopkeepers.size())
+			);
+			this.trade(plugin, shopkeeper, playerState.player.getPlayer());
+		}
+		tradeBurstLatencies.recordSince(startNanos);
+	}
+
+	// Opens the trading UI, trades once, like a player clicking the result slot, and closes the UI.
+	private void trade(
+			SKShopkeepersPlugin plugin,
+			SKRegularAdminShopkeeper shopkeeper,
+			Player player
+	) {
+		long startNanos = System.nanoTime();
+		boolean opened = plugin.getUIRegistry().requestUI(
+				DefaultUITypes.TRADING(),
+				shopkeeper,
+				player
+		);
+		uiOpenLatencies.recordSince(startNanos);
+		if (!opened) return;
+
+		InventoryView view = player.getOpenInventory();
+		MerchantInventory merchantInventory = (MerchantInventory) view.getTopInventory();
+		TradeOffer offer = shopkeeper.getOffers().get(0);
+
+		startNanos = System.nanoTime();
+		merchantInventory.setItem(
+				StubMerchantInventory.BUY_ITEM_1_SLOT,
+				offer.getItem1().copy()
+		);
+		Bukkit.getPluginManager().callEvent(new InventoryClickEvent(
+				view,
+				SlotType.RESULT,
+				StubMerchantInventory.RESULT_SLOT,
+				ClickType.LEFT,
+				InventoryAction.PICKUP_ALL
+		));
+		tradeLatencies.recordSince(startNanos);
+
+		if (!ItemUtils.isEmpty(player.getItemOnCursor())) {
+			completedTrades++;
+			player.setItemOnCursor(null);
+		}
+		player.closeInventory();
+	}
+
+	// Replaces the offer of a random shopkeeper, like an admin using the editor.
+	private void editOffer() {
+		SKRegularAdminShopkeeper shopkeeper = shopkeepers.get(random.nextInt(shopkeepers.size()));
+		long startNanos = System.nanoTime();
+		shopkeeper.setOffers(List.of(this.createOffer()));
+		shopkeeper.save();
+		editLatencies.recordSince(startNanos);
+	}
+
+	private String createReport(SKShopkeepersPlugin plugin, int ticks, long elapsedNanos) {
+		List<LatencyRecorder> recorders = List.of(
+				tickLatencies,
+				schedulerLatencies,
+				chunkLoadLatencies,
+				chunkUnloadLatencies,
+				playerMoveLatencies,
+				teleportLatencies,
+				uiOpenLatencies,
+				tradeLatencies,
+				tradeBurstLatencies,
+				editLatencies
+		);
+
+		String lineSeparator = System.lineSeparator();
+		StringBuilder report = new StringBuilder();
+		report.append("Load test results (").append(ticks).append(" ticks, ")
+				.append(shopkeepers.size()).append(" shopkeepers, ")
+				.append(players.size()).append(" players):");
+		for (LatencyRecorder recorder : recorders) {
+			report.append(lineSeparator).append("  ").append(recorder.formatReport(elapsedNanos));
+		}
+
+		SKShopkeeperRegistry registry = plugin.getShopkeeperRegistry();
+		report.append(lineSeparator).append("  Shopkeepers (total | active): ")
+				.append(registry.getAllShopkeepers().size()).append(" | ")
+				.append(registry.getActiveShopkeepers().size());
+		report.append(lineSeparator).append("  Completed trades: ").append(completedTrades)
+				.append(" / ").append(tradeLatencies.getCount());
+
+		LivingEntityAI livingEntityAI = plugin.getLivingShops().getLivingEntityAI();
+		report.append(lineSeparator).append("  Entity AI (entities | active AI chunks | active AI"
+				+ " entities): ").append(livingEntityAI.getEntityCount()).append(" | ")
+				.append(livingEntityAI.getActiveAIChunksCount()).append(" | ")
+				.append(livingEntityAI.getActiveAIEntityCount());
+		report.append(lineSeparator).append("  Entity AI timings (total | activation): ")
+				.append(formatTimings(livingEntityAI.getTotalTimings())).append(" | ")
+				.append(formatTimings(livingEntityAI.getActivationTimings()));
+		report.append(lineSeparator).append("  Chunk activation timings: ")
+				.append(formatTimings(registry.getChunkActivator().getChunkActivationTimings()));
+		report.append(lineSeparator).append("  Saves: ")
+				.append(plugin.getShopkeeperStorage().getSaveStatisticsString());
+		report.append(lineSeparator).append("  Pending scheduler tasks: ")
+				.append(scheduler.getPendingTaskCount());
+		return report.toString();
+	}
+
+	private static String formatTimings(Timings timings) {
+		return String.format(Locale.ROOT, "avg %.3f ms, max %.3f ms (%d)",
+				timings.getAverageTimeMillis(),
+				timings.getMaxTimeMillis(),
+				timings.getCounter()
+		);
+	}
+}
@@ -0,0 +1,210 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.craftbukkit.CraftRegistry;
+import org.bukkit.craftbukkit.inventory.CraftItemFactory;
+import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.Bootstrap;
+
+/**
+ * A minimal mocked Bukkit {@link Server} that allows the benchmarks to run without a running
+ * server.
+ * <p>
+ * The server only provides the functionality that is required by the benchmarked code, such as
+ * the creation and comparison of items and their metadata. These are backed by the actual server
+ * implementation, so that the benchmarks measure realistic item operations. The Folia schedulers
+ * can optionally be backed by a {@link SimulatedScheduler}, whose simulated server thread is then
+ * also treated as the primary thread that owns all regions. Any other server method is delegated
+ * to the {@link #setFallbackHandler(InvocationHandler) fallback handler}, if one has been set up,
+ * or otherwise throws an {@link UnsupportedOperationException}.
+ */
+public final class BenchmarkServer {
+
+	private static final Logger LOGGER = Logger.getLogger("BenchmarkServer");
+
+	private static boolean setUp = false;
+	private static @Nullable SimulatedScheduler scheduler = null;
+	private static @Nullable InvocationHandler fallbackHandler = null;
+
+	/**
+	 * Sets up the mocked server, if it has not yet been set up.
+	 * <p>
+	 * This is expected to be called at the beginning of the benchmark setup, before any Bukkit
+	 * classes are used.
+	 */
+	public static synchronized void setUp() {
+		if (setUp) return;
+		setUp = true;
+
+		// Initialize the Minecraft registries (items, data components, etc.):
+		SharedConstants.tryDetectVersion();
+		Bootstrap.bootStrap();
+
+		RegistryAccess.Frozen registryAccess = RegistryAccess.fromRegistryOfRegistries(
+				BuiltInRegistries.REGISTRY
+		);
+		CraftRegistry.setMinecraftRegistry(registryAccess);
+
+		Server server = (Server) Proxy.newProxyInstance(
+				BenchmarkServer.class.getClassLoader(),
+				new Class<?>[] { Server.class },
+				new ServerHandler(registryAccess)
+		);
+		Bukkit.setServer(server);
+	}
+
+	/**
+	 * Sets the scheduler that backs the global region, region, and async schedulers of the mocked
+	 * server.
+	 *
+	 * @param scheduler
+	 *            the scheduler, or <code>null</code> to not support scheduling
+	 */
+	public static synchronized void setScheduler(@Nullable SimulatedScheduler scheduler) {
+		BenchmarkServer.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets the handler that is invoked for the server methods that are not supported by the mocked
+	 * server itself.
+	 *
+	 * @param fallbackHandler
+	 *            the fallback handler, or <code>null</code> to not support any other server methods
+	 */
+	public static synchronized void setFallbackHandler(@Nullable InvocationHandler fallbackHandler) {
+		BenchmarkServer.fallbackHandler = fallbackHandler;
+	}
+
+	private static synchronized @Nullable InvocationHandler getFallbackHandler() {
+		return fallbackHandler;
+	}
+
+	private static synchronized boolean isServerThread() {
+		SimulatedScheduler scheduler = BenchmarkServer.scheduler;
+		return (scheduler == null || scheduler.isServerThread());
+	}
+
+	private static synchronized SimulatedScheduler getScheduler() {
+		SimulatedScheduler scheduler = BenchmarkServer.scheduler;
+		if (scheduler == null) {
+			throw new UnsupportedOperationException("No scheduler has been set up!");
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Creates a mocked {@link Plugin} that can be used to schedule tasks via the mocked server.
+	 * <p>
+	 * The plugin is enabled and only provides its name and logger. Any other plugin method throws
+	 * an {@link UnsupportedOperationException}.
+	 *
+	 * @param name
+	 *            the plugin name
+	 * @return the plugin
+	 */
+	public static Plugin createPlugin(String name) {
+		Logger logger = Logger.getLogger(name);
+		return (Plugin) Proxy.newProxyInstance(
+				BenchmarkServer.class.getClassLoader(),
+				new Class<?>[] { Plugin.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getName":
+						return name;
+					case "getLogger":
+						return logger;
+					case "isEnabled":
+						return true;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return (proxy == args[0]);
+					case "toString":
+						return name;
+					default:
+						throw new UnsupportedOperationException(
+								"Not supported by the benchmark plugin: " + method.getName()
+						);
+					}
+				}
+		);
+	}
+
+	private static final class ServerHandler implements InvocationHandler {
+
+		private final RegistryAccess registryAccess;
+		private final Map<Class<?>, Registry<?>> registries = new HashMap<>();
+
+		ServerHandler(RegistryAccess registryAccess) {
+			this.registryAccess = registryAccess;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getName":
+				return "BenchmarkServer";
+			case "getVersion":
+			case "getBukkitVersion":
+			case "getMinecraftVersion":
+				return SharedConstants.getCurrentVersion().getName();
+			case "getLogger":
+				return LOGGER;
+			case "isPrimaryThread":
+			case "isGlobalTickThread":
+			case "isOwnedByCurrentRegion":
+				return isServerThread();
+			case "getItemFactory":
+				return CraftItemFactory.instance();
+			case "getUnsafe":
+				return CraftMagicNumbers.INSTANCE;
+			case "getRegistry":
+				return this.getRegistry((Class<?>) args[0]);
+			case "getGlobalRegionScheduler":
+			case "getRegionScheduler":
+			case "getAsyncScheduler":
+				return getScheduler();
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return (proxy == args[0]);
+			case "toString":
+				return "BenchmarkServer";
+			default:
+				InvocationHandler fallbackHandler = getFallbackHandler();
+				if (fallbackHandler != null) {
+					return fallbackHandler.invoke(proxy, method, args);
+				}
+				throw new UnsupportedOperationException(
+						"Not supported by the benchmark server: " + method.getName()
+				);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private synchronized Registry<?> getRegistry(Class<?> type) {
+			return registries.computeIfAbsent(type, key -> {
+				return CraftRegistry.createRegistry((Class<? extends Keyed>) (Class) key, registryAccess);
+			});
+		}
+	}
+
+	private BenchmarkServer() {
+	}
+}
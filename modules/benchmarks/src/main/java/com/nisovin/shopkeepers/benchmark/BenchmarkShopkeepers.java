@@ -0,0 +1,126 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
+
+/**
+ * Creates lightweight shopkeepers for benchmarks of the shopkeeper indices.
+ * <p>
+ * Regular shopkeepers can only be created and loaded by an enabled plugin. The shopkeepers created
+ * here only have an id, a unique id, and a location, which is all that the shopkeeper indices of
+ * the registry depend on. They are not registered, and do not have a shop type or shop object.
+ */
+public final class BenchmarkShopkeepers {
+
+	private static final Field ID = getField("id");
+	private static final Field UNIQUE_ID = getField("uniqueId");
+	private static final Field LOCATION = getField("location");
+	private static final Field CHUNK_COORDS = getField("chunkCoords");
+
+	private static Field getField(String name) {
+		try {
+			Field field = AbstractShopkeeper.class.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Could not find shopkeeper field: " + name, e);
+		}
+	}
+
+	private static final class FixtureShopkeeper extends AbstractShopkeeper {
+
+		FixtureShopkeeper() {
+		}
+
+		@Override
+		public AbstractShopType<?> getType() {
+			throw new UnsupportedOperationException("Benchmark shopkeepers have no shop type.");
+		}
+
+		@Override
+		public boolean hasTradingRecipes(@Nullable Player player) {
+			return false;
+		}
+
+		@Override
+		public List<? extends TradingRecipe> getTradingRecipes(@Nullable Player player) {
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Creates a shopkeeper at the given location.
+	 *
+	 * @param id
+	 *            the shopkeeper id
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the block x coordinate
+	 * @param y
+	 *            the block y coordinate
+	 * @param z
+	 *            the block z coordinate
+	 * @return the shopkeeper
+	 */
+	public static AbstractShopkeeper create(int id, String worldName, int x, int y, int z) {
+		AbstractShopkeeper shopkeeper = new FixtureShopkeeper();
+		BlockLocation location = new BlockLocation(worldName, x, y, z);
+		try {
+			ID.setInt(shopkeeper, id);
+			UNIQUE_ID.set(shopkeeper, UUID.randomUUID());
+			LOCATION.set(shopkeeper, location);
+			CHUNK_COORDS.set(shopkeeper, location.getChunkCoords());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not set up benchmark shopkeeper!", e);
+		}
+		return shopkeeper;
+	}
+
+	/**
+	 * Creates the specified number of shopkeepers with consecutive ids, starting at
+	 * <code>1</code>, that are randomly distributed across the given number of worlds within the
+	 * given block range around the world origin.
+	 *
+	 * @param count
+	 *            the number of shopkeepers
+	 * @param worlds
+	 *            the number of worlds
+	 * @param blockRange
+	 *            the block range
+	 * @param seed
+	 *            the random seed, so that runs are comparable
+	 * @return the shopkeepers
+	 */
+	public static List<AbstractShopkeeper> createDistributed(
+			int count,
+			int worlds,
+			int blockRange,
+			long seed
+	) {
+		Random random = new Random(seed);
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>(count);
+		for (int id = 1; id <= count; id++) {
+			String worldName = "world" + random.nextInt(worlds);
+			int x = random.nextInt(2 * blockRange) - blockRange;
+			int y = 60 + random.nextInt(20);
+			int z = random.nextInt(2 * blockRange) - blockRange;
+			shopkeepers.add(create(id, worldName, x, y, z));
+		}
+		return shopkeepers;
+	}
+
+	private BenchmarkShopkeepers() {
+	}
+}
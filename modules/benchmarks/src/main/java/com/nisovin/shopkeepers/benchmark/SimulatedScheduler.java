@@ -0,0 +1,344 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import com.nisovin.shopkeepers.util.bukkit.Ticks;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+/**
+ * A deterministic stub of the Folia schedulers that is driven by simulated server ticks.
+ * <p>
+ * The thread that creates the scheduler acts as the simulated server thread, which owns the global
+ * region and all regions, and is expected to invoke {@link #tick()}. All scheduled tasks, including
+ * async tasks, are run on this thread. Async task delays are converted to ticks. Region tasks are
+ * not distinguished by their region.
+ * <p>
+ * Async tasks on Folia frequently schedule region tasks and then block until these have completed.
+ * Since the async tasks are run on the simulated server thread, region and global region tasks
+ * that are scheduled without a delay while an async task is running are run right away, as if a
+ * region had picked them up while the async task was waiting.
+ * <p>
+ * Tasks can be scheduled and cancelled from any thread.
+ */
+public final class SimulatedScheduler implements GlobalRegionScheduler, RegionScheduler, AsyncScheduler {
+
+	private final class SimulatedTask implements ScheduledTask, Comparable<SimulatedTask> {
+
+		private final Plugin plugin;
+		private final Consumer<ScheduledTask> task;
+		private final boolean async;
+		private final long periodTicks; // 0 if not repeating
+		private final long sequence;
+		private long nextRunTick;
+		private ExecutionState state = ExecutionState.IDLE;
+
+		// Expects to be called while holding the scheduler's lock.
+		SimulatedTask(
+				Plugin plugin,
+				Consumer<ScheduledTask> task,
+				boolean async,
+				long delayTicks,
+				long periodTicks
+		) {
+			this.plugin = plugin;
+			this.task = task;
+			this.async = async;
+			this.periodTicks = periodTicks;
+			this.sequence = nextSequence++;
+			this.nextRunTick = currentTick + Math.max(delayTicks, 1L);
+		}
+
+		@Override
+		public Plugin getOwningPlugin() {
+			return plugin;
+		}
+
+		@Override
+		public boolean isRepeatingTask() {
+			return periodTicks > 0;
+		}
+
+		@Override
+		public CancelledState cancel() {
+			synchronized (SimulatedScheduler.this) {
+				switch (state) {
+				case IDLE:
+					state = ExecutionState.CANCELLED;
+					return CancelledState.CANCELLED_BY_CALLER;
+				case RUNNING:
+					if (this.isRepeatingTask()) {
+						state = ExecutionState.CANCELLED_RUNNING;
+						return CancelledState.NEXT_RUNS_CANCELLED;
+					}
+					return CancelledState.RUNNING;
+				case FINISHED:
+					return CancelledState.ALREADY_EXECUTED;
+				case CANCELLED_RUNNING:
+					return CancelledState.NEXT_RUNS_CANCELLED_ALREADY;
+				default:
+					return CancelledState.CANCELLED_ALREADY;
+				}
+			}
+		}
+
+		@Override
+		public ExecutionState getExecutionState() {
+			synchronized (SimulatedScheduler.this) {
+				return state;
+			}
+		}
+
+		void run() {
+			synchronized (SimulatedScheduler.this) {
+				if (state != ExecutionState.IDLE) return; // Cancelled
+				state = ExecutionState.RUNNING;
+			}
+			if (async) {
+				runningAsyncTasks++;
+			}
+			try {
+				task.accept(this);
+			} finally {
+				if (async) {
+					runningAsyncTasks--;
+				}
+				synchronized (SimulatedScheduler.this) {
+					if (state == ExecutionState.CANCELLED_RUNNING) {
+						state = ExecutionState.CANCELLED;
+					} else if (this.isRepeatingTask()) {
+						state = ExecutionState.IDLE;
+						nextRunTick = currentTick + periodTicks;
+						pendingTasks.add(this);
+					} else {
+						state = ExecutionState.FINISHED;
+					}
+				}
+			}
+		}
+
+		@Override
+		public int compareTo(SimulatedTask other) {
+			int result = Long.compare(nextRunTick, other.nextRunTick);
+			if (result != 0) return result;
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private final Thread serverThread;
+	// Guarded by the scheduler's lock:
+	private final PriorityQueue<SimulatedTask> pendingTasks = new PriorityQueue<>();
+	private long currentTick = 0L;
+	private long nextSequence = 0L;
+	// Only accessed by the server thread:
+	private int runningAsyncTasks = 0;
+
+	/**
+	 * Creates a new {@link SimulatedScheduler} whose simulated server thread is the current thread.
+	 */
+	public SimulatedScheduler() {
+		this.serverThread = Thread.currentThread();
+	}
+
+	/**
+	 * Checks if the current thread is the simulated server thread.
+	 *
+	 * @return <code>true</code> if called from the simulated server thread
+	 */
+	public boolean isServerThread() {
+		return Thread.currentThread() == serverThread;
+	}
+
+	/**
+	 * Gets the current simulated tick.
+	 *
+	 * @return the current tick
+	 */
+	public synchronized long getCurrentTick() {
+		return currentTick;
+	}
+
+	/**
+	 * Gets the number of tasks that are currently scheduled.
+	 *
+	 * @return the number of pending tasks
+	 */
+	public synchronized int getPendingTaskCount() {
+		return pendingTasks.size();
+	}
+
+	/**
+	 * Advances the simulation by one tick and runs all tasks that are due.
+	 */
+	public void tick() {
+		Validate.State.isTrue(this.isServerThread(), "Not called from the simulated server thread!");
+		// Tasks that are scheduled during this tick are run during a subsequent tick:
+		List<SimulatedTask> dueTasks = new ArrayList<>();
+		synchronized (this) {
+			currentTick++;
+			SimulatedTask next;
+			while ((next = pendingTasks.peek()) != null && next.nextRunTick <= currentTick) {
+				dueTasks.add(pendingTasks.poll());
+			}
+		}
+		for (SimulatedTask task : dueTasks) {
+			task.run();
+		}
+	}
+
+	private ScheduledTask schedule(
+			Plugin plugin,
+			Consumer<ScheduledTask> task,
+			boolean async,
+			long delayTicks,
+			long periodTicks
+	) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(task, "task is null");
+		SimulatedTask simulatedTask;
+		synchronized (this) {
+			simulatedTask = new SimulatedTask(plugin, task, async, delayTicks, periodTicks);
+			if (async || periodTicks > 0 || delayTicks > 1 || !this.isInsideAsyncTask()) {
+				pendingTasks.add(simulatedTask);
+				return simulatedTask;
+			}
+		}
+		// A running async task is likely waiting for this task to complete:
+		simulatedTask.run();
+		return simulatedTask;
+	}
+
+	private boolean isInsideAsyncTask() {
+		return this.isServerThread() && runningAsyncTasks > 0;
+	}
+
+	private static long toTicks(long duration, TimeUnit unit) {
+		return Math.max(1L, Ticks.fromMillis(unit.toMillis(duration)));
+	}
+
+	private void cancelAll(Plugin plugin) {
+		List<SimulatedTask> tasks;
+		synchronized (this) {
+			tasks = new ArrayList<>(pendingTasks);
+		}
+		for (SimulatedTask task : tasks) {
+			if (task.plugin == plugin) {
+				task.cancel();
+			}
+		}
+	}
+
+	// GLOBAL REGION
+
+	@Override
+	public void execute(Plugin plugin, Runnable run) {
+		this.schedule(plugin, task -> run.run(), false, 1L, 0L);
+	}
+
+	@Override
+	public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task) {
+		return this.schedule(plugin, task, false, 1L, 0L);
+	}
+
+	@Override
+	public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delayTicks) {
+		return this.schedule(plugin, task, false, delayTicks, 0L);
+	}
+
+	@Override
+	public ScheduledTask runAtFixedRate(
+			Plugin plugin,
+			Consumer<ScheduledTask> task,
+			long initialDelayTicks,
+			long periodTicks
+	) {
+		return this.schedule(plugin, task, false, initialDelayTicks, Math.max(periodTicks, 1L));
+	}
+
+	@Override
+	public void cancelTasks(Plugin plugin) {
+		this.cancelAll(plugin);
+	}
+
+	// REGION
+
+	@Override
+	public void execute(Plugin plugin, World world, int chunkX, int chunkZ, Runnable run) {
+		this.execute(plugin, run);
+	}
+
+	@Override
+	public ScheduledTask run(
+			Plugin plugin,
+			World world,
+			int chunkX,
+			int chunkZ,
+			Consumer<ScheduledTask> task
+	) {
+		return this.run(plugin, task);
+	}
+
+	@Override
+	public ScheduledTask runDelayed(
+			Plugin plugin,
+			World world,
+			int chunkX,
+			int chunkZ,
+			Consumer<ScheduledTask> task,
+			long delayTicks
+	) {
+		return this.runDelayed(plugin, task, delayTicks);
+	}
+
+	@Override
+	public ScheduledTask runAtFixedRate(
+			Plugin plugin,
+			World world,
+			int chunkX,
+			int chunkZ,
+			Consumer<ScheduledTask> task,
+			long initialDelayTicks,
+			long periodTicks
+	) {
+		return this.runAtFixedRate(plugin, task, initialDelayTicks, periodTicks);
+	}
+
+	// ASYNC
+
+	@Override
+	public ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task) {
+		return this.schedule(plugin, task, true, 1L, 0L);
+	}
+
+	@Override
+	public ScheduledTask runDelayed(
+			Plugin plugin,
+			Consumer<ScheduledTask> task,
+			long delay,
+			TimeUnit unit
+	) {
+		return this.schedule(plugin, task, true, toTicks(delay, unit), 0L);
+	}
+
+	@Override
+	public ScheduledTask runAtFixedRate(
+			Plugin plugin,
+			Consumer<ScheduledTask> task,
+			long initialDelay,
+			long period,
+			TimeUnit unit
+	) {
+		return this.schedule(plugin, task, true, toTicks(initialDelay, unit), toTicks(period, unit));
+	}
+}
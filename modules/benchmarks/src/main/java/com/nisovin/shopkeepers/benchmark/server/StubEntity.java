@@ -0,0 +1,168 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The handler of an entity stub that is spawned into a {@link StubWorld}.
+ * <p>
+ * The entity stays where it is placed and is valid while it has not been removed and its chunk is
+ * loaded.
+ */
+final class StubEntity extends StubHandler {
+
+	private static final AtomicInteger nextEntityId = new AtomicInteger(1);
+
+	private final StubWorld world;
+	private final EntityType entityType;
+	private final UUID uniqueId = UUID.randomUUID();
+	private final int entityId = nextEntityId.getAndIncrement();
+	private final Map<String, List<MetadataValue>> metadata = new HashMap<>();
+	private double x;
+	private double y;
+	private double z;
+	private float yaw;
+	private float pitch;
+	private @Nullable String customName = null;
+	private boolean spawned = false;
+	private boolean removed = false;
+
+	StubEntity(StubWorld world, EntityType entityType, Location location) {
+		Validate.notNull(world, "world is null");
+		Validate.notNull(entityType, "entityType is null");
+		this.world = world;
+		this.entityType = entityType;
+		this.setLocation(location);
+	}
+
+	/**
+	 * Adds the entity to the world, unless it has already been removed again.
+	 *
+	 * @return <code>true</code> if the entity was spawned
+	 */
+	boolean spawn() {
+		if (removed) return false;
+		spawned = true;
+		return true;
+	}
+
+	private void setLocation(Location location) {
+		Validate.notNull(location, "location is null");
+		x = location.getX();
+		y = location.getY();
+		z = location.getZ();
+		yaw = location.getYaw();
+		pitch = location.getPitch();
+	}
+
+	private Location getLocation(@Nullable Location location) {
+		if (location == null) {
+			return new Location(world.getWorld(), x, y, z, yaw, pitch);
+		}
+		location.setWorld(world.getWorld());
+		location.setX(x);
+		location.setY(y);
+		location.setZ(z);
+		location.setYaw(yaw);
+		location.setPitch(pitch);
+		return location;
+	}
+
+	private boolean isValid() {
+		if (!spawned || removed) return false;
+		return world.isChunkLoaded((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getType":
+			return entityType;
+		case "getUniqueId":
+			return uniqueId;
+		case "getEntityId":
+			return entityId;
+		case "getWorld":
+			return world.getWorld();
+		case "getLocation":
+			return this.getLocation(getArgument(args, Location.class));
+		case "getChunk":
+			return world.getChunk((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+		case "teleport":
+		case "teleportAsync":
+			Location destination = getArgument(args, Location.class);
+			if (destination == null) return UNHANDLED;
+			boolean teleported = !removed;
+			if (teleported) {
+				this.setLocation(destination);
+			}
+			if (method.getName().equals("teleportAsync")) {
+				return CompletableFuture.completedFuture(teleported);
+			}
+			return teleported;
+		case "isValid":
+			return this.isValid();
+		case "isInWorld":
+			return spawned && !removed;
+		case "isDead":
+			return removed;
+		case "remove":
+			if (!removed) {
+				removed = true;
+				world.onEntityRemoved((Entity) proxy);
+			}
+			return null;
+		case "getHeight":
+			return 1.95D;
+		case "getWidth":
+			return 0.6D;
+		case "getCustomName":
+			return customName;
+		case "setCustomName":
+			customName = (String) args[0];
+			return null;
+		case "setMetadata":
+			metadata.computeIfAbsent((String) args[0], key -> new ArrayList<>(1))
+					.add((MetadataValue) args[1]);
+			return null;
+		case "getMetadata":
+			List<MetadataValue> values = metadata.get((String) args[0]);
+			return (values != null) ? new ArrayList<>(values) : Collections.emptyList();
+		case "hasMetadata":
+			return metadata.containsKey((String) args[0]);
+		case "removeMetadata":
+			List<MetadataValue> pluginValues = metadata.get((String) args[0]);
+			if (pluginValues != null) {
+				Plugin plugin = (Plugin) args[1];
+				pluginValues.removeIf(value -> value.getOwningPlugin() == plugin);
+				if (pluginValues.isEmpty()) {
+					metadata.remove((String) args[0]);
+				}
+			}
+			return null;
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Entity{type=" + entityType + ", id=" + entityId + "}";
+	}
+}
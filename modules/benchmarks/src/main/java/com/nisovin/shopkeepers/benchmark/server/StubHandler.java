@@ -0,0 +1,173 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Base class of the proxy based stubs of the Bukkit API that the {@link StubServer} runs the plugin
+ * against.
+ * <p>
+ * A stub only implements the behavior that the plugin depends on when it runs on the stub server.
+ * Any other method falls back to the interface's default implementation, if there is one, or
+ * otherwise does nothing and returns an empty value: <code>false</code>, zero, an empty collection,
+ * array, or {@link Optional}, or <code>null</code>. Stubs are compared by identity.
+ */
+abstract class StubHandler implements InvocationHandler {
+
+	/**
+	 * Returned by {@link #handle(Object, Method, Object[])} for methods that are not handled by the
+	 * stub.
+	 */
+	protected static final Object UNHANDLED = new Object();
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	/**
+	 * Creates a stub of the given interface that is backed by the given handler.
+	 *
+	 * @param <T>
+	 *            the interface type
+	 * @param type
+	 *            the interface, not <code>null</code>
+	 * @param handler
+	 *            the handler, not <code>null</code>
+	 * @return the stub
+	 */
+	static <T> T createStub(Class<T> type, StubHandler handler) {
+		Validate.notNull(type, "type is null");
+		Validate.notNull(handler, "handler is null");
+		return type.cast(Proxy.newProxyInstance(
+				StubHandler.class.getClassLoader(),
+				new Class<?>[] { type },
+				handler
+		));
+	}
+
+	/**
+	 * Gets the handler of the given stub.
+	 *
+	 * @param <H>
+	 *            the handler type
+	 * @param stub
+	 *            the stub, not <code>null</code>
+	 * @param handlerType
+	 *            the handler type, not <code>null</code>
+	 * @return the handler, or <code>null</code> if the given object is not a stub with a handler of
+	 *         the given type
+	 */
+	static <H extends StubHandler> @Nullable H getHandler(Object stub, Class<H> handlerType) {
+		Validate.notNull(stub, "stub is null");
+		Validate.notNull(handlerType, "handlerType is null");
+		if (!Proxy.isProxyClass(stub.getClass())) return null;
+		InvocationHandler handler = Proxy.getInvocationHandler(stub);
+		return handlerType.isInstance(handler) ? handlerType.cast(handler) : null;
+	}
+
+	/**
+	 * Gets the empty value for the given return type.
+	 *
+	 * @param type
+	 *            the return type, not <code>null</code>
+	 * @return the empty value
+	 */
+	static @Nullable Object emptyValue(Class<?> type) {
+		if (type.isPrimitive()) {
+			if (type == boolean.class) return false;
+			if (type == void.class) return null;
+			if (type == char.class) return '\0';
+			if (type == float.class) return 0.0F;
+			if (type == double.class) return 0.0D;
+			if (type == long.class) return 0L;
+			if (type == int.class) return 0;
+			if (type == short.class) return (short) 0;
+			return (byte) 0;
+		}
+		if (type.isArray()) return Array.newInstance(type.getComponentType(), 0);
+		if (type == List.class || type == Collection.class) return Collections.emptyList();
+		if (type == Set.class) return Collections.emptySet();
+		if (type == Map.class) return Collections.emptyMap();
+		if (type == Optional.class) return Optional.empty();
+		return null;
+	}
+
+	@Override
+	public final @Nullable Object invoke(
+			Object proxy,
+			Method method,
+			@Nullable Object @Nullable [] args
+	) throws Throwable {
+		Object[] arguments = (args != null) ? args : NO_ARGS;
+		Object result = this.handle(proxy, method, arguments);
+		if (result != UNHANDLED) return result;
+
+		switch (method.getName()) {
+		case "equals":
+			if (arguments.length == 1) return (proxy == arguments[0]);
+			break;
+		case "hashCode":
+			if (arguments.length == 0) return System.identityHashCode(proxy);
+			break;
+		case "toString":
+			if (arguments.length == 0) return this.toString();
+			break;
+		default:
+			break;
+		}
+
+		if (method.isDefault()) {
+			return InvocationHandler.invokeDefault(proxy, method, args);
+		}
+		return emptyValue(method.getReturnType());
+	}
+
+	/**
+	 * Handles the invocation of a stub method.
+	 *
+	 * @param proxy
+	 *            the stub, not <code>null</code>
+	 * @param method
+	 *            the invoked method, not <code>null</code>
+	 * @param args
+	 *            the arguments, not <code>null</code> but can be empty
+	 * @return the result, or {@link #UNHANDLED} if the method is not handled by this stub
+	 * @throws Throwable
+	 *             if the invocation fails
+	 */
+	protected abstract @Nullable Object handle(
+			Object proxy,
+			Method method,
+			Object[] args
+	) throws Throwable;
+
+	/**
+	 * Gets the first argument of the given type.
+	 *
+	 * @param <T>
+	 *            the argument type
+	 * @param args
+	 *            the arguments, not <code>null</code>
+	 * @param type
+	 *            the argument type, not <code>null</code>
+	 * @return the argument, or <code>null</code> if there is no argument of the given type
+	 */
+	protected static <T> @Nullable T getArgument(Object[] args, Class<T> type) {
+		for (Object arg : args) {
+			if (type.isInstance(arg)) {
+				return type.cast(arg);
+			}
+		}
+		return null;
+	}
+}
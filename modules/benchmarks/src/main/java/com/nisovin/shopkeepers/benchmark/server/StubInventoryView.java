@@ -0,0 +1,85 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+/**
+ * The view of an inventory that is opened by a {@link StubPlayer}.
+ */
+final class StubInventoryView extends InventoryView {
+
+	private final Inventory topInventory;
+	private final Inventory bottomInventory;
+	private final HumanEntity player;
+	private final InventoryType type;
+	private final String originalTitle;
+	private String title;
+
+	StubInventoryView(
+			Inventory topInventory,
+			Inventory bottomInventory,
+			HumanEntity player,
+			InventoryType type,
+			String title
+	) {
+		Validate.notNull(topInventory, "topInventory is null");
+		Validate.notNull(bottomInventory, "bottomInventory is null");
+		Validate.notNull(player, "player is null");
+		Validate.notNull(type, "type is null");
+		Validate.notNull(title, "title is null");
+		this.topInventory = topInventory;
+		this.bottomInventory = bottomInventory;
+		this.player = player;
+		this.type = type;
+		this.originalTitle = title;
+		this.title = title;
+	}
+
+	@Override
+	public Inventory getTopInventory() {
+		return topInventory;
+	}
+
+	@Override
+	public Inventory getBottomInventory() {
+		return bottomInventory;
+	}
+
+	@Override
+	public HumanEntity getPlayer() {
+		return player;
+	}
+
+	@Override
+	public InventoryType getType() {
+		return type;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String getOriginalTitle() {
+		return originalTitle;
+	}
+
+	@Override
+	public void setTitle(String title) {
+		Validate.notNull(title, "title is null");
+		this.title = title;
+	}
+
+	// Paper: Not annotated with @Override, since it is not abstract in all API versions.
+	public Component title() {
+		return LegacyComponentSerializer.legacySection().deserialize(title);
+	}
+}
@@ -0,0 +1,80 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Merchant;
+import org.bukkit.inventory.MerchantRecipe;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The handler of a merchant stub, as created by {@link org.bukkit.Server#createMerchant(String)}.
+ */
+final class StubMerchant extends StubHandler {
+
+	/**
+	 * Creates a new merchant stub.
+	 *
+	 * @param title
+	 *            the title, not <code>null</code>
+	 * @return the merchant
+	 */
+	static Merchant create(String title) {
+		return createStub(Merchant.class, new StubMerchant(title));
+	}
+
+	private final String title;
+	private final List<MerchantRecipe> recipes = new ArrayList<>();
+	private @Nullable HumanEntity trader = null;
+
+	private StubMerchant(String title) {
+		Validate.notNull(title, "title is null");
+		this.title = title;
+	}
+
+	String getTitle() {
+		return title;
+	}
+
+	void setTrader(@Nullable HumanEntity trader) {
+		this.trader = trader;
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getRecipes":
+			// Like in CraftBukkit, the returned recipe list is not modifiable:
+			return Collections.unmodifiableList(new ArrayList<>(recipes));
+		case "setRecipes":
+			@SuppressWarnings("unchecked")
+			List<MerchantRecipe> newRecipes = (List<MerchantRecipe>) args[0];
+			recipes.clear();
+			recipes.addAll(newRecipes);
+			return null;
+		case "getRecipe":
+			return recipes.get((Integer) args[0]);
+		case "setRecipe":
+			recipes.set((Integer) args[0], (MerchantRecipe) args[1]);
+			return null;
+		case "getRecipeCount":
+			return recipes.size();
+		case "isTrading":
+			return (trader != null);
+		case "getTrader":
+			return trader;
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Merchant{title=" + title + "}";
+	}
+}
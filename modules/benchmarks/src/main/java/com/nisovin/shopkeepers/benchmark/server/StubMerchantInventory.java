@@ -0,0 +1,139 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Merchant;
+import org.bukkit.inventory.MerchantInventory;
+import org.bukkit.inventory.MerchantRecipe;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The handler of the {@link MerchantInventory} stub of a merchant that a {@link StubPlayer}
+ * trades with.
+ * <p>
+ * Like the Minecraft server, the inventory updates its result slot whenever its input slots
+ * change: The result slot contains the result of the first trading recipe, preferably the selected
+ * one, whose ingredients are matched by the input items.
+ */
+public final class StubMerchantInventory extends StubHandler {
+
+	public static final int BUY_ITEM_1_SLOT = 0;
+	public static final int BUY_ITEM_2_SLOT = 1;
+	public static final int RESULT_SLOT = 2;
+	private static final int SIZE = 3;
+
+	/**
+	 * Creates a new merchant inventory stub.
+	 *
+	 * @param merchant
+	 *            the merchant, not <code>null</code>
+	 * @param viewer
+	 *            the trading player, not <code>null</code>
+	 * @return the inventory
+	 */
+	static MerchantInventory create(Merchant merchant, HumanEntity viewer) {
+		return createStub(MerchantInventory.class, new StubMerchantInventory(merchant, viewer));
+	}
+
+	private final Merchant merchant;
+	private final HumanEntity viewer;
+	private final @Nullable ItemStack[] items = new @Nullable ItemStack[SIZE];
+	private int selectedRecipeIndex = 0;
+	private @Nullable MerchantRecipe activeRecipe = null;
+
+	private StubMerchantInventory(Merchant merchant, HumanEntity viewer) {
+		Validate.notNull(merchant, "merchant is null");
+		Validate.notNull(viewer, "viewer is null");
+		this.merchant = merchant;
+		this.viewer = viewer;
+	}
+
+	private void setItem(int slot, @Nullable ItemStack item) {
+		items[slot] = ItemUtils.isEmpty(item) ? null : item.clone();
+		if (slot != RESULT_SLOT) {
+			this.updateResult();
+		}
+	}
+
+	private void updateResult() {
+		activeRecipe = this.findRecipe();
+		items[RESULT_SLOT] = (activeRecipe != null) ? activeRecipe.getResult().clone() : null;
+	}
+
+	private @Nullable MerchantRecipe findRecipe() {
+		List<MerchantRecipe> recipes = merchant.getRecipes();
+		if (selectedRecipeIndex < recipes.size()) {
+			MerchantRecipe selectedRecipe = recipes.get(selectedRecipeIndex);
+			if (this.matches(selectedRecipe)) return selectedRecipe;
+		}
+		for (MerchantRecipe recipe : recipes) {
+			if (this.matches(recipe)) return recipe;
+		}
+		return null;
+	}
+
+	private boolean matches(MerchantRecipe recipe) {
+		if (recipe.getUses() >= recipe.getMaxUses()) return false; // Out of stock
+		List<ItemStack> ingredients = recipe.getIngredients();
+		if (ingredients.isEmpty()) return false;
+		ItemStack requiredItem2 = (ingredients.size() > 1) ? ingredients.get(1) : null;
+		return matches(items[BUY_ITEM_1_SLOT], ingredients.get(0))
+				&& matches(items[BUY_ITEM_2_SLOT], requiredItem2);
+	}
+
+	private static boolean matches(@Nullable ItemStack offered, @Nullable ItemStack required) {
+		if (ItemUtils.isEmpty(required)) return ItemUtils.isEmpty(offered);
+		if (ItemUtils.isEmpty(offered)) return false;
+		assert offered != null && required != null;
+		return offered.isSimilar(required) && offered.getAmount() >= required.getAmount();
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getType":
+			return InventoryType.MERCHANT;
+		case "getSize":
+			return SIZE;
+		case "getItem":
+			return items[(Integer) args[0]];
+		case "setItem":
+			this.setItem((Integer) args[0], (ItemStack) args[1]);
+			return null;
+		case "getContents":
+		case "getStorageContents":
+			return items.clone();
+		case "clear":
+			if (args.length == 0) {
+				items[BUY_ITEM_1_SLOT] = null;
+				items[BUY_ITEM_2_SLOT] = null;
+				this.updateResult();
+				return null;
+			}
+			return UNHANDLED;
+		case "getMerchant":
+			return merchant;
+		case "getSelectedRecipeIndex":
+			return selectedRecipeIndex;
+		case "getSelectedRecipe":
+			return activeRecipe;
+		case "getViewers":
+			return Collections.singletonList(viewer);
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MerchantInventory{merchant=" + merchant + "}";
+	}
+}
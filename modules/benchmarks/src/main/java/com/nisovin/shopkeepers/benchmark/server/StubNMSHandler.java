@@ -0,0 +1,76 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+
+/**
+ * The {@link NMSCallProvider} that the plugin uses on the {@link StubServer}.
+ * <p>
+ * The stubbed entities have no server-side counterpart: The entity related calls do nothing, so
+ * only the plugin's own handling of the shopkeeper AI is run, and not the ticking of the Minecraft
+ * mob AI. Items are matched like by the fallback handler.
+ */
+final class StubNMSHandler implements NMSCallProvider {
+
+	StubNMSHandler() {
+	}
+
+	@Override
+	public String getVersionId() {
+		return "Stub";
+	}
+
+	@Override
+	public void overwriteLivingEntityAI(LivingEntity entity) {
+	}
+
+	@Override
+	public void tickAI(LivingEntity entity, int ticks) {
+	}
+
+	@Override
+	public void setOnGround(Entity entity, boolean onGround) {
+	}
+
+	@Override
+	public void setNoclip(Entity entity) {
+	}
+
+	@Override
+	public boolean matches(@Nullable ItemStack provided, @Nullable ItemStack required) {
+		if (provided == required) return true;
+		// If the required item is empty, then the provided item has to be empty as well:
+		if (ItemUtils.isEmpty(required)) return ItemUtils.isEmpty(provided);
+		else if (ItemUtils.isEmpty(provided)) return false;
+		assert required != null && provided != null;
+		if (provided.getType() != required.getType()) return false;
+		return required.isSimilar(provided);
+	}
+
+	@Override
+	public void updateTrades(Player player) {
+	}
+
+	@Override
+	public @Nullable String getItemSNBT(ItemStack itemStack) {
+		return null;
+	}
+
+	@Override
+	public boolean isDestroyingBlocks(EntityExplodeEvent event) {
+		return !event.blockList().isEmpty();
+	}
+
+	@Override
+	public boolean isDestroyingBlocks(BlockExplodeEvent event) {
+		return !event.blockList().isEmpty();
+	}
+}
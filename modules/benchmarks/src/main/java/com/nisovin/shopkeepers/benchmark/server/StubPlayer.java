@@ -0,0 +1,343 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Merchant;
+import org.bukkit.inventory.MerchantInventory;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.permissions.Permission;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+
+/**
+ * The handler of a player stub that is online on the {@link StubServer}.
+ * <p>
+ * The player has the default permissions of the plugin, and can open merchant inventories. Moving
+ * and teleporting the player calls the corresponding events. Messages sent to the player are
+ * discarded.
+ */
+public final class StubPlayer extends StubHandler {
+
+	private static final AtomicInteger nextEntityId = new AtomicInteger(-1);
+	private static final int PLAYER_INVENTORY_SIZE = 41;
+	private static final int PLAYER_STORAGE_SIZE = 36;
+	private static final double EYE_HEIGHT = 1.62D;
+
+	private final class PlayerInventoryStub extends StubHandler {
+
+		@Override
+		protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "getHolder":
+				return player;
+			case "getType":
+				return InventoryType.PLAYER;
+			case "getSize":
+				return PLAYER_INVENTORY_SIZE;
+			case "getContents":
+				return new ItemStack[PLAYER_INVENTORY_SIZE];
+			case "getStorageContents":
+				return new ItemStack[PLAYER_STORAGE_SIZE];
+			case "addItem":
+				// The player inventory has unlimited space:
+				return new HashMap<Integer, ItemStack>();
+			case "getViewers":
+				return Collections.singletonList(player);
+			default:
+				return UNHANDLED;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "PlayerInventory{player=" + name + "}";
+		}
+	}
+
+	private final StubServer server;
+	private final String name;
+	private final UUID uniqueId;
+	private final int entityId = nextEntityId.getAndDecrement();
+	private final Player player;
+	private final PlayerInventory inventory;
+	private final InventoryView defaultView;
+	private final Player.Spigot spigot = new Player.Spigot() {
+		@Override
+		public void sendMessage(BaseComponent component) {
+		}
+
+		@Override
+		public void sendMessage(BaseComponent... components) {
+		}
+	};
+	private StubWorld world;
+	private double x;
+	private double y;
+	private double z;
+	private float yaw;
+	private float pitch;
+	private ItemStack cursor = new ItemStack(Material.AIR);
+	private InventoryView openView;
+
+	StubPlayer(StubServer server, String name, Location location) {
+		Validate.notNull(server, "server is null");
+		Validate.notEmpty(name, "name is null or empty");
+		this.server = server;
+		this.name = name;
+		this.uniqueId = UUID.nameUUIDFromBytes(("Player:" + name).getBytes(StandardCharsets.UTF_8));
+		this.world = server.getWorld(location);
+		this.setLocation(location);
+		this.player = createStub(Player.class, this);
+		this.inventory = createStub(PlayerInventory.class, new PlayerInventoryStub());
+		Inventory craftingInventory = createStub(Inventory.class, new StubHandler() {
+			@Override
+			protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+				switch (method.getName()) {
+				case "getType":
+					return InventoryType.CRAFTING;
+				case "getSize":
+					return 5;
+				case "getHolder":
+					return player;
+				default:
+					return UNHANDLED;
+				}
+			}
+		});
+		this.defaultView = new StubInventoryView(
+				craftingInventory,
+				inventory,
+				player,
+				InventoryType.CRAFTING,
+				"Crafting"
+		);
+		this.openView = defaultView;
+	}
+
+	public Player getPlayer() {
+		return player;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	public StubWorld getWorld() {
+		return world;
+	}
+
+	private void setLocation(Location location) {
+		world = server.getWorld(location);
+		x = location.getX();
+		y = location.getY();
+		z = location.getZ();
+		yaw = location.getYaw();
+		pitch = location.getPitch();
+	}
+
+	public Location getLocation() {
+		return new Location(world.getWorld(), x, y, z, yaw, pitch);
+	}
+
+	private Location getLocation(@Nullable Location location) {
+		if (location == null) return this.getLocation();
+		location.setWorld(world.getWorld());
+		location.setX(x);
+		location.setY(y);
+		location.setZ(z);
+		location.setYaw(yaw);
+		location.setPitch(pitch);
+		return location;
+	}
+
+	/**
+	 * Moves the player to the given location within the player's current world, like a player
+	 * walking there.
+	 *
+	 * @param to
+	 *            the destination, not <code>null</code>
+	 * @return <code>true</code> if the player was moved
+	 */
+	public boolean move(Location to) {
+		PlayerMoveEvent moveEvent = new PlayerMoveEvent(player, this.getLocation(), to.clone());
+		Bukkit.getPluginManager().callEvent(moveEvent);
+		if (moveEvent.isCancelled()) return false;
+		this.setLocation(moveEvent.getTo());
+		return true;
+	}
+
+	/**
+	 * Teleports the player to the given location.
+	 *
+	 * @param to
+	 *            the destination, not <code>null</code>
+	 * @param cause
+	 *            the teleport cause, not <code>null</code>
+	 * @return <code>true</code> if the player was teleported
+	 */
+	public boolean teleport(Location to, TeleportCause cause) {
+		PlayerTeleportEvent teleportEvent = new PlayerTeleportEvent(
+				player,
+				this.getLocation(),
+				to.clone(),
+				cause
+		);
+		Bukkit.getPluginManager().callEvent(teleportEvent);
+		if (teleportEvent.isCancelled()) return false;
+		this.setLocation(teleportEvent.getTo());
+		return true;
+	}
+
+	private @Nullable InventoryView openMerchant(Merchant merchant) {
+		StubMerchant merchantHandler = getHandler(merchant, StubMerchant.class);
+		Validate.notNull(merchantHandler, "Unsupported merchant!");
+		assert merchantHandler != null;
+
+		this.closeInventory(InventoryCloseEvent.Reason.OPEN_NEW);
+		MerchantInventory merchantInventory = StubMerchantInventory.create(merchant, player);
+		InventoryView view = new StubInventoryView(
+				merchantInventory,
+				inventory,
+				player,
+				InventoryType.MERCHANT,
+				merchantHandler.getTitle()
+		);
+		InventoryOpenEvent openEvent = new InventoryOpenEvent(view);
+		Bukkit.getPluginManager().callEvent(openEvent);
+		if (openEvent.isCancelled()) return null;
+
+		merchantHandler.setTrader(player);
+		openView = view;
+		return view;
+	}
+
+	private void closeInventory(InventoryCloseEvent.Reason reason) {
+		InventoryView view = openView;
+		if (view == defaultView) return;
+
+		Bukkit.getPluginManager().callEvent(new InventoryCloseEvent(view, reason));
+		if (view.getTopInventory() instanceof MerchantInventory) {
+			Merchant merchant = ((MerchantInventory) view.getTopInventory()).getMerchant();
+			StubMerchant merchantHandler = getHandler(merchant, StubMerchant.class);
+			if (merchantHandler != null) {
+				merchantHandler.setTrader(null);
+			}
+		}
+		// The items in the input slots and on the cursor are not returned to the player:
+		cursor = new ItemStack(Material.AIR);
+		openView = defaultView;
+	}
+
+	private boolean hasPermission(String permission) {
+		return server.getDefaultPermission(permission);
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getName":
+		case "getDisplayName":
+		case "getPlayerListName":
+			return name;
+		case "getUniqueId":
+			return uniqueId;
+		case "getEntityId":
+			return entityId;
+		case "getType":
+			return EntityType.PLAYER;
+		case "getWorld":
+			return world.getWorld();
+		case "getLocation":
+			return this.getLocation(getArgument(args, Location.class));
+		case "getEyeLocation":
+			return this.getLocation().add(0.0D, EYE_HEIGHT, 0.0D);
+		case "getEyeHeight":
+			return EYE_HEIGHT;
+		case "getChunk":
+			return world.getChunk((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+		case "teleport":
+		case "teleportAsync":
+			Location destination = getArgument(args, Location.class);
+			if (destination == null) return UNHANDLED;
+			TeleportCause cause = getArgument(args, TeleportCause.class);
+			boolean teleported = this.teleport(
+					destination,
+					(cause != null) ? cause : TeleportCause.PLUGIN
+			);
+			if (method.getName().equals("teleportAsync")) {
+				return CompletableFuture.completedFuture(teleported);
+			}
+			return teleported;
+		case "isOnline":
+		case "isValid":
+		case "isConnected":
+			return server.isOnline(player);
+		case "isDead":
+			return false;
+		case "isOp":
+			return false;
+		case "hasPermission":
+		case "isPermissionSet":
+			if (args[0] instanceof Permission) {
+				return this.hasPermission(((Permission) args[0]).getName());
+			}
+			return this.hasPermission((String) args[0]);
+		case "getGameMode":
+			return GameMode.SURVIVAL;
+		case "getInventory":
+			return inventory;
+		case "getItemOnCursor":
+			return cursor;
+		case "setItemOnCursor":
+			ItemStack newCursor = (ItemStack) args[0];
+			cursor = ItemUtils.isEmpty(newCursor) ? new ItemStack(Material.AIR) : newCursor.clone();
+			return null;
+		case "getOpenInventory":
+			return openView;
+		case "openMerchant":
+			return this.openMerchant((Merchant) args[0]);
+		case "closeInventory":
+			InventoryCloseEvent.Reason reason = getArgument(args, InventoryCloseEvent.Reason.class);
+			this.closeInventory((reason != null) ? reason : InventoryCloseEvent.Reason.PLUGIN);
+			return null;
+		case "spigot":
+			return spigot;
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Player{name=" + name + "}";
+	}
+}
@@ -0,0 +1,173 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+import io.papermc.paper.plugin.provider.classloader.ConfiguredPluginClassLoader;
+import io.papermc.paper.plugin.provider.classloader.PluginClassLoaderGroup;
+
+/**
+ * The plugin class loader that the {@link StubServer} constructs the plugin with.
+ * <p>
+ * Only the {@link StubbedShopkeepersPlugin} class is defined by this class loader, so that the
+ * plugin passes the class loader checks of {@link JavaPlugin}. All other classes are loaded by the
+ * parent class loader and are therefore shared with the code that runs the plugin.
+ */
+final class StubPluginClassLoader extends ClassLoader implements ConfiguredPluginClassLoader {
+
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+
+	private final String pluginClassName;
+	private final PluginDescriptionFile description;
+	private final File dataFolder;
+	private final File file;
+	private final Logger logger;
+	private @Nullable JavaPlugin plugin;
+
+	StubPluginClassLoader(
+			ClassLoader parent,
+			String pluginClassName,
+			PluginDescriptionFile description,
+			File dataFolder,
+			File file,
+			Logger logger
+	) {
+		super("Shopkeepers-StubServer", parent);
+		Validate.notEmpty(pluginClassName, "pluginClassName is null or empty");
+		Validate.notNull(description, "description is null");
+		Validate.notNull(dataFolder, "dataFolder is null");
+		Validate.notNull(file, "file is null");
+		Validate.notNull(logger, "logger is null");
+		this.pluginClassName = pluginClassName;
+		this.description = description;
+		this.dataFolder = dataFolder;
+		this.file = file;
+		this.logger = logger;
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		if (!name.equals(pluginClassName)) {
+			return super.loadClass(name, resolve);
+		}
+		synchronized (this.getClassLoadingLock(name)) {
+			Class<?> clazz = this.findLoadedClass(name);
+			if (clazz == null) {
+				clazz = this.definePluginClass(name);
+			}
+			if (resolve) {
+				this.resolveClass(clazz);
+			}
+			return clazz;
+		}
+	}
+
+	private Class<?> definePluginClass(String name) throws ClassNotFoundException {
+		String resourceName = name.replace('.', '/') + ".class";
+		try (InputStream in = this.getParent().getResourceAsStream(resourceName)) {
+			if (in == null) {
+				throw new ClassNotFoundException(name);
+			}
+			byte[] bytes = in.readAllBytes();
+			return this.defineClass(name, bytes, 0, bytes.length);
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+
+	@Override
+	public PluginDescriptionFile getConfiguration() {
+		return description;
+	}
+
+	@Override
+	public Class<?> loadClass(
+			String name,
+			boolean resolve,
+			boolean checkGlobal,
+			boolean checkLibraries
+	) throws ClassNotFoundException {
+		return this.loadClass(name, resolve);
+	}
+
+	/**
+	 * Invoked by the constructor of {@link JavaPlugin}: Initializes the plugin via the
+	 * package-private initialization method of {@link JavaPlugin}.
+	 */
+	@Override
+	public void init(JavaPlugin plugin) {
+		Validate.State.isTrue(this.plugin == null, "Plugin already initialized!");
+		this.plugin = plugin;
+
+		// The signature of the initialization method differs between server versions: We pick the
+		// variant with the most parameters and fill in the parameters based on their types.
+		Method initMethod = null;
+		for (Method method : JavaPlugin.class.getDeclaredMethods()) {
+			if (!method.getName().equals("init")) continue;
+			if (initMethod == null || method.getParameterCount() > initMethod.getParameterCount()) {
+				initMethod = method;
+			}
+		}
+		Validate.State.notNull(initMethod, "Could not find the plugin initialization method!");
+		assert initMethod != null;
+
+		Class<?>[] parameterTypes = initMethod.getParameterTypes();
+		@Nullable Object[] args = new @Nullable Object[parameterTypes.length];
+		boolean dataFolderAssigned = false;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			Class<?> parameterType = parameterTypes[i];
+			if (parameterType == Server.class) {
+				args[i] = Bukkit.getServer();
+			} else if (parameterType.isInstance(description)) {
+				args[i] = description;
+			} else if (parameterType == File.class) {
+				// The data folder precedes the plugin file:
+				args[i] = dataFolderAssigned ? file : dataFolder;
+				dataFolderAssigned = true;
+			} else if (parameterType == ClassLoader.class) {
+				args[i] = this;
+			} else if (parameterType == Logger.class) {
+				args[i] = logger;
+			} else {
+				args[i] = null;
+			}
+		}
+
+		try {
+			initMethod.setAccessible(true);
+			initMethod.invoke(plugin, args);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Could not initialize the plugin!", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not initialize the plugin!", e);
+		}
+	}
+
+	@Override
+	public @Nullable JavaPlugin getPlugin() {
+		return plugin;
+	}
+
+	@Override
+	public @Nullable PluginClassLoaderGroup getGroup() {
+		return null;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,159 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.bukkit.EventUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The handler of the {@link PluginManager} stub of the {@link StubServer}.
+ * <p>
+ * Event listeners are registered with the handler lists of the events, and events are dispatched
+ * to them like by Bukkit's plugin manager. The only known plugin is the plugin that is run on the
+ * stub server.
+ */
+final class StubPluginManager extends StubHandler {
+
+	private final StubServer server;
+
+	StubPluginManager(StubServer server) {
+		Validate.notNull(server, "server is null");
+		this.server = server;
+	}
+
+	private void registerEvents(Listener listener, Plugin plugin) {
+		Set<Method> methods = new LinkedHashSet<>();
+		methods.addAll(Arrays.asList(listener.getClass().getMethods()));
+		methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+		for (Method method : methods) {
+			EventHandler eventHandler = method.getAnnotation(EventHandler.class);
+			if (eventHandler == null) continue;
+			if (method.isBridge() || method.isSynthetic()) continue;
+
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			if (parameterTypes.length != 1 || !Event.class.isAssignableFrom(parameterTypes[0])) {
+				plugin.getLogger().severe("Invalid event handler: " + method.toGenericString());
+				continue;
+			}
+			Class<? extends Event> eventClass = parameterTypes[0].asSubclass(Event.class);
+			method.setAccessible(true);
+			EventExecutor executor = (eventListener, event) -> {
+				if (!eventClass.isInstance(event)) return;
+				try {
+					method.invoke(eventListener, event);
+				} catch (InvocationTargetException e) {
+					throw new EventException(e.getCause());
+				} catch (Throwable e) {
+					throw new EventException(e);
+				}
+			};
+			this.registerEvent(
+					eventClass,
+					listener,
+					eventHandler.priority(),
+					executor,
+					plugin,
+					eventHandler.ignoreCancelled()
+			);
+		}
+	}
+
+	private void registerEvent(
+			Class<? extends Event> eventClass,
+			Listener listener,
+			EventPriority priority,
+			EventExecutor executor,
+			Plugin plugin,
+			boolean ignoreCancelled
+	) {
+		HandlerList handlerList = EventUtils.getHandlerList(eventClass);
+		handlerList.register(new RegisteredListener(
+				listener,
+				executor,
+				priority,
+				plugin,
+				ignoreCancelled
+		));
+	}
+
+	private void callEvent(Event event) {
+		for (RegisteredListener registration : event.getHandlers().getRegisteredListeners()) {
+			if (!registration.getPlugin().isEnabled()) continue;
+			try {
+				registration.callEvent(event);
+			} catch (Throwable e) {
+				Bukkit.getLogger().log(Level.SEVERE, "Could not pass event "
+						+ event.getEventName() + " to " + registration.getPlugin().getName(), e);
+			}
+		}
+	}
+
+	private @Nullable Plugin getPlugin(String name) {
+		Plugin plugin = server.getPlugin();
+		if (plugin == null || !plugin.getName().equals(name)) return null;
+		return plugin;
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "registerEvents":
+			this.registerEvents((Listener) args[0], (Plugin) args[1]);
+			return null;
+		case "registerEvent":
+			@SuppressWarnings("unchecked")
+			Class<? extends Event> eventClass = (Class<? extends Event>) args[0];
+			this.registerEvent(
+					eventClass,
+					(Listener) args[1],
+					(EventPriority) args[2],
+					(EventExecutor) args[3],
+					(Plugin) args[4],
+					(args.length > 5) ? (Boolean) args[5] : false
+			);
+			return null;
+		case "callEvent":
+			this.callEvent((Event) args[0]);
+			return null;
+		case "getPlugin":
+			return this.getPlugin((String) args[0]);
+		case "getPlugins":
+			Plugin plugin = server.getPlugin();
+			return (plugin != null) ? new Plugin[] { plugin } : new Plugin[0];
+		case "isPluginEnabled":
+			Plugin enabledPlugin = (args[0] instanceof Plugin)
+					? (Plugin) args[0]
+					: this.getPlugin((String) args[0]);
+			return (enabledPlugin != null && enabledPlugin == server.getPlugin()
+					&& enabledPlugin.isEnabled());
+		case "disablePlugin":
+			server.disablePlugin((Plugin) args[0]);
+			return null;
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PluginManager";
+	}
+}
@@ -0,0 +1,408 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.command.PluginCommandYamlParser;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.permissions.Permission;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.benchmark.BenchmarkServer;
+import com.nisovin.shopkeepers.benchmark.SimulatedScheduler;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * A stubbed server that runs the plugin outside of a Minecraft server.
+ * <p>
+ * This handles the server methods that are not already handled by the {@link BenchmarkServer}, and
+ * is set up as its {@link BenchmarkServer#setFallbackHandler(java.lang.reflect.InvocationHandler)
+ * fallback handler}. The server provides the stub worlds and players, dispatches events to the
+ * registered listeners, and loads, enables, and disables the plugin.
+ * <p>
+ * The plugin is not loaded the way the server would load it: The plugin's load phase is skipped,
+ * because it sets up the NMS provider for the server version. Instead, the plugin uses the
+ * {@link StubNMSHandler}.
+ */
+public final class StubServer extends StubHandler {
+
+	private static final String PLUGIN_CLASS_NAME
+			= "com.nisovin.shopkeepers.benchmark.server.StubbedShopkeepersPlugin";
+	private static final int VIEW_DISTANCE = 10;
+
+	private final SimulatedScheduler scheduler;
+	private final PluginManager pluginManager = createStub(
+			PluginManager.class,
+			new StubPluginManager(this)
+	);
+	// Only used by the plugin to check for running async Bukkit tasks during shutdown:
+	private final BukkitScheduler bukkitScheduler = createStub(
+			BukkitScheduler.class,
+			new StubHandler() {
+				@Override
+				protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+					return UNHANDLED;
+				}
+			}
+	);
+	private final Map<String, StubWorld> worlds = new HashMap<>();
+	private final List<World> bukkitWorlds = new ArrayList<>();
+	private final List<Player> onlinePlayers = new CopyOnWriteArrayList<>();
+	private final Map<String, Boolean> defaultPermissions = new HashMap<>();
+	private @Nullable Path dataFolder = null;
+	private @Nullable JavaPlugin plugin = null;
+	private @Nullable List<Command> pluginCommands = null;
+
+	/**
+	 * Creates the server and sets it up as the fallback handler of the {@link BenchmarkServer}.
+	 *
+	 * @param scheduler
+	 *            the scheduler, not <code>null</code>
+	 */
+	public StubServer(SimulatedScheduler scheduler) {
+		Validate.notNull(scheduler, "scheduler is null");
+		this.scheduler = scheduler;
+		BenchmarkServer.setUp();
+		BenchmarkServer.setScheduler(scheduler);
+		BenchmarkServer.setFallbackHandler(this);
+	}
+
+	/**
+	 * Removes this server from the {@link BenchmarkServer} and deletes the plugin's data folder.
+	 * <p>
+	 * The plugin is expected to already be disabled.
+	 *
+	 * @throws IOException
+	 *             if the data folder cannot be deleted
+	 */
+	public void shutdown() throws IOException {
+		BenchmarkServer.setFallbackHandler(null);
+		BenchmarkServer.setScheduler(null);
+		Path dataFolder = this.dataFolder;
+		if (dataFolder != null) {
+			this.dataFolder = null;
+			deleteRecursively(dataFolder);
+		}
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		if (!Files.exists(directory)) return;
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(directory)) {
+			paths = stream.sorted(Comparator.reverseOrder()).toList();
+		}
+		for (Path path : paths) {
+			Files.delete(path);
+		}
+	}
+
+	// WORLDS
+
+	/**
+	 * Creates a new world.
+	 *
+	 * @param name
+	 *            the world name, not <code>null</code> or empty
+	 * @return the world
+	 */
+	public StubWorld createWorld(String name) {
+		Validate.isTrue(!worlds.containsKey(name), () -> "World already exists: " + name);
+		StubWorld world = new StubWorld(this, name);
+		worlds.put(name, world);
+		bukkitWorlds.add(world.getWorld());
+		return world;
+	}
+
+	StubWorld getWorld(Location location) {
+		World world = Validate.notNull(location.getWorld(), "location's world is null");
+		return Validate.notNull(worlds.get(world.getName()), () -> "Unknown world: " + world);
+	}
+
+	private @Nullable World getWorld(@Nullable Object nameOrUniqueId) {
+		for (StubWorld world : worlds.values()) {
+			if (world.getName().equals(nameOrUniqueId)
+					|| world.getUniqueId().equals(nameOrUniqueId)) {
+				return world.getWorld();
+			}
+		}
+		return null;
+	}
+
+	// PLAYERS
+
+	/**
+	 * Lets a new player join the server.
+	 *
+	 * @param name
+	 *            the player name, not <code>null</code> or empty
+	 * @param location
+	 *            the player's location, not <code>null</code>
+	 * @return the player
+	 */
+	public StubPlayer joinPlayer(String name, Location location) {
+		StubPlayer player = new StubPlayer(this, name, location);
+		onlinePlayers.add(player.getPlayer());
+		pluginManager.callEvent(new PlayerJoinEvent(player.getPlayer(), ""));
+		return player;
+	}
+
+	/**
+	 * Lets the given player quit the server.
+	 *
+	 * @param player
+	 *            the player, not <code>null</code>
+	 */
+	public void quitPlayer(StubPlayer player) {
+		Player bukkitPlayer = player.getPlayer();
+		if (!onlinePlayers.contains(bukkitPlayer)) return;
+		bukkitPlayer.closeInventory();
+		pluginManager.callEvent(new PlayerQuitEvent(bukkitPlayer, ""));
+		onlinePlayers.remove(bukkitPlayer);
+	}
+
+	boolean isOnline(Player player) {
+		return onlinePlayers.contains(player);
+	}
+
+	List<Player> getPlayers(World world) {
+		List<Player> players = new ArrayList<>();
+		for (Player player : onlinePlayers) {
+			if (player.getWorld() == world) {
+				players.add(player);
+			}
+		}
+		return players;
+	}
+
+	private @Nullable Player getPlayer(@Nullable Object nameOrUniqueId) {
+		for (Player player : onlinePlayers) {
+			if (player.getUniqueId().equals(nameOrUniqueId)
+					|| (nameOrUniqueId instanceof String
+							&& player.getName().equalsIgnoreCase((String) nameOrUniqueId))) {
+				return player;
+			}
+		}
+		return null;
+	}
+
+	boolean getDefaultPermission(String permission) {
+		return defaultPermissions.getOrDefault(permission.toLowerCase(Locale.ROOT), false);
+	}
+
+	// PLUGIN
+
+	@Nullable JavaPlugin getPlugin() {
+		return plugin;
+	}
+
+	/**
+	 * Constructs the plugin with a new temporary data folder.
+	 * <p>
+	 * The default config is written to the data folder, with the plugin metrics disabled. The data
+	 * folder is deleted again when the server is {@link #shutdown() shut down}.
+	 *
+	 * @return the plugin
+	 * @throws Exception
+	 *             if the plugin cannot be loaded
+	 */
+	public SKShopkeepersPlugin loadPlugin() throws Exception {
+		Validate.State.isTrue(plugin == null, "Plugin already loaded!");
+		Path dataFolder = Files.createTempDirectory("shopkeepers-stub-server");
+		this.dataFolder = dataFolder;
+		ClassLoader parentClassLoader = StubServer.class.getClassLoader();
+		PluginDescriptionFile description = loadDescription(parentClassLoader);
+		for (Permission permission : description.getPermissions()) {
+			defaultPermissions.put(
+					permission.getName().toLowerCase(Locale.ROOT),
+					permission.getDefault().getValue(false)
+			);
+		}
+		writeDefaultConfig(parentClassLoader, dataFolder);
+
+		StubPluginClassLoader pluginClassLoader = new StubPluginClassLoader(
+				parentClassLoader,
+				PLUGIN_CLASS_NAME,
+				description,
+				dataFolder.toFile(),
+				dataFolder.resolve(description.getName() + ".jar").toFile(),
+				Logger.getLogger(description.getName())
+		);
+		Class<?> pluginClass = Class.forName(PLUGIN_CLASS_NAME, true, pluginClassLoader);
+		SKShopkeepersPlugin loadedPlugin = (SKShopkeepersPlugin) pluginClass
+				.getConstructor()
+				.newInstance();
+		this.plugin = loadedPlugin;
+		return loadedPlugin;
+	}
+
+	private static PluginDescriptionFile loadDescription(ClassLoader classLoader)
+			throws IOException, InvalidDescriptionException {
+		try (InputStream in = classLoader.getResourceAsStream("plugin.yml")) {
+			Validate.State.notNull(in, "Missing plugin.yml!");
+			assert in != null;
+			return new PluginDescriptionFile(in);
+		}
+	}
+
+	private static void writeDefaultConfig(ClassLoader classLoader, Path dataFolder)
+			throws IOException {
+		String config;
+		try (InputStream in = classLoader.getResourceAsStream("config.yml")) {
+			Validate.State.notNull(in, "Missing config.yml!");
+			assert in != null;
+			config = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		String metricsSetting = "enable-metrics: true";
+		Validate.State.isTrue(config.contains(metricsSetting), "Missing metrics setting!");
+		config = config.replace(metricsSetting, "enable-metrics: false");
+		Files.createDirectories(dataFolder);
+		Files.writeString(dataFolder.resolve("config.yml"), config, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Enables the loaded plugin.
+	 * <p>
+	 * Instead of the plugin's load phase, this only sets up the plugin's logger and the
+	 * {@link StubNMSHandler}.
+	 */
+	public void enablePlugin() {
+		JavaPlugin plugin = Validate.State.notNull(this.plugin, "Plugin not loaded!");
+		Log.setLogger(plugin.getLogger());
+		setNMSProvider(new StubNMSHandler());
+		setEnabled(plugin, true);
+		Validate.State.isTrue(plugin.isEnabled(), "Plugin could not be enabled!");
+	}
+
+	/**
+	 * Disables the given plugin, unregisters its listeners, and cancels its tasks.
+	 *
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 */
+	public void disablePlugin(Plugin plugin) {
+		if (plugin != this.plugin || !plugin.isEnabled()) return;
+		setEnabled((JavaPlugin) plugin, false);
+		HandlerList.unregisterAll(plugin);
+		scheduler.cancelTasks(plugin);
+	}
+
+	private static void setNMSProvider(StubNMSHandler provider) {
+		try {
+			Field providerField = NMSManager.class.getDeclaredField("provider");
+			providerField.setAccessible(true);
+			providerField.set(null, provider);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not set up the NMS provider!", e);
+		}
+	}
+
+	private static void setEnabled(JavaPlugin plugin, boolean enabled) {
+		try {
+			Method setEnabledMethod = JavaPlugin.class.getDeclaredMethod(
+					"setEnabled",
+					boolean.class
+			);
+			setEnabledMethod.setAccessible(true);
+			setEnabledMethod.invoke(plugin, enabled);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Could not "
+					+ (enabled ? "enable" : "disable") + " the plugin!", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not "
+					+ (enabled ? "enable" : "disable") + " the plugin!", e);
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private @Nullable PluginCommand getPluginCommand(String name) {
+		JavaPlugin plugin = this.plugin;
+		if (plugin == null) return null;
+		List<Command> commands = pluginCommands;
+		if (commands == null) {
+			commands = PluginCommandYamlParser.parse(plugin);
+			pluginCommands = commands;
+		}
+
+		String label = name.toLowerCase(Locale.ROOT);
+		int namespaceSeparatorIndex = label.indexOf(':');
+		if (namespaceSeparatorIndex >= 0) {
+			label = label.substring(namespaceSeparatorIndex + 1);
+		}
+		for (Command command : commands) {
+			if (!(command instanceof PluginCommand)) continue;
+			if (command.getName().equalsIgnoreCase(label) || command.getAliases().contains(label)) {
+				return (PluginCommand) command;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getPluginManager":
+			return pluginManager;
+		case "getScheduler":
+			return bukkitScheduler;
+		case "getWorlds":
+			return Collections.unmodifiableList(bukkitWorlds);
+		case "getWorld":
+			return this.getWorld(args[0]);
+		case "getOnlinePlayers":
+			return Collections.unmodifiableCollection(onlinePlayers);
+		case "getPlayer":
+		case "getPlayerExact":
+			return this.getPlayer(args[0]);
+		case "getViewDistance":
+		case "getSimulationDistance":
+			return VIEW_DISTANCE;
+		case "isStopping":
+			return false;
+		case "getPluginCommand":
+			return this.getPluginCommand((String) args[0]);
+		case "createMerchant":
+			Object title = (args.length > 0) ? args[0] : null;
+			return StubMerchant.create((title instanceof String) ? (String) title : "");
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StubServer";
+	}
+}
@@ -0,0 +1,340 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.bukkit.Chunk;
+import org.bukkit.Difficulty;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.util.RayTraceResult;
+import org.bukkit.util.Vector;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A flat stub world.
+ * <p>
+ * The world consists of solid ground below {@link #GROUND_Y} and air above it. Chunks are only
+ * loaded and unloaded by the code that runs the plugin. Spawned entities are
+ * {@link StubEntity entity stubs} that stay where they are placed.
+ */
+public final class StubWorld extends StubHandler {
+
+	/**
+	 * The y coordinate of the lowest air block above the ground.
+	 */
+	public static final int GROUND_Y = 64;
+	private static final int MIN_HEIGHT = -64;
+	private static final int MAX_HEIGHT = 320;
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private final class ChunkStub extends StubHandler {
+
+		private final int chunkX;
+		private final int chunkZ;
+
+		ChunkStub(int chunkX, int chunkZ) {
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		@Override
+		protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "getWorld":
+				return world;
+			case "getX":
+				return chunkX;
+			case "getZ":
+				return chunkZ;
+			case "isLoaded":
+				return StubWorld.this.isChunkLoaded(chunkX, chunkZ);
+			default:
+				return UNHANDLED;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Chunk{world=" + name + ", x=" + chunkX + ", z=" + chunkZ + "}";
+		}
+	}
+
+	private final class BlockStub extends StubHandler {
+
+		private final int x;
+		private final int y;
+		private final int z;
+
+		BlockStub(int x, int y, int z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		@Override
+		protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "getWorld":
+				return world;
+			case "getX":
+				return x;
+			case "getY":
+				return y;
+			case "getZ":
+				return z;
+			case "getChunk":
+				return StubWorld.this.getChunk(x >> 4, z >> 4);
+			case "getLocation":
+				if (args.length == 0) return new Location(world, x, y, z);
+				return UNHANDLED;
+			case "getType":
+				return (y < GROUND_Y) ? Material.STONE : Material.AIR;
+			case "isEmpty":
+			case "isPassable":
+				return (y >= GROUND_Y);
+			case "isSolid":
+				return (y < GROUND_Y);
+			case "getRelative":
+				BlockFace face = getArgument(args, BlockFace.class);
+				if (face == null) return UNHANDLED;
+				return StubWorld.this.getBlock(
+						x + face.getModX(),
+						y + face.getModY(),
+						z + face.getModZ()
+				);
+			default:
+				return UNHANDLED;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Block{world=" + name + ", x=" + x + ", y=" + y + ", z=" + z + "}";
+		}
+	}
+
+	private final String name;
+	private final UUID uniqueId;
+	private final World world;
+	private final StubServer server;
+	private final Map<Long, Chunk> chunks = new ConcurrentHashMap<>();
+	private final Set<Long> loadedChunks = ConcurrentHashMap.newKeySet();
+	private final Set<Entity> entities = ConcurrentHashMap.newKeySet();
+
+	StubWorld(StubServer server, String name) {
+		Validate.notNull(server, "server is null");
+		Validate.notEmpty(name, "name is null or empty");
+		this.server = server;
+		this.name = name;
+		this.uniqueId = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+		this.world = createStub(World.class, this);
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	public Chunk getChunk(int chunkX, int chunkZ) {
+		return chunks.computeIfAbsent(
+				getChunkKey(chunkX, chunkZ),
+				key -> createStub(Chunk.class, new ChunkStub(chunkX, chunkZ))
+		);
+	}
+
+	public Block getBlock(int x, int y, int z) {
+		return createStub(Block.class, new BlockStub(x, y, z));
+	}
+
+	public boolean isChunkLoaded(int chunkX, int chunkZ) {
+		return loadedChunks.contains(getChunkKey(chunkX, chunkZ));
+	}
+
+	/**
+	 * Marks the specified chunk as loaded or unloaded.
+	 * <p>
+	 * This does not call any events.
+	 *
+	 * @param chunkX
+	 *            the chunk x coordinate
+	 * @param chunkZ
+	 *            the chunk z coordinate
+	 * @param loaded
+	 *            <code>true</code> to load the chunk, <code>false</code> to unload it
+	 * @return <code>true</code> if the chunk's state has changed
+	 */
+	public boolean setChunkLoaded(int chunkX, int chunkZ, boolean loaded) {
+		long chunkKey = getChunkKey(chunkX, chunkZ);
+		if (loaded) {
+			return loadedChunks.add(chunkKey);
+		} else {
+			return loadedChunks.remove(chunkKey);
+		}
+	}
+
+	public int getLoadedChunkCount() {
+		return loadedChunks.size();
+	}
+
+	public int getEntityCount() {
+		return entities.size();
+	}
+
+	void onEntityRemoved(Entity entity) {
+		entities.remove(entity);
+	}
+
+	@Override
+	protected @Nullable Object handle(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getName":
+			return name;
+		case "getUID":
+			return uniqueId;
+		case "isChunkLoaded":
+			if (args.length == 2 && args[0] instanceof Integer) {
+				return this.isChunkLoaded((Integer) args[0], (Integer) args[1]);
+			}
+			if (args.length == 1 && args[0] instanceof Chunk) {
+				Chunk chunk = (Chunk) args[0];
+				return this.isChunkLoaded(chunk.getX(), chunk.getZ());
+			}
+			return UNHANDLED;
+		case "getChunkAt":
+			if (args.length >= 2 && args[0] instanceof Integer) {
+				return this.getChunk((Integer) args[0], (Integer) args[1]);
+			}
+			Location chunkLocation = getArgument(args, Location.class);
+			if (chunkLocation != null) {
+				return this.getChunk(
+						chunkLocation.getBlockX() >> 4,
+						chunkLocation.getBlockZ() >> 4
+				);
+			}
+			Block chunkBlock = getArgument(args, Block.class);
+			if (chunkBlock != null) {
+				return this.getChunk(chunkBlock.getX() >> 4, chunkBlock.getZ() >> 4);
+			}
+			return UNHANDLED;
+		case "getLoadedChunks":
+			List<Chunk> loaded = new ArrayList<>();
+			for (long chunkKey : loadedChunks) {
+				loaded.add(this.getChunk((int) (chunkKey >> 32), (int) chunkKey));
+			}
+			return loaded.toArray(new Chunk[0]);
+		case "getBlockAt":
+			if (args.length == 3) {
+				return this.getBlock((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+			}
+			Location blockLocation = getArgument(args, Location.class);
+			if (blockLocation != null) {
+				return this.getBlock(
+						blockLocation.getBlockX(),
+						blockLocation.getBlockY(),
+						blockLocation.getBlockZ()
+				);
+			}
+			return UNHANDLED;
+		case "spawn":
+			return this.spawn(args);
+		case "rayTraceBlocks":
+			return this.rayTraceGround(args);
+		case "getPlayers":
+			return server.getPlayers(world);
+		case "getEntities":
+		case "getLivingEntities":
+			return new ArrayList<>(entities);
+		case "getSpawnLocation":
+			return new Location(world, 0.5D, GROUND_Y, 0.5D);
+		case "getDifficulty":
+			return Difficulty.NORMAL;
+		case "getEnvironment":
+			return World.Environment.NORMAL;
+		case "getMinHeight":
+			return MIN_HEIGHT;
+		case "getMaxHeight":
+			return MAX_HEIGHT;
+		default:
+			return UNHANDLED;
+		}
+	}
+
+	// Handles all variants of World#spawn.
+	@SuppressWarnings("unchecked")
+	private Entity spawn(Object[] args) {
+		Location location = Validate.notNull(getArgument(args, Location.class), "location is null");
+		Class<?> entityClass = Validate.notNull(getArgument(args, Class.class), "class is null");
+		Validate.isTrue(entityClass.isInterface() && Entity.class.isAssignableFrom(entityClass),
+				() -> "Unsupported entity class: " + entityClass.getName());
+
+		StubEntity entityHandler = new StubEntity(
+				this,
+				getEntityType(entityClass),
+				location
+		);
+		Entity entity = createStub((Class<? extends Entity>) entityClass, entityHandler);
+		Consumer<Entity> preSpawnFunction = getArgument(args, Consumer.class);
+		if (preSpawnFunction != null) {
+			preSpawnFunction.accept(entity);
+		}
+		if (entityHandler.spawn()) {
+			entities.add(entity);
+		}
+		return entity;
+	}
+
+	private static EntityType getEntityType(Class<?> entityClass) {
+		for (EntityType entityType : EntityType.values()) {
+			if (entityType.getEntityClass() == entityClass) {
+				return entityType;
+			}
+		}
+		return EntityType.UNKNOWN;
+	}
+
+	// Only supports ray traces downwards, which hit the ground if it is within range.
+	private @Nullable RayTraceResult rayTraceGround(Object[] args) {
+		Location start = getArgument(args, Location.class);
+		Vector direction = getArgument(args, Vector.class);
+		Double maxDistance = getArgument(args, Double.class);
+		if (start == null || direction == null || maxDistance == null) return null;
+		if (direction.getY() >= 0.0D) return null;
+
+		double distance = start.getY() - GROUND_Y;
+		if (distance < 0.0D || distance > maxDistance) return null;
+
+		Vector hitPosition = new Vector(start.getX(), GROUND_Y, start.getZ());
+		Block hitBlock = this.getBlock(start.getBlockX(), GROUND_Y - 1, start.getBlockZ());
+		return new RayTraceResult(hitPosition, hitBlock, BlockFace.UP);
+	}
+
+	@Override
+	public String toString() {
+		return "World{name=" + name + "}";
+	}
+}
@@ -0,0 +1,16 @@
+package com.nisovin.shopkeepers.benchmark.server;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+
+/**
+ * The Shopkeepers plugin, as it is run on the {@link StubServer}.
+ * <p>
+ * Bukkit plugins can only be constructed by a plugin class loader. This class is therefore defined
+ * by the {@link StubPluginClassLoader}, whereas the plugin's actual implementation is loaded by,
+ * and shared with, the code that runs the plugin.
+ */
+public final class StubbedShopkeepersPlugin extends SKShopkeepersPlugin {
+
+	public StubbedShopkeepersPlugin() {
+	}
+}
@@ -0,0 +1,298 @@
+package com.nisovin.shopkeepers.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryEvent;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.inventory.InventoryView;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.ui.UISession;
+import com.nisovin.shopkeepers.benchmark.SimulatedScheduler;
+import com.nisovin.shopkeepers.benchmark.server.StubServer;
+import com.nisovin.shopkeepers.benchmark.server.StubWorld;
+import com.nisovin.shopkeepers.ui.state.UIState;
+
+/**
+ * Fires interleaved inventory events of many players concurrently on several threads, like Folia
+ * does for players in different regions, and checks that the {@link UIListener} correlates the
+ * events with the UI sessions of the {@link SKUIRegistry}.
+ * <p>
+ * The plugin is enabled on a stubbed server (see {@link StubServer}). Each thread owns a few
+ * players, most of which have a UI session open. Another listener recursively calls further
+ * inventory events from within the handling of the events, and the threads occasionally close and
+ * reopen the UIs of their players.
+ */
+public class UIListenerConcurrencyTest {
+
+	private static final int THREADS = 8;
+	private static final int PLAYERS_PER_THREAD = 8;
+	// The remaining players of each thread have no UI session:
+	private static final int SESSIONS_PER_THREAD = 6;
+	private static final int EVENTS_PER_THREAD = 20000;
+	private static final int MAX_RECURSION_DEPTH = 3;
+
+	private static final AbstractUIType TEST_UI_TYPE = new AbstractUIType("test-ui", null) {
+	};
+
+	private final class TestUIHandler extends UIHandler {
+
+		private final Player player;
+		private volatile @Nullable InventoryView view = null;
+		// Only accessed by the thread that owns the player:
+		private int earlyClicks = 0;
+		private int lateClicks = 0;
+
+		TestUIHandler(Player player) {
+			super(TEST_UI_TYPE);
+			this.player = player;
+		}
+
+		@Override
+		public boolean canAccess(Player player, boolean silent) {
+			return true;
+		}
+
+		@Override
+		protected boolean openWindow(UISession uiSession, UIState uiState) {
+			InventoryView view = player.openMerchant(Bukkit.createMerchant("Test UI"), true);
+			this.view = view;
+			return (view != null);
+		}
+
+		@Override
+		protected boolean isWindow(InventoryView view) {
+			return (view == this.view);
+		}
+
+		private void checkSession(UISession uiSession, InventoryEvent event) {
+			if (uiSession.getPlayer() != player
+					|| event.getView().getPlayer() != player
+					|| ((SKUISession) uiSession).getUIHandler() != this
+					|| uiRegistry.getUISession(player) != uiSession) {
+				foreignSessions.incrementAndGet();
+			}
+		}
+
+		@Override
+		protected void onInventoryEventEarly(UISession uiSession, InventoryEvent event) {
+			this.checkSession(uiSession, event);
+			if (earlySessions.put(event, uiSession) != null) {
+				mismatches.incrementAndGet();
+			}
+			if (event instanceof InventoryClickEvent) {
+				earlyClicks++;
+			}
+		}
+
+		@Override
+		protected void onInventoryEventLate(UISession uiSession, InventoryEvent event) {
+			this.checkSession(uiSession, event);
+			if (earlySessions.remove(event) != uiSession) {
+				mismatches.incrementAndGet();
+			}
+			if (event instanceof InventoryClickEvent) {
+				lateClicks++;
+			}
+		}
+	}
+
+	private static final class TestPlayer {
+
+		private final Player player;
+		private final @Nullable TestUIHandler uiHandler;
+		// Only accessed by the thread that owns the player:
+		private int firedClicks = 0;
+
+		TestPlayer(Player player, @Nullable TestUIHandler uiHandler) {
+			this.player = player;
+			this.uiHandler = uiHandler;
+		}
+	}
+
+	private static final class WorkerState {
+
+		private final Random random;
+		private final List<TestPlayer> players;
+		private int depth = 0;
+
+		WorkerState(Random random, List<TestPlayer> players) {
+			this.random = random;
+			this.players = players;
+		}
+
+		TestPlayer randomPlayer() {
+			return players.get(random.nextInt(players.size()));
+		}
+	}
+
+	private final ThreadLocal<WorkerState> workerState = new ThreadLocal<>();
+	// The UI session that was determined during the early handling of each event that is currently
+	// being processed:
+	private final Map<InventoryEvent, UISession> earlySessions = new ConcurrentHashMap<>();
+	private final AtomicInteger foreignSessions = new AtomicInteger();
+	private final AtomicInteger mismatches = new AtomicInteger();
+
+	private StubServer server;
+	private SKShopkeepersPlugin plugin;
+	private SKUIRegistry uiRegistry;
+	private final List<List<TestPlayer>> threadPlayers = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer(new SimulatedScheduler());
+		StubWorld world = server.createWorld("world");
+		plugin = server.loadPlugin();
+		server.enablePlugin();
+		uiRegistry = plugin.getUIRegistry();
+
+		// Recursively calls other inventory events in between the early and late event handling of
+		// the UIListener:
+		Bukkit.getPluginManager().registerEvent(
+				InventoryClickEvent.class,
+				new Listener() { },
+				EventPriority.NORMAL,
+				(listener, event) -> this.onInventoryClick(),
+				plugin,
+				false
+		);
+
+		for (int thread = 0; thread < THREADS; thread++) {
+			List<TestPlayer> players = new ArrayList<>();
+			for (int i = 0; i < PLAYERS_PER_THREAD; i++) {
+				Location location = new Location(
+						world.getWorld(),
+						16.0D * thread + 0.5D,
+						StubWorld.GROUND_Y,
+						16.0D * i + 0.5D
+				);
+				Player player = server.joinPlayer("Player" + thread + "_" + i, location)
+						.getPlayer();
+				TestUIHandler uiHandler = null;
+				if (i < SESSIONS_PER_THREAD) {
+					uiHandler = new TestUIHandler(player);
+					assertTrue("Could not open UI", uiRegistry.requestUI(uiHandler, player));
+				}
+				players.add(new TestPlayer(player, uiHandler));
+			}
+			threadPlayers.add(players);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.disablePlugin(plugin);
+		server.shutdown();
+	}
+
+	@Test
+	public void testConcurrentInterleavedEvents() throws Exception {
+		CyclicBarrier startBarrier = new CyclicBarrier(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				WorkerState worker = new WorkerState(new Random(thread), threadPlayers.get(thread));
+				futures.add(executor.submit(() -> {
+					workerState.set(worker);
+					startBarrier.await();
+					for (int event = 0; event < EVENTS_PER_THREAD; event++) {
+						TestPlayer testPlayer = worker.randomPlayer();
+						if (testPlayer.uiHandler != null && worker.random.nextInt(256) == 0) {
+							this.reopenUI(testPlayer);
+						}
+						this.callClickEvent(testPlayer);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(1L, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals("Events handled by foreign UI sessions", 0, foreignSessions.get());
+		assertEquals("Mismatched early and late event handling", 0, mismatches.get());
+		assertEquals("Unprocessed events", 0, earlySessions.size());
+		for (List<TestPlayer> players : threadPlayers) {
+			for (TestPlayer testPlayer : players) {
+				TestUIHandler uiHandler = testPlayer.uiHandler;
+				if (uiHandler == null) continue;
+				String playerName = testPlayer.player.getName();
+				assertEquals("Early clicks of " + playerName,
+						testPlayer.firedClicks, uiHandler.earlyClicks);
+				assertEquals("Late clicks of " + playerName,
+						testPlayer.firedClicks, uiHandler.lateClicks);
+			}
+		}
+	}
+
+	private void reopenUI(TestPlayer testPlayer) {
+		TestUIHandler uiHandler = testPlayer.uiHandler;
+		assert uiHandler != null;
+		// Ends the UI session:
+		testPlayer.player.closeInventory();
+		if (uiRegistry.getUISession(testPlayer.player) != null) {
+			mismatches.incrementAndGet();
+		}
+		if (!uiRegistry.requestUI(uiHandler, testPlayer.player)) {
+			mismatches.incrementAndGet();
+		}
+	}
+
+	private void callClickEvent(TestPlayer testPlayer) {
+		InventoryView view = testPlayer.player.getOpenInventory();
+		testPlayer.firedClicks++;
+		Bukkit.getPluginManager().callEvent(new InventoryClickEvent(
+				view,
+				SlotType.CONTAINER,
+				0,
+				ClickType.LEFT,
+				InventoryAction.NOTHING
+		));
+	}
+
+	private void onInventoryClick() {
+		WorkerState worker = workerState.get();
+		if (worker == null) return; // Not called by the test threads
+		if (worker.depth >= MAX_RECURSION_DEPTH || worker.random.nextInt(4) != 0) return;
+
+		worker.depth++;
+		try {
+			this.callClickEvent(worker.randomPlayer());
+		} finally {
+			worker.depth--;
+		}
+		if (worker.random.nextInt(16) == 0) {
+			// Increase the interleaving with other threads:
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package com.nisovin.shopkeepers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.config.lib.ConfigLoadException;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.shopobjects.citizens.SKCitizensShopObject;
+import com.nisovin.shopkeepers.shopobjects.living.SKLivingShopObject;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Reloads the config and language file in place, without unloading and reloading all shopkeepers.
+ * <p>
+ * The values of all settings are captured before the config is reloaded and compared afterwards.
+ * Only the subsystems that are affected by the changed settings are updated. The nameplates of
+ * already spawned shop entities are updated incrementally by a task per chunk on the owning
+ * region.
+ * <p>
+ * Some settings are only evaluated during plugin startup. If any of these settings changed, the
+ * {@link Result} indicates that a full {@link SKShopkeepersPlugin#reload() reload} is required for
+ * them to take effect.
+ */
+public final class HotReloader {
+
+	// The config keys of the settings that are only taken into account during plugin startup:
+	private static final Set<String> FULL_RELOAD_SETTINGS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(
+					"enable-metrics",
+					"save-instantly",
+					"save-binary-snapshot",
+					"register-world-guard-allow-shop-flag",
+					"enabled-living-shops",
+					"disable-gravity",
+					"silence-living-shop-entities",
+					"enable-citizen-shops",
+					"enable-sign-shops",
+					"enable-sign-post-shops",
+					"enable-hanging-sign-shops",
+					"player-shopkeeper-inactive-days",
+					"trade-log-storage",
+					"trade-log-merge-duration-ticks",
+					"trade-log-next-merge-timeout-ticks",
+					"trade-log-queue-capacity"
+			))
+	);
+
+	private static final Set<String> NAMEPLATE_SETTINGS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(
+					"show-nameplates",
+					"always-show-nameplates"
+			))
+	);
+
+	private static final Set<String> AI_SETTINGS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(
+					"mob-behavior-tick-period"
+			))
+	);
+
+	private static final Set<String> CONTAINER_PROTECTION_SETTINGS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(
+					"protect-containers",
+					"prevent-item-movement",
+					"delete-shopkeeper-on-break-container"
+			))
+	);
+
+	private static final Set<String> CURRENCY_SETTINGS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(
+					"currency-item",
+					"high-currency-item",
+					"high-currency-value",
+					"high-currency-min-cost"
+			))
+	);
+
+	/**
+	 * The outcome of a hot reload.
+	 */
+	public static final class Result {
+
+		private final @Nullable ConfigLoadException configLoadError;
+		private final List<String> changedSettings;
+		private final List<String> updatedSubsystems;
+		private final List<String> fullReloadSettings;
+
+		private Result(
+				@Nullable ConfigLoadException configLoadError,
+				List<String> changedSettings,
+				List<String> updatedSubsystems,
+				List<String> fullReloadSettings
+		) {
+			this.configLoadError = configLoadError;
+			this.changedSettings = Collections.unmodifiableList(changedSettings);
+			this.updatedSubsystems = Collections.unmodifiableList(updatedSubsystems);
+			this.fullReloadSettings = Collections.unmodifiableList(fullReloadSettings);
+		}
+
+		/**
+		 * Gets the severe issue that prevented the config from being loaded.
+		 * <p>
+		 * If the config could not be loaded, the current settings might be incomplete and a full
+		 * reload is recommended once the issue has been fixed.
+		 *
+		 * @return the config load error, or <code>null</code> if the config was loaded successfully
+		 */
+		public @Nullable ConfigLoadException getConfigLoadError() {
+			return configLoadError;
+		}
+
+		/**
+		 * Gets the config keys of the settings that have changed.
+		 *
+		 * @return an unmodifiable view on the changed settings
+		 */
+		public List<String> getChangedSettings() {
+			return changedSettings;
+		}
+
+		/**
+		 * Gets the names of the subsystems that have been updated.
+		 *
+		 * @return an unmodifiable view on the updated subsystems
+		 */
+		public List<String> getUpdatedSubsystems() {
+			return updatedSubsystems;
+		}
+
+		/**
+		 * Gets the config keys of the changed settings that only take effect after a full reload.
+		 *
+		 * @return an unmodifiable view on the settings that require a full reload
+		 */
+		public List<String> getFullReloadSettings() {
+			return fullReloadSettings;
+		}
+	}
+
+	private final SKShopkeepersPlugin plugin;
+
+	HotReloader(SKShopkeepersPlugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Reloads the config and language file and updates the affected subsystems.
+	 *
+	 * @return the result
+	 */
+	public Result reload() {
+		Validate.State.isTrue(plugin.isEnabled(), "The plugin is not enabled!");
+
+		Map<String, @Nullable Object> previousValues = captureSettings();
+		String previousNameplatePrefix = Messages.nameplatePrefix;
+
+		ConfigLoadException configLoadError = Settings.loadConfig();
+		if (configLoadError != null) {
+			Log.severe("Could not reload the config!", configLoadError);
+			return new Result(
+					configLoadError,
+					new ArrayList<>(),
+					new ArrayList<>(),
+					new ArrayList<>()
+			);
+		}
+		Messages.loadLanguageFile();
+
+		// Determine the changed settings:
+		Map<String, @Nullable Object> newValues = captureSettings();
+		List<String> changedSettings = new ArrayList<>();
+		newValues.forEach((configKey, value) -> {
+			if (!previousValues.containsKey(configKey)
+					|| !Objects.equals(previousValues.get(configKey), value)) {
+				changedSettings.add(configKey);
+			}
+		});
+
+		// Update the affected subsystems:
+		List<String> updatedSubsystems = new ArrayList<>();
+		if (containsAny(changedSettings, NAMEPLATE_SETTINGS)
+				|| !previousNameplatePrefix.equals(Messages.nameplatePrefix)) {
+			int chunks = this.updateNameplates();
+			updatedSubsystems.add("nameplates (" + chunks + " chunks)");
+		}
+		if (containsAny(changedSettings, AI_SETTINGS)) {
+			plugin.getLivingShops().getLivingEntityAI().onSettingsChanged();
+			updatedSubsystems.add("mob behavior");
+		}
+		if (containsAny(changedSettings, CONTAINER_PROTECTION_SETTINGS)) {
+			plugin.getProtectedContainers().onSettingsChanged();
+			plugin.getRemoveShopOnContainerBreak().onSettingsChanged();
+			updatedSubsystems.add("container protection");
+		}
+		if (containsAny(changedSettings, CURRENCY_SETTINGS)) {
+			// The currencies have already been reloaded together with the settings. Open UIs might
+			// still display the previous currency items:
+			plugin.getUIRegistry().abortUISessions();
+			updatedSubsystems.add("currencies");
+		}
+
+		List<String> fullReloadSettings = new ArrayList<>();
+		changedSettings.forEach(configKey -> {
+			if (FULL_RELOAD_SETTINGS.contains(configKey)) {
+				fullReloadSettings.add(configKey);
+			}
+		});
+
+		Log.info("Hot reloaded the config: " + changedSettings.size() + " changed settings"
+				+ (updatedSubsystems.isEmpty() ? "" : ", updated: "
+						+ String.join(", ", updatedSubsystems)));
+		if (!fullReloadSettings.isEmpty()) {
+			Log.warning("These changed settings only take effect after a full reload: "
+					+ String.join(", ", fullReloadSettings));
+		}
+		return new Result(null, changedSettings, updatedSubsystems, fullReloadSettings);
+	}
+
+	private static Map<String, @Nullable Object> captureSettings() {
+		Map<String, @Nullable Object> values = new HashMap<>();
+		Settings.getInstance().getSettings().forEach(setting -> {
+			@Nullable Object value = setting.getValue();
+			if (value instanceof List) {
+				// Copy, in case the list is modified in place:
+				value = new ArrayList<>((List<?>) value);
+			}
+			values.put(setting.getConfigKey(), value);
+		});
+		return values;
+	}
+
+	private static boolean containsAny(List<String> changedSettings, Set<String> configKeys) {
+		for (String configKey : changedSettings) {
+			if (configKeys.contains(configKey)) return true;
+		}
+		return false;
+	}
+
+	// Returns the number of chunks for which a nameplate update has been scheduled.
+	private int updateNameplates() {
+		// Group the shopkeepers by chunk, so that each chunk is updated by a single region task:
+		Map<ChunkCoords, List<AbstractShopkeeper>> shopkeepersByChunk = new HashMap<>();
+		plugin.getShopkeeperRegistry().getActiveShopkeepers().forEach(shopkeeper -> {
+			AbstractShopObject shopObject = shopkeeper.getShopObject();
+			if (!(shopObject instanceof SKLivingShopObject)
+					&& !(shopObject instanceof SKCitizensShopObject)) {
+				return;
+			}
+
+			ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
+			if (chunkCoords == null) return;
+			shopkeepersByChunk.computeIfAbsent(chunkCoords, key -> new ArrayList<>())
+					.add(shopkeeper);
+		});
+
+		int scheduledChunks = 0;
+		for (var entry : shopkeepersByChunk.entrySet()) {
+			ChunkCoords chunkCoords = entry.getKey();
+			World world = chunkCoords.getWorld();
+			if (world == null) continue; // World no longer loaded
+
+			List<AbstractShopkeeper> shopkeepers = entry.getValue();
+			Bukkit.getRegionScheduler().execute(
+					plugin,
+					world,
+					chunkCoords.getChunkX(),
+					chunkCoords.getChunkZ(),
+					() -> shopkeepers.forEach(HotReloader::updateNameplate)
+			);
+			scheduledChunks++;
+		}
+		return scheduledChunks;
+	}
+
+	private static void updateNameplate(AbstractShopkeeper shopkeeper) {
+		// The shopkeeper might have been removed or despawned in the meantime:
+		if (!shopkeeper.isValid()) return;
+		AbstractShopObject shopObject = shopkeeper.getShopObject();
+		if (!shopObject.isActive()) return;
+
+		shopObject.setName(shopkeeper.getName());
+	}
+}
@@ -5,7 +5,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
@@ -48,6 +50,7 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.SKShopTypesRegistry;
+import com.nisovin.shopkeepers.shopkeeper.ShopkeeperItemUpdater;
 import com.nisovin.shopkeepers.shopkeeper.migration.ShopkeeperDataMigrator;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopobjects.SKDefaultShopObjectTypes;
@@ -64,6 +67,7 @@ import com.nisovin.shopkeepers.ui.SKDefaultUITypes;
 import com.nisovin.shopkeepers.ui.SKUIRegistry;
 import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.java.ClassUtils;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
 import com.nisovin.shopkeepers.villagers.RegularVillagers;
@@ -84,6 +88,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 	);
 
 	private static final int ASYNC_TASKS_TIMEOUT_SECONDS = 10;
+	private static final int IO_QUEUE_CAPACITY = 64;
 
 	private static @Nullable SKShopkeepersPlugin plugin;
 
@@ -97,6 +102,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 
 	private final ApiInternals apiInternals = new SKApiInternals();
 
+	// Executes all writes of shopkeeper data and trade logs, one after the other:
+	private final SingleWriterExecutor ioExecutor = new SingleWriterExecutor(
+			"Shopkeepers IO",
+			IO_QUEUE_CAPACITY
+	);
+
 	// Shop types and shop object types registry:
 	private final SKShopTypesRegistry shopTypesRegistry = new SKShopTypesRegistry();
 	private final SKShopObjectTypesRegistry shopObjectTypesRegistry = new SKShopObjectTypesRegistry();
@@ -124,12 +135,19 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 	private final InteractionInput interactionInput = new InteractionInput(Unsafe.initialized(this));
 
 	private final CommandTrading commandTrading = new CommandTrading(Unsafe.initialized(this));
-	private final TradeLoggers tradeLoggers = new TradeLoggers(Unsafe.initialized(this));
+	private final TradeLoggers tradeLoggers = new TradeLoggers(
+			Unsafe.initialized(this),
+			ioExecutor
+	);
 	private final TradeNotifications tradeNotifications = new TradeNotifications(
 			Unsafe.initialized(this)
 	);
 	private final EventDebugger eventDebugger = new EventDebugger(Unsafe.initialized(this));
 
+	private final ShopkeeperItemUpdater shopkeeperItemUpdater = new ShopkeeperItemUpdater(
+			Unsafe.initialized(this)
+	);
+
 	private final PlayerShops playerShops = new PlayerShops(Unsafe.initialized(this));
 
 	private final ProtectedContainers protectedContainers = new ProtectedContainers(
@@ -166,6 +184,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 	);
 
 	private final PluginMetrics pluginMetrics = new PluginMetrics(Unsafe.initialized(this));
+	private final HotReloader hotReloader = new HotReloader(Unsafe.initialized(this));
 
 	private boolean outdatedServer = false;
 	private boolean incompatibleServer = false;
@@ -393,6 +412,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		shopkeeperNaming.onEnable();
 		shopkeeperMoving.onEnable();
 
+		// Start the IO executor used by the shopkeeper storage and the trade loggers:
+		ioExecutor.start();
+
 		// Enable shopkeeper storage:
 		shopkeeperStorage.onEnable();
 
@@ -449,6 +471,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 				this.getLogger()
 		);
 
+		// Abort any item update that is still in progress:
+		shopkeeperItemUpdater.onDisable();
+
 		// Inform UI registry about disable:
 		uiRegistry.onDisable();
 
@@ -504,6 +529,11 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		// Trade loggers:
 		tradeLoggers.onDisable();
 
+		// Wait for any remaining writes to complete:
+		if (!ioExecutor.shutdown(TimeUnit.SECONDS.toMillis(ASYNC_TASKS_TIMEOUT_SECONDS))) {
+			Log.severe("There are still IO tasks active! Disabling anyway now.");
+		}
+
 		// Trade notifications:
 		tradeNotifications.onDisable();
 
@@ -538,6 +568,19 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		this.onEnable();
 	}
 
+	/**
+	 * Reloads the config and language file without reloading the plugin.
+	 * <p>
+	 * Only the subsystems that are affected by the changed settings are updated. The loaded
+	 * shopkeepers are kept.
+	 *
+	 * @return the result
+	 * @see HotReloader
+	 */
+	public HotReloader.Result hotReload() {
+		return hotReloader.reload();
+	}
+
 	// PLAYER JOINING AND QUITTING
 
 	void onPlayerJoin(Player player) {
@@ -586,6 +629,22 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		return shopkeeperStorage;
 	}
 
+	/**
+	 * Gets the {@link SingleWriterExecutor} that executes all writes of shopkeeper data and trade
+	 * logs.
+	 * 
+	 * @return the IO executor
+	 */
+	public SingleWriterExecutor getIOExecutor() {
+		return ioExecutor;
+	}
+
+	// TRADE LOGGING
+
+	public TradeLoggers getTradeLoggers() {
+		return tradeLoggers;
+	}
+
 	// ITEM UPDATES
 
 	@Override
@@ -609,6 +668,49 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		return updatedItems;
 	}
 
+	/**
+	 * Calls an {@link com.nisovin.shopkeepers.api.events.UpdateItemEvent} for each item stored by
+	 * the Shopkeepers plugin, similar to {@link #updateItems()}, but updates the shopkeepers in the
+	 * background, on the regions that own them.
+	 * <p>
+	 * The items stored by the config are updated right away.
+	 * 
+	 * @param skipUnchanged
+	 *            <code>true</code> to skip shopkeepers whose content did not change since their
+	 *            last item update that did not update any items
+	 * @param progressListener
+	 *            is periodically informed about the progress, can be <code>null</code>
+	 * @return a future that is completed with the total number of updated items
+	 * @see ShopkeeperItemUpdater
+	 */
+	public CompletableFuture<Integer> updateItemsInBackground(
+			boolean skipUnchanged,
+			@Nullable Consumer<ShopkeeperItemUpdater.Progress> progressListener
+	) {
+		Log.debug(DebugOptions.itemUpdates, "Updating all items in the background.");
+
+		int configUpdatedItems = Settings.getInstance().updateItems();
+		if (configUpdatedItems > 0) {
+			// Note: Not safe to be called from inside inventory events!
+			uiRegistry.abortUISessions();
+		}
+
+		return shopkeeperItemUpdater.start(
+				shopkeeperRegistry.getAllShopkeepers(),
+				skipUnchanged,
+				progressListener
+		).thenApply(progress -> {
+			if (progress.getUpdatedItems() > 0) {
+				shopkeeperStorage.save();
+			}
+			return configUpdatedItems + progress.getUpdatedItems();
+		});
+	}
+
+	public ShopkeeperItemUpdater getShopkeeperItemUpdater() {
+		return shopkeeperItemUpdater;
+	}
+
 	// COMMANDS
 
 	public Commands getCommands() {
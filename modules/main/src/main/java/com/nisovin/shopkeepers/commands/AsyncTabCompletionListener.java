@@ -0,0 +1,86 @@
+package com.nisovin.shopkeepers.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import com.nisovin.shopkeepers.commands.lib.BaseCommand;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Handles the tab completions of a {@link BaseCommand} off the server thread, via Paper's
+ * {@link AsyncTabCompleteEvent}, if the command supports
+ * {@link BaseCommand#handleAsyncTabCompletion(CommandInput) asynchronous completions} for the
+ * given input.
+ * <p>
+ * Otherwise, the event is not handled and the completion is handled by the command's
+ * synchronous tab completer as usual.
+ */
+class AsyncTabCompletionListener implements Listener {
+
+	private final Plugin plugin;
+	private final BaseCommand command;
+
+	AsyncTabCompletionListener(Plugin plugin, BaseCommand command) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(command, "command is null");
+		this.plugin = plugin;
+		this.command = command;
+	}
+
+	void onEnable() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+	}
+
+	void onDisable() {
+		HandlerList.unregisterAll(this);
+	}
+
+	@EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
+	void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+		if (event.isHandled() || !event.isCommand()) return;
+
+		String buffer = event.getBuffer();
+		String commandLine = buffer.startsWith("/") ? buffer.substring(1) : buffer;
+		int labelEndIndex = commandLine.indexOf(' ');
+		// Completions of the command label itself are handled by the server:
+		if (labelEndIndex <= 0) return;
+
+		String label = commandLine.substring(0, labelEndIndex);
+		if (!this.isCommandLabel(label)) return;
+
+		// Like Bukkit, this keeps the trailing empty argument if the last argument is empty:
+		String[] args = commandLine.substring(labelEndIndex + 1).split(" ", -1);
+		CommandInput input = new CommandInput(event.getSender(), command, label, args);
+		List<? extends String> suggestions = command.handleAsyncTabCompletion(input);
+		if (suggestions == null) return; // Handled synchronously
+
+		event.setCompletions(new ArrayList<>(suggestions));
+		event.setHandled(true);
+	}
+
+	private boolean isCommandLabel(String label) {
+		// The command can also be invoked with the plugin name as prefix:
+		String commandAlias = label;
+		int namespaceEndIndex = label.indexOf(':');
+		if (namespaceEndIndex >= 0) {
+			String namespace = label.substring(0, namespaceEndIndex);
+			if (!namespace.equalsIgnoreCase(plugin.getName())) return false;
+			commandAlias = label.substring(namespaceEndIndex + 1);
+		}
+
+		if (commandAlias.equalsIgnoreCase(command.getName())) return true;
+		for (String alias : command.getAliases()) {
+			if (commandAlias.equalsIgnoreCase(alias)) return true;
+		}
+		return false;
+	}
+}
@@ -13,6 +13,7 @@ public class Commands {
 	private final Confirmations confirmations;
 
 	private @Nullable ShopkeepersCommand shopkeepersCommand;
+	private @Nullable AsyncTabCompletionListener asyncTabCompletionListener;
 
 	public Commands(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -22,10 +23,23 @@ public class Commands {
 	public void onEnable() {
 		confirmations.onEnable();
 		// Register command executor:
-		shopkeepersCommand = new ShopkeepersCommand(plugin, confirmations);
+		ShopkeepersCommand shopkeepersCommand = new ShopkeepersCommand(plugin, confirmations);
+		this.shopkeepersCommand = shopkeepersCommand;
+		// Handle supported tab completions off the server thread:
+		AsyncTabCompletionListener asyncTabCompletionListener = new AsyncTabCompletionListener(
+				plugin,
+				shopkeepersCommand
+		);
+		asyncTabCompletionListener.onEnable();
+		this.asyncTabCompletionListener = asyncTabCompletionListener;
 	}
 
 	public void onDisable() {
+		AsyncTabCompletionListener asyncTabCompletionListener = this.asyncTabCompletionListener;
+		if (asyncTabCompletionListener != null) {
+			asyncTabCompletionListener.onDisable();
+			this.asyncTabCompletionListener = null;
+		}
 		confirmations.onDisable();
 	}
 
@@ -119,4 +119,13 @@ public class ShopkeeperArgument extends CommandArgument<Shopkeeper> {
 	) {
 		return firstOfArgument.complete(input, context, argsReader);
 	}
+
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return firstOfArgument.completeAsync(input, context, argsReader);
+	}
 }
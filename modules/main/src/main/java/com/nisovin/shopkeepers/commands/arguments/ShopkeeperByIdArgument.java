@@ -59,6 +59,20 @@ public class ShopkeeperByIdArgument extends ObjectByIdArgument<Integer, Shopkeep
 						idPrefix
 				);
 			}
+
+			@Override
+			protected @Nullable Iterable<? extends Integer> getAsyncCompletionSuggestions(
+					CommandInput input,
+					CommandContextView context,
+					String idPrefix
+			) {
+				return ShopkeeperByIdArgument.this.getAsyncCompletionSuggestions(
+						input,
+						context,
+						minimumCompletionInput,
+						idPrefix
+				);
+			}
 		};
 	}
 
@@ -91,4 +105,22 @@ public class ShopkeeperByIdArgument extends ObjectByIdArgument<Integer, Shopkeep
 				filter
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends Integer> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			int minimumCompletionInput,
+			String idPrefix
+	) {
+		ShopkeeperFilter.InfoFilter infoFilter = ShopkeeperFilter.toInfoFilter(filter);
+		if (infoFilter == null) return null; // Not supported by the filter
+
+		return ShopkeeperIdArgument.getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				infoFilter
+		);
+	}
 }
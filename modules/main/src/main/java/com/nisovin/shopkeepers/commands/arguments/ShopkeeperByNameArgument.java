@@ -70,6 +70,20 @@ public class ShopkeeperByNameArgument extends ObjectByIdArgument<String, Shopkee
 						idPrefix
 				);
 			}
+
+			@Override
+			protected @Nullable Iterable<? extends String> getAsyncCompletionSuggestions(
+					CommandInput input,
+					CommandContextView context,
+					String idPrefix
+			) {
+				return ShopkeeperByNameArgument.this.getAsyncCompletionSuggestions(
+						input,
+						context,
+						minimumCompletionInput,
+						idPrefix
+				);
+			}
 		};
 	}
 
@@ -158,4 +172,22 @@ public class ShopkeeperByNameArgument extends ObjectByIdArgument<String, Shopkee
 				filter
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends String> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			int minimumCompletionInput,
+			String idPrefix
+	) {
+		ShopkeeperFilter.InfoFilter infoFilter = ShopkeeperFilter.toInfoFilter(filter);
+		if (infoFilter == null) return null; // Not supported by the filter
+
+		return ShopkeeperNameArgument.getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				infoFilter
+		);
+	}
 }
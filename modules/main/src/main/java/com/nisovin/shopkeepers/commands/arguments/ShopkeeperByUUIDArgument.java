@@ -64,6 +64,20 @@ public class ShopkeeperByUUIDArgument extends ObjectByIdArgument<UUID, Shopkeepe
 						idPrefix
 				);
 			}
+
+			@Override
+			protected @Nullable Iterable<? extends UUID> getAsyncCompletionSuggestions(
+					CommandInput input,
+					CommandContextView context,
+					String idPrefix
+			) {
+				return ShopkeeperByUUIDArgument.this.getAsyncCompletionSuggestions(
+						input,
+						context,
+						minimumCompletionInput,
+						idPrefix
+				);
+			}
 		};
 	}
 
@@ -96,4 +110,22 @@ public class ShopkeeperByUUIDArgument extends ObjectByIdArgument<UUID, Shopkeepe
 				filter
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends UUID> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			int minimumCompletionInput,
+			String idPrefix
+	) {
+		ShopkeeperFilter.InfoFilter infoFilter = ShopkeeperFilter.toInfoFilter(filter);
+		if (infoFilter == null) return null; // Not supported by the filter
+
+		return ShopkeeperUUIDArgument.getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				infoFilter
+		);
+	}
 }
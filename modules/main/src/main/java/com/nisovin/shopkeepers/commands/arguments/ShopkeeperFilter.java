@@ -1,12 +1,20 @@
 package com.nisovin.shopkeepers.commands.arguments;
 
 import java.util.Collections;
+import java.util.UUID;
 
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperInfo;
 import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
 import com.nisovin.shopkeepers.api.ui.UIType;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.CommandArgument;
@@ -20,9 +28,95 @@ import com.nisovin.shopkeepers.util.java.Validate;
 
 public final class ShopkeeperFilter {
 
+	/**
+	 * A shopkeeper filter that can also be applied to the {@link ShopkeeperInfo} of a shopkeeper,
+	 * for example to provide completion suggestions asynchronously.
+	 * <p>
+	 * The {@link ShopkeeperInfo} might not reflect the current state of the shopkeeper and does not
+	 * capture all of its state. The result of {@link #test(CommandInput, ShopkeeperInfo)} is
+	 * therefore only an approximation of the result for the live shopkeeper.
+	 */
+	public static abstract class InfoFilter extends ArgumentFilter<@Nullable Shopkeeper> {
+
+		/**
+		 * Checks if the given shopkeeper is accepted, based on its captured state.
+		 * <p>
+		 * This can be called from any thread.
+		 * 
+		 * @param input
+		 *            the command input, not <code>null</code>
+		 * @param shopkeeper
+		 *            the captured shopkeeper state, not <code>null</code>
+		 * @return <code>true</code> if the shopkeeper is accepted
+		 */
+		public abstract boolean test(CommandInput input, ShopkeeperInfo shopkeeper);
+
+		@Override
+		public ArgumentFilter<@Nullable Shopkeeper> and(
+				ArgumentFilter<? super @Nullable Shopkeeper> other
+		) {
+			if (!(other instanceof InfoFilter)) {
+				return super.and(other);
+			}
+
+			InfoFilter otherInfoFilter = (InfoFilter) other;
+			return new InfoFilter() {
+				@Override
+				public boolean test(
+						CommandInput input,
+						CommandContextView context,
+						@Nullable Shopkeeper shopkeeper
+				) {
+					return InfoFilter.this.test(input, context, shopkeeper)
+							&& otherInfoFilter.test(input, context, shopkeeper);
+				}
+
+				@Override
+				public boolean test(CommandInput input, ShopkeeperInfo shopkeeper) {
+					return InfoFilter.this.test(input, shopkeeper)
+							&& otherInfoFilter.test(input, shopkeeper);
+				}
+			};
+		}
+	}
+
+	/**
+	 * An {@link InfoFilter} that accepts any shopkeeper.
+	 */
+	public static final InfoFilter ANY_INFO = new InfoFilter() {
+		@Override
+		public boolean test(
+				CommandInput input,
+				CommandContextView context,
+				@Nullable Shopkeeper shopkeeper
+		) {
+			return true;
+		}
+
+		@Override
+		public boolean test(CommandInput input, ShopkeeperInfo shopkeeper) {
+			return true;
+		}
+	};
+
+	/**
+	 * Gets an {@link InfoFilter} that corresponds to the given shopkeeper filter.
+	 * 
+	 * @param filter
+	 *            the shopkeeper filter, not <code>null</code>
+	 * @return the corresponding {@link InfoFilter}, or <code>null</code> if the given filter cannot
+	 *         be applied to the {@link ShopkeeperInfo} of shopkeepers
+	 */
+	public static @Nullable InfoFilter toInfoFilter(ArgumentFilter<? super Shopkeeper> filter) {
+		Validate.notNull(filter, "filter is null");
+		if (filter == ArgumentFilter.acceptAny()) return ANY_INFO;
+		if (filter instanceof InfoFilter) return (InfoFilter) filter;
+		return null;
+	}
+
 	public static final ArgumentFilter<Shopkeeper> ANY = ArgumentFilter.acceptAny();
 
-	public static final ArgumentFilter<@Nullable Shopkeeper> ADMIN = new ArgumentFilter<@Nullable Shopkeeper>() {
+	public static final ArgumentFilter<@Nullable Shopkeeper> ADMIN = new InfoFilter() {
 		@Override
 		public boolean test(
 				CommandInput input,
@@ -32,6 +126,12 @@ public final class ShopkeeperFilter {
 			return (shopkeeper instanceof AdminShopkeeper);
 		}
 
+		@Override
+		public boolean test(CommandInput input, ShopkeeperInfo shopkeeper) {
+			// Only player shopkeepers have an owner:
+			return (shopkeeper.getOwnerUniqueId() == null);
+		}
+
 		@Override
 		public Text getInvalidArgumentErrorMsg(
 				CommandArgument<?> argument,
@@ -46,7 +146,7 @@ public final class ShopkeeperFilter {
 		}
 	};
 
-	public static final ArgumentFilter<@Nullable Shopkeeper> PLAYER = new ArgumentFilter<@Nullable Shopkeeper>() {
+	public static final ArgumentFilter<@Nullable Shopkeeper> PLAYER = new InfoFilter() {
 		@Override
 		public boolean test(
 				CommandInput input,
@@ -56,6 +156,11 @@ public final class ShopkeeperFilter {
 			return (shopkeeper instanceof PlayerShopkeeper);
 		}
 
+		@Override
+		public boolean test(CommandInput input, ShopkeeperInfo shopkeeper) {
+			return (shopkeeper.getOwnerUniqueId() != null);
+		}
+
 		@Override
 		public Text getInvalidArgumentErrorMsg(
 				CommandArgument<?> argument,
@@ -71,7 +176,7 @@ public final class ShopkeeperFilter {
 	};
 
 	public static ArgumentFilter<@Nullable Shopkeeper> withAccess(UIType uiType) {
-		return new ArgumentFilter<@Nullable Shopkeeper>() {
+		return new InfoFilter() {
 			@Override
 			public boolean test(
 					CommandInput input,
@@ -89,6 +194,11 @@ public final class ShopkeeperFilter {
 				});
 			}
 
+			@Override
+			public boolean test(CommandInput input, ShopkeeperInfo shopkeeper) {
+				return canAccess(input.getSender(), shopkeeper, uiType);
+			}
+
 			@Override
 			public Text getInvalidArgumentErrorMsg(
 					CommandArgument<?> argument,
@@ -104,6 +214,28 @@ public final class ShopkeeperFilter {
 		};
 	}
 
+	// Approximates AbstractShopkeeper#canAccess based on the captured shopkeeper state: Only the
+	// editor access is restricted, to the owner of a player shop, or to players with the permission
+	// for the type of an admin shop.
+	// Does not use PermissionUtils, because its permission check logging toggle is not thread-safe.
+	private static boolean canAccess(
+			CommandSender sender,
+			ShopkeeperInfo shopkeeper,
+			UIType uiType
+	) {
+		if (sender.hasPermission(ShopkeepersPlugin.BYPASS_PERMISSION)) return true;
+		if (!(sender instanceof Player player)) return false;
+		if (!uiType.equals(DefaultUITypes.EDITOR())) return true;
+
+		UUID ownerUniqueId = shopkeeper.getOwnerUniqueId();
+		if (ownerUniqueId != null) {
+			return ownerUniqueId.equals(player.getUniqueId());
+		}
+
+		ShopType<?> shopType = ShopkeepersAPI.getShopTypeRegistry().get(shopkeeper.getShopTypeId());
+		return (shopType != null && shopType.hasPermission(player));
+	}
+
 	private ShopkeeperFilter() {
 	}
 }
@@ -5,10 +5,12 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperInfo;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.filter.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.IntegerArgument;
@@ -16,6 +18,7 @@ import com.nisovin.shopkeepers.commands.lib.arguments.ObjectIdArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils.TargetShopkeeperFilter;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCompletionIndex;
 import com.nisovin.shopkeepers.util.java.ConversionUtils;
 
 /**
@@ -117,6 +120,45 @@ public class ShopkeeperIdArgument extends ObjectIdArgument<Integer> {
 				.filter(id -> String.valueOf(id).startsWith(idPrefix))::iterator;
 	}
 
+	/**
+	 * Gets the default id completion suggestions based on the {@link ShopkeeperCompletionIndex},
+	 * without accessing the live shopkeepers.
+	 * <p>
+	 * This can be called from any thread. Unlike the synchronous default completion suggestions,
+	 * this does not suggest the id of the targeted shopkeeper(s).
+	 * 
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param minimumCompletionInput
+	 *            the minimum input length before completion suggestions are provided
+	 * @param idPrefix
+	 *            the id prefix, may be empty, not <code>null</code>
+	 * @param filter
+	 *            only suggestions for shopkeepers accepted by this filter are included, not
+	 *            <code>null</code>
+	 * @return the shopkeeper id completion suggestions
+	 */
+	public static Iterable<? extends Integer> getDefaultAsyncCompletionSuggestions(
+			CommandInput input,
+			int minimumCompletionInput,
+			String idPrefix,
+			ShopkeeperFilter.InfoFilter filter
+	) {
+		// If idPrefix is not empty but not a valid number, we can skip checking for completions:
+		if (!idPrefix.isEmpty() && ConversionUtils.parseInt(idPrefix) == null) {
+			return Collections.emptyList();
+		}
+
+		// Only provide suggestions if there is a minimum length input:
+		if (idPrefix.length() < minimumCompletionInput) {
+			return Collections.emptyList();
+		}
+
+		return ShopkeeperCompletionIndex.get()
+				.getByIdPrefix(idPrefix, shopkeeperInfo -> filter.test(input, shopkeeperInfo))
+				.map(ShopkeeperInfo::getId)::iterator;
+	}
+
 	@Override
 	protected Iterable<? extends Integer> getCompletionSuggestions(
 			CommandInput input,
@@ -131,4 +173,18 @@ public class ShopkeeperIdArgument extends ObjectIdArgument<Integer> {
 				ArgumentFilter.acceptAny()
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends Integer> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			String idPrefix
+	) {
+		return getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				ShopkeeperFilter.ANY_INFO
+		);
+	}
 }
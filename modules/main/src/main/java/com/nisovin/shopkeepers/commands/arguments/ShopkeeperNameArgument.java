@@ -15,6 +15,7 @@ import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.filter.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.ObjectNameArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCompletionIndex;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 
@@ -85,20 +86,72 @@ public class ShopkeeperNameArgument extends ObjectNameArgument {
 		Stream<Shopkeeper> shopkeepers = Unsafe.castNonNull(shopkeeperRegistry.getAllShopkeepers().stream());
 		Iterable<String> suggestions = shopkeepers
 				.filter(shopkeeper -> shopkeeperFilter.test(input, context, shopkeeper))
-				.<@Nullable String>map(shopkeeper -> {
-					String name = TextUtils.stripColor(shopkeeper.getName());
-					if (name.isEmpty()) return null;
-					String normalizedWithCase = StringUtils.normalizeKeepCase(name);
-					String normalized = normalizedWithCase.toLowerCase(Locale.ROOT);
-					if (normalized.startsWith(normalizedNamePrefix)) {
-						return normalizedWithCase;
-					}
-					return null; // No match
-				}).filter(Objects::nonNull)
+				.<@Nullable String>map(shopkeeper -> toSuggestion(
+						shopkeeper.getName(),
+						normalizedNamePrefix
+				))
+				.filter(Objects::nonNull)
 				.map(Unsafe::assertNonNull)::iterator;
 		return suggestions;
 	}
 
+	/**
+	 * Gets the default name completion suggestions based on the
+	 * {@link ShopkeeperCompletionIndex}, without accessing the live shopkeepers.
+	 * <p>
+	 * This can be called from any thread.
+	 * 
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param minimumCompletionInput
+	 *            the minimum input length before completion suggestions are provided
+	 * @param namePrefix
+	 *            the name prefix, may be empty, not <code>null</code>
+	 * @param shopkeeperFilter
+	 *            only suggestions for shopkeepers accepted by this filter are included
+	 * @return the shopkeeper name completion suggestions
+	 */
+	public static Iterable<? extends String> getDefaultAsyncCompletionSuggestions(
+			CommandInput input,
+			int minimumCompletionInput,
+			String namePrefix,
+			ShopkeeperFilter.InfoFilter shopkeeperFilter
+	) {
+		// Only provide suggestions if there is a minimum length input:
+		if (namePrefix.length() < minimumCompletionInput) {
+			return Collections.emptyList();
+		}
+
+		// Strips color, normalizes whitespace, converts to lowercase:
+		String normalizedNamePrefix = StringUtils.normalize(TextUtils.stripColor(namePrefix));
+		Iterable<String> suggestions = ShopkeeperCompletionIndex.get()
+				.getByNamePrefix(
+						normalizedNamePrefix,
+						shopkeeperInfo -> shopkeeperFilter.test(input, shopkeeperInfo)
+				)
+				.<@Nullable String>map(shopkeeperInfo -> toSuggestion(
+						shopkeeperInfo.getName(),
+						normalizedNamePrefix
+				))
+				.filter(Objects::nonNull)
+				.map(Unsafe::assertNonNull)::iterator;
+		return suggestions;
+	}
+
+	private static @Nullable String toSuggestion(
+			String shopkeeperName,
+			String normalizedNamePrefix
+	) {
+		String name = TextUtils.stripColor(shopkeeperName);
+		if (name.isEmpty()) return null;
+		String normalizedWithCase = StringUtils.normalizeKeepCase(name);
+		String normalized = normalizedWithCase.toLowerCase(Locale.ROOT);
+		if (normalized.startsWith(normalizedNamePrefix)) {
+			return normalizedWithCase;
+		}
+		return null; // No match
+	}
+
 	@Override
 	protected Iterable<? extends String> getCompletionSuggestions(
 			CommandInput input,
@@ -113,4 +166,18 @@ public class ShopkeeperNameArgument extends ObjectNameArgument {
 				ArgumentFilter.acceptAny()
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends String> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			String idPrefix
+	) {
+		return getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				ShopkeeperFilter.ANY_INFO
+		);
+	}
 }
@@ -1,21 +1,25 @@
 package com.nisovin.shopkeepers.commands.arguments;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 import java.util.stream.Stream;
 
 import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperInfo;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.filter.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.ObjectUUIDArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils.TargetShopkeeperFilter;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCompletionIndex;
 
 /**
  * Provides suggestions for the UUIDs of existing shopkeepers.
@@ -107,6 +111,40 @@ public class ShopkeeperUUIDArgument extends ObjectUUIDArgument {
 				})::iterator;
 	}
 
+	/**
+	 * Gets the default uuid completion suggestions based on the {@link ShopkeeperCompletionIndex},
+	 * without accessing the live shopkeepers.
+	 * <p>
+	 * This can be called from any thread. Unlike the synchronous default completion suggestions,
+	 * this does not suggest the uuid of the targeted shopkeeper(s).
+	 * 
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param minimumCompletionInput
+	 *            the minimum input length before completion suggestions are provided
+	 * @param uuidPrefix
+	 *            the uuid prefix, may be empty, not <code>null</code>
+	 * @param filter
+	 *            only suggestions for shopkeepers accepted by this filter are included, not
+	 *            <code>null</code>
+	 * @return the shopkeeper uuid completion suggestions
+	 */
+	public static Iterable<? extends UUID> getDefaultAsyncCompletionSuggestions(
+			CommandInput input,
+			int minimumCompletionInput,
+			String uuidPrefix,
+			ShopkeeperFilter.InfoFilter filter
+	) {
+		// Only provide suggestions if there is a minimum length input:
+		if (uuidPrefix.length() < minimumCompletionInput) {
+			return Collections.emptyList();
+		}
+
+		return ShopkeeperCompletionIndex.get()
+				.getByUUIDPrefix(uuidPrefix, shopkeeperInfo -> filter.test(input, shopkeeperInfo))
+				.map(ShopkeeperInfo::getUniqueId)::iterator;
+	}
+
 	@Override
 	protected Iterable<? extends UUID> getCompletionSuggestions(
 			CommandInput input,
@@ -121,4 +159,18 @@ public class ShopkeeperUUIDArgument extends ObjectUUIDArgument {
 				ArgumentFilter.acceptAny()
 		);
 	}
+
+	@Override
+	protected @Nullable Iterable<? extends UUID> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			String idPrefix
+	) {
+		return getDefaultAsyncCompletionSuggestions(
+				input,
+				minimumCompletionInput,
+				idPrefix,
+				ShopkeeperFilter.ANY_INFO
+		);
+	}
 }
@@ -115,4 +115,13 @@ public class TargetShopkeeperArgument extends CommandArgument<Shopkeeper> {
 	) {
 		return Collections.emptyList();
 	}
+
+	@Override
+	public List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return Collections.emptyList();
+	}
 }
@@ -1290,6 +1290,69 @@ public abstract class Command {
 		return Collections.unmodifiableList(suggestions);
 	}
 
+	/**
+	 * Gets tab completion suggestions for the last (possibly partial or empty) argument of the
+	 * given input like {@link #handleTabCompletion(CommandInput)}, but can be invoked
+	 * asynchronously.
+	 * <p>
+	 * Asynchronous completions are only supported for the single argument of a command without
+	 * child-commands, and only if that argument supports
+	 * {@link CommandArgument#completeAsync(CommandInput, CommandContextView, ArgumentsReader)
+	 * asynchronous completions}. Otherwise, this returns <code>null</code> and the completion needs
+	 * to be handled by {@link #handleTabCompletion(CommandInput)} on the server thread instead.
+	 *
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @return the suggestions for the final argument, an empty list to indicate 'no suggestions',
+	 *         or <code>null</code> if asynchronous completions are not supported for this input
+	 */
+	public @Nullable List<? extends String> handleAsyncTabCompletion(CommandInput input) {
+		Validate.notNull(input, "input is null");
+		Validate.isTrue(input.getCommand() == this.getRootCommand(),
+				"input is meant for a different command");
+
+		ArgumentsReader argsReader = new ArgumentsReader(input);
+		return this.handleAsyncTabCompletion(input, argsReader);
+	}
+
+	/**
+	 * Gets tab completion suggestions for the last (possibly partial or empty) argument of the
+	 * given input like {@link #handleTabCompletion(CommandInput)}, but can be invoked
+	 * asynchronously.
+	 *
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param argsReader
+	 *            the ArgumentsReader, not <code>null</code>
+	 * @return the suggestions for the final argument, an empty list to indicate 'no suggestions',
+	 *         or <code>null</code> if asynchronous completions are not supported for this input
+	 * @see #handleAsyncTabCompletion(CommandInput)
+	 */
+	protected @Nullable List<? extends String> handleAsyncTabCompletion(
+			CommandInput input,
+			ArgumentsReader argsReader
+	) {
+		assert input != null && argsReader != null;
+		// Search for matching child-command:
+		Command childCommand = this.getChildCommand(argsReader);
+		if (childCommand != null) {
+			// Delegate to child-command:
+			return childCommand.handleAsyncTabCompletion(input, argsReader);
+		}
+
+		// Child-command aliases and sequences of arguments are only completed synchronously:
+		if (!this.getChildCommands().getCommands().isEmpty()) return null;
+		if (arguments.size() != 1 || argsReader.getRemainingSize() != 1) return null;
+
+		CommandSender sender = input.getSender();
+		if (!this.isAccepted(sender) || !this.testPermission(sender)) {
+			return Collections.emptyList();
+		}
+
+		CommandContextView contextView = new SimpleCommandContext().getView();
+		return arguments.get(0).completeAsync(input, contextView, argsReader);
+	}
+
 	// Help page related:
 
 	/**
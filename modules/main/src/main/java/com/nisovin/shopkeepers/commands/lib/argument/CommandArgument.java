@@ -444,6 +444,34 @@ public abstract class CommandArgument<T> {
 			ArgumentsReader argsReader
 	);
 
+	/**
+	 * Provides completion suggestions for the last (possibly partial or empty) argument like
+	 * {@link #complete(CommandInput, CommandContextView, ArgumentsReader)}, but can be invoked
+	 * asynchronously, i.e. from a thread that is not allowed to access the world or live plugin
+	 * state.
+	 * <p>
+	 * By default, asynchronous completions are not supported and this returns <code>null</code>, in
+	 * which case the completion is handled synchronously instead. Arguments that can provide their
+	 * suggestions from thread-safe state only can override this method.
+	 *
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param context
+	 *            an unmodifiable view on the context storing the already parsed argument values,
+	 *            not <code>null</code>
+	 * @param argsReader
+	 *            the ArgumentsReader, not <code>null</code>
+	 * @return the suggestions for the final argument, an empty list to indicate 'no suggestions',
+	 *         or <code>null</code> if asynchronous completions are not supported
+	 */
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return null;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -238,4 +238,37 @@ public class AnyFallbackArgument extends FallbackArgument<@Nullable Object> {
 		}
 		return Collections.unmodifiableList(suggestions);
 	}
+
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		// Only supported if both arguments support asynchronous completions:
+		ArgumentsReader argsReaderState = argsReader.createSnapshot();
+		List<? extends String> argumentSuggestions = argument.completeAsync(
+				input,
+				context,
+				argsReader
+		);
+		if (argumentSuggestions == null) return null;
+
+		argsReader.setState(argsReaderState);
+		List<? extends String> fallbackSuggestions = fallbackArgument.completeAsync(
+				input,
+				context,
+				argsReader
+		);
+		if (fallbackSuggestions == null) return null;
+
+		List<String> suggestions = new ArrayList<>(argumentSuggestions);
+		int limit = (MAX_SUGGESTIONS - suggestions.size());
+		if (fallbackSuggestions.size() <= limit) {
+			suggestions.addAll(fallbackSuggestions);
+		} else if (limit > 0) {
+			suggestions.addAll(fallbackSuggestions.subList(0, limit));
+		}
+		return Collections.unmodifiableList(suggestions);
+	}
 }
@@ -281,6 +281,36 @@ public class FirstOfArgument
 		return Collections.unmodifiableList(suggestions);
 	}
 
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		// Only supported if all arguments support asynchronous completions:
+		List<String> suggestions = new ArrayList<>();
+		ArgumentsReader argsReaderState = argsReader.createSnapshot();
+		for (CommandArgument<?> argument : arguments) {
+			// Reset args so that every argument has a chance to provide completions:
+			argsReader.setState(argsReaderState);
+
+			List<? extends String> argumentSuggestions = argument.completeAsync(
+					input,
+					context,
+					argsReader
+			);
+			if (argumentSuggestions == null) return null;
+
+			int limit = (MAX_SUGGESTIONS - suggestions.size());
+			if (argumentSuggestions.size() < limit) {
+				suggestions.addAll(argumentSuggestions);
+			} else if (limit > 0) {
+				suggestions.addAll(argumentSuggestions.subList(0, limit));
+			}
+		}
+		return Collections.unmodifiableList(suggestions);
+	}
+
 	private static class FirstOfFallbackException extends FallbackArgumentException {
 
 		private static final long serialVersionUID = -1177782345537954263L;
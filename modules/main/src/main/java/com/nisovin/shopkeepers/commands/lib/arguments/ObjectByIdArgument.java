@@ -154,4 +154,41 @@ public abstract class ObjectByIdArgument<@NonNull I, @NonNull O>
 	) {
 		return idArgument.complete(input, context, argsReader);
 	}
+
+	/**
+	 * Gets the completion suggestions for the given id prefix like
+	 * {@link #getCompletionSuggestions(CommandInput, CommandContextView, int, String)}, but can be
+	 * invoked asynchronously.
+	 * <p>
+	 * By default, this returns <code>null</code> to indicate that asynchronous completions are not
+	 * supported. The id-argument created by {@link #createIdArgument(String, IdArgumentArgs)} can
+	 * delegate to this method to support asynchronous completions.
+	 * 
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param context
+	 *            the command context, not <code>null</code>
+	 * @param minimumCompletionInput
+	 *            the minimum input length before completion suggestions are provided
+	 * @param idPrefix
+	 *            the id prefix, may be empty, not <code>null</code>
+	 * @return the suggestions, or <code>null</code> if asynchronous completions are not supported
+	 */
+	protected @Nullable Iterable<? extends @NonNull I> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			int minimumCompletionInput,
+			String idPrefix
+	) {
+		return null;
+	}
+
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return idArgument.completeAsync(input, context, argsReader);
+	}
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -97,10 +98,47 @@ public abstract class ObjectIdArgument<@NonNull I> extends CommandArgument<@NonN
 			CommandInput input,
 			CommandContextView context,
 			ArgumentsReader argsReader
+	) {
+		int argsCount = this.getIdPrefixArgsCount(input, context, argsReader);
+		if (argsCount == 0) return Collections.emptyList();
+		String idPrefix = getIdPrefix(argsReader, argsCount);
+
+		// Get completion suggestions:
+		return this.complete(input, context, idPrefix, argsCount);
+	}
+
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		// The id filter is not guaranteed to be thread-safe:
+		if (filter != ArgumentFilter.acceptAny()) return null;
+
+		int argsCount = this.getIdPrefixArgsCount(input, context, argsReader);
+		if (argsCount == 0) return Collections.emptyList();
+		String idPrefix = getIdPrefix(argsReader, argsCount);
+
+		Iterable<? extends @NonNull I> ids = this.getAsyncCompletionSuggestions(
+				input,
+				context,
+				idPrefix
+		);
+		if (ids == null) return null;
+		return this.toSuggestions(input, context, ids, argsCount);
+	}
+
+	// Returns the number of arguments the id prefix consists of, or 0 if this argument is not
+	// completing the last argument.
+	private int getIdPrefixArgsCount(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
 	) {
 		if (argsReader.getRemainingSize() == 0) {
 			// There are no remaining arguments to complete.
-			return Collections.emptyList();
+			return 0;
 		}
 
 		// Try to parse id:
@@ -110,28 +148,28 @@ public abstract class ObjectIdArgument<@NonNull I> extends CommandArgument<@NonN
 			if (argsReader.getRemainingSize() > 0) {
 				// Successfully parsed and there are still arguments left, so this is not consuming
 				// the last argument:
-				return Collections.emptyList();
+				return 0;
 			}
 		} catch (ArgumentParseException e) {
 		}
 
-		// Determine id prefix and args count:
-		List<? extends String> args = argsReader.getArgs();
-		int endIndex = args.size(); // exclusive
+		int endIndex = argsReader.getArgs().size(); // exclusive
 		// The partial id input may consist of multiple joined input arguments:
 		int argsCount = (endIndex - startIndex);
 		assert argsCount > 0; // Otherwise we would have no remaining arguments in the first place.
+		return argsCount;
+	}
 
-		@NonNull String idPrefix;
+	private static String getIdPrefix(ArgumentsReader argsReader, int argsCount) {
+		List<? extends String> args = argsReader.getArgs();
+		int endIndex = args.size(); // exclusive
+		int startIndex = endIndex - argsCount; // inclusive
 		if (argsCount == 1) { // Single argument
-			idPrefix = args.get(startIndex);
+			return args.get(startIndex);
 		} else { // Joined arguments:
 			List<? extends String> parsedArgs = args.subList(startIndex, endIndex);
-			idPrefix = String.join(Command.ARGUMENTS_SEPARATOR, parsedArgs);
+			return String.join(Command.ARGUMENTS_SEPARATOR, parsedArgs);
 		}
-
-		// Get completion suggestions:
-		return this.complete(input, context, idPrefix, argsCount);
 	}
 
 	// argsCount: The number of arguments the id prefix consist of (>= 1).
@@ -144,8 +182,22 @@ public abstract class ObjectIdArgument<@NonNull I> extends CommandArgument<@NonN
 		// Note: We don't check the minimumCompletionInput here but let getCompletionSuggestions
 		// handle it, because the argument may want to ignore the minimumCompletionInput for some of
 		// its suggestions.
+		return this.toSuggestions(
+				input,
+				context,
+				this.getCompletionSuggestions(input, context, idPrefix),
+				argsCount
+		);
+	}
+
+	private List<? extends String> toSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			Iterable<? extends @NonNull I> ids,
+			int argsCount
+	) {
 		List<String> suggestions = new ArrayList<>();
-		for (I id : this.getCompletionSuggestions(input, context, idPrefix)) {
+		for (I id : ids) {
 			if (suggestions.size() >= MAX_SUGGESTIONS) break;
 			if (!filter.test(input, context, id)) continue; // Skip rejected ids
 
@@ -190,4 +242,28 @@ public abstract class ObjectIdArgument<@NonNull I> extends CommandArgument<@NonN
 			CommandContextView context,
 			String idPrefix
 	);
+
+	/**
+	 * Gets the completion suggestions for the given id prefix like
+	 * {@link #getCompletionSuggestions(CommandInput, CommandContextView, String)}, but can be
+	 * invoked asynchronously.
+	 * <p>
+	 * By default, this returns <code>null</code> to indicate that asynchronous completions are not
+	 * supported.
+	 * 
+	 * @param input
+	 *            the command input, not <code>null</code>
+	 * @param context
+	 *            the command context, not <code>null</code>
+	 * @param idPrefix
+	 *            the id prefix, may be empty, not <code>null</code>
+	 * @return the suggestions, or <code>null</code> if asynchronous completions are not supported
+	 */
+	protected @Nullable Iterable<? extends @NonNull I> getAsyncCompletionSuggestions(
+			CommandInput input,
+			CommandContextView context,
+			String idPrefix
+	) {
+		return null;
+	}
 }
@@ -2,6 +2,8 @@ package com.nisovin.shopkeepers.commands.lib.arguments;
 
 import java.util.List;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.ArgumentParseException;
 import com.nisovin.shopkeepers.commands.lib.argument.ArgumentsReader;
@@ -110,4 +112,13 @@ public class TypedFallbackArgument<T> extends FallbackArgument<T> {
 	) {
 		return anyFallbackArgument.complete(input, context, argsReader);
 	}
+
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return anyFallbackArgument.completeAsync(input, context, argsReader);
+	}
 }
@@ -109,6 +109,15 @@ public class TypedFirstOfArgument<T> extends FallbackArgument<T> {
 		return firstOfArgument.complete(input, context, argsReader);
 	}
 
+	@Override
+	public @Nullable List<? extends String> completeAsync(
+			CommandInput input,
+			CommandContextView context,
+			ArgumentsReader argsReader
+	) {
+		return firstOfArgument.completeAsync(input, context, argsReader);
+	}
+
 	@Override
 	public T parseFallback(
 			CommandInput input,
@@ -28,12 +28,14 @@ import com.nisovin.shopkeepers.commands.lib.arguments.FirstOfArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.itemconversion.ItemConversion;
 import com.nisovin.shopkeepers.shopkeeper.activation.ShopkeeperChunkActivator;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopkeeper.spawning.ShopkeeperSpawner;
 import com.nisovin.shopkeepers.shopobjects.living.LivingEntityAI;
 import com.nisovin.shopkeepers.text.Text;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InternedItemStacks;
 import com.nisovin.shopkeepers.util.taskqueue.TaskQueueStatistics;
 import com.nisovin.shopkeepers.util.timer.Timings;
 
@@ -92,6 +94,11 @@ class CommandCheck extends Command {
 				+ plugin.getShopkeeperStorage().getUnsavedDirtyShopkeepersCount()
 				+ " | " + plugin.getShopkeeperStorage().getUnsavedDeletedShopkeepersCount()
 				+ " | " + plugin.getShopkeeperStorage().isDirty());
+		sender.sendMessage("  Saves: " + plugin.getShopkeeperStorage().getSaveStatisticsString());
+		sender.sendMessage("  IO executor: " + plugin.getIOExecutor().getStatisticsString());
+		sender.sendMessage("  Trade log: " + plugin.getTradeLoggers().getStatisticsString());
+		sender.sendMessage("  Item conversion cache: " + ItemConversion.getCacheStatisticsString());
+		sender.sendMessage("  Interned offer items: " + InternedItemStacks.getStatisticsString());
 		sender.sendMessage("  Chunks with shopkeepers: " + totalChunksWithShopkeepers);
 		sender.sendMessage("    With active AI: " + livingEntityAI.getActiveAIChunksCount());
 		sender.sendMessage("    With active gravity: " + livingEntityAI.getActiveGravityChunksCount());
@@ -1,8 +1,6 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -13,8 +11,6 @@ import org.bukkit.entity.Player;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -31,6 +27,8 @@ import com.nisovin.shopkeepers.commands.lib.util.PlayerArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils.OwnedPlayerShopsResult;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.shopkeeper.registry.ShopkeeperPage;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 
@@ -45,9 +43,9 @@ class CommandList extends Command {
 
 	private static final int ENTRIES_PER_PAGE = 8;
 
-	private final ShopkeeperRegistry shopkeeperRegistry;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
 
-	CommandList(ShopkeeperRegistry shopkeeperRegistry) {
+	CommandList(SKShopkeeperRegistry shopkeeperRegistry) {
 		super("list");
 		this.shopkeeperRegistry = shopkeeperRegistry;
 
@@ -96,25 +94,19 @@ class CommandList extends Command {
 		String targetPlayerName = context.getOrNull(ARGUMENT_PLAYER_NAME); // Can be null
 		assert listAllShops ^ listAdminShops ^ (targetPlayerUUID != null ^ targetPlayerName != null);
 
-		List<? extends Shopkeeper> shops;
+		// Only the shopkeepers of the requested page are retrieved:
+		ShopkeeperPage shopsPage;
 		if (listAllShops) {
 			// Permission check:
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_ADMIN_PERMISSION);
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_OTHERS_PERMISSION);
 
-			shops = new ArrayList<>(shopkeeperRegistry.getAllShopkeepers());
+			shopsPage = shopkeeperRegistry.getAllShopkeepersPage(page, ENTRIES_PER_PAGE);
 		} else if (listAdminShops) {
 			// Permission check:
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_ADMIN_PERMISSION);
 
-			// Searching admin shops:
-			List<Shopkeeper> adminShops = new ArrayList<>();
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (shopkeeper instanceof AdminShopkeeper) {
-					adminShops.add(shopkeeper);
-				}
-			}
-			shops = adminShops;
+			shopsPage = shopkeeperRegistry.getAdminShopkeepersPage(page, ENTRIES_PER_PAGE);
 		} else {
 			// Check if the target matches the sender player:
 			boolean targetOwnShops = false;
@@ -177,13 +169,13 @@ class CommandList extends Command {
 			targetPlayerName = ownedPlayerShopsResult.getPlayerName();
 
 			// Get found shops:
-			shops = ownedPlayerShopsResult.getShops();
+			shopsPage = ShopkeeperPage.of(ownedPlayerShopsResult.getShops(), page, ENTRIES_PER_PAGE);
 		}
-		assert shops != null;
+		assert shopsPage != null;
 
-		int shopsCount = shops.size();
-		int maxPage = Math.max(1, (int) Math.ceil((double) shopsCount / ENTRIES_PER_PAGE));
-		page = Math.max(1, Math.min(page, maxPage));
+		int shopsCount = shopsPage.getTotalCount();
+		int maxPage = shopsPage.getMaxPage();
+		page = shopsPage.getPage();
 
 		if (listAllShops) {
 			// Listing all shops:
@@ -209,16 +201,15 @@ class CommandList extends Command {
 			);
 		}
 
-		int startIndex = (page - 1) * ENTRIES_PER_PAGE;
-		int endIndex = Math.min(startIndex + ENTRIES_PER_PAGE, shopsCount);
-		for (int index = startIndex; index < endIndex; index++) {
-			Shopkeeper shopkeeper = shops.get(index);
+		int index = shopsPage.getStartIndex();
+		for (Shopkeeper shopkeeper : shopsPage.getShopkeepers()) {
+			index++;
 			String shopName = shopkeeper.getName(); // Can be empty
 			// TODO Add shop info as hover text.
 			// TODO Add owner name/uuid as message arguments?
 			// TODO Move into shopkeeper.
 			TextUtils.sendMessage(sender, Messages.listShopsEntry,
-					"shopIndex", (index + 1),
+					"shopIndex", index,
 					"shopUUID", shopkeeper.getUniqueId().toString(),
 					// deprecated, use {shopId} instead; TODO Remove at some point
 					"shopSessionId", shopkeeper.getId(),
@@ -3,16 +3,20 @@ package com.nisovin.shopkeepers.commands.shopkeepers;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
+import com.nisovin.shopkeepers.HotReloader;
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.lang.Messages;
 
 class CommandReload extends Command {
 
+	private static final String ARGUMENT_HOT = "hot";
+
 	private final SKShopkeepersPlugin plugin;
 
 	CommandReload(SKShopkeepersPlugin plugin) {
@@ -24,14 +28,45 @@ class CommandReload extends Command {
 
 		// Set description:
 		this.setDescription(Messages.commandDescriptionReload);
+
+		// Arguments:
+		// Only reloads the config and language file, without reloading the shopkeepers:
+		this.addArgument(new LiteralArgument(ARGUMENT_HOT).optional());
 	}
 
 	@Override
 	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
 		CommandSender sender = input.getSender();
+		boolean hotReload = context.has(ARGUMENT_HOT);
+
+		if (hotReload) {
+			this.hotReload(sender);
+			return;
+		}
 
 		// Reload plugin:
 		plugin.reload();
 		sender.sendMessage(ChatColor.GREEN + "Shopkeepers plugin reloaded!");
 	}
+
+	private void hotReload(CommandSender sender) {
+		HotReloader.Result result = plugin.hotReload();
+		if (result.getConfigLoadError() != null) {
+			sender.sendMessage(ChatColor.RED + "Could not reload the config! "
+					+ "Check the server log, fix the config, and then reload the plugin.");
+			return;
+		}
+
+		sender.sendMessage(ChatColor.GREEN + "Shopkeepers config reloaded! Changed settings: "
+				+ ChatColor.YELLOW + result.getChangedSettings().size());
+		if (!result.getUpdatedSubsystems().isEmpty()) {
+			sender.sendMessage(ChatColor.GRAY + "Updated: "
+					+ String.join(", ", result.getUpdatedSubsystems()));
+		}
+		if (!result.getFullReloadSettings().isEmpty()) {
+			sender.sendMessage(ChatColor.YELLOW + "These changed settings only take effect after a "
+					+ "full reload (/shopkeeper reload): "
+					+ String.join(", ", result.getFullReloadSettings()));
+		}
+	}
 }
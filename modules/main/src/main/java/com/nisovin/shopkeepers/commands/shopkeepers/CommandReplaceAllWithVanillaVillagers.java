@@ -185,7 +185,7 @@ class CommandReplaceAllWithVanillaVillagers extends Command {
 			// villager:
 			shopObject.despawn();
 
-			world.spawn(spawnLocation, entityClass, entity -> {
+			Entity villager = world.spawn(spawnLocation, entityClass, entity -> {
 				assert entity != null;
 				// Note: This callback is run after the entity has been prepared (this includes the
 				// creation of random equipment and the random spawning of passengers) and right
@@ -196,8 +196,10 @@ class CommandReplaceAllWithVanillaVillagers extends Command {
 				prepareEntity((Villager) entity, shopkeeper);
 
 				// Try to bypass entity-spawn blocking plugins:
-				plugin.getForcingCreatureSpawner().forceCreatureSpawn(spawnLocation, EntityType.VILLAGER);
+				plugin.getForcingCreatureSpawner().forceCreatureSpawn(entity);
 			});
+			// In case the villager was not actually added to the world:
+			plugin.getForcingCreatureSpawner().resetForcedCreatureSpawn(villager);
 		} catch (Exception e) {
 			String message = shopkeeper.getLogPrefix()
 					+ "Failed to spawn corresponding vanilla villager.";
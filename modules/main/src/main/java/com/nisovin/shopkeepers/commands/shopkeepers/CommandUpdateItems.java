@@ -2,41 +2,62 @@ package com.nisovin.shopkeepers.commands.shopkeepers;
 
 import java.util.concurrent.TimeUnit;
 
+import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.text.Text;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 class CommandUpdateItems extends Command {
 
-	CommandUpdateItems() {
+	private static final String ARGUMENT_CHANGED = "changed";
+
+	private final SKShopkeepersPlugin plugin;
+
+	CommandUpdateItems(SKShopkeepersPlugin plugin) {
 		super("updateItems");
+		this.plugin = plugin;
 
 		this.setPermission(ShopkeepersPlugin.UPDATE_ITEMS_PERMISSION);
 
 		// Set description:
 		this.setDescription(Messages.commandDescriptionUpdateItems);
+
+		// Arguments:
+		// Skips shopkeepers whose content did not change since their last item update:
+		this.addArgument(new LiteralArgument(ARGUMENT_CHANGED).optional());
 	}
 
 	@Override
 	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
 		CommandSender sender = input.getSender();
+		boolean skipUnchanged = context.has(ARGUMENT_CHANGED);
 
-		long startNanos = System.nanoTime();
-		int updatedItems = ShopkeepersAPI.updateItems();
-		long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
-
-		Log.debug(DebugOptions.itemUpdates, "Updated " + updatedItems + " items (" + durationMillis
-				+ " ms).");
+		if (plugin.getShopkeeperItemUpdater().isRunning()) {
+			throw new CommandException(Text.of(ChatColor.RED
+					+ "An item update is already in progress!"));
+		}
 
-		TextUtils.sendMessage(sender, Messages.itemsUpdated, "count", updatedItems);
+		// The shopkeepers are updated in the background:
+		long startNanos = System.nanoTime();
+		plugin.updateItemsInBackground(skipUnchanged, progress -> {
+			sender.sendMessage(ChatColor.GRAY + "Updating items: " + progress);
+		}).thenAccept(updatedItems -> {
+			long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			Log.debug(DebugOptions.itemUpdates, "Updated " + updatedItems + " items ("
+					+ durationMillis + " ms).");
+
+			TextUtils.sendMessage(sender, Messages.itemsUpdated, "count", updatedItems);
+		});
 	}
 }
@@ -82,7 +82,7 @@ public class ShopkeepersCommand extends BaseCommand {
 		childCommands.register(new CommandGiveCurrency());
 		childCommands.register(new CommandSetCurrency());
 		childCommands.register(new CommandConvertItems());
-		childCommands.register(new CommandUpdateItems());
+		childCommands.register(new CommandUpdateItems(plugin));
 		childCommands.register(new CommandRemote());
 		childCommands.register(new CommandEdit());
 		childCommands.register(new CommandTeleport());
@@ -1,6 +1,7 @@
 package com.nisovin.shopkeepers.commands.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,6 +25,7 @@ import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.commands.lib.util.ObjectMatcher;
@@ -331,13 +333,18 @@ public final class ShopkeeperArgumentUtils {
 		Map<UUID, String> matchingShopOwners = new LinkedHashMap<>();
 
 		// Search for shops owned by the specified player:
-		List<PlayerShopkeeper> shops = new ArrayList<>();
-		for (Shopkeeper shopkeeper : ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers()) {
-			if (!(shopkeeper instanceof PlayerShopkeeper)) {
-				continue;
-			}
+		// If the player is specified by uuid, we only need to check the shops of that player.
+		// Otherwise, we need to check the owner names of all player shops.
+		ShopkeeperRegistry shopkeeperRegistry = ShopkeepersAPI.getShopkeeperRegistry();
+		Collection<? extends PlayerShopkeeper> candidateShops;
+		if (targetPlayerUUID != null) {
+			candidateShops = shopkeeperRegistry.getPlayerShopkeepersByOwner(targetPlayerUUID);
+		} else {
+			candidateShops = shopkeeperRegistry.getAllPlayerShopkeepers();
+		}
 
-			PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
+		List<PlayerShopkeeper> shops = new ArrayList<>();
+		for (PlayerShopkeeper playerShop : candidateShops) {
 			UUID shopOwnerUUID = playerShop.getOwnerUUID(); // Not null
 			String shopOwnerName = playerShop.getOwnerName(); // Not null
 			if (targetPlayerUUID != null) {
@@ -0,0 +1,196 @@
+package com.nisovin.shopkeepers.commands.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperInfo;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperReadModel;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.StringUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * An immutable index of the names, ids, and unique ids of the shopkeepers of a
+ * {@link ShopkeeperReadModel}, used to look up shopkeeper completion suggestions by prefix without
+ * iterating all shopkeepers.
+ * <p>
+ * The index is built lazily for the latest read model of the shopkeeper registry, and is rebuilt
+ * once the registry publishes a new read model. It can therefore be used from any thread, but may
+ * not reflect the most recent changes to the shopkeepers yet.
+ */
+public final class ShopkeeperCompletionIndex {
+
+	private static volatile @Nullable ShopkeeperCompletionIndex current = null;
+
+	/**
+	 * Gets the completion index for the latest read model of the shopkeeper registry.
+	 * <p>
+	 * This can be called from any thread.
+	 *
+	 * @return the completion index, not <code>null</code>
+	 */
+	public static ShopkeeperCompletionIndex get() {
+		ShopkeeperReadModel readModel = ShopkeepersAPI.getShopkeeperRegistry().getReadModel();
+		ShopkeeperCompletionIndex index = current;
+		if (index == null || index.readModel != readModel) {
+			// Concurrent callers might build the index for the same read model multiple times, but
+			// they all end up with equivalent indices:
+			index = new ShopkeeperCompletionIndex(readModel);
+			current = index;
+		}
+		return index;
+	}
+
+	private static final class Entry {
+
+		private final String key;
+		private final ShopkeeperInfo shopkeeper;
+
+		Entry(String key, ShopkeeperInfo shopkeeper) {
+			this.key = key;
+			this.shopkeeper = shopkeeper;
+		}
+	}
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = Comparator.comparing(
+			entry -> entry.key
+	);
+
+	private final ShopkeeperReadModel readModel;
+	// Sorted by key:
+	private final List<Entry> byName;
+	private final List<Entry> byId;
+	private final List<Entry> byUUID;
+
+	private ShopkeeperCompletionIndex(ShopkeeperReadModel readModel) {
+		Validate.notNull(readModel, "readModel is null");
+		this.readModel = readModel;
+
+		List<Entry> byName = new ArrayList<>();
+		List<Entry> byId = new ArrayList<>();
+		List<Entry> byUUID = new ArrayList<>();
+		for (ShopkeeperInfo shopkeeper : readModel.getAllShopkeepers()) {
+			String name = TextUtils.stripColor(shopkeeper.getName());
+			if (!name.isEmpty()) {
+				byName.add(new Entry(StringUtils.normalize(name), shopkeeper));
+			}
+			byId.add(new Entry(String.valueOf(shopkeeper.getId()), shopkeeper));
+			// Assumption: UUID#toString is already lowercase (normalized)
+			byUUID.add(new Entry(shopkeeper.getUniqueId().toString(), shopkeeper));
+		}
+		byName.sort(ENTRY_COMPARATOR);
+		byId.sort(ENTRY_COMPARATOR);
+		byUUID.sort(ENTRY_COMPARATOR);
+		this.byName = Collections.unmodifiableList(byName);
+		this.byId = Collections.unmodifiableList(byId);
+		this.byUUID = Collections.unmodifiableList(byUUID);
+	}
+
+	/**
+	 * Gets the read model this index is based on.
+	 *
+	 * @return the read model, not <code>null</code>
+	 */
+	public ShopkeeperReadModel getReadModel() {
+		return readModel;
+	}
+
+	/**
+	 * Gets the shopkeepers whose normalized name (see {@link StringUtils#normalize(String)}, after
+	 * stripping any color codes) starts with the given prefix and that are accepted by the given
+	 * filter.
+	 * <p>
+	 * The returned stream is lazy: The filter is applied while the matching entries are scanned,
+	 * so callers can limit the number of results after the filtering.
+	 *
+	 * @param normalizedNamePrefix
+	 *            the normalized name prefix, not <code>null</code>
+	 * @param filter
+	 *            the filter, not <code>null</code>
+	 * @return the accepted matching shopkeepers, sorted by name
+	 */
+	public Stream<ShopkeeperInfo> getByNamePrefix(
+			String normalizedNamePrefix,
+			Predicate<? super ShopkeeperInfo> filter
+	) {
+		return findByPrefix(byName, normalizedNamePrefix, filter);
+	}
+
+	/**
+	 * Gets the shopkeepers whose id starts with the given prefix and that are accepted by the given
+	 * filter.
+	 * <p>
+	 * The returned stream is lazy: The filter is applied while the matching entries are scanned,
+	 * so callers can limit the number of results after the filtering.
+	 *
+	 * @param idPrefix
+	 *            the id prefix, not <code>null</code>
+	 * @param filter
+	 *            the filter, not <code>null</code>
+	 * @return the accepted matching shopkeepers, sorted lexicographically by id
+	 */
+	public Stream<ShopkeeperInfo> getByIdPrefix(
+			String idPrefix,
+			Predicate<? super ShopkeeperInfo> filter
+	) {
+		return findByPrefix(byId, idPrefix, filter);
+	}
+
+	/**
+	 * Gets the shopkeepers whose unique id starts with the given prefix and that are accepted by
+	 * the given filter.
+	 * <p>
+	 * The returned stream is lazy: The filter is applied while the matching entries are scanned,
+	 * so callers can limit the number of results after the filtering.
+	 *
+	 * @param uuidPrefix
+	 *            the unique id prefix, not <code>null</code>
+	 * @param filter
+	 *            the filter, not <code>null</code>
+	 * @return the accepted matching shopkeepers, sorted by unique id
+	 */
+	public Stream<ShopkeeperInfo> getByUUIDPrefix(
+			String uuidPrefix,
+			Predicate<? super ShopkeeperInfo> filter
+	) {
+		return findByPrefix(byUUID, uuidPrefix.toLowerCase(Locale.ROOT), filter);
+	}
+
+	private static Stream<ShopkeeperInfo> findByPrefix(
+			List<Entry> entries,
+			String prefix,
+			Predicate<? super ShopkeeperInfo> filter
+	) {
+		Validate.notNull(prefix, "prefix is null");
+		Validate.notNull(filter, "filter is null");
+		int fromIndex = lowerBound(entries, prefix);
+		// All keys that start with the prefix are smaller than this upper bound:
+		int toIndex = lowerBound(entries, prefix + Character.MAX_VALUE);
+		return entries.subList(fromIndex, toIndex).stream()
+				.map(entry -> entry.shopkeeper)
+				.filter(filter);
+	}
+
+	// Returns the index of the first entry whose key is not smaller than the given key.
+	private static int lowerBound(List<Entry> entries, String key) {
+		int low = 0;
+		int high = entries.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (entries.get(mid).key.compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -73,6 +73,7 @@ public class Settings extends Config {
 	 * Shopkeeper Data
 	 */
 	public static boolean saveInstantly = true;
+	public static boolean saveBinarySnapshot = false;
 
 	public static boolean convertPlayerItems = false;
 	public static boolean convertAllPlayerItems = true;
@@ -248,6 +249,7 @@ public class Settings extends Config {
 	public static boolean enableSignPostShops = true;
 	public static boolean enableHangingSignShops = true;
 	public static boolean enableGlowingSignText = true;
+	public static boolean despawnSignShopsDuringWorldSaves = true;
 
 	/*
 	 * Naming
@@ -369,6 +371,7 @@ public class Settings extends Config {
 
 	public static int tradeLogMergeDurationTicks = 300; // 15 seconds
 	public static int tradeLogNextMergeTimeoutTicks = 100; // 5 seconds
+	public static int tradeLogQueueCapacity = 10000;
 
 	public static boolean logItemMetadata = false;
 
@@ -919,6 +922,10 @@ public class Settings extends Config {
 			Log.warning(this.getLogPrefix() + "'trade-log-next-merge-timeout-ticks' cannot be negative.");
 			tradeLogNextMergeTimeoutTicks = 0;
 		}
+		if (tradeLogQueueCapacity < 0) {
+			Log.warning(this.getLogPrefix() + "'trade-log-queue-capacity' cannot be negative.");
+			tradeLogQueueCapacity = 0;
+		}
 		// Note: If tradeLogNextMergeTimeoutTicks is greater than or equal to
 		// tradeLogMergeDurationTicks, it has no effect. However, we do not print a warning in this
 		// case to allow tradeLogMergeDurationTicks to be easily adjusted inside the config without
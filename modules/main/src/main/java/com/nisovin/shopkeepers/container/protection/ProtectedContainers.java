@@ -92,6 +92,17 @@ public class ProtectedContainers {
 		protectedContainers.clear();
 	}
 
+	/**
+	 * Updates the registered listeners after the container protection settings have changed.
+	 * <p>
+	 * Unlike {@link #disable()}, this keeps the already protected containers.
+	 */
+	public void onSettingsChanged() {
+		HandlerList.unregisterAll(containerProtectionListener);
+		HandlerList.unregisterAll(inventoryMoveItemListener);
+		this.enable();
+	}
+
 	private BlockLocation getSharedKey(String worldName, int x, int y, int z) {
 		sharedBlockLocation.set(worldName, x, y, z);
 		return sharedBlockLocation;
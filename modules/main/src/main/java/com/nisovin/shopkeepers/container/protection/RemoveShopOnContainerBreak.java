@@ -42,6 +42,12 @@ public class RemoveShopOnContainerBreak {
 		HandlerList.unregisterAll(removeShopOnContainerBreakListener);
 	}
 
+	// Updates the registered listener after the corresponding setting has changed.
+	public void onSettingsChanged() {
+		this.onDisable();
+		this.onEnable();
+	}
+
 	// Does not trigger saving on its own, returns true if there were shopkeepers using the
 	// container, that got removed now.
 	// Does not check the delete-shopkeeper-on-break-container setting, this has to be checked by
@@ -2,7 +2,9 @@ package com.nisovin.shopkeepers.currency;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import org.bukkit.Material;
@@ -12,6 +14,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.inventory.ItemData;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
@@ -32,6 +35,60 @@ public final class Currencies {
 	private static final List<Currency> ALL = new ArrayList<>();
 	private static final List<? extends Currency> ALL_VIEW = Collections.unmodifiableList(ALL);
 
+	/**
+	 * Looks up the currencies that an item can match by the item's type.
+	 * <p>
+	 * Items of a type that is not used by any currency are rejected with a single map lookup.
+	 * Currencies without item meta data match all items of their type. The item data of the remaining
+	 * candidate currencies is only compared if the item has item meta.
+	 * <p>
+	 * The index is immutable and replaced whenever the currencies are reloaded, so that it can be
+	 * used concurrently.
+	 */
+	private static final class CurrencyIndex {
+
+		private static final Currency[] NO_CURRENCIES = new Currency[0];
+
+		// The candidates are in the same order as in ALL.
+		private final Map<Material, Currency[]> byType = new EnumMap<>(Material.class);
+
+		CurrencyIndex(List<? extends Currency> currencies) {
+			Map<Material, List<Currency>> byType = new EnumMap<>(Material.class);
+			for (Currency currency : currencies) {
+				ItemData itemData = currency.getItemData();
+				// Also initializes the lazily serialized item meta data of the currency item before
+				// the index is published:
+				itemData.hasItemMeta();
+				byType.computeIfAbsent(itemData.getType(), t -> new ArrayList<>()).add(currency);
+			}
+			byType.forEach((type, candidates) -> {
+				this.byType.put(type, candidates.toArray(NO_CURRENCIES));
+			});
+		}
+
+		@Nullable Currency match(@ReadOnly ItemStack itemStack) {
+			Currency[] candidates = byType.get(itemStack.getType());
+			if (candidates == null) return null;
+
+			boolean hasItemMeta = itemStack.hasItemMeta();
+			for (Currency candidate : candidates) {
+				ItemData itemData = candidate.getItemData();
+				if (!itemData.hasItemMeta()) {
+					// Matches all items of this type:
+					return candidate;
+				}
+				// Items without item meta cannot match the currency's item data:
+				if (!hasItemMeta) continue;
+				if (itemData.matches(itemStack)) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+	}
+
+	private static volatile CurrencyIndex index = new CurrencyIndex(Collections.emptyList());
+
 	static {
 		load();
 	}
@@ -47,6 +104,9 @@ public final class Currencies {
 		// Sort by value:
 		Collections.sort(ALL, (c1, c2) -> Integer.compare(c1.getValue(), c2.getValue()));
 
+		// Update the lookup index:
+		index = new CurrencyIndex(ALL);
+
 		// TODO Throwing an exception here might not be properly handled.
 		Validate.State.isTrue(getBase().getValue() == 1, "There is no currency with value 1!");
 	}
@@ -86,13 +146,8 @@ public final class Currencies {
 
 	public static @Nullable Currency match(@ReadOnly @Nullable ItemStack itemStack) {
 		if (ItemUtils.isEmpty(itemStack)) return null;
-		for (int i = 0; i < ALL.size(); i++) {
-			Currency currency = ALL.get(i);
-			if (currency.getItemData().matches(itemStack)) {
-				return currency;
-			}
-		}
-		return null;
+		assert itemStack != null;
+		return index.match(itemStack);
 	}
 
 	public static @Nullable Currency match(@Nullable UnmodifiableItemStack itemStack) {
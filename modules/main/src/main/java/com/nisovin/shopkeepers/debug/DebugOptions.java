@@ -41,6 +41,8 @@ public final class DebugOptions {
 	public static final String textComponents = add("text-components");
 	// Logs additional debug output whenever a teleport is considered unsafe.
 	public static final String unsafeTeleports = add("unsafe-teleports");
+	// Logs the scheduling of delayed saves and periodic statistics about the shopkeeper saves.
+	public static final String saveScheduling = add("save-scheduling");
 
 	private static String add(String debugOption) {
 		allOptions.add(debugOption);
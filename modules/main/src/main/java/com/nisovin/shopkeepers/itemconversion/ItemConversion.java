@@ -21,6 +21,8 @@ import com.nisovin.shopkeepers.util.java.Validate;
 
 public final class ItemConversion {
 
+	private static final ItemConversionCache CACHE = new ItemConversionCache();
+
 	// Converts the given ItemStack to conform to Spigot's internal data format by running it
 	// through Spigot's item de/serialization. Use oldItemStack.isSimilar(newItemStack) to test
 	// whether the item has changed.
@@ -44,6 +46,36 @@ public final class ItemConversion {
 		return convertedItemStack;
 	}
 
+	/**
+	 * Converts the given ItemStack like {@link #convertItem(ItemStack)}, but reuses the cached
+	 * conversion result of a similar item if available.
+	 * 
+	 * @param itemStack
+	 *            the item stack, can be <code>null</code>
+	 * @return the converted item stack, or the given item stack itself if it is not affected by
+	 *         the conversion
+	 */
+	public static @Nullable ItemStack convertItemCached(@ReadOnly @Nullable ItemStack itemStack) {
+		if (itemStack == null) return null;
+		return CACHE.convert(itemStack, ItemConversion::convertItem);
+	}
+
+	/**
+	 * Removes all cached item conversion results.
+	 */
+	public static void clearCache() {
+		CACHE.clear();
+	}
+
+	/**
+	 * Gets a summary of the statistics of the item conversion cache.
+	 * 
+	 * @return the statistics summary
+	 */
+	public static String getCacheStatisticsString() {
+		return CACHE.getStatisticsString();
+	}
+
 	public static int convertItems(
 			@ReadOnly @Nullable ItemStack @ReadWrite [] contents,
 			Predicate<@ReadOnly ? super ItemStack> filter
@@ -57,8 +89,8 @@ public final class ItemConversion {
 			slotItem = Unsafe.assertNonNull(slotItem);
 			if (!filter.test(slotItem)) continue;
 
-			ItemStack convertedItem = convertItem(slotItem);
-			if (!slotItem.isSimilar(convertedItem)) {
+			ItemStack convertedItem = convertItemCached(slotItem);
+			if (convertedItem != slotItem && !slotItem.isSimilar(convertedItem)) {
 				contents[slot] = convertedItem;
 				convertedStacks += 1;
 			}
@@ -87,8 +119,8 @@ public final class ItemConversion {
 			Player player = Unsafe.castNonNull(((PlayerInventory) inventory).getHolder());
 			ItemStack cursor = player.getItemOnCursor();
 			if (!ItemUtils.isEmpty(cursor) && filter.test(cursor)) {
-				ItemStack convertedCursor = convertItem(cursor);
-				if (!cursor.isSimilar(convertedCursor)) {
+				ItemStack convertedCursor = convertItemCached(cursor);
+				if (convertedCursor != cursor && !cursor.isSimilar(convertedCursor)) {
 					convertedStacks += 1;
 				}
 			}
@@ -0,0 +1,199 @@
+package com.nisovin.shopkeepers.itemconversion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A bounded cache of the results of {@link ItemConversion#convertItem(ItemStack) item conversions}.
+ * <p>
+ * The item conversion serializes and deserializes the item's metadata, which is not cheap.
+ * However, players usually carry many similar items, and the same items are converted again each
+ * time a player opens a shopkeeper UI. This cache therefore remembers the conversion results by
+ * item content, ignoring the stack size: Similar items are only converted once, and items that are
+ * already in the normalized data format are recognized by a single lookup and left untouched.
+ * <p>
+ * Items without metadata are always already normalized and bypass the cache.
+ * <p>
+ * The cache evicts its least recently used entries when it exceeds its capacity. It is
+ * thread-safe: On Folia, items are converted concurrently on different region threads. The
+ * conversion itself takes place outside the cache's lock.
+ */
+final class ItemConversionCache {
+
+	private static final int DEFAULT_CAPACITY = 512;
+
+	// The lookup key of an item, which ignores the stack size.
+	private static final class ItemKey {
+
+		private final ItemStack item;
+		private final int hashCode;
+
+		ItemKey(@ReadOnly ItemStack item) {
+			this(item, hash(item));
+		}
+
+		// The given hash has to match the hash of the given item.
+		ItemKey(@ReadOnly ItemStack item, int hashCode) {
+			this.item = item;
+			this.hashCode = hashCode;
+		}
+
+		private static int hash(@ReadOnly ItemStack item) {
+			int hash = item.getType().hashCode();
+			// Only items with metadata need to copy their metadata in order to hash it:
+			if (item.hasItemMeta()) {
+				hash = 31 * hash + Objects.hashCode(item.getItemMeta());
+			}
+			return hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof ItemKey)) return false;
+			ItemKey other = (ItemKey) obj;
+			return hashCode == other.hashCode && item.isSimilar(other.item);
+		}
+	}
+
+	// The conversion result of an item with a stack size of 1, or null if the conversion does not
+	// change the item, i.e. if the item is already normalized.
+	private static final class Entry {
+
+		private final @Nullable ItemStack convertedItem;
+
+		Entry(@Nullable ItemStack convertedItem) {
+			this.convertedItem = convertedItem;
+		}
+	}
+
+	private final int capacity;
+	private final Map<ItemKey, Entry> entries;
+
+	/* Statistics */
+	private long hits = 0L;
+	private long misses = 0L;
+	private long bypassed = 0L;
+	private long evictions = 0L;
+
+	ItemConversionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	ItemConversionCache(int capacity) {
+		Validate.isTrue(capacity > 0, "capacity has to be positive");
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<ItemKey, Entry>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ItemKey, Entry> eldest) {
+				if (this.size() <= ItemConversionCache.this.capacity) return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Converts the given item, using the cached conversion result of a similar item if available.
+	 *
+	 * @param itemStack
+	 *            the item to convert, not <code>null</code>
+	 * @param converter
+	 *            the actual item conversion, invoked for items whose conversion result is not yet
+	 *            cached
+	 * @return the converted item, or the given item itself if it is already normalized
+	 */
+	ItemStack convert(
+			@ReadOnly ItemStack itemStack,
+			Function<@ReadOnly ItemStack, @Nullable ItemStack> converter
+	) {
+		if (!itemStack.hasItemMeta()) {
+			// Items without metadata are not affected by the conversion:
+			synchronized (this) {
+				bypassed++;
+			}
+			return itemStack;
+		}
+
+		ItemKey lookupKey = new ItemKey(itemStack);
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(lookupKey);
+			if (entry != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+
+		if (entry == null) {
+			// Convert a copy with a stack size of 1, so that the cached result can be reused for
+			// items of any stack size:
+			ItemStack keyItem = itemStack.clone();
+			keyItem.setAmount(1);
+			ItemStack convertedItem = converter.apply(keyItem);
+			if (convertedItem == null || keyItem.isSimilar(convertedItem)) {
+				entry = new Entry(null); // Already normalized
+			} else {
+				entry = new Entry(convertedItem);
+			}
+			// The key item is no longer modified. Concurrent conversions of a similar item may
+			// replace each other's equivalent entries.
+			// The key item only differs in its stack size, which is not part of the hash, so we
+			// can reuse the hash of the lookup key instead of copying the item meta again:
+			ItemKey storedKey = new ItemKey(keyItem, lookupKey.hashCode);
+			synchronized (this) {
+				entries.put(storedKey, entry);
+			}
+		}
+
+		ItemStack cachedConvertedItem = entry.convertedItem;
+		if (cachedConvertedItem == null) return itemStack; // Already normalized
+
+		// The cached item is not handed out, since it might get modified:
+		ItemStack convertedItem = cachedConvertedItem.clone();
+		convertedItem.setAmount(itemStack.getAmount());
+		return convertedItem;
+	}
+
+	/**
+	 * Removes all cached conversion results and resets the statistics.
+	 */
+	synchronized void clear() {
+		entries.clear();
+		hits = 0L;
+		misses = 0L;
+		bypassed = 0L;
+		evictions = 0L;
+	}
+
+	/**
+	 * Gets a summary of the cache statistics.
+	 *
+	 * @return the statistics summary
+	 */
+	synchronized String getStatisticsString() {
+		long lookups = hits + misses;
+		double hitRate = (lookups == 0) ? 0.0D : (100.0D * hits / lookups);
+		return "entries " + entries.size() + "/" + capacity
+				+ ", hits | misses | without metadata: " + hits + " | " + misses + " | " + bypassed
+				+ ", hit rate: " + TextUtils.format(hitRate) + "%"
+				+ ", evictions: " + evictions;
+	}
+}
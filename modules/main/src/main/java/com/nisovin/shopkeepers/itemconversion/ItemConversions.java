@@ -40,6 +40,7 @@ public class ItemConversions {
 
 	public void onDisable() {
 		HandlerList.unregisterAll(listener);
+		ItemConversion.clearCache();
 	}
 
 	/////
@@ -10,6 +10,7 @@ import org.bukkit.event.Event;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperEditedEvent;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
@@ -177,9 +178,72 @@ public class ShopkeeperMoving {
 			return false;
 		}
 
-		// Move the shopkeeper:
-		((AbstractShopkeeper) shopkeeper).teleport(newLocation, blockFace);
+		AbstractShopkeeper shopkeeperToMove = (AbstractShopkeeper) shopkeeper;
+		if (shopkeeperToMove.isInTransit()) {
+			// The shopkeeper is already being moved:
+			TextUtils.sendMessage(player, Messages.shopkeeperMoveAborted);
+			return false;
+		}
+
+		// The new location is expected to be owned by the current region, since it is determined
+		// by the player's interaction:
+		Location oldLocation = shopkeeperToMove.getLocation(); // Null if the world is not loaded
+		if (oldLocation == null || Bukkit.isOwnedByCurrentRegion(oldLocation)) {
+			// Move the shopkeeper:
+			shopkeeperToMove.teleport(newLocation, blockFace);
+			this.onMoved(player, shopkeeperToMove);
+		} else {
+			this.moveAcrossRegions(player, shopkeeperToMove, oldLocation, newLocation, blockFace);
+		}
+		return true;
+	}
+
+	// On Folia, the old and new locations of the shopkeeper can be owned by different regions
+	// (possibly in different worlds). The shop object is despawned on the region that owns the old
+	// location, and then moved and spawned on the region that owns the new location. In between,
+	// the shopkeeper is marked as in transit, which blocks its UIs, trades, and ticking.
+	private void moveAcrossRegions(
+			Player player,
+			AbstractShopkeeper shopkeeper,
+			Location oldLocation,
+			Location newLocation,
+			BlockFace blockFace
+	) {
+		SKShopkeepersPlugin plugin = SKShopkeepersPlugin.getInstance();
+		Location targetLocation = newLocation.clone();
+		shopkeeper.setInTransit(true);
+		Log.debug(() -> shopkeeper.getLogPrefix() + "Moving to another region: "
+				+ TextUtils.getLocationString(targetLocation));
+
+		// Phase 1: Despawn the shopkeeper on the region that owns its old location.
+		// If the plugin is disabled in the meantime, the pending tasks are cancelled, but the
+		// shopkeepers are unloaded anyway.
+		Bukkit.getRegionScheduler().execute(plugin, oldLocation, () -> {
+			if (!shopkeeper.isValid()) {
+				shopkeeper.setInTransit(false);
+				return;
+			}
 
+			plugin.getUIRegistry().abortUISessions(shopkeeper);
+			plugin.getShopkeeperRegistry().getShopkeeperSpawner().despawnShopkeeper(shopkeeper);
+
+			// Phase 2: Move and spawn the shopkeeper on the region that owns its new location.
+			Bukkit.getRegionScheduler().execute(plugin, targetLocation, () -> {
+				try {
+					if (!shopkeeper.isValid()) return;
+
+					// This updates the shopkeeper's location inside the shopkeeper registry, which
+					// spawns the shopkeeper if its new chunk is active:
+					shopkeeper.teleport(targetLocation, blockFace);
+				} finally {
+					shopkeeper.setInTransit(false);
+				}
+				this.onMoved(player, shopkeeper);
+			});
+		});
+	}
+
+	private void onMoved(Player player, AbstractShopkeeper shopkeeper) {
 		// Inform the player:
 		TextUtils.sendMessage(player, Messages.shopkeeperMoved);
 
@@ -188,6 +252,5 @@ public class ShopkeeperMoving {
 
 		// Save the shopkeeper:
 		shopkeeper.save();
-		return true;
 	}
 }
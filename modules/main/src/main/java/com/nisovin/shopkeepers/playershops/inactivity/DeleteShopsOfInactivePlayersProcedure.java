@@ -6,9 +6,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.ShulkerBullet;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -34,16 +34,24 @@ class DeleteShopsOfInactivePlayersProcedure {
     private static class InactivePlayerData {
 
         private final int lastSeenDaysAgo;
+        // Whether the last seen time has been read from the player data, instead of only from the
+        // last seen index:
+        private final boolean confirmed;
         private final List<PlayerShopkeeper> shopkeepers = new ArrayList<>();
 
-        InactivePlayerData(int lastSeenDaysAgo) {
+        InactivePlayerData(int lastSeenDaysAgo, boolean confirmed) {
             this.lastSeenDaysAgo = lastSeenDaysAgo;
+            this.confirmed = confirmed;
         }
 
         int getLastSeenDaysAgo() {
             return lastSeenDaysAgo;
         }
 
+        boolean isConfirmed() {
+            return confirmed;
+        }
+
         List<PlayerShopkeeper> getShopkeepers() {
             return shopkeepers;
         }
@@ -51,6 +59,7 @@ class DeleteShopsOfInactivePlayersProcedure {
 
     private final SKShopkeepersPlugin plugin;
     private final SKShopkeeperRegistry shopkeeperRegistry;
+    private final PlayerLastSeenIndex lastSeenIndex;
     private final int playerInactivityDays;
 
     private boolean started = false;
@@ -58,10 +67,15 @@ class DeleteShopsOfInactivePlayersProcedure {
     private final long currentTimeMillis = System.currentTimeMillis();
     private final Map<User, @Nullable InactivePlayerData> inactivePlayers = new HashMap<>();
 
-    public DeleteShopsOfInactivePlayersProcedure(SKShopkeepersPlugin plugin) {
+    public DeleteShopsOfInactivePlayersProcedure(
+            SKShopkeepersPlugin plugin,
+            PlayerLastSeenIndex lastSeenIndex
+    ) {
         Validate.notNull(plugin, "plugin is null");
+        Validate.notNull(lastSeenIndex, "lastSeenIndex is null");
         this.plugin = plugin;
         this.shopkeeperRegistry = plugin.getShopkeeperRegistry();
+        this.lastSeenIndex = lastSeenIndex;
         // Local copy, because this setting might change while we use it, and we might access it
         // asynchronously:
         this.playerInactivityDays = Settings.playerShopkeeperInactiveDays;
@@ -85,7 +99,7 @@ class DeleteShopsOfInactivePlayersProcedure {
             return; // There are no player shops
         }
 
-        this.asyncCheckInactivityOfAllShopOwnersAndContinue();
+        this.checkInactivityOfAllShopOwnersAndContinue();
     }
 
     // This initially collects all shop owners into the inactivePlayers Map, which is subsequently
@@ -98,12 +112,45 @@ class DeleteShopsOfInactivePlayersProcedure {
         });
     }
 
+    private void checkInactivityOfAllShopOwnersAndContinue() {
+        // Usually, all shop owners are already known to the last seen index, and we can check
+        // their inactivity with an in-memory scan:
+        boolean allOwnersIndexed = true;
+        for (User user : inactivePlayers.keySet()) {
+            if (!lastSeenIndex.contains(user.getUniqueId())) {
+                allOwnersIndexed = false;
+                break;
+            }
+        }
+
+        if (allOwnersIndexed) {
+            setUpInactiveShopOwners();
+            if (inactivePlayers.isEmpty()) return;
+
+            // Confirming the inactivity of the remaining shop owners accesses their player data, so
+            // we do this asynchronously:
+            SchedulerUtils.runAsyncTaskOrOmit(plugin, () -> {
+                confirmInactiveShopOwners();
+                if (inactivePlayers.isEmpty()) return;
+
+                continueWithInactiveShopOwners();
+            });
+            return;
+        }
+
+        // Otherwise, we backfill the missing shop owners from their Bukkit player data. This is
+        // usually only required once for the initial setup of the index, and for new shop owners
+        // that have not been seen on the server since then.
+        this.asyncCheckInactivityOfAllShopOwnersAndContinue();
+    }
+
     private void asyncCheckInactivityOfAllShopOwnersAndContinue() {
-        // We retrieve the OfflinePlayers and their 'last played' times asynchronously:
+        // We retrieve the 'last played' times of the not yet indexed shop owners asynchronously:
         Bukkit.getAsyncScheduler().runNow(plugin, task -> {
             // Set up the data for all inactive shop owners, and remove all shop owners that are
             // not inactive:
             setUpInactiveShopOwners();
+            confirmInactiveShopOwners();
 
             // Abort if no inactive players were found:
             if (inactivePlayers.isEmpty()) return;
@@ -117,8 +164,8 @@ class DeleteShopsOfInactivePlayersProcedure {
     }
 
     // This may be called asynchronously.
-    // Sets up the data for all inactive shop owners, and removes all shop owners that are not
-    // inactive.
+    // Sets up the data for all inactive shop owners based on their indexed last seen times, and
+    // removes all shop owners that are not inactive.
     private void setUpInactiveShopOwners() {
         Iterator<Entry<User, @Nullable InactivePlayerData>> iterator = inactivePlayers.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -139,21 +186,60 @@ class DeleteShopsOfInactivePlayersProcedure {
     // Returns null if the given user is not inactive.
     private @Nullable InactivePlayerData setUpIfInactive(User user) {
         assert user != null;
-        OfflinePlayer offlinePlayer = user.getOfflinePlayer();
+        UUID playerId = user.getUniqueId();
+        Long indexedLastSeenMillis = lastSeenIndex.getLastSeen(playerId);
+        if (indexedLastSeenMillis != null) {
+            return this.getInactivePlayerData(indexedLastSeenMillis, false);
+        }
+
+        // Not yet indexed: Only expected during asynchronous executions. Backfilling the index
+        // reads the player data, so the result is already confirmed.
+        return this.getInactivePlayerData(lastSeenIndex.backfill(playerId), true);
+    }
+
+    // This is called asynchronously.
+    // The index might not have observed all joins (e.g. while the plugin was not running). Before
+    // we treat the remaining shop owners as inactive, we therefore confirm their indexed last seen
+    // times with their player data, and remove all shop owners that turn out to not be inactive.
+    private void confirmInactiveShopOwners() {
+        Iterator<Entry<User, @Nullable InactivePlayerData>> iterator = inactivePlayers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<User, @Nullable InactivePlayerData> entry = iterator.next();
+            InactivePlayerData data = Unsafe.assertNonNull(entry.getValue());
+            if (data.isConfirmed()) continue;
+
+            long lastPlayedMillis = lastSeenIndex.refresh(entry.getKey().getUniqueId());
+            InactivePlayerData confirmedData = this.getInactivePlayerData(lastPlayedMillis, true);
+            if (confirmedData == null) {
+                // The user is not inactive:
+                iterator.remove();
+            } else {
+                entry.setValue(confirmedData);
+            }
+        }
+        assert !CollectionUtils.containsNull(inactivePlayers.values());
+    }
+
+    // Returns null if the given last played time does not indicate that the player is inactive.
+    private @Nullable InactivePlayerData getInactivePlayerData(
+            long lastPlayedMillis,
+            boolean confirmed
+    ) {
         // Some servers may delete player data files, either regularly for all players (which breaks
         // this feature), or for particular players (for example to reset or fix some issue with
         // their data). If this is the case, we cannot reliably determine when the player was last
         // seen on the server, and therefore do not delete their shopkeepers.
-        if (!offlinePlayer.hasPlayedBefore()) return null;
-
-        long lastPlayedMillis = offlinePlayer.getLastPlayed();
-        if (lastPlayedMillis == 0) return null; // 0 if unknown (see reasoning above)
+        if (lastPlayedMillis == PlayerLastSeenIndex.UNKNOWN) return null;
 
-        long millisSinceLastPlayed = currentTimeMillis - lastPlayedMillis;
-        int daysSinceLastPlayed = (int) TimeUnit.MILLISECONDS.toDays(millisSinceLastPlayed);
+        int daysSinceLastPlayed = this.getDaysSince(lastPlayedMillis);
         if (daysSinceLastPlayed < playerInactivityDays) return null;
 
-        return new InactivePlayerData(daysSinceLastPlayed);
+        return new InactivePlayerData(daysSinceLastPlayed, confirmed);
+    }
+
+    private int getDaysSince(long lastPlayedMillis) {
+        long millisSinceLastPlayed = currentTimeMillis - lastPlayedMillis;
+        return (int) TimeUnit.MILLISECONDS.toDays(millisSinceLastPlayed);
     }
 
     private void continueWithInactiveShopOwners() {
@@ -19,15 +19,21 @@ import java.util.concurrent.TimeUnit;
 public class PlayerInactivity {
 
 	private final SKShopkeepersPlugin plugin;
+	private final PlayerLastSeenIndex lastSeenIndex;
 	private final DeleteInactivePlayerShopsTask task;
 
 	public PlayerInactivity(SKShopkeepersPlugin plugin) {
 		Validate.notNull(plugin, "plugin is null");
 		this.plugin = plugin;
+		this.lastSeenIndex = new PlayerLastSeenIndex(plugin);
 		this.task = new DeleteInactivePlayerShopsTask(plugin);
 	}
 
 	public void onEnable() {
+		// The index is also kept up to date while the feature is disabled, so that it does not
+		// contain outdated entries once the feature is enabled:
+		lastSeenIndex.onEnable();
+
 		if (Settings.playerShopkeeperInactiveDays <= 0) return; // Feature is disabled
 
 		// Delete inactive player shops, once shortly after plugin startup, and then periodically:
@@ -36,6 +42,18 @@ public class PlayerInactivity {
 
 	public void onDisable() {
 		task.stop();
+		lastSeenIndex.onDisable();
+	}
+
+	/**
+	 * Gets the {@link PlayerLastSeenIndex}.
+	 * <p>
+	 * The index is maintained regardless of whether the inactivity feature is enabled.
+	 * 
+	 * @return the player last seen index
+	 */
+	public PlayerLastSeenIndex getLastSeenIndex() {
+		return lastSeenIndex;
 	}
 
 	/**
@@ -89,6 +107,6 @@ public class PlayerInactivity {
 	// TODO Also add a command to manually detect and then optionally delete inactive player shops?
 	public void deleteShopsOfInactivePlayers() {
 		if (Settings.playerShopkeeperInactiveDays <= 0) return; // Feature is disabled
-		new DeleteShopsOfInactivePlayersProcedure(plugin).start();
+		new DeleteShopsOfInactivePlayersProcedure(plugin, lastSeenIndex).start();
 	}
 }
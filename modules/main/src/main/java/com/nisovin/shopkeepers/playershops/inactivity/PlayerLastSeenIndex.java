@@ -0,0 +1,328 @@
+package com.nisovin.shopkeepers.playershops.inactivity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.dependencies.citizens.CitizensUtils;
+import com.nisovin.shopkeepers.util.bukkit.PluginUtils;
+import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+/**
+ * Keeps track of when players were last seen on the server.
+ * <p>
+ * Resolving the 'last played' time of an {@link OfflinePlayer} through Bukkit requires access to
+ * the player's data file. With many distinct shop owners, doing this for every owner during each
+ * inactivity check is expensive. This index instead keeps the last seen timestamps in memory,
+ * updates them when players join or quit, and persists them in a compact binary file.
+ * <p>
+ * Players that are not yet known to this index can be {@link #backfill(UUID) backfilled} from the
+ * Bukkit player data. This happens once per player, so that subsequent lookups only consult the
+ * index.
+ * <p>
+ * This class is thread-safe.
+ */
+public class PlayerLastSeenIndex implements Listener {
+
+	/**
+	 * The last seen timestamp that indicates that it is unknown when the player was last seen.
+	 */
+	public static final long UNKNOWN = 0L;
+
+	private static final String DATA_FOLDER = "data";
+	private static final String INDEX_FILE_NAME = "player-last-seen.bin";
+
+	private static final int FILE_MAGIC = 0x534B4C53; // "SKLS"
+	private static final int FILE_VERSION = 1;
+
+	// ~5 minutes
+	private static final long SAVE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+
+	private final SKShopkeepersPlugin plugin;
+	private final Path indexFile;
+
+	private final Map<UUID, Long> lastSeen = new ConcurrentHashMap<>();
+	private final AtomicBoolean dirty = new AtomicBoolean(false);
+	// Ensures that there is at most one thread writing the index file at the same time:
+	private final Object saveLock = new Object();
+
+	private boolean enabled = false;
+	private @Nullable ScheduledTask saveTask = null;
+
+	public PlayerLastSeenIndex(SKShopkeepersPlugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+		this.indexFile = plugin.getDataFolder().toPath().resolve(DATA_FOLDER).resolve(INDEX_FILE_NAME);
+	}
+
+	public void onEnable() {
+		if (enabled) return;
+		enabled = true;
+
+		this.load();
+
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+
+		// Players that are already online (e.g. after a plugin reload) are seen right now:
+		long nowMillis = System.currentTimeMillis();
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			assert player != null;
+			if (CitizensUtils.isNPC(player)) continue;
+			this.update(player.getUniqueId(), nowMillis);
+		}
+
+		// Periodically persist any changes:
+		saveTask = Bukkit.getAsyncScheduler().runAtFixedRate(plugin, task -> {
+			this.saveIfDirty();
+		}, SAVE_INTERVAL_MILLIS, SAVE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public void onDisable() {
+		if (!enabled) return;
+		enabled = false;
+
+		HandlerList.unregisterAll(this);
+		if (saveTask != null) {
+			saveTask.cancel();
+			saveTask = null;
+		}
+
+		// Players that are still online are seen right now:
+		long nowMillis = System.currentTimeMillis();
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			assert player != null;
+			if (CitizensUtils.isNPC(player)) continue;
+			this.update(player.getUniqueId(), nowMillis);
+		}
+
+		this.saveIfDirty();
+		lastSeen.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerJoin(PlayerJoinEvent event) {
+		Player player = event.getPlayer();
+		if (CitizensUtils.isNPC(player)) return;
+		this.update(player.getUniqueId(), System.currentTimeMillis());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		Player player = event.getPlayer();
+		if (CitizensUtils.isNPC(player)) return;
+		this.update(player.getUniqueId(), System.currentTimeMillis());
+	}
+
+	/**
+	 * Gets the number of players that are tracked by this index.
+	 *
+	 * @return the number of indexed players
+	 */
+	public int getSize() {
+		return lastSeen.size();
+	}
+
+	/**
+	 * Checks if this index contains an entry for the specified player.
+	 * <p>
+	 * The entry may indicate that it is {@link #UNKNOWN} when the player was last seen.
+	 *
+	 * @param playerId
+	 *            the player's unique id
+	 * @return <code>true</code> if the player is indexed
+	 */
+	public boolean contains(UUID playerId) {
+		Validate.notNull(playerId, "playerId is null");
+		return lastSeen.containsKey(playerId);
+	}
+
+	/**
+	 * Gets the time at which the specified player was last seen on the server.
+	 * <p>
+	 * Players that are currently online are seen right now.
+	 *
+	 * @param playerId
+	 *            the player's unique id
+	 * @return the last seen time in milliseconds since the epoch, {@link #UNKNOWN} if unknown, or
+	 *         <code>null</code> if the player is not indexed yet
+	 */
+	public @Nullable Long getLastSeen(UUID playerId) {
+		Validate.notNull(playerId, "playerId is null");
+		Long lastSeenMillis = lastSeen.get(playerId);
+		if (lastSeenMillis != null && Bukkit.getPlayer(playerId) != null) {
+			return System.currentTimeMillis();
+		}
+		return lastSeenMillis;
+	}
+
+	private void update(UUID playerId, long lastSeenMillis) {
+		assert playerId != null;
+		// Only move the timestamp forward:
+		lastSeen.merge(playerId, lastSeenMillis, Math::max);
+		dirty.set(true);
+	}
+
+	/**
+	 * Adds the specified player to this index based on their Bukkit player data, if they are not
+	 * indexed yet.
+	 * <p>
+	 * This accesses the Bukkit player data and is therefore relatively expensive. It is meant to be
+	 * called asynchronously, and only once per player.
+	 *
+	 * @param playerId
+	 *            the player's unique id
+	 * @return the player's indexed last seen time, or {@link #UNKNOWN}
+	 */
+	public long backfill(UUID playerId) {
+		Validate.notNull(playerId, "playerId is null");
+		Long indexed = lastSeen.get(playerId);
+		if (indexed != null) return indexed;
+
+		return this.updateFromPlayerData(playerId);
+	}
+
+	/**
+	 * Updates the indexed last seen time of the specified player based on their Bukkit player
+	 * data.
+	 * <p>
+	 * The index might not have observed all joins and quits, for example while the plugin was not
+	 * running. This can be used to confirm an indexed last seen time before acting on it.
+	 * <p>
+	 * This accesses the Bukkit player data and is therefore relatively expensive. It is meant to be
+	 * called asynchronously.
+	 *
+	 * @param playerId
+	 *            the player's unique id
+	 * @return the player's updated indexed last seen time, or {@link #UNKNOWN}
+	 */
+	public long refresh(UUID playerId) {
+		Validate.notNull(playerId, "playerId is null");
+		if (Bukkit.getPlayer(playerId) != null) {
+			return System.currentTimeMillis();
+		}
+		return this.updateFromPlayerData(playerId);
+	}
+
+	private long updateFromPlayerData(UUID playerId) {
+		assert playerId != null;
+		OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerId);
+		// Some servers may delete player data files, either regularly for all players, or for
+		// particular players. If this is the case, we cannot reliably determine when the player was
+		// last seen on the server. We remember this as UNKNOWN so that we don't check the player
+		// data again.
+		long lastPlayedMillis = UNKNOWN;
+		if (offlinePlayer.hasPlayedBefore()) {
+			lastPlayedMillis = offlinePlayer.getLastPlayed(); // 0 if unknown
+		}
+
+		Long result = lastSeen.merge(playerId, lastPlayedMillis, Math::max);
+		dirty.set(true);
+		return result;
+	}
+
+	// PERSISTENCE
+
+	private void load() {
+		lastSeen.clear();
+		dirty.set(false);
+		if (!Files.exists(indexFile)) {
+			Log.debug("No player last seen index found. It is built up from the player data.");
+			return;
+		}
+
+		try {
+			byte[] bytes = Files.readAllBytes(indexFile);
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+				int magic = in.readInt();
+				int version = in.readInt();
+				if (magic != FILE_MAGIC || version != FILE_VERSION) {
+					Log.warning("Ignoring player last seen index ("
+							+ PluginUtils.relativize(plugin, indexFile)
+							+ "): Unknown file format. It is rebuilt from the player data.");
+					return;
+				}
+
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					UUID playerId = new UUID(in.readLong(), in.readLong());
+					long lastSeenMillis = in.readLong();
+					lastSeen.put(playerId, lastSeenMillis);
+				}
+			}
+			Log.debug(() -> "Loaded the last seen times of " + lastSeen.size() + " players.");
+		} catch (IOException e) {
+			lastSeen.clear();
+			Log.warning("Failed to load the player last seen index ("
+					+ PluginUtils.relativize(plugin, indexFile)
+					+ "). It is rebuilt from the player data.", e);
+		}
+	}
+
+	/**
+	 * Writes the index to disk if it has unsaved changes.
+	 * <p>
+	 * This performs file IO and is therefore expected to be called asynchronously, or during plugin
+	 * shutdown.
+	 */
+	public void saveIfDirty() {
+		synchronized (saveLock) {
+			if (!dirty.getAndSet(false)) return;
+
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + lastSeen.size() * 24);
+				try (DataOutputStream out = new DataOutputStream(bytes)) {
+					// Copy the entries first, so that the written count matches the written entries:
+					List<Map.Entry<UUID, Long>> entries = new ArrayList<>(lastSeen.entrySet());
+					out.writeInt(FILE_MAGIC);
+					out.writeInt(FILE_VERSION);
+					out.writeInt(entries.size());
+					for (Map.Entry<UUID, Long> entry : entries) {
+						UUID playerId = entry.getKey();
+						out.writeLong(playerId.getMostSignificantBits());
+						out.writeLong(playerId.getLeastSignificantBits());
+						out.writeLong(entry.getValue());
+					}
+				}
+
+				FileUtils.writeSafely(
+						indexFile,
+						bytes.toByteArray(),
+						Log.getLogger(),
+						plugin.getDataFolder().toPath()
+				);
+			} catch (IOException e) {
+				// Try again with the next save:
+				dirty.set(true);
+				Log.warning("Failed to save the player last seen index ("
+						+ PluginUtils.relativize(plugin, indexFile) + ")!", e);
+			}
+		}
+	}
+}
@@ -168,6 +168,9 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	private boolean valid = false;
 	private boolean active = false;
 	private boolean ticking = false;
+	// Whether the shopkeeper is currently being moved between regions. Accessed by the source and
+	// target region threads.
+	private volatile boolean inTransit = false;
 
 	// UI type identifier -> UI handler
 	private final Map<String, UIHandler> uiHandlers = new HashMap<>();
@@ -615,14 +618,41 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	 */
 	@Override
 	public final int updateItems() {
-		this.abortUISessionsDelayed();
+		return this.updateItems(null);
+	}
 
+	/**
+	 * Updates the items of this shopkeeper, similar to {@link #updateItems()}, but skips the item
+	 * updates if the content of this shopkeeper has not changed since its last item update that
+	 * did not update any items.
+	 * <p>
+	 * The content of this shopkeeper is compared by the hash of its dynamic state and snapshots.
+	 * The hash is recorded in the given map, by shopkeeper id, whenever the item update completes
+	 * without updating any items.
+	 * 
+	 * @param contentHashes
+	 *            the content hashes recorded by previous item updates, or <code>null</code> to not
+	 *            skip any item updates
+	 * @return the number of updated items, or <code>0</code> if the item updates were skipped
+	 */
+	final int updateItems(@Nullable Map<Integer, Integer> contentHashes) {
 		// We also need to update the item data inside snapshots. To only implement the item update
 		// logic once, we save the current shopkeeper state, perform the item updates on the saved
 		// state, and then re-apply the updated state.
 		ShopkeeperData dynamicShopkeeperData = ShopkeeperData.ofNonNull(DataContainer.create());
 		this.saveDynamicState(dynamicShopkeeperData, false); // saveAll: Not needed here.
 
+		int contentHash = 0;
+		if (contentHashes != null) {
+			contentHash = this.getContentHash(dynamicShopkeeperData);
+			Integer previousContentHash = contentHashes.get(id);
+			if (previousContentHash != null && previousContentHash == contentHash) {
+				return 0; // Unchanged since the last item update
+			}
+		}
+
+		this.abortUISessionsDelayed();
+
 		int updatedItems = this.updateItems(this.getLogPrefix(), dynamicShopkeeperData);
 		if (updatedItems > 0) {
 			try {
@@ -640,9 +670,17 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 			snapshotId++;
 			String snapshotLogPrefix = this.getLogPrefix(snapshotId, snapshot);
 
+			ShopkeeperData snapshotShopkeeperData;
+			try {
+				snapshotShopkeeperData = snapshot.loadShopkeeperData();
+			} catch (InvalidDataException e) {
+				Log.warning(snapshotLogPrefix + "Failed to load the snapshot data!", e);
+				continue;
+			}
+
 			// Copy to avoid modifying the original snapshot data:
 			var updatedSnaphotShopkeeperData = ShopkeeperData.ofNonNull(DataContainer.ofNonNull(
-					snapshot.getShopkeeperData().getValuesCopy()
+					snapshotShopkeeperData.getValuesCopy()
 			));
 
 			int snapshotUpdatedItems = this.updateItems(snapshotLogPrefix, updatedSnaphotShopkeeperData);
@@ -660,11 +698,22 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 		if (updatedItems > 0) {
 			this.markDirty();
+		} else if (contentHashes != null) {
+			// Not modified by the item updates:
+			contentHashes.put(id, contentHash);
 		}
 
 		return updatedItems;
 	}
 
+	private int getContentHash(ShopkeeperData dynamicShopkeeperData) {
+		int result = dynamicShopkeeperData.getValues().hashCode();
+		for (SKShopkeeperSnapshot snapshot : snapshots) {
+			result = 31 * result + snapshot.getContentHash();
+		}
+		return result;
+	}
+
 	/**
 	 * Calls an {@link UpdateItemEvent} and updates each item stored by this shopkeeper in the given
 	 * {@link ShopkeeperData}, such as trade offer items, hire cost items, items stored by the shop
@@ -1155,6 +1204,33 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		}
 	}
 
+	/**
+	 * Checks if this shopkeeper is currently being moved from one region to another.
+	 * <p>
+	 * On Folia, moving a shopkeeper to a location that is owned by another region happens in two
+	 * phases: The shopkeeper is first despawned on the region that owns its old location, and then
+	 * moved and spawned on the region that owns its new location. In between, the shopkeeper is
+	 * marked as in transit: It is not ticked, and does not allow players to open UIs or to trade.
+	 * 
+	 * @return <code>true</code> if the shopkeeper is in transit
+	 * @see com.nisovin.shopkeepers.moving.ShopkeeperMoving
+	 */
+	public final boolean isInTransit() {
+		return inTransit;
+	}
+
+	/**
+	 * Marks this shopkeeper as {@link #isInTransit() in transit}.
+	 * <p>
+	 * This method is meant to only be used internally by the Shopkeepers plugin itself!
+	 * 
+	 * @param inTransit
+	 *            <code>true</code> if the shopkeeper is in transit
+	 */
+	public final void setInTransit(boolean inTransit) {
+		this.inTransit = inTransit;
+	}
+
 	@Override
 	public final float getYaw() {
 		return yaw;
@@ -1366,8 +1442,15 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 				boolean migrated = false;
 				int snapshotId = 1;
 				for (SKShopkeeperSnapshot snapshot : snapshots) {
-					String snapshotLogPrefix = getLogPrefix(shopkeeperPrefix, snapshotId, snapshot);
-					migrated |= snapshot.getShopkeeperData().migrate(snapshotLogPrefix);
+					// The data of stored snapshots is migrated once it is loaded:
+					if (!snapshot.isStored()) {
+						String snapshotLogPrefix = getLogPrefix(
+								shopkeeperPrefix,
+								snapshotId,
+								snapshot
+						);
+						migrated |= snapshot.getShopkeeperData().migrate(snapshotLogPrefix);
+					}
 					snapshotId++;
 				}
 				return migrated;
@@ -1414,6 +1497,9 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 	private void saveSnapshots(ShopkeeperData shopkeeperData) {
 		assert shopkeeperData != null;
+		// Move the data of new snapshots into the snapshot store, so that only their metadata is
+		// saved together with the other shopkeeper data:
+		snapshots.forEach(snapshot -> snapshot.store(id));
 		shopkeeperData.set(SNAPSHOTS, snapshotsView);
 	}
 
@@ -1468,10 +1554,19 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		Validate.isTrue(snapshot instanceof SKShopkeeperSnapshot, () -> "snapshot is not of type "
 				+ SKShopkeeperSnapshot.class.getName() + ", but " + snapshot.getClass().getName());
 		SKShopkeeperSnapshot skSnapshot = (SKShopkeeperSnapshot) snapshot;
-		try {
-			this.getAndValidateShopType(skSnapshot.getShopkeeperData());
-		} catch (InvalidDataException e) {
-			Validate.error("Invalid snapshot shop type: " + e.getMessage());
+		String storedShopType = skSnapshot.getStoredShopType();
+		if (storedShopType != null) {
+			// Avoid loading the stored snapshot data:
+			Validate.isTrue(storedShopType.equals(this.getType().getIdentifier()),
+					() -> "Invalid snapshot shop type: The snapshot is for a different shop type"
+							+ " (expected: " + this.getType().getIdentifier() + ", got: "
+							+ storedShopType + ")!");
+		} else {
+			try {
+				this.getAndValidateShopType(skSnapshot.getShopkeeperData());
+			} catch (InvalidDataException e) {
+				Validate.error("Invalid snapshot shop type: " + e.getMessage());
+			}
 		}
 
 		// The name is assumed to be valid, since it has already been validated during the creation
@@ -1506,7 +1601,7 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		// TODO Inform players.
 		SKShopkeepersPlugin.getInstance().getUIRegistry().abortUISessions(this);
 		try {
-			this.loadDynamicState(((SKShopkeeperSnapshot) snapshot).getShopkeeperData());
+			this.loadDynamicState(((SKShopkeeperSnapshot) snapshot).loadShopkeeperData());
 		} catch (InvalidDataException e) {
 			throw new ShopkeeperLoadException(e.getMessage(), e);
 		}
@@ -1736,6 +1831,9 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	 */
 	public final void tick() {
 		assert this.isTicking();
+		// Skip ticking while the shopkeeper is being moved (e.g. so that the shop object is not
+		// respawned at its old location):
+		if (this.isInTransit()) return;
 
 		// An exception during onTickStart will abort the tick.
 		this.onTickStart();
@@ -1,15 +1,22 @@
 package com.nisovin.shopkeepers.shopkeeper;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bukkit.ChatColor;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperSnapshot;
+import com.nisovin.shopkeepers.storage.ShopkeeperSnapshotStore;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.data.container.DataContainer;
 import com.nisovin.shopkeepers.util.data.property.BasicProperty;
@@ -19,8 +26,11 @@ import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
 import com.nisovin.shopkeepers.util.data.serialization.MissingDataException;
 import com.nisovin.shopkeepers.util.data.serialization.java.DataContainerSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.InstantSerializers;
+import com.nisovin.shopkeepers.util.data.serialization.java.NumberSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.StringSerializers;
+import com.nisovin.shopkeepers.util.java.ConversionUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
  * Implementation of {@link ShopkeeperSnapshot}.
@@ -85,6 +95,15 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 	private static final Property<DataContainer> DATA = new BasicProperty<DataContainer>()
 			.dataKeyAccessor("data", DataContainerSerializers.DEFAULT)
 			.build();
+	// For snapshots whose data is located in the snapshot store:
+	private static final Property<Long> STORED_RECORD = new BasicProperty<Long>()
+			.dataKeyAccessor("stored", NumberSerializers.LONG)
+			.build();
+	private static final Property<String> STORED_SHOP_TYPE = new BasicProperty<String>()
+			.dataKeyAccessor("type", StringSerializers.STRICT)
+			.build();
+
+	private static final long NO_RECORD = -1L;
 
 	/**
 	 * A {@link DataSerializer} for {@link SKShopkeeperSnapshot} values.
@@ -96,7 +115,16 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 			DataContainer dataContainer = DataContainer.create();
 			dataContainer.set(NAME, value.getName());
 			dataContainer.set(TIMESTAMP, value.getTimestamp());
-			dataContainer.set(DATA, value.getShopkeeperData());
+			synchronized (value) {
+				ShopkeeperData shopkeeperData = value.shopkeeperData;
+				if (shopkeeperData != null) {
+					// Not yet moved into the snapshot store:
+					dataContainer.set(DATA, shopkeeperData);
+				} else {
+					dataContainer.set(STORED_RECORD, value.recordId);
+					dataContainer.set(STORED_SHOP_TYPE, Unsafe.assertNonNull(value.storedShopType));
+				}
+			}
 			return dataContainer.serialize();
 		}
 
@@ -106,6 +134,12 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 			try {
 				String name = dataContainer.get(NAME);
 				Instant timestamp = dataContainer.get(TIMESTAMP);
+				if (!dataContainer.contains(DATA.getName())
+						&& dataContainer.contains(STORED_RECORD.getName())) {
+					long recordId = dataContainer.get(STORED_RECORD);
+					String shopType = dataContainer.get(STORED_SHOP_TYPE);
+					return new SKShopkeeperSnapshot(name, timestamp, recordId, shopType);
+				}
 				ShopkeeperData shopkeeperData = ShopkeeperData.ofNonNull(dataContainer.get(DATA));
 				return new SKShopkeeperSnapshot(name, timestamp, shopkeeperData);
 			} catch (MissingDataException e) {
@@ -162,11 +196,57 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 		}
 	};
 
+	/**
+	 * Collects the ids of the snapshot store records that are referenced by the given serialized
+	 * list of snapshots.
+	 * <p>
+	 * Invalid data is ignored.
+	 * 
+	 * @param snapshotListData
+	 *            the serialized list of snapshots, can be <code>null</code>
+	 * @param recordIds
+	 *            the collection to add the record ids to, not <code>null</code>
+	 */
+	public static void collectStoredRecordIds(
+			@Nullable Object snapshotListData,
+			Collection<? super Long> recordIds
+	) {
+		Validate.notNull(recordIds, "recordIds is null");
+		if (!(snapshotListData instanceof List)) return;
+		for (Object snapshotData : (List<?>) snapshotListData) {
+			DataContainer dataContainer = DataContainer.of(snapshotData);
+			if (dataContainer == null) continue;
+
+			Long recordId = ConversionUtils.toLong(dataContainer.get(STORED_RECORD.getName()));
+			if (recordId != null) {
+				recordIds.add(recordId);
+			}
+		}
+	}
+
 	/////
 
+	private static @Nullable ShopkeeperSnapshotStore getSnapshotStore() {
+		if (!SKShopkeepersPlugin.isPluginEnabled()) return null;
+		ShopkeeperSnapshotStore snapshotStore = SKShopkeepersPlugin.getInstance()
+				.getShopkeeperStorage()
+				.getSnapshotStore();
+		return snapshotStore.isOpen() ? snapshotStore : null;
+	}
+
 	private final String name;
 	private final Instant timestamp;
-	private final ShopkeeperData shopkeeperData;
+
+	// The snapshot data is either held in memory, or located in the snapshot store. Snapshot data
+	// that is loaded from the snapshot store is only softly cached.
+	// Synchronized on this snapshot:
+	private @Nullable ShopkeeperData shopkeeperData;
+	private long recordId = NO_RECORD;
+	// The shop type identifier of the stored snapshot data:
+	private @Nullable String storedShopType = null;
+	private @Nullable SoftReference<ShopkeeperData> cachedShopkeeperData = null;
+	// Whether the snapshot data is currently being moved into the snapshot store:
+	private boolean storing = false;
 
 	/**
 	 * Creates a new {@link SKShopkeeperSnapshot}.
@@ -187,6 +267,18 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 		this.shopkeeperData = shopkeeperData;
 	}
 
+	// Creates a snapshot whose data is located in the snapshot store.
+	private SKShopkeeperSnapshot(String name, Instant timestamp, long recordId, String shopType) {
+		validateName(name);
+		Validate.notNull(timestamp, "timestamp is null");
+		Validate.notEmpty(shopType, "shopType is null or empty");
+		this.name = name;
+		this.timestamp = timestamp;
+		this.shopkeeperData = null;
+		this.recordId = recordId;
+		this.storedShopType = shopType;
+	}
+
 	@Override
 	public final String getName() {
 		return name;
@@ -197,15 +289,170 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 		return timestamp;
 	}
 
+	/**
+	 * Checks if the data of this snapshot is located in the snapshot store.
+	 * 
+	 * @return <code>true</code> if the snapshot data is stored in the snapshot store
+	 */
+	public final synchronized boolean isStored() {
+		return shopkeeperData == null;
+	}
+
+	/**
+	 * Gets the identifier of the shop type of the stored snapshot data.
+	 * 
+	 * @return the shop type identifier, or <code>null</code> if the snapshot data is not
+	 *         {@link #isStored() stored}
+	 */
+	public final synchronized @Nullable String getStoredShopType() {
+		return storedShopType;
+	}
+
 	/**
 	 * The (dynamic) shopkeeper data at the time this snapshot was taken.
+	 * <p>
+	 * If the data is {@link #isStored() located in the snapshot store}, it is loaded on demand.
+	 * The returned data is shared and is not supposed to be modified.
 	 * 
 	 * @return the shopkeeper data, not <code>null</code>
+	 * @throws InvalidDataException
+	 *             if the stored data cannot be loaded
 	 */
-	public final ShopkeeperData getShopkeeperData() {
+	public final synchronized ShopkeeperData loadShopkeeperData() throws InvalidDataException {
+		ShopkeeperData shopkeeperData = this.shopkeeperData;
+		if (shopkeeperData != null) return shopkeeperData;
+
+		SoftReference<ShopkeeperData> cachedShopkeeperData = this.cachedShopkeeperData;
+		shopkeeperData = (cachedShopkeeperData != null) ? cachedShopkeeperData.get() : null;
+		if (shopkeeperData != null) return shopkeeperData;
+
+		ShopkeeperSnapshotStore snapshotStore = getSnapshotStore();
+		if (snapshotStore == null) {
+			throw new InvalidDataException("The snapshot store is not available!");
+		}
+		shopkeeperData = snapshotStore.load(recordId);
+
+		// Migrations are applied when the data is loaded:
+		String logPrefix = "Snapshot '" + name + "': ";
+		if (shopkeeperData.migrate(logPrefix)) {
+			// Keep the migrated data in memory, so that it is stored again with the next save:
+			this.shopkeeperData = shopkeeperData;
+			recordId = NO_RECORD;
+			storedShopType = null;
+			this.cachedShopkeeperData = null;
+		} else {
+			this.cachedShopkeeperData = new SoftReference<>(shopkeeperData);
+		}
 		return shopkeeperData;
 	}
 
+	/**
+	 * The (dynamic) shopkeeper data at the time this snapshot was taken.
+	 * <p>
+	 * This behaves like {@link #loadShopkeeperData()}, but if the stored data cannot be loaded, a
+	 * warning is logged and data that only contains the {@link #getStoredShopType() shop type} is
+	 * returned instead.
+	 * 
+	 * @return the shopkeeper data, not <code>null</code>
+	 */
+	public final ShopkeeperData getShopkeeperData() {
+		try {
+			return this.loadShopkeeperData();
+		} catch (InvalidDataException e) {
+			Log.warning("Failed to load the data of snapshot '" + name + "': " + e.getMessage(), e);
+			synchronized (this) {
+				ShopkeeperData shopkeeperData = this.shopkeeperData;
+				if (shopkeeperData != null) return shopkeeperData;
+
+				ShopkeeperData fallbackData = ShopkeeperData.ofNonNull(DataContainer.create());
+				String shopType = Unsafe.assertNonNull(storedShopType);
+				fallbackData.set(AbstractShopkeeper.SHOP_TYPE_ID, shopType);
+				return fallbackData;
+			}
+		}
+	}
+
+	/**
+	 * Moves the data of this snapshot into the snapshot store, if it is not yet stored there.
+	 * <p>
+	 * The data is written by the plugin's IO thread. Until then, and if the snapshot store is not
+	 * available or the data cannot be stored, the data remains in memory and is saved together
+	 * with the other shopkeeper data. Once the data has been stored, the shopkeeper is marked as
+	 * dirty so that the next save only references the stored data.
+	 * 
+	 * @param shopkeeperId
+	 *            the id of the shopkeeper that stores this snapshot
+	 */
+	final synchronized void store(int shopkeeperId) {
+		ShopkeeperData shopkeeperData = this.shopkeeperData;
+		if (shopkeeperData == null) return; // Already stored
+		if (storing) return;
+
+		ShopkeeperSnapshotStore snapshotStore = getSnapshotStore();
+		if (snapshotStore == null) return;
+
+		String shopType;
+		try {
+			shopType = shopkeeperData.get(AbstractShopkeeper.SHOP_TYPE).getIdentifier();
+		} catch (InvalidDataException e) {
+			Log.warning(AbstractShopkeeper.getLogPrefix(shopkeeperId) + "Snapshot '" + name
+					+ "': Failed to move the snapshot data into the snapshot store!", e);
+			return;
+		}
+
+		storing = true;
+		SKShopkeepersPlugin plugin = SKShopkeepersPlugin.getInstance();
+		plugin.getIOExecutor().submit(() -> {
+			return snapshotStore.append(shopkeeperId, shopkeeperData);
+		}).whenComplete((recordId, error) -> {
+			synchronized (this) {
+				storing = false;
+				if (error != null) {
+					// The executor is not running or busy: Keep the data in memory and retry with
+					// the next save.
+					if (!(error instanceof RejectedExecutionException)) {
+						Log.warning(AbstractShopkeeper.getLogPrefix(shopkeeperId) + "Snapshot '"
+								+ name + "': Failed to move the snapshot data into the snapshot"
+								+ " store!", error);
+					}
+					return;
+				}
+				// Skip if the data has been replaced in the meantime:
+				if (this.shopkeeperData != shopkeeperData) return;
+
+				this.recordId = recordId;
+				this.storedShopType = shopType;
+				this.cachedShopkeeperData = new SoftReference<>(shopkeeperData);
+				this.shopkeeperData = null;
+			}
+
+			// Save the reference to the stored data:
+			SchedulerUtils.runOnMainThreadOrOmit(plugin, () -> {
+				AbstractShopkeeper shopkeeper = plugin.getShopkeeperRegistry()
+						.getShopkeeperById(shopkeeperId);
+				if (shopkeeper != null) {
+					shopkeeper.markDirty();
+				}
+			});
+		});
+	}
+
+	/**
+	 * Gets a hash of the content of this snapshot.
+	 * <p>
+	 * The data of stored snapshots is immutable and therefore not loaded for this.
+	 * 
+	 * @return the content hash
+	 */
+	final synchronized int getContentHash() {
+		ShopkeeperData shopkeeperData = this.shopkeeperData;
+		if (shopkeeperData != null) {
+			return shopkeeperData.getValues().hashCode();
+		} else {
+			return Long.hashCode(recordId);
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -213,8 +460,15 @@ public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
 		builder.append(name);
 		builder.append(", timestamp=");
 		builder.append(timestamp);
-		builder.append(", shopkeeperData=");
-		builder.append(shopkeeperData);
+		synchronized (this) {
+			if (shopkeeperData != null) {
+				builder.append(", shopkeeperData=");
+				builder.append(shopkeeperData);
+			} else {
+				builder.append(", storedRecord=");
+				builder.append(recordId);
+			}
+		}
 		builder.append("]");
 		return builder.toString();
 	}
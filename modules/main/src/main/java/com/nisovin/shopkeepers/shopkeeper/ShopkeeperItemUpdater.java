@@ -0,0 +1,466 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.debug.DebugOptions;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+/**
+ * Updates the items of all loaded shopkeepers in the background, by calling
+ * {@link AbstractShopkeeper#updateItems(Map)} for each shopkeeper on the region that owns it.
+ * <p>
+ * Unlike {@link com.nisovin.shopkeepers.api.ShopkeepersPlugin#updateItems()}, which updates all
+ * shopkeepers at once on the calling thread, the shopkeepers are grouped into batches by chunk,
+ * and each batch is updated by a task on the owning region. A coordinator task on the global
+ * region dispatches a limited number of shopkeepers per tick, so that the item updates are spread
+ * over several ticks. Shopkeepers in unloaded chunks are also updated by the region that owns their
+ * location. Only virtual shopkeepers, which are not owned by any region, are updated by the
+ * coordinator task itself.
+ * <p>
+ * Batches that their region did not start to process in time are dispatched to their region
+ * again. Shopkeepers in unloaded worlds, and batches that repeatedly time out, are not updated by
+ * any other thread, but deferred: They are updated by a subsequent item update run.
+ * <p>
+ * Optionally, shopkeepers whose content has not changed since their last item update that did not
+ * update any items are skipped. The content hashes are retained across runs until the plugin is
+ * disabled.
+ * <p>
+ * Only one item update run can be active at a time.
+ */
+public final class ShopkeeperItemUpdater {
+
+	// The maximum number of shopkeepers that are dispatched per tick:
+	private static final int SHOPKEEPERS_PER_TICK = 200;
+	// The number of ticks after which the coordinator dispatches batches that their region did not
+	// start to process yet again:
+	private static final long REGION_TIMEOUT_TICKS = 100L;
+	// The number of times a batch is dispatched to its region before it is deferred:
+	private static final int MAX_REGION_ATTEMPTS = 3;
+	private static final long PROGRESS_INTERVAL_TICKS = 100L;
+
+	/**
+	 * The progress, or final result, of an item update run.
+	 */
+	public static final class Progress {
+
+		private final int totalShopkeepers;
+		private final int processedShopkeepers;
+		private final int skippedShopkeepers;
+		private final int updatedShopkeepers;
+		private final int updatedItems;
+		private final int deferredShopkeepers;
+		private final long durationMillis;
+
+		private Progress(
+				int totalShopkeepers,
+				int processedShopkeepers,
+				int skippedShopkeepers,
+				int updatedShopkeepers,
+				int updatedItems,
+				int deferredShopkeepers,
+				long durationMillis
+		) {
+			this.totalShopkeepers = totalShopkeepers;
+			this.processedShopkeepers = processedShopkeepers;
+			this.skippedShopkeepers = skippedShopkeepers;
+			this.updatedShopkeepers = updatedShopkeepers;
+			this.updatedItems = updatedItems;
+			this.deferredShopkeepers = deferredShopkeepers;
+			this.durationMillis = durationMillis;
+		}
+
+		public int getTotalShopkeepers() {
+			return totalShopkeepers;
+		}
+
+		/**
+		 * Gets the number of shopkeepers that have been processed so far, including the skipped
+		 * and deferred shopkeepers.
+		 *
+		 * @return the number of processed shopkeepers
+		 */
+		public int getProcessedShopkeepers() {
+			return processedShopkeepers;
+		}
+
+		/**
+		 * Gets the number of shopkeepers that have been skipped because their content did not
+		 * change since their last item update.
+		 *
+		 * @return the number of skipped shopkeepers
+		 */
+		public int getSkippedShopkeepers() {
+			return skippedShopkeepers;
+		}
+
+		public int getUpdatedShopkeepers() {
+			return updatedShopkeepers;
+		}
+
+		public int getUpdatedItems() {
+			return updatedItems;
+		}
+
+		/**
+		 * Gets the number of shopkeepers that have not been updated because they are in an
+		 * unloaded world, or because their region did not process them in time.
+		 * <p>
+		 * These shopkeepers are updated by a subsequent item update.
+		 *
+		 * @return the number of deferred shopkeepers
+		 */
+		public int getDeferredShopkeepers() {
+			return deferredShopkeepers;
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		public boolean isDone() {
+			return processedShopkeepers >= totalShopkeepers;
+		}
+
+		@Override
+		public String toString() {
+			return processedShopkeepers + "/" + totalShopkeepers + " shopkeepers ("
+					+ skippedShopkeepers + " unchanged, " + updatedShopkeepers + " updated, "
+					+ updatedItems + " items, "
+					+ (deferredShopkeepers > 0 ? deferredShopkeepers + " deferred, " : "")
+					+ durationMillis + " ms)";
+		}
+	}
+
+	private static final class Batch {
+
+		// Null for virtual shopkeepers, which are not updated on a specific region:
+		private final @Nullable World world;
+		private final int chunkX;
+		private final int chunkZ;
+		// The number of times this batch has already been dispatched to its region before:
+		private final int previousAttempts;
+		private final List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+		private long dispatchTick = 0L;
+
+		Batch(@Nullable World world, int chunkX, int chunkZ, int previousAttempts) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.previousAttempts = previousAttempts;
+		}
+
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+	}
+
+	private final class Run {
+
+		private final boolean skipUnchanged;
+		private final @Nullable Consumer<Progress> progressListener;
+		private final CompletableFuture<Progress> result = new CompletableFuture<>();
+		private final long startNanos = System.nanoTime();
+
+		// Only accessed by the coordinator task:
+		private final Queue<Batch> pendingBatches = new ArrayDeque<>();
+		private final List<Batch> dispatchedBatches = new ArrayList<>();
+		private long tick = 0L;
+
+		private final int totalShopkeepers;
+		private final AtomicInteger processedShopkeepers = new AtomicInteger();
+		private final AtomicInteger skippedShopkeepers = new AtomicInteger();
+		private final AtomicInteger updatedShopkeepers = new AtomicInteger();
+		private final AtomicInteger updatedItems = new AtomicInteger();
+		private final AtomicInteger deferredShopkeepers = new AtomicInteger();
+
+		private @Nullable ScheduledTask coordinatorTask = null;
+
+		Run(
+				Collection<? extends AbstractShopkeeper> shopkeepers,
+				boolean skipUnchanged,
+				@Nullable Consumer<Progress> progressListener
+		) {
+			this.skipUnchanged = skipUnchanged;
+			this.progressListener = progressListener;
+			this.totalShopkeepers = shopkeepers.size();
+
+			// Group the shopkeepers by chunk:
+			List<AbstractShopkeeper> virtualShopkeepers = new ArrayList<>();
+			Map<ChunkCoords, Batch> batches = new HashMap<>();
+			for (AbstractShopkeeper shopkeeper : shopkeepers) {
+				ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
+				if (chunkCoords == null) {
+					// Virtual shopkeeper: Not owned by any region, so it is updated by the
+					// coordinator.
+					virtualShopkeepers.add(shopkeeper);
+					continue;
+				}
+
+				World world = chunkCoords.getWorld();
+				if (world == null) {
+					// Unloaded world: Not owned by any region.
+					this.defer(1);
+					continue;
+				}
+
+				// Shopkeepers in unloaded chunks are updated by the region that owns their location
+				// as well:
+				batches.computeIfAbsent(chunkCoords, key -> {
+					return new Batch(world, key.getChunkX(), key.getChunkZ(), 0);
+				}).shopkeepers.add(shopkeeper);
+			}
+			pendingBatches.addAll(batches.values());
+
+			// Split the virtual shopkeepers into batches of the per tick limit:
+			int virtualCount = virtualShopkeepers.size();
+			for (int start = 0; start < virtualCount; start += SHOPKEEPERS_PER_TICK) {
+				int end = Math.min(start + SHOPKEEPERS_PER_TICK, virtualCount);
+				Batch batch = new Batch(null, 0, 0, 0);
+				batch.shopkeepers.addAll(virtualShopkeepers.subList(start, end));
+				pendingBatches.add(batch);
+			}
+		}
+
+		void start() {
+			if (this.getProcessedShopkeepers() >= totalShopkeepers) {
+				this.complete();
+				return;
+			}
+			coordinatorTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(
+					plugin,
+					task -> this.coordinate(),
+					1L,
+					1L
+			);
+		}
+
+		private void coordinate() {
+			tick++;
+
+			// Dispatch the next batches:
+			int dispatchedShopkeepers = 0;
+			while (dispatchedShopkeepers < SHOPKEEPERS_PER_TICK) {
+				Batch batch = pendingBatches.poll();
+				if (batch == null) break;
+				dispatchedShopkeepers += batch.shopkeepers.size();
+				this.dispatch(batch);
+			}
+
+			// Retry the batches that their region did not start to process in time:
+			Iterator<Batch> dispatchedIterator = dispatchedBatches.iterator();
+			while (dispatchedIterator.hasNext()) {
+				Batch batch = dispatchedIterator.next();
+				if (batch.claimed.get()) {
+					dispatchedIterator.remove();
+				} else if (tick - batch.dispatchTick >= REGION_TIMEOUT_TICKS) {
+					dispatchedIterator.remove();
+					if (batch.claim()) {
+						this.retry(batch);
+					}
+				}
+			}
+
+			if (this.getProcessedShopkeepers() >= totalShopkeepers) {
+				this.complete();
+			} else if (progressListener != null && tick % PROGRESS_INTERVAL_TICKS == 0) {
+				progressListener.accept(this.getProgress());
+			}
+		}
+
+		private void dispatch(Batch batch) {
+			World world = batch.world;
+			if (world == null || Bukkit.isOwnedByCurrentRegion(world, batch.chunkX, batch.chunkZ)) {
+				batch.claim();
+				this.process(batch);
+				return;
+			}
+
+			batch.dispatchTick = tick;
+			dispatchedBatches.add(batch);
+			Bukkit.getRegionScheduler().execute(plugin, world, batch.chunkX, batch.chunkZ, () -> {
+				if (batch.claim()) {
+					this.process(batch);
+				}
+			});
+		}
+
+		// Only invoked by the coordinator, after it claimed the batch. The shopkeepers are not
+		// updated on this thread, since it does not own them.
+		private void retry(Batch batch) {
+			World world = batch.world;
+			assert world != null;
+			if (batch.previousAttempts + 1 >= MAX_REGION_ATTEMPTS
+					|| Bukkit.getWorld(world.getUID()) != world) {
+				// The region repeatedly did not process the batch, or the world got unloaded:
+				this.defer(batch.shopkeepers.size());
+				return;
+			}
+
+			// Dispatch a new batch, since the region task of the claimed batch no longer processes
+			// it:
+			Batch retryBatch = new Batch(
+					world,
+					batch.chunkX,
+					batch.chunkZ,
+					batch.previousAttempts + 1
+			);
+			retryBatch.shopkeepers.addAll(batch.shopkeepers);
+			pendingBatches.add(retryBatch);
+		}
+
+		private void defer(int shopkeepers) {
+			deferredShopkeepers.addAndGet(shopkeepers);
+			processedShopkeepers.addAndGet(shopkeepers);
+		}
+
+		// Only invoked by the thread that claimed the batch.
+		private void process(Batch batch) {
+			for (AbstractShopkeeper shopkeeper : batch.shopkeepers) {
+				try {
+					this.updateItems(shopkeeper);
+				} catch (Exception e) {
+					Log.warning(shopkeeper.getLogPrefix() + "Failed to update items!", e);
+				} finally {
+					processedShopkeepers.incrementAndGet();
+				}
+			}
+		}
+
+		private void updateItems(AbstractShopkeeper shopkeeper) {
+			// The shopkeeper might have been removed in the meantime:
+			if (!shopkeeper.isValid()) return;
+
+			Integer previousContentHash;
+			if (skipUnchanged) {
+				previousContentHash = contentHashes.get(shopkeeper.getId());
+			} else {
+				// Forces the item update, but still records the new content hash:
+				contentHashes.remove(shopkeeper.getId());
+				previousContentHash = null;
+			}
+
+			int shopkeeperUpdatedItems = shopkeeper.updateItems(contentHashes);
+			if (shopkeeperUpdatedItems > 0) {
+				updatedShopkeepers.incrementAndGet();
+				updatedItems.addAndGet(shopkeeperUpdatedItems);
+			} else if (skipUnchanged && previousContentHash != null
+					&& previousContentHash.equals(contentHashes.get(shopkeeper.getId()))) {
+				skippedShopkeepers.incrementAndGet();
+			}
+		}
+
+		private int getProcessedShopkeepers() {
+			return processedShopkeepers.get();
+		}
+
+		private Progress getProgress() {
+			return new Progress(
+					totalShopkeepers,
+					processedShopkeepers.get(),
+					skippedShopkeepers.get(),
+					updatedShopkeepers.get(),
+					updatedItems.get(),
+					deferredShopkeepers.get(),
+					(System.nanoTime() - startNanos) / 1_000_000L
+			);
+		}
+
+		private void complete() {
+			this.cancel();
+			Progress progress = this.getProgress();
+			Log.debug(DebugOptions.itemUpdates, () -> "Item update completed: " + progress);
+			result.complete(progress);
+		}
+
+		void cancel() {
+			ScheduledTask coordinatorTask = this.coordinatorTask;
+			if (coordinatorTask != null) {
+				coordinatorTask.cancel();
+				this.coordinatorTask = null;
+			}
+			if (currentRun == this) {
+				currentRun = null;
+			}
+		}
+	}
+
+	private final Plugin plugin;
+	// Shopkeeper id -> Content hash after the last item update that did not update any items:
+	private final Map<Integer, Integer> contentHashes = new ConcurrentHashMap<>();
+	private volatile @Nullable Run currentRun = null;
+
+	public ShopkeeperItemUpdater(Plugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	public void onDisable() {
+		Run run = currentRun;
+		if (run != null) {
+			run.cancel();
+			run.result.cancel(false);
+		}
+		contentHashes.clear();
+	}
+
+	/**
+	 * Checks if an item update run is currently in progress.
+	 *
+	 * @return <code>true</code> if an item update is in progress
+	 */
+	public boolean isRunning() {
+		return currentRun != null;
+	}
+
+	/**
+	 * Starts to update the items of the given shopkeepers in the background.
+	 * <p>
+	 * The returned future is usually completed on the global region thread.
+	 *
+	 * @param shopkeepers
+	 *            the shopkeepers to update, not <code>null</code>
+	 * @param skipUnchanged
+	 *            <code>true</code> to skip shopkeepers whose content did not change since their
+	 *            last item update that did not update any items
+	 * @param progressListener
+	 *            is periodically informed about the progress of the item update, can be
+	 *            <code>null</code>
+	 * @return a future that is completed with the final result once all shopkeepers have been
+	 *         processed
+	 */
+	public CompletableFuture<Progress> start(
+			Collection<? extends AbstractShopkeeper> shopkeepers,
+			boolean skipUnchanged,
+			@Nullable Consumer<Progress> progressListener
+	) {
+		Validate.notNull(shopkeepers, "shopkeepers is null");
+		Validate.State.isTrue(currentRun == null, "An item update is already in progress!");
+
+		Run run = new Run(new ArrayList<>(shopkeepers), skipUnchanged, progressListener);
+		currentRun = run;
+		run.start();
+		return run.result;
+	}
+}
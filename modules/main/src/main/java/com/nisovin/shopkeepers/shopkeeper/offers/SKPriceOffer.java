@@ -27,6 +27,7 @@ import com.nisovin.shopkeepers.util.data.serialization.MissingDataException;
 import com.nisovin.shopkeepers.util.data.serialization.bukkit.ItemStackSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.DataContainerSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.NumberSerializers;
+import com.nisovin.shopkeepers.util.inventory.InternedItemStacks;
 import com.nisovin.shopkeepers.util.inventory.ItemMigration;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
@@ -56,7 +57,7 @@ public class SKPriceOffer implements PriceOffer {
 	 * Creates a new {@link SKPriceOffer}.
 	 * <p>
 	 * The given item stack is assumed to be immutable and therefore not copied before it is stored
-	 * by the price offer.
+	 * by the price offer. The price offer stores the {@link InternedItemStacks interned} item.
 	 * 
 	 * @param item
 	 *            the item being traded, not <code>null</code> or empty
@@ -66,7 +67,7 @@ public class SKPriceOffer implements PriceOffer {
 	public SKPriceOffer(UnmodifiableItemStack item, int price) {
 		Validate.isTrue(!ItemUtils.isEmpty(item), "item is empty");
 		Validate.isTrue(price > 0, "price has to be positive");
-		this.item = item;
+		this.item = InternedItemStacks.intern(item);
 		this.price = price;
 	}
 
@@ -27,6 +27,7 @@ import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
 import com.nisovin.shopkeepers.util.data.serialization.MissingDataException;
 import com.nisovin.shopkeepers.util.data.serialization.bukkit.ItemStackSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.DataContainerSerializers;
+import com.nisovin.shopkeepers.util.inventory.InternedItemStacks;
 import com.nisovin.shopkeepers.util.inventory.ItemMigration;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
@@ -53,14 +54,19 @@ public class SKTradeOffer extends SKTradingRecipe implements TradeOffer {
 			@ReadOnly ItemStack item1,
 			@ReadOnly @Nullable ItemStack item2
 	) {
-		super(resultItem, item1, item2);
+		this(
+				ItemUtils.nonNullUnmodifiableClone(resultItem),
+				ItemUtils.nonNullUnmodifiableClone(item1),
+				ItemUtils.unmodifiableClone(item2)
+		);
 	}
 
 	/**
 	 * Creates a new {@link SKTradeOffer}.
 	 * <p>
 	 * The given item stacks are assumed to be immutable and therefore not copied before they are
-	 * stored by the trade offer.
+	 * stored by the trade offer. The trade offer stores the {@link InternedItemStacks interned}
+	 * items.
 	 * 
 	 * @param resultItem
 	 *            the result item, not empty
@@ -74,7 +80,11 @@ public class SKTradeOffer extends SKTradingRecipe implements TradeOffer {
 			UnmodifiableItemStack item1,
 			@Nullable UnmodifiableItemStack item2
 	) {
-		super(resultItem, item1, item2);
+		super(
+				InternedItemStacks.intern(resultItem),
+				InternedItemStacks.intern(item1),
+				InternedItemStacks.intern(item2)
+		);
 	}
 
 	@Override
@@ -64,6 +64,7 @@ import com.nisovin.shopkeepers.util.data.serialization.java.BooleanSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.NumberSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.StringSerializers;
 import com.nisovin.shopkeepers.util.data.serialization.java.UUIDSerializers;
+import com.nisovin.shopkeepers.util.inventory.InternedItemStacks;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemMigration;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
@@ -341,8 +342,19 @@ public abstract class AbstractPlayerShopkeeper
 
 	private void _setOwner(User owner) {
 		Validate.notNull(owner, "owner is null");
+		User previousOwner = this.owner;
 		this.owner = owner;
 
+		// Inform the shopkeeper registry (if the shopkeeper is already registered):
+		if (this.isValid() && !previousOwner.getUniqueId().equals(owner.getUniqueId())) {
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onPlayerShopkeeperOwnerChanged(
+					this,
+					previousOwner.getUniqueId()
+			);
+			// Ownership changes are persisted with priority:
+			SKShopkeepersPlugin.getInstance().getShopkeeperStorage().saveSoon();
+		}
+
 		// Inform the shop object:
 		this.getShopObject().onShopOwnerChanged();
 	}
@@ -493,7 +505,7 @@ public abstract class AbstractPlayerShopkeeper
 			}
 		} else {
 			// Set for hire:
-			this.hireCost = Unsafe.assertNonNull(hireCost);
+			this.hireCost = InternedItemStacks.intern(Unsafe.assertNonNull(hireCost));
 			this.setName(Messages.forHireTitle);
 		}
 		// TODO Close any currently open hiring UIs for players.
@@ -0,0 +1,216 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperInfo;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.regular.RegularAdminShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.BookOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.book.BookPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.buy.BuyingPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.sell.SellingPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.trade.TradingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+
+/**
+ * Implementation of {@link ShopkeeperInfo}.
+ */
+final class SKShopkeeperInfo implements ShopkeeperInfo {
+
+	/**
+	 * Captures the current state of the given shopkeeper.
+	 * <p>
+	 * This is expected to be called on the thread that owns the shopkeeper. The offers are
+	 * immutable and therefore not copied, only the lists that contain them.
+	 *
+	 * @param shopkeeper
+	 *            the shopkeeper, not <code>null</code>
+	 * @return the captured shopkeeper info
+	 */
+	static SKShopkeeperInfo of(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		List<? extends TradeOffer> tradeOffers = Collections.emptyList();
+		List<? extends PriceOffer> priceOffers = Collections.emptyList();
+		List<? extends BookOffer> bookOffers = Collections.emptyList();
+		if (shopkeeper instanceof RegularAdminShopkeeper) {
+			tradeOffers = copy(((RegularAdminShopkeeper) shopkeeper).getOffers());
+		} else if (shopkeeper instanceof TradingPlayerShopkeeper) {
+			tradeOffers = copy(((TradingPlayerShopkeeper) shopkeeper).getOffers());
+		} else if (shopkeeper instanceof SellingPlayerShopkeeper) {
+			priceOffers = copy(((SellingPlayerShopkeeper) shopkeeper).getOffers());
+		} else if (shopkeeper instanceof BuyingPlayerShopkeeper) {
+			priceOffers = copy(((BuyingPlayerShopkeeper) shopkeeper).getOffers());
+		} else if (shopkeeper instanceof BookPlayerShopkeeper) {
+			bookOffers = copy(((BookPlayerShopkeeper) shopkeeper).getOffers());
+		}
+
+		@Nullable UUID ownerUniqueId = null;
+		@Nullable String ownerName = null;
+		if (shopkeeper instanceof PlayerShopkeeper) {
+			PlayerShopkeeper playerShopkeeper = (PlayerShopkeeper) shopkeeper;
+			ownerUniqueId = playerShopkeeper.getOwnerUUID();
+			ownerName = playerShopkeeper.getOwnerName();
+		}
+
+		return new SKShopkeeperInfo(
+				shopkeeper.getId(),
+				shopkeeper.getUniqueId(),
+				shopkeeper.getType().getIdentifier(),
+				shopkeeper.getShopObject().getType().getIdentifier(),
+				shopkeeper.getName(),
+				shopkeeper.isVirtual(),
+				shopkeeper.getWorldName(),
+				shopkeeper.getX(),
+				shopkeeper.getY(),
+				shopkeeper.getZ(),
+				ownerUniqueId,
+				ownerName,
+				tradeOffers,
+				priceOffers,
+				bookOffers
+		);
+	}
+
+	private static <T> List<? extends T> copy(List<? extends T> offers) {
+		if (offers.isEmpty()) return Collections.emptyList();
+		return Collections.unmodifiableList(new ArrayList<>(offers));
+	}
+
+	private final int id;
+	private final UUID uniqueId;
+	private final String shopTypeId;
+	private final String shopObjectTypeId;
+	private final String name;
+	private final boolean virtual;
+	private final @Nullable String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+	private final @Nullable UUID ownerUniqueId;
+	private final @Nullable String ownerName;
+	private final List<? extends TradeOffer> tradeOffers;
+	private final List<? extends PriceOffer> priceOffers;
+	private final List<? extends BookOffer> bookOffers;
+
+	private SKShopkeeperInfo(
+			int id,
+			UUID uniqueId,
+			String shopTypeId,
+			String shopObjectTypeId,
+			String name,
+			boolean virtual,
+			@Nullable String worldName,
+			int x,
+			int y,
+			int z,
+			@Nullable UUID ownerUniqueId,
+			@Nullable String ownerName,
+			List<? extends TradeOffer> tradeOffers,
+			List<? extends PriceOffer> priceOffers,
+			List<? extends BookOffer> bookOffers
+	) {
+		this.id = id;
+		this.uniqueId = uniqueId;
+		this.shopTypeId = shopTypeId;
+		this.shopObjectTypeId = shopObjectTypeId;
+		this.name = name;
+		this.virtual = virtual;
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.ownerUniqueId = ownerUniqueId;
+		this.ownerName = ownerName;
+		this.tradeOffers = tradeOffers;
+		this.priceOffers = priceOffers;
+		this.bookOffers = bookOffers;
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	@Override
+	public String getShopTypeId() {
+		return shopTypeId;
+	}
+
+	@Override
+	public String getShopObjectTypeId() {
+		return shopObjectTypeId;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	@Override
+	public @Nullable String getWorldName() {
+		return worldName;
+	}
+
+	@Override
+	public int getX() {
+		return x;
+	}
+
+	@Override
+	public int getY() {
+		return y;
+	}
+
+	@Override
+	public int getZ() {
+		return z;
+	}
+
+	@Override
+	public @Nullable UUID getOwnerUniqueId() {
+		return ownerUniqueId;
+	}
+
+	@Override
+	public @Nullable String getOwnerName() {
+		return ownerName;
+	}
+
+	@Override
+	public List<? extends TradeOffer> getTradeOffers() {
+		return tradeOffers;
+	}
+
+	@Override
+	public List<? extends PriceOffer> getPriceOffers() {
+		return priceOffers;
+	}
+
+	@Override
+	public List<? extends BookOffer> getBookOffers() {
+		return bookOffers;
+	}
+
+	@Override
+	public String toString() {
+		return "SKShopkeeperInfo [id=" + id + ", uniqueId=" + uniqueId + ", shopType=" + shopTypeId
+				+ ", world=" + worldName + ", x=" + x + ", y=" + y + ", z=" + z + "]";
+	}
+}
@@ -0,0 +1,104 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperReadModel;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Implementation of {@link ShopkeeperReadModel}.
+ * <p>
+ * All lookup structures are set up during construction and not modified afterwards.
+ */
+final class SKShopkeeperReadModel implements ShopkeeperReadModel {
+
+	static final SKShopkeeperReadModel EMPTY = new SKShopkeeperReadModel(
+			Instant.EPOCH,
+			Collections.emptyList()
+	);
+
+	private final Instant timestamp;
+	private final List<SKShopkeeperInfo> allShopkeepers;
+	private final Map<UUID, SKShopkeeperInfo> shopkeepersByUUID = new HashMap<>();
+	private final Map<Integer, SKShopkeeperInfo> shopkeepersById = new HashMap<>();
+	private final Map<UUID, List<SKShopkeeperInfo>> shopkeepersByOwner = new HashMap<>();
+	private final Map<String, List<SKShopkeeperInfo>> shopkeepersByWorld = new HashMap<>();
+
+	SKShopkeeperReadModel(Instant timestamp, Collection<? extends SKShopkeeperInfo> shopkeepers) {
+		Validate.notNull(timestamp, "timestamp is null");
+		Validate.notNull(shopkeepers, "shopkeepers is null");
+		this.timestamp = timestamp;
+
+		List<SKShopkeeperInfo> sortedShopkeepers = new ArrayList<>(shopkeepers);
+		sortedShopkeepers.sort(Comparator.comparingInt(SKShopkeeperInfo::getId));
+		this.allShopkeepers = Collections.unmodifiableList(sortedShopkeepers);
+
+		// The lists are populated in order of increasing shopkeeper ids:
+		for (SKShopkeeperInfo shopkeeper : sortedShopkeepers) {
+			shopkeepersByUUID.put(shopkeeper.getUniqueId(), shopkeeper);
+			shopkeepersById.put(shopkeeper.getId(), shopkeeper);
+
+			UUID ownerUniqueId = shopkeeper.getOwnerUniqueId();
+			if (ownerUniqueId != null) {
+				shopkeepersByOwner.computeIfAbsent(ownerUniqueId, key -> new ArrayList<>())
+						.add(shopkeeper);
+			}
+
+			String worldName = shopkeeper.getWorldName();
+			if (worldName != null) {
+				shopkeepersByWorld.computeIfAbsent(worldName, key -> new ArrayList<>())
+						.add(shopkeeper);
+			}
+		}
+	}
+
+	@Override
+	public Instant getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public Collection<? extends SKShopkeeperInfo> getAllShopkeepers() {
+		return allShopkeepers;
+	}
+
+	@Override
+	public @Nullable SKShopkeeperInfo getShopkeeperByUniqueId(UUID shopkeeperUniqueId) {
+		return shopkeepersByUUID.get(shopkeeperUniqueId);
+	}
+
+	@Override
+	public @Nullable SKShopkeeperInfo getShopkeeperById(int shopkeeperId) {
+		return shopkeepersById.get(shopkeeperId);
+	}
+
+	@Override
+	public Collection<? extends SKShopkeeperInfo> getShopkeepersByOwner(UUID ownerUUID) {
+		List<SKShopkeeperInfo> shopkeepers = shopkeepersByOwner.get(ownerUUID);
+		if (shopkeepers == null) return Collections.emptyList();
+		return Collections.unmodifiableList(shopkeepers);
+	}
+
+	@Override
+	public Collection<? extends SKShopkeeperInfo> getShopkeepersInWorld(String worldName) {
+		List<SKShopkeeperInfo> shopkeepers = shopkeepersByWorld.get(worldName);
+		if (shopkeepers == null) return Collections.emptyList();
+		return Collections.unmodifiableList(shopkeepers);
+	}
+
+	@Override
+	public String toString() {
+		return "SKShopkeeperReadModel [timestamp=" + timestamp + ", shopkeepers="
+				+ allShopkeepers.size() + "]";
+	}
+}
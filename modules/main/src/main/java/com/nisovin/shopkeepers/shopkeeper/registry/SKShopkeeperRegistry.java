@@ -1,6 +1,6 @@
 package com.nisovin.shopkeepers.shopkeeper.registry;
 
-import java.util.AbstractSet;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -29,7 +30,7 @@ import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
@@ -59,6 +60,11 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	private final Collection<? extends AbstractShopkeeper> allShopkeepersView = Collections.unmodifiableCollection(shopkeepersByUUID.values());
 	private final Map<Integer, AbstractShopkeeper> shopkeepersById = new HashMap<>();
 
+	// All shopkeepers, admin shopkeepers, and virtual shopkeepers, sorted by id for paged queries:
+	private final SortedShopkeepers<AbstractShopkeeper> sortedShopkeepers = new SortedShopkeepers<>();
+	private final SortedShopkeepers<AbstractShopkeeper> sortedAdminShopkeepers = new SortedShopkeepers<>();
+	private final SortedShopkeepers<AbstractShopkeeper> sortedVirtualShopkeepers = new SortedShopkeepers<>();
+
 	// TODO Shopkeepers by name TreeMap to speedup name lookups and prefix matching?
 	// TODO TreeMaps for shopkeeper owners by name and uuid to speedup prefix matching?
 
@@ -109,32 +115,20 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	};
 
-	// Player shopkeepers:
-	private int playerShopCount = 0;
+	// Player shopkeepers, sorted by id:
+	private final SortedShopkeepers<AbstractPlayerShopkeeper> playerShopkeepers = new SortedShopkeepers<>();
 	// Note: Already unmodifiable.
-	private final Set<? extends AbstractPlayerShopkeeper> allPlayerShopkeepersView = new AbstractSet<AbstractPlayerShopkeeper>() {
-		@Override
-		public Iterator<AbstractPlayerShopkeeper> iterator() {
-			if (this.isEmpty()) {
-				return Collections.emptyIterator();
-			}
-			return Unsafe.initialized(SKShopkeeperRegistry.this).getAllShopkeepers().stream()
-					.filter(shopkeeper -> shopkeeper instanceof PlayerShopkeeper)
-					.<AbstractPlayerShopkeeper>map(shopkeeper -> (AbstractPlayerShopkeeper) shopkeeper)
-					.iterator();
-		}
-
-		@Override
-		public int size() {
-			return playerShopCount;
-		}
-	};
+	private final Collection<? extends AbstractPlayerShopkeeper> allPlayerShopkeepersView = playerShopkeepers.getShopkeepers();
+	// Player shopkeepers by owner, sorted by id:
+	// Entries are removed once they no longer contain any shopkeepers.
+	private final Map<UUID, SortedShopkeepers<AbstractPlayerShopkeeper>> playerShopkeepersByOwner = new HashMap<>();
 
 	private final ShopObjectRegistry shopObjectRegistry = new ShopObjectRegistry();
 	private final ShopkeeperTicker shopkeeperTicker;
 	private final ShopkeeperSpawner shopkeeperSpawner;
 	private final ShopkeeperChunkActivator chunkActivator;
 	private final ActiveChunkQueries activeChunkQueries;
+	private final ShopkeeperReadModelUpdater readModelUpdater;
 
 	public SKShopkeeperRegistry(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -148,6 +142,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 				shopkeeperSpawner
 		);
 		this.activeChunkQueries = new ActiveChunkQueries(chunkMap, chunkActivator);
+		this.readModelUpdater = new ShopkeeperReadModelUpdater(plugin, Unsafe.initialized(this));
 	}
 
 	public void onEnable() {
@@ -155,9 +150,12 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		chunkActivator.onEnable();
 		shopkeeperSpawner.onEnable();
 		shopkeeperTicker.onEnable();
+		readModelUpdater.onEnable();
 	}
 
 	public void onDisable() {
+		readModelUpdater.onDisable();
+
 		// Unload all shopkeepers:
 		this.unloadAllShopkeepers();
 		assert this.getAllShopkeepers().isEmpty();
@@ -173,12 +171,17 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	private void ensureEmpty() {
 		if (!shopkeepersByUUID.isEmpty() || !shopkeepersById.isEmpty()
-				|| !virtualShopkeepers.isEmpty() || playerShopCount != 0) {
+				|| !virtualShopkeepers.isEmpty() || !playerShopkeepers.isEmpty()
+				|| !sortedShopkeepers.isEmpty() || !playerShopkeepersByOwner.isEmpty()) {
 			Log.warning("Some shopkeepers were not properly unregistered!");
 			shopkeepersByUUID.clear();
 			shopkeepersById.clear();
 			virtualShopkeepers.clear();
-			playerShopCount = 0;
+			sortedShopkeepers.clear();
+			sortedAdminShopkeepers.clear();
+			sortedVirtualShopkeepers.clear();
+			playerShopkeepers.clear();
+			playerShopkeepersByOwner.clear();
 		}
 		chunkMap.ensureEmpty();
 	}
@@ -287,6 +290,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int shopkeeperId = shopkeeper.getId();
 		shopkeepersByUUID.put(shopkeeperUniqueId, shopkeeper);
 		shopkeepersById.put(shopkeeperId, shopkeeper);
+		sortedShopkeepers.add(shopkeeper);
 
 		// Inform the storage about the used up id:
 		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
@@ -295,13 +299,18 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// Add shopkeeper to chunk-based storage:
 		if (shopkeeper.isVirtual()) {
 			virtualShopkeepers.add(shopkeeper);
+			sortedVirtualShopkeepers.add(shopkeeper);
 		} else {
 			chunkMap.addShopkeeper(shopkeeper);
 		}
 
-		// Update player shop count:
-		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount++;
+		// Add shopkeeper to the shop kind indices:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShop = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.add(playerShop);
+			this.addToOwnerIndex(playerShop, playerShop.getOwnerUUID());
+		} else if (shopkeeper instanceof AdminShopkeeper) {
+			sortedAdminShopkeepers.add(shopkeeper);
 		}
 
 		// Log a warning if either the shop type or the shop object type is disabled. The shopkeeper
@@ -374,17 +383,23 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		UUID shopkeeperUniqueId = shopkeeper.getUniqueId();
 		shopkeepersByUUID.remove(shopkeeperUniqueId);
 		shopkeepersById.remove(shopkeeper.getId());
+		sortedShopkeepers.remove(shopkeeper);
 
 		// Remove shopkeeper from chunk-based storage:
 		if (shopkeeper.isVirtual()) {
 			virtualShopkeepers.remove(shopkeeper);
+			sortedVirtualShopkeepers.remove(shopkeeper);
 		} else {
 			chunkMap.removeShopkeeper(shopkeeper);
 		}
 
-		// Update player shop count:
-		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount--;
+		// Remove shopkeeper from the shop kind indices:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShop = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.remove(playerShop);
+			this.removeFromOwnerIndex(playerShop, playerShop.getOwnerUUID());
+		} else if (shopkeeper instanceof AdminShopkeeper) {
+			sortedAdminShopkeepers.remove(shopkeeper);
 		}
 
 		if (cause == ShopkeeperRemoveEvent.Cause.DELETE) {
@@ -393,6 +408,42 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	private void addToOwnerIndex(AbstractPlayerShopkeeper playerShop, UUID ownerUUID) {
+		playerShopkeepersByOwner.computeIfAbsent(ownerUUID, key -> new SortedShopkeepers<>())
+				.add(playerShop);
+	}
+
+	private void removeFromOwnerIndex(AbstractPlayerShopkeeper playerShop, UUID ownerUUID) {
+		SortedShopkeepers<AbstractPlayerShopkeeper> ownerShops = playerShopkeepersByOwner.get(ownerUUID);
+		if (ownerShops == null) return;
+		ownerShops.remove(playerShop);
+		if (ownerShops.isEmpty()) {
+			playerShopkeepersByOwner.remove(ownerUUID);
+		}
+	}
+
+	/**
+	 * This has to be called whenever the owner of a registered player shopkeeper has changed.
+	 * 
+	 * @param playerShop
+	 *            the player shopkeeper
+	 * @param previousOwnerUUID
+	 *            the unique id of the previous owner
+	 */
+	public void onPlayerShopkeeperOwnerChanged(
+			AbstractPlayerShopkeeper playerShop,
+			UUID previousOwnerUUID
+	) {
+		Validate.notNull(playerShop, "playerShop is null");
+		Validate.notNull(previousOwnerUUID, "previousOwnerUUID is null");
+		Validate.isTrue(playerShop.isValid(), "playerShop is not valid");
+		UUID ownerUUID = playerShop.getOwnerUUID();
+		if (ownerUUID.equals(previousOwnerUUID)) return;
+
+		this.removeFromOwnerIndex(playerShop, previousOwnerUUID);
+		this.addToOwnerIndex(playerShop, ownerUUID);
+	}
+
 	// This is not expected to be called for invalid or virtual shopkeepers.
 	public void onShopkeeperMoved(AbstractShopkeeper shopkeeper) {
 		Validate.notNull(shopkeeper, "shopkeeper is null");
@@ -459,6 +510,18 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeepersById.get(shopkeeperId);
 	}
 
+	// READ MODEL
+
+	@Override
+	public SKShopkeeperReadModel getReadModel() {
+		return readModelUpdater.getReadModel();
+	}
+
+	@Override
+	public CompletableFuture<SKShopkeeperReadModel> refreshReadModel() {
+		return readModelUpdater.refreshReadModel();
+	}
+
 	// PLAYER SHOPS
 
 	@Override
@@ -471,34 +534,110 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			UUID ownerUUID
 	) {
 		Validate.notNull(ownerUUID, "ownerUUID is null");
-		// TODO Improve? Maybe keep an index of player shops? Or even index by owner?
 		// Note: Already unmodifiable.
-		return new AbstractSet<AbstractPlayerShopkeeper>() {
-			private Stream<? extends AbstractPlayerShopkeeper> createStream() {
-				return allPlayerShopkeepersView.stream()
-						.filter(shopkeeper -> shopkeeper.getOwnerUUID().equals(ownerUUID));
+		// This view looks up the owner's shopkeepers on each access, so that it reflects
+		// subsequent changes even if the owner's index entry is removed and recreated in the
+		// meantime.
+		return new AbstractCollection<AbstractPlayerShopkeeper>() {
+			private List<? extends AbstractPlayerShopkeeper> getOwnerShopkeepers() {
+				SortedShopkeepers<AbstractPlayerShopkeeper> ownerShops = playerShopkeepersByOwner.get(ownerUUID);
+				if (ownerShops == null) return Collections.emptyList();
+				return ownerShops.getShopkeepers();
 			}
 
 			@Override
 			public Iterator<AbstractPlayerShopkeeper> iterator() {
-				if (allPlayerShopkeepersView.isEmpty()) {
-					// There are no player shops at all:
-					return Collections.emptyIterator();
-				}
-				return Unsafe.cast(this.createStream().iterator());
+				return Unsafe.cast(this.getOwnerShopkeepers().iterator());
 			}
 
 			@Override
 			public int size() {
-				if (allPlayerShopkeepersView.isEmpty()) {
-					// There are no player shops at all:
-					return 0;
-				}
-				return this.createStream().mapToInt(shopkeeper -> 1).sum();
+				return this.getOwnerShopkeepers().size();
 			}
 		};
 	}
 
+	// PAGED QUERIES
+
+	/**
+	 * Gets the specified page of all shopkeepers, sorted by their ids.
+	 * <p>
+	 * The page number is clamped to the range of available pages.
+	 * 
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 */
+	public ShopkeeperPage getAllShopkeepersPage(int page, int pageSize) {
+		return sortedShopkeepers.getPage(page, pageSize);
+	}
+
+	/**
+	 * Gets the specified page of all admin shopkeepers, sorted by their ids.
+	 * 
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 * @see #getAllShopkeepersPage(int, int)
+	 */
+	public ShopkeeperPage getAdminShopkeepersPage(int page, int pageSize) {
+		return sortedAdminShopkeepers.getPage(page, pageSize);
+	}
+
+	/**
+	 * Gets the specified page of all player shopkeepers, sorted by their ids.
+	 * 
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 * @see #getAllShopkeepersPage(int, int)
+	 */
+	public ShopkeeperPage getPlayerShopkeepersPage(int page, int pageSize) {
+		return playerShopkeepers.getPage(page, pageSize);
+	}
+
+	/**
+	 * Gets the specified page of all virtual shopkeepers, sorted by their ids.
+	 * 
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 * @see #getAllShopkeepersPage(int, int)
+	 */
+	public ShopkeeperPage getVirtualShopkeepersPage(int page, int pageSize) {
+		return sortedVirtualShopkeepers.getPage(page, pageSize);
+	}
+
+	/**
+	 * Gets the specified page of the player shopkeepers that are owned by the specified player,
+	 * sorted by their ids.
+	 * 
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 * @see #getAllShopkeepersPage(int, int)
+	 */
+	public ShopkeeperPage getPlayerShopkeepersByOwnerPage(UUID ownerUUID, int page, int pageSize) {
+		Validate.notNull(ownerUUID, "ownerUUID is null");
+		SortedShopkeepers<AbstractPlayerShopkeeper> ownerShops = playerShopkeepersByOwner.get(ownerUUID);
+		if (ownerShops == null) {
+			return ShopkeeperPage.of(Collections.emptyList(), page, pageSize);
+		}
+		return ownerShops.getPage(page, pageSize);
+	}
+
 	// BY NAME
 
 	@Override
@@ -0,0 +1,118 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A single page of the results of a shopkeeper query.
+ * <p>
+ * The page contains an unmodifiable copy of the shopkeepers on the requested page, so it is not
+ * affected by any subsequent changes to the queried shopkeepers.
+ */
+public final class ShopkeeperPage {
+
+	/**
+	 * Creates a page of the given list of shopkeepers.
+	 * <p>
+	 * The page number is clamped to the range of available pages. Only the shopkeepers on the
+	 * requested page are copied.
+	 *
+	 * @param shopkeepers
+	 *            the shopkeepers, in the order in which they are paged
+	 * @param page
+	 *            the requested page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 */
+	public static ShopkeeperPage of(List<? extends Shopkeeper> shopkeepers, int page, int pageSize) {
+		Validate.notNull(shopkeepers, "shopkeepers is null");
+		Validate.isTrue(pageSize > 0, "pageSize has to be positive");
+		int totalCount = shopkeepers.size();
+		int maxPage = Math.max(1, (totalCount + pageSize - 1) / pageSize);
+		int actualPage = Math.max(1, Math.min(page, maxPage));
+		int startIndex = (actualPage - 1) * pageSize;
+		int endIndex = Math.min(startIndex + pageSize, totalCount);
+		List<? extends Shopkeeper> pageShopkeepers;
+		if (startIndex >= endIndex) {
+			pageShopkeepers = Collections.emptyList();
+		} else {
+			pageShopkeepers = Collections.unmodifiableList(
+					new ArrayList<>(shopkeepers.subList(startIndex, endIndex))
+			);
+		}
+		return new ShopkeeperPage(pageShopkeepers, totalCount, actualPage, maxPage, startIndex);
+	}
+
+	private final List<? extends Shopkeeper> shopkeepers;
+	private final int totalCount;
+	private final int page;
+	private final int maxPage;
+	private final int startIndex;
+
+	private ShopkeeperPage(
+			List<? extends Shopkeeper> shopkeepers,
+			int totalCount,
+			int page,
+			int maxPage,
+			int startIndex
+	) {
+		this.shopkeepers = shopkeepers;
+		this.totalCount = totalCount;
+		this.page = page;
+		this.maxPage = maxPage;
+		this.startIndex = startIndex;
+	}
+
+	/**
+	 * Gets the shopkeepers on this page.
+	 *
+	 * @return an unmodifiable list of the shopkeepers on this page, not <code>null</code>
+	 */
+	public List<? extends Shopkeeper> getShopkeepers() {
+		return shopkeepers;
+	}
+
+	/**
+	 * Gets the total number of shopkeepers that matched the query, across all pages.
+	 *
+	 * @return the total number of shopkeepers
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets the page number of this page.
+	 * <p>
+	 * This may differ from the originally requested page number if the requested page number was
+	 * out of bounds.
+	 *
+	 * @return the page number, starting at <code>1</code>
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Gets the number of the last page.
+	 *
+	 * @return the number of the last page, at least <code>1</code>
+	 */
+	public int getMaxPage() {
+		return maxPage;
+	}
+
+	/**
+	 * Gets the index of the first shopkeeper of this page among all matching shopkeepers.
+	 *
+	 * @return the start index, starting at <code>0</code>
+	 */
+	public int getStartIndex() {
+		return startIndex;
+	}
+}
@@ -0,0 +1,299 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+/**
+ * Periodically recreates the {@link SKShopkeeperReadModel} from the live shopkeepers.
+ * <p>
+ * A coordinator task on the global region starts each refresh: The shopkeepers are grouped by
+ * chunk, and the state of each group is captured by a task on the region that owns the chunk.
+ * Shopkeepers in unloaded chunks and virtual shopkeepers are captured by the coordinator task
+ * itself. Groups that their region did not start to process in time are not captured by the
+ * coordinator, since it does not own their shopkeepers: Instead, the new read model keeps their
+ * entries of the previous read model. Once all shopkeepers have been captured, the new read model
+ * is published.
+ * <p>
+ * The read model is only refreshed periodically while it is being used, i.e. if it was accessed
+ * since the last refresh, or if a refresh was explicitly requested.
+ */
+final class ShopkeeperReadModelUpdater {
+
+	private static final long REFRESH_PERIOD_TICKS = 200L; // 10 seconds
+	// The number of ticks after which the coordinator keeps the previous entries of groups that their
+	// region did not start to process yet:
+	private static final long REGION_TIMEOUT_TICKS = 100L;
+
+	private static final class Batch {
+
+		private final World world;
+		private final int chunkX;
+		private final int chunkZ;
+		private final List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+		Batch(World world, int chunkX, int chunkZ) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+	}
+
+	private final class Refresh {
+
+		private final Instant timestamp = Instant.now();
+		private final long startTick;
+		private final List<CompletableFuture<SKShopkeeperReadModel>> requests;
+		private final List<Batch> batches = new ArrayList<>();
+		private final AtomicInteger pendingBatches = new AtomicInteger();
+		private final Queue<SKShopkeeperInfo> shopkeepers = new ConcurrentLinkedQueue<>();
+
+		Refresh(long startTick, List<CompletableFuture<SKShopkeeperReadModel>> requests) {
+			this.startTick = startTick;
+			this.requests = requests;
+		}
+
+		void start(Collection<? extends AbstractShopkeeper> allShopkeepers) {
+			// Group the shopkeepers by chunk:
+			Map<ChunkCoords, Batch> batchesByChunk = new HashMap<>();
+			for (AbstractShopkeeper shopkeeper : allShopkeepers) {
+				ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
+				World world = (chunkCoords != null) ? chunkCoords.getWorld() : null;
+				if (chunkCoords == null || world == null
+						|| !world.isChunkLoaded(chunkCoords.getChunkX(), chunkCoords.getChunkZ())) {
+					// Virtual shopkeeper, unloaded world, or unloaded chunk: The shopkeeper is not
+					// active and can be captured by the coordinator.
+					this.capture(shopkeeper);
+					continue;
+				}
+
+				batchesByChunk.computeIfAbsent(chunkCoords, key -> {
+					return new Batch(world, key.getChunkX(), key.getChunkZ());
+				}).shopkeepers.add(shopkeeper);
+			}
+
+			batches.addAll(batchesByChunk.values());
+			pendingBatches.set(batches.size());
+			for (Batch batch : batches) {
+				if (Bukkit.isOwnedByCurrentRegion(batch.world, batch.chunkX, batch.chunkZ)) {
+					batch.claim();
+					this.process(batch);
+					continue;
+				}
+
+				Bukkit.getRegionScheduler().execute(
+						plugin,
+						batch.world,
+						batch.chunkX,
+						batch.chunkZ,
+						() -> {
+							if (batch.claim()) {
+								this.process(batch);
+							}
+						}
+				);
+			}
+		}
+
+		// Only invoked by the thread that claimed the batch.
+		private void process(Batch batch) {
+			try {
+				batch.shopkeepers.forEach(this::capture);
+			} finally {
+				pendingBatches.decrementAndGet();
+			}
+		}
+
+		// Only invoked by the coordinator, after it claimed the batch.
+		private void keepPreviousEntries(Batch batch, SKShopkeeperReadModel previousReadModel) {
+			try {
+				batch.shopkeepers.forEach(shopkeeper -> {
+					// The shopkeeper might have been removed in the meantime:
+					if (!shopkeeper.isValid()) return;
+					// Null if the shopkeeper has been added since the previous refresh. It is then
+					// only included in a subsequent read model.
+					SKShopkeeperInfo previousEntry = previousReadModel.getShopkeeperById(
+							shopkeeper.getId()
+					);
+					if (previousEntry != null) {
+						shopkeepers.add(previousEntry);
+					}
+				});
+			} finally {
+				pendingBatches.decrementAndGet();
+			}
+		}
+
+		private void capture(AbstractShopkeeper shopkeeper) {
+			// The shopkeeper might have been removed in the meantime:
+			if (!shopkeeper.isValid()) return;
+			try {
+				shopkeepers.add(SKShopkeeperInfo.of(shopkeeper));
+			} catch (Exception e) {
+				Log.warning(shopkeeper.getLogPrefix() + "Failed to capture the state!", e);
+			}
+		}
+
+		// Returns true once the refresh is completed.
+		boolean tick(long tick) {
+			if (pendingBatches.get() > 0) {
+				if (tick - startTick < REGION_TIMEOUT_TICKS) return false;
+
+				// Keep the previous entries of the batches that their region did not start to process
+				// yet:
+				SKShopkeeperReadModel previousReadModel = readModel;
+				for (Batch batch : batches) {
+					if (batch.claim()) {
+						this.keepPreviousEntries(batch, previousReadModel);
+					}
+				}
+				// Batches that are still being processed by their region:
+				if (pendingBatches.get() > 0) return false;
+			}
+
+			SKShopkeeperReadModel readModel = new SKShopkeeperReadModel(timestamp, shopkeepers);
+			ShopkeeperReadModelUpdater.this.readModel = readModel;
+			requests.forEach(request -> request.complete(readModel));
+			return true;
+		}
+
+		void cancel() {
+			requests.forEach(request -> request.cancel(false));
+		}
+	}
+
+	private final Plugin plugin;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
+
+	private volatile SKShopkeeperReadModel readModel = SKShopkeeperReadModel.EMPTY;
+	// Whether the current read model has been accessed since it was published:
+	private volatile boolean readModelAccessed = false;
+	// Requests for a new read model that wait for the next refresh. Synchronized on this updater.
+	private @Nullable List<CompletableFuture<SKShopkeeperReadModel>> pendingRequests = null;
+
+	// Only accessed by the coordinator task:
+	private @Nullable ScheduledTask coordinatorTask = null;
+	private @Nullable Refresh currentRefresh = null;
+	private long tick = 0L;
+	private long lastRefreshTick = -REFRESH_PERIOD_TICKS;
+
+	ShopkeeperReadModelUpdater(Plugin plugin, SKShopkeeperRegistry shopkeeperRegistry) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(shopkeeperRegistry, "shopkeeperRegistry is null");
+		this.plugin = plugin;
+		this.shopkeeperRegistry = shopkeeperRegistry;
+	}
+
+	void onEnable() {
+		synchronized (this) {
+			pendingRequests = new ArrayList<>();
+		}
+		tick = 0L;
+		// The first access of the read model immediately triggers a refresh:
+		lastRefreshTick = -REFRESH_PERIOD_TICKS;
+		coordinatorTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(
+				plugin,
+				task -> this.coordinate(),
+				1L,
+				1L
+		);
+	}
+
+	void onDisable() {
+		ScheduledTask coordinatorTask = this.coordinatorTask;
+		if (coordinatorTask != null) {
+			coordinatorTask.cancel();
+			this.coordinatorTask = null;
+		}
+
+		Refresh refresh = currentRefresh;
+		if (refresh != null) {
+			refresh.cancel();
+			currentRefresh = null;
+		}
+
+		List<CompletableFuture<SKShopkeeperReadModel>> requests;
+		synchronized (this) {
+			requests = pendingRequests;
+			pendingRequests = null;
+		}
+		if (requests != null) {
+			requests.forEach(request -> request.cancel(false));
+		}
+
+		readModel = SKShopkeeperReadModel.EMPTY;
+		readModelAccessed = false;
+	}
+
+	SKShopkeeperReadModel getReadModel() {
+		readModelAccessed = true;
+		return readModel;
+	}
+
+	CompletableFuture<SKShopkeeperReadModel> refreshReadModel() {
+		CompletableFuture<SKShopkeeperReadModel> request = new CompletableFuture<>();
+		synchronized (this) {
+			List<CompletableFuture<SKShopkeeperReadModel>> pendingRequests = this.pendingRequests;
+			if (pendingRequests == null) {
+				// Not enabled:
+				request.cancel(false);
+			} else {
+				pendingRequests.add(request);
+			}
+		}
+		return request;
+	}
+
+	private void coordinate() {
+		tick++;
+
+		Refresh refresh = currentRefresh;
+		if (refresh != null) {
+			if (!refresh.tick(tick)) return;
+			currentRefresh = null;
+		}
+
+		List<CompletableFuture<SKShopkeeperReadModel>> requests;
+		synchronized (this) {
+			requests = pendingRequests;
+			if (requests == null) return; // Disabled
+			if (requests.isEmpty()
+					&& (!readModelAccessed || tick - lastRefreshTick < REFRESH_PERIOD_TICKS)) {
+				return;
+			}
+			// Subsequent requests wait for the next refresh:
+			pendingRequests = new ArrayList<>();
+		}
+
+		lastRefreshTick = tick;
+		readModelAccessed = false;
+		refresh = new Refresh(tick, requests);
+		currentRefresh = refresh;
+		refresh.start(new ArrayList<>(shopkeeperRegistry.getAllShopkeepers()));
+	}
+}
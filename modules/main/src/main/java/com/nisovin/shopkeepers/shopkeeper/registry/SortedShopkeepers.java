@@ -0,0 +1,102 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+
+/**
+ * A list of shopkeepers that is kept sorted by their shopkeeper ids.
+ * <p>
+ * Since the shopkeeper ids do not change, this provides a stable order that allows the retrieval of
+ * individual pages of shopkeepers in time proportional to the page size.
+ *
+ * @param <S>
+ *            the type of shopkeeper
+ */
+final class SortedShopkeepers<S extends AbstractShopkeeper> {
+
+	private final List<S> shopkeepers = new ArrayList<>();
+	private final List<? extends S> shopkeepersView = Collections.unmodifiableList(shopkeepers);
+
+	SortedShopkeepers() {
+	}
+
+	// Returns the index of the shopkeeper with the given id, or (-(insertion point) - 1) if there is
+	// no such shopkeeper.
+	private int indexOf(int shopkeeperId) {
+		int low = 0;
+		int high = shopkeepers.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midId = shopkeepers.get(mid).getId();
+			if (midId < shopkeeperId) {
+				low = mid + 1;
+			} else if (midId > shopkeeperId) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	void add(S shopkeeper) {
+		assert shopkeeper != null;
+		int index = this.indexOf(shopkeeper.getId());
+		assert index < 0 : "Shopkeeper is already contained";
+		// Shopkeepers are usually added in order of increasing ids, so this usually appends:
+		shopkeepers.add(-(index + 1), shopkeeper);
+	}
+
+	boolean remove(S shopkeeper) {
+		assert shopkeeper != null;
+		int index = this.indexOf(shopkeeper.getId());
+		if (index < 0) return false;
+		assert shopkeepers.get(index) == shopkeeper;
+		shopkeepers.remove(index);
+		return true;
+	}
+
+	void clear() {
+		shopkeepers.clear();
+	}
+
+	int size() {
+		return shopkeepers.size();
+	}
+
+	boolean isEmpty() {
+		return shopkeepers.isEmpty();
+	}
+
+	/**
+	 * Gets an unmodifiable view on the shopkeepers, sorted by their ids.
+	 *
+	 * @return an unmodifiable view on the shopkeepers
+	 */
+	List<? extends S> getShopkeepers() {
+		return shopkeepersView;
+	}
+
+	/**
+	 * Gets the specified page of shopkeepers.
+	 * <p>
+	 * The page number is clamped to the range of available pages.
+	 *
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of shopkeepers per page, positive
+	 * @return the page, not <code>null</code>
+	 */
+	ShopkeeperPage getPage(int page, int pageSize) {
+		return ShopkeeperPage.of(shopkeepers, page, pageSize);
+	}
+
+	@Override
+	public String toString() {
+		return "SortedShopkeepers [size=" + shopkeepers.size() + "]";
+	}
+}
@@ -1,6 +1,8 @@
 package com.nisovin.shopkeepers.shopkeeper.spawning;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
@@ -8,17 +10,25 @@ import org.bukkit.scheduler.BukkitTask;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopkeeper.spawning.ShopkeeperSpawnState.State;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.TimeUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
  * Handles the temporary despawning and later respawning of shop objects that need to be despawned
  * during world saves.
+ * <p>
+ * Living shop entities are non-persistent and therefore already skipped by world saves without
+ * being despawned. The shop objects that are despawned during world saves are the sign shops, whose
+ * blocks would otherwise be saved with the world. This despawning and respawning can be disabled
+ * via {@link Settings#despawnSignShopsDuringWorldSaves}.
  */
 class WorldSaveDespawner {
 
@@ -62,6 +72,13 @@ class WorldSaveDespawner {
 	void onWorldSave(World world) {
 		assert world != null;
 		String worldName = world.getName();
+		if (!Settings.despawnSignShopsDuringWorldSaves) {
+			Log.debug(DebugOptions.shopkeeperActivation,
+					() -> "Keeping shopkeepers spawned during saving of world '" + worldName + "'."
+			);
+			return;
+		}
+
 		// Note: Shopkeepers can be added to the world while the world is being saved. To track
 		// whether the world is currently being saved, we start the respawn task even if the world
 		// does not yet contain any shopkeepers.
@@ -88,12 +105,28 @@ class WorldSaveDespawner {
 		// However, to prevent this inconsistent respawning responsibility anyway, we set the
 		// shopkeeper to state 'world-save-respawn-pending', so that the shop object can skip any
 		// respawn attempts while our respawn task is still pending.
+		long startNanos = System.nanoTime();
 		spawner.despawnShopkeepersInWorld(
 				worldName,
 				"world saving",
 				IS_DESPAWNED_DURING_WORLD_SAVE,
 				this::setPendingWorldSaveRespawn
 		);
+		logTiming(worldName, "despawn", startNanos);
+	}
+
+	// Only includes the synchronous part of the despawning or respawning, not the per-chunk tasks
+	// on the region threads.
+	private static void logTiming(String worldName, String phase, long startNanos) {
+		Log.debug(DebugOptions.shopkeeperActivation, () -> {
+			double durationMillis = TimeUtils.convert(
+					System.nanoTime() - startNanos,
+					TimeUnit.NANOSECONDS,
+					TimeUnit.MILLISECONDS
+			);
+			return "World save " + phase + " of shopkeepers in world '" + worldName + "' took "
+					+ TextUtils.format(durationMillis) + " ms.";
+		});
 	}
 
 	private void setPendingWorldSaveRespawn(AbstractShopkeeper shopkeeper) {
@@ -125,12 +158,14 @@ class WorldSaveDespawner {
 
 			// In order to not have players wait for shopkeepers to respawn after world saves, we
 			// respawn the shopkeepers immediately in this case:
+			long startNanos = System.nanoTime();
 			spawner.spawnShopkeepersInWorld(
 					worldData.getWorldName(),
 					"world saving finished",
 					IS_DESPAWNED_DURING_WORLD_SAVE,
 					true
 			);
+			logTiming(worldData.getWorldName(), "respawn", startNanos);
 		}
 
 		public void cancel() {
@@ -118,7 +118,7 @@ public class LivingEntityAI implements Listener {
     /**
      * The MAX_FALLING_DISTANCE_PER_TICK scaled according to the configured tick rate.
      */
-    private double maxFallingDistancePerUpdate;
+    private volatile double maxFallingDistancePerUpdate;
     /**
      * The range in which we check for block collisions.
      * <p>
@@ -127,7 +127,7 @@ public class LivingEntityAI implements Listener {
      * account the max falling speed and to detect the end of the falling without having to check
      * for block collisions another time in the next behavior update.
      */
-    private double gravityCollisionCheckRange;
+    private volatile double gravityCollisionCheckRange;
     /**
      * Whether we use our custom gravity handling.
      * <p>
@@ -135,7 +135,7 @@ public class LivingEntityAI implements Listener {
      * specific Minecraft version (on some Minecraft versions the NoAI entity flag does not disable
      * the gravity of mobs).
      */
-    private boolean customGravityEnabled;
+    private volatile boolean customGravityEnabled;
 
     private static class EntityData {
 
@@ -206,10 +206,7 @@ public class LivingEntityAI implements Listener {
 
     public void onEnable() {
         // Setup values based on settings:
-        // TODO: Also update these on dynamic setting changes.
-        maxFallingDistancePerUpdate = Settings.mobBehaviorTickPeriod * MAX_FALLING_DISTANCE_PER_TICK;
-        gravityCollisionCheckRange = maxFallingDistancePerUpdate + 0.1D;
-        customGravityEnabled = _isCustomGravityEnabled();
+        this.setupSettingsValues();
 
         // Register listener:
         Bukkit.getPluginManager().registerEvents(this, plugin);
@@ -226,6 +223,26 @@ public class LivingEntityAI implements Listener {
         this.resetStatistics();
     }
 
+    private void setupSettingsValues() {
+        maxFallingDistancePerUpdate = Settings.mobBehaviorTickPeriod * MAX_FALLING_DISTANCE_PER_TICK;
+        gravityCollisionCheckRange = maxFallingDistancePerUpdate + 0.1D;
+        customGravityEnabled = _isCustomGravityEnabled();
+    }
+
+    /**
+     * Updates the values that are derived from the settings, and restarts the AI task if the
+     * behavior tick period has changed.
+     * <p>
+     * Changes to the gravity setting only affect newly spawned shop entities.
+     */
+    public void onSettingsChanged() {
+        this.setupSettingsValues();
+        if (aiTask != null) {
+            this.stopTask();
+            this.startTask();
+        }
+    }
+
     // SHOP OBJECTS
 
     public void addShopObject(SKLivingShopObject<?> shopObject) {
@@ -1,7 +1,6 @@
 package com.nisovin.shopkeepers.shopobjects.living;
 
-import org.bukkit.Location;
-import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Entity;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
@@ -109,9 +108,13 @@ public class LivingShops {
 	}
 
 	// Bypassing creature spawn blocking plugins (e.g. region protection plugins):
-	void forceCreatureSpawn(Location location, EntityType entityType) {
+	void forceCreatureSpawn(Entity entity) {
 		if (Settings.bypassSpawnBlocking) {
-			plugin.getForcingCreatureSpawner().forceCreatureSpawn(location, entityType);
+			plugin.getForcingCreatureSpawner().forceCreatureSpawn(entity);
 		}
 	}
+
+	void resetForcedCreatureSpawn(Entity entity) {
+		plugin.getForcingCreatureSpawner().resetForcedCreatureSpawn(entity);
+	}
 }
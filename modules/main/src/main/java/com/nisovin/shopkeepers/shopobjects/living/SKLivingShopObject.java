@@ -365,10 +365,12 @@ public class SKLivingShopObject<E extends LivingEntity>
 
 			// Try to bypass entity-spawn blocking plugins (right before this specific entity is
 			// about to get spawned):
-			livingShops.forceCreatureSpawn(spawnLocation, entityType);
+			livingShops.forceCreatureSpawn(entity);
 		});
 		E entity = this.entity;
 		assert entity != null;
+		// In case the entity was not actually added to the world:
+		livingShops.resetForcedCreatureSpawn(entity);
 
 		boolean success = this.isActive();
 		if (success) {
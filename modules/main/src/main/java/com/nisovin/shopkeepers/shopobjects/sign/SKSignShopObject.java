@@ -1,5 +1,6 @@
 package com.nisovin.shopkeepers.shopobjects.sign;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -13,6 +14,7 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.WallSign;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
@@ -33,7 +35,6 @@ import com.nisovin.shopkeepers.ui.editor.Button;
 import com.nisovin.shopkeepers.ui.editor.EditorSession;
 import com.nisovin.shopkeepers.ui.editor.ShopkeeperActionButton;
 import com.nisovin.shopkeepers.util.bukkit.BlockFaceUtils;
-import com.nisovin.shopkeepers.util.bukkit.SignUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.data.property.BasicProperty;
 import com.nisovin.shopkeepers.util.data.property.Property;
@@ -164,6 +165,10 @@ public class SKSignShopObject extends BaseBlockShopObject implements SignShopObj
 			.onValueChanged(Unsafe.initialized(this)::applyGlowingText)
 			.build(properties);
 
+	// The content that was last applied to the spawned sign, if any:
+	private @NonNull String @Nullable [] appliedSignLines = null;
+	private boolean appliedGlowingText = false;
+
 	protected SKSignShopObject(
 			BaseBlockShops blockShops,
 			AbstractShopkeeper shopkeeper,
@@ -245,17 +250,28 @@ public class SKSignShopObject extends BaseBlockShopObject implements SignShopObj
 
 	@Override
 	protected void updateBlock() {
-		Sign sign = this.getSign();
-		if (sign == null) return; // Not spawned or no longer a sign
+		if (!this.isActive()) return; // Not spawned or no longer a sign
 
-		// Common sign setup (e.g. sign content):
-		SignShops.updateShopSign(sign, shopkeeper);
+		@NonNull String[] lines = SignShops.getShopSignLines(shopkeeper);
+		boolean glowingText = this.isGlowingText();
+		// Skip the block state update, which is sent to all nearby players, if the sign content
+		// did not change:
+		if (glowingText == appliedGlowingText && Arrays.equals(lines, appliedSignLines)) return;
 
-		// Glowing text:
-		this.applyGlowingText(sign);
+		Sign sign = Unsafe.assertNonNull(this.getSign());
+		SignShops.applySignContent(sign, lines, glowingText);
 
-		// Apply sign changes:
+		// Sign block type is still the same (no force required), and we want to skip physics:
 		sign.update(false, false);
+		appliedSignLines = lines;
+		appliedGlowingText = glowingText;
+	}
+
+	@Override
+	public void despawn() {
+		super.despawn();
+		// Any subsequently spawned sign starts without content:
+		appliedSignLines = null;
 	}
 
 	// TICKING
@@ -396,18 +412,8 @@ public class SKSignShopObject extends BaseBlockShopObject implements SignShopObj
 	}
 
 	protected void applyGlowingText() {
-		Sign sign = this.getSign();
-		if (sign == null) return; // Not spawned or no longer a sign
-
-		this.applyGlowingText(sign);
-
-		// Sign block type is still the same (no force required), and we want to skip physics:
-		sign.update(false, false);
-	}
-
-	private void applyGlowingText(Sign sign) {
-		// Apply the glowing text to both sign sides:
-		SignUtils.setBothSidesGlowingText(sign, this.isGlowingText());
+		// Updates the sign content, including the glowing text:
+		this.updateBlock();
 	}
 
 	public void cycleGlowingText(boolean backwards) {
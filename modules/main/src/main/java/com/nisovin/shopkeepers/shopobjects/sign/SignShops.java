@@ -1,9 +1,12 @@
 package com.nisovin.shopkeepers.shopobjects.sign;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.bukkit.block.Sign;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
@@ -12,55 +15,195 @@ import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObject;
 import com.nisovin.shopkeepers.lang.Messages;
 import com.nisovin.shopkeepers.util.bukkit.SignUtils;
-import com.nisovin.shopkeepers.util.java.StringUtils;
+import com.nisovin.shopkeepers.util.java.StringUtils.ArgumentsReplacer;
 
 /**
  * Helpers related to sign and hanging sign shops.
+ * <p>
+ * The sign lines are produced from templates that are compiled once from the sign line messages,
+ * and recompiled when the messages change (e.g. after a reload of the language file). The
+ * templates are immutable, and the produced lines are stored in new arrays, so that signs can be
+ * updated concurrently by different region threads.
  */
 final class SignShops {
 
-	// Reused array to pass sign lines:
-	private static final @NonNull String[] TEMP_SIGN_LINES = new @NonNull String[4];
+	private static final String ARGUMENT_SHOP_NAME = "shopName";
+	private static final String ARGUMENT_OWNER = "owner";
 
-	static void updateShopSign(Sign sign, Shopkeeper shopkeeper) {
-		// Sign content:
-		if (shopkeeper instanceof PlayerShopkeeper) {
-			updatePlayerShopSign(sign, (PlayerShopkeeper) shopkeeper);
-		} else {
-			assert shopkeeper instanceof AdminShopkeeper;
-			updateAdminShopSign(sign, (AdminShopkeeper) shopkeeper);
+	// Argument indices:
+	private static final int SHOP_NAME = 0;
+	private static final int OWNER = 1;
+	private static final List<String> ARGUMENT_KEYS = Arrays.asList(
+			ARGUMENT_SHOP_NAME,
+			ARGUMENT_OWNER
+	);
+	// Admin shop signs have no owner: Any owner placeholders are kept as literal text.
+	private static final List<String> ADMIN_ARGUMENT_KEYS = Arrays.asList(ARGUMENT_SHOP_NAME);
+
+	/**
+	 * A sign line with pre-parsed argument placeholders.
+	 * <p>
+	 * Matches the argument replacement of {@link ArgumentsReplacer}: Placeholders use
+	 * the format <code>{key}</code>, and placeholders for unsupported keys are kept.
+	 */
+	private static final class LineTemplate {
+
+		private static final char KEY_PREFIX_CHAR = ArgumentsReplacer.DEFAULT_KEY_PREFIX_CHAR;
+		private static final char KEY_SUFFIX_CHAR = ArgumentsReplacer.DEFAULT_KEY_SUFFIX_CHAR;
+
+		static LineTemplate compile(String source, List<String> supportedKeys) {
+			List<String> literals = new ArrayList<>();
+			List<Integer> arguments = new ArrayList<>();
+			int literalStart = 0;
+			int searchPos = 0;
+			while (searchPos < source.length()) {
+				int keyPrefixIndex = source.indexOf(KEY_PREFIX_CHAR, searchPos);
+				if (keyPrefixIndex < 0) break;
+				int keySuffixIndex = source.indexOf(KEY_SUFFIX_CHAR, keyPrefixIndex + 1);
+				if (keySuffixIndex < 0) break;
+				searchPos = keySuffixIndex + 1;
+
+				String key = source.substring(keyPrefixIndex + 1, keySuffixIndex);
+				// Unsupported key: Kept as part of the literal text.
+				if (!supportedKeys.contains(key)) continue;
+				int argumentIndex = ARGUMENT_KEYS.indexOf(key);
+				assert argumentIndex >= 0;
+
+				literals.add(source.substring(literalStart, keyPrefixIndex));
+				arguments.add(argumentIndex);
+				literalStart = searchPos;
+			}
+			literals.add(source.substring(literalStart));
+			return new LineTemplate(source, literals, arguments);
+		}
+
+		private final String source;
+		// One more literal than arguments: literal0, argument0, literal1, ..., literalN
+		private final @NonNull String[] literals;
+		private final int[] arguments;
+
+		private LineTemplate(String source, List<String> literals, List<Integer> arguments) {
+			assert literals.size() == arguments.size() + 1;
+			this.source = source;
+			this.literals = Unsafe.castNonNull(literals.toArray(new String[0]));
+			this.arguments = arguments.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		String format(@NonNull String[] argumentValues) {
+			if (arguments.length == 0) return source;
+
+			StringBuilder builder = new StringBuilder(source.length() + 16);
+			builder.append(literals[0]);
+			for (int i = 0; i < arguments.length; i++) {
+				builder.append(argumentValues[arguments[i]]);
+				builder.append(literals[i + 1]);
+			}
+			return builder.toString();
 		}
 	}
 
-	private static void updatePlayerShopSign(Sign sign, PlayerShopkeeper shop) {
-		ShopObject shopObject = shop.getShopObject();
+	private static final class SignTemplates {
+
+		private final LineTemplate[] adminLines;
+		private final LineTemplate[] playerLines;
 
-		var arguments = new HashMap<String, Object>();
-		// Not null, can be empty:
-		arguments.put("shopName", Unsafe.assertNonNull(shopObject.prepareName(shop.getName())));
-		arguments.put("owner", shop.getOwnerName());  // Not null, can be empty
+		SignTemplates() {
+			this.adminLines = compile(
+					ADMIN_ARGUMENT_KEYS,
+					Messages.adminSignShopLine1,
+					Messages.adminSignShopLine2,
+					Messages.adminSignShopLine3,
+					Messages.adminSignShopLine4
+			);
+			this.playerLines = compile(
+					ARGUMENT_KEYS,
+					Messages.playerSignShopLine1,
+					Messages.playerSignShopLine2,
+					Messages.playerSignShopLine3,
+					Messages.playerSignShopLine4
+			);
+		}
+
+		private static LineTemplate[] compile(List<String> supportedKeys, String... sources) {
+			LineTemplate[] templates = new LineTemplate[sources.length];
+			for (int i = 0; i < sources.length; i++) {
+				templates[i] = LineTemplate.compile(sources[i], supportedKeys);
+			}
+			return templates;
+		}
+
+		// Checks if the templates still match the current messages.
+		boolean isUpToDate() {
+			return adminLines[0].source == Messages.adminSignShopLine1
+					&& adminLines[1].source == Messages.adminSignShopLine2
+					&& adminLines[2].source == Messages.adminSignShopLine3
+					&& adminLines[3].source == Messages.adminSignShopLine4
+					&& playerLines[0].source == Messages.playerSignShopLine1
+					&& playerLines[1].source == Messages.playerSignShopLine2
+					&& playerLines[2].source == Messages.playerSignShopLine3
+					&& playerLines[3].source == Messages.playerSignShopLine4;
+		}
+	}
 
-		TEMP_SIGN_LINES[0] = StringUtils.replaceArguments(Messages.playerSignShopLine1, arguments);
-		TEMP_SIGN_LINES[1] = StringUtils.replaceArguments(Messages.playerSignShopLine2, arguments);
-		TEMP_SIGN_LINES[2] = StringUtils.replaceArguments(Messages.playerSignShopLine3, arguments);
-		TEMP_SIGN_LINES[3] = StringUtils.replaceArguments(Messages.playerSignShopLine4, arguments);
-		SignUtils.setBothSidesText(sign, TEMP_SIGN_LINES);
-		// Array will be reset with the next use.
+	private static volatile @Nullable SignTemplates templates = null;
+
+	private static SignTemplates getTemplates() {
+		SignTemplates templates = SignShops.templates;
+		if (templates == null || !templates.isUpToDate()) {
+			// Concurrent callers might compile the templates multiple times, but they all end up
+			// with equivalent templates:
+			templates = new SignTemplates();
+			SignShops.templates = templates;
+		}
+		return templates;
 	}
 
-	private static void updateAdminShopSign(Sign sign, AdminShopkeeper shop) {
-		ShopObject shopObject = shop.getShopObject();
+	/**
+	 * Gets the sign lines for the given shopkeeper.
+	 *
+	 * @param shopkeeper
+	 *            the shopkeeper, not <code>null</code>
+	 * @return a new array with the four sign lines
+	 */
+	static @NonNull String[] getShopSignLines(Shopkeeper shopkeeper) {
+		ShopObject shopObject = shopkeeper.getShopObject();
+		@NonNull String[] argumentValues = new @NonNull String[ARGUMENT_KEYS.size()];
+		String shopName = Unsafe.assertNonNull(shopObject.prepareName(shopkeeper.getName()));
+		argumentValues[SHOP_NAME] = shopName; // Not null, can be empty
 
-		var arguments = new HashMap<String, Object>();
-		// Not null, can be empty:
-		arguments.put("shopName", Unsafe.assertNonNull(shopObject.prepareName(shop.getName())));
+		SignTemplates templates = getTemplates();
+		LineTemplate[] lineTemplates;
+		if (shopkeeper instanceof PlayerShopkeeper) {
+			argumentValues[OWNER] = ((PlayerShopkeeper) shopkeeper).getOwnerName(); // Can be empty
+			lineTemplates = templates.playerLines;
+		} else {
+			assert shopkeeper instanceof AdminShopkeeper;
+			argumentValues[OWNER] = ""; // Unused by the admin sign lines
+			lineTemplates = templates.adminLines;
+		}
+
+		@NonNull String[] lines = new @NonNull String[4];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = lineTemplates[i].format(argumentValues);
+		}
+		return lines;
+	}
 
-		TEMP_SIGN_LINES[0] = StringUtils.replaceArguments(Messages.adminSignShopLine1, arguments);
-		TEMP_SIGN_LINES[1] = StringUtils.replaceArguments(Messages.adminSignShopLine2, arguments);
-		TEMP_SIGN_LINES[2] = StringUtils.replaceArguments(Messages.adminSignShopLine3, arguments);
-		TEMP_SIGN_LINES[3] = StringUtils.replaceArguments(Messages.adminSignShopLine4, arguments);
-		SignUtils.setBothSidesText(sign, TEMP_SIGN_LINES);
-		// Array will be reset with the next use.
+	/**
+	 * Applies the given content to both sides of the given sign.
+	 * <p>
+	 * This does not {@link Sign#update(boolean, boolean) update} the sign block.
+	 *
+	 * @param sign
+	 *            the sign
+	 * @param lines
+	 *            the sign lines
+	 * @param glowingText
+	 *            whether the sign text is glowing
+	 */
+	static void applySignContent(Sign sign, @NonNull String[] lines, boolean glowingText) {
+		SignUtils.setBothSidesText(sign, lines);
+		SignUtils.setBothSidesGlowingText(sign, glowingText);
 	}
 
 	private SignShops() {
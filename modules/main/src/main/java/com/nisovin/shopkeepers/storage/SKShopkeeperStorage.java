@@ -1,5 +1,6 @@
 package com.nisovin.shopkeepers.storage;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -12,12 +13,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitTask;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -30,13 +30,14 @@ import com.nisovin.shopkeepers.api.storage.ShopkeeperStorage;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.debug.Debug;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperSnapshot;
 import com.nisovin.shopkeepers.shopkeeper.ShopkeeperData;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.storage.migration.RawDataMigrations;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
 import com.nisovin.shopkeepers.util.bukkit.PluginUtils;
-import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.bukkit.SingletonTask;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.data.container.DataContainer;
 import com.nisovin.shopkeepers.util.data.persistence.DataStore;
 import com.nisovin.shopkeepers.util.data.persistence.InvalidDataFormatException;
@@ -73,6 +74,8 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 	private static final String DATA_FOLDER = "data";
 	private static final String SAVE_FILE_NAME = "save.yml";
+	private static final String SNAPSHOT_STORE_FILE_NAME = "snapshots.dat";
+	private static final String BINARY_SNAPSHOT_FILE_NAME = "save.bin";
 
 	private static final String DATA_VERSION_KEY = "data-version";
 
@@ -82,12 +85,11 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					+ " have prepared a backup of this file."
 	));
 
-	private static final int DELAYED_SAVE_TICKS = 600; // 30 seconds
-
 	// Max total delay: 500ms
 	private static final int SAVING_MAX_ATTEMPTS = 20;
 	private static final long SAVING_ATTEMPTS_DELAY_MILLIS = 25;
 	private static final long SAVE_ERROR_MSG_THROTTLE_MILLIS = TimeUnit.MINUTES.toMillis(4);
+	private static final long SNAPSHOT_COMPACTION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(30);
 
 	private final SKShopkeepersPlugin plugin;
 
@@ -133,13 +135,29 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	// loading the shopkeeper data, so that the save file doesn't get overwritten by any subsequent
 	// save requests.
 	private boolean savingDisabled = false;
-	private @Nullable BukkitTask delayedSaveTask = null;
+	private final SaveStatistics saveStatistics = new SaveStatistics();
+	private final SaveScheduler saveScheduler;
+	private final ShopkeeperSnapshotPreparer snapshotPreparer;
+	private final ShopkeeperSnapshotStore snapshotStore;
+	private final ShopkeeperBinarySnapshot binarySnapshot;
 
 	public SKShopkeeperStorage(SKShopkeepersPlugin plugin) {
 		DataVersion.init();
 		this.plugin = plugin;
 		this.saveFile = Unsafe.initialized(this)._getSaveFile();
 		this.saveTask = new SaveTask(plugin);
+		this.saveScheduler = new SaveScheduler(
+				plugin,
+				Unsafe.initialized(this)::saveIfDirty,
+				saveStatistics
+		);
+		this.snapshotPreparer = new ShopkeeperSnapshotPreparer(plugin);
+		this.snapshotStore = new ShopkeeperSnapshotStore(
+				Unsafe.initialized(this)._getDataFolder().resolve(SNAPSHOT_STORE_FILE_NAME)
+		);
+		this.binarySnapshot = new ShopkeeperBinarySnapshot(
+				Unsafe.initialized(this)._getDataFolder().resolve(BINARY_SNAPSHOT_FILE_NAME)
+		);
 	}
 
 	private Path getPluginDataFolder() {
@@ -155,13 +173,21 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	}
 
 	public void onEnable() {
+		// The save statistics are recorded regardless of the save mode:
+		saveStatistics.reset();
+
 		// Start periodic save task:
 		if (!Settings.saveInstantly) {
 			new PeriodicSaveTask().start();
+		} else {
+			saveScheduler.onEnable();
 		}
 	}
 
 	public void onDisable() {
+		// Stop any scheduled delayed saves: The final save below covers them.
+		saveScheduler.onDisable();
+
 		// Ensure that there is no unsaved data and that all saves are completed before we continue:
 		this.saveIfDirtyAndAwaitCompletion();
 
@@ -184,6 +210,14 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					+ saveTask.isExecutionPending() + ")!");
 		}
 
+		// Remove no longer referenced snapshot records:
+		// Only if the save data matches the data on disk.
+		if (!this.isDirty() && !savingDisabled
+				&& !saveTask.isRunning() && !saveTask.isExecutionPending()) {
+			this.compactSnapshotStore(true);
+		}
+		snapshotStore.close();
+
 		// Reset a few things:
 		saveTask.onDisable();
 		this.clearSaveData();
@@ -193,7 +227,6 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		unsavedShopkeepers.clear();
 		unsavedDeletedShopkeepers.clear();
 		shopkeepersToDelete.clear();
-		delayedSaveTask = null;
 	}
 
 	private class PeriodicSaveTask{
@@ -208,6 +241,41 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 	}
 
+	/**
+	 * Gets the {@link ShopkeeperSnapshotStore} that stores the data of shopkeeper snapshots.
+	 * 
+	 * @return the snapshot store
+	 */
+	public ShopkeeperSnapshotStore getSnapshotStore() {
+		return snapshotStore;
+	}
+
+	// Expects that the save data matches the data on disk. Unless the session records are removed,
+	// this can also be called by the save task during its execution.
+	private void compactSnapshotStore(boolean removeSessionRecords) {
+		if (!snapshotStore.isOpen()) return;
+
+		// The save data also contains the data of shopkeepers that failed to load:
+		Set<Long> referencedRecordIds = new HashSet<>();
+		for (String key : saveData.getKeys()) {
+			DataContainer shopkeeperData = saveData.getContainer(key);
+			if (shopkeeperData == null) continue; // E.g. the data version
+			SKShopkeeperSnapshot.collectStoredRecordIds(
+					shopkeeperData.get(AbstractShopkeeper.SNAPSHOTS.getName()),
+					referencedRecordIds
+			);
+		}
+
+		try {
+			int removedRecords = snapshotStore.compact(referencedRecordIds, removeSessionRecords);
+			if (removedRecords > 0) {
+				Log.info("Removed " + removedRecords + " unused records from the snapshot store.");
+			}
+		} catch (IOException e) {
+			Log.warning("Failed to compact the snapshot store!", e);
+		}
+	}
+
 	private SKShopkeeperRegistry getShopkeeperRegistry() {
 		return plugin.getShopkeeperRegistry();
 	}
@@ -372,6 +440,15 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		shopkeeperRegistry.unloadAllShopkeepers();
 		this.clearSaveData();
 
+		// The snapshot data is loaded on demand from the snapshot store:
+		try {
+			snapshotStore.open();
+		} catch (IOException e) {
+			// Shopkeepers with stored snapshots can still be loaded, but their snapshots cannot be
+			// applied. New snapshots are kept in the save file.
+			Log.severe("Failed to open the snapshot store!", e);
+		}
+
 		Path saveFile = this.saveFile;
 		if (!Files.exists(saveFile)) {
 			var tempSaveFile = FileUtils.getTempSibling(saveFile);
@@ -394,63 +471,74 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		boolean rawDataMigrated = false;
 
 		// Load the save data:
-		try (Reader reader = Files.newBufferedReader(saveFile, StandardCharsets.UTF_8)) {
-			var content = FileUtils.read(reader);
-
-			// Apply string-based migrations:
-			var migratedContent = RawDataMigrations.applyMigrations(content);
-			rawDataMigrated = !content.equals(migratedContent);
-
-			if (rawDataMigrated) {
-				var now = LocalDateTime.now();
-				var backupSaveFile = saveFile.resolveSibling(
-						now.format(FileUtils.DATE_TIME_FORMATTER) + "_" + saveFile.getFileName()
-								+ ".backup"
-				);
-				Log.info("Shopkeeper data migrated. Writing backup to "
-						+ PluginUtils.relativize(plugin, backupSaveFile));
+		// If there is an up-to-date binary snapshot of the save file, we load the data from the
+		// snapshot instead of parsing the save file:
+		boolean loadedFromBinarySnapshot = false;
+		if (Settings.saveBinarySnapshot && saveFile.equals(this.saveFile)) {
+			loadedFromBinarySnapshot = this.loadBinarySnapshot();
+		}
 
-				try {
-					// Error if a file already exists at the destination:
-					Files.copy(saveFile, backupSaveFile);
-				} catch (Exception e) {
-					Log.severe("Failed to write backup file!", e);
-					return false; // Disable without save
+		if (!loadedFromBinarySnapshot) {
+			try (Reader reader = Files.newBufferedReader(saveFile, StandardCharsets.UTF_8)) {
+				var content = FileUtils.read(reader);
+
+				// Apply string-based migrations:
+				var migratedContent = RawDataMigrations.applyMigrations(content);
+				rawDataMigrated = !content.equals(migratedContent);
+
+				if (rawDataMigrated) {
+					var now = LocalDateTime.now();
+					var backupSaveFile = saveFile.resolveSibling(
+							now.format(FileUtils.DATE_TIME_FORMATTER) + "_" + saveFile.getFileName()
+									+ ".backup"
+					);
+					Log.info("Shopkeeper data migrated. Writing backup to "
+							+ PluginUtils.relativize(plugin, backupSaveFile));
+
+					try {
+						// Error if a file already exists at the destination:
+						Files.copy(saveFile, backupSaveFile);
+					} catch (Exception e) {
+						Log.severe("Failed to write backup file!", e);
+						return false; // Disable without save
+					}
 				}
-			}
 
-			// If a migration was applied, write the intermediate result to disk for debugging
-			// purposes (e.g. if the subsequent loading fails):
-			if (Debug.isDebugging() && rawDataMigrated) {
-				var migratedSaveFile = saveFile.resolveSibling(saveFile.getFileName() + ".migrated");
-				Log.info("Writing migrated save file to "
-						+ PluginUtils.relativize(plugin, migratedSaveFile));
-				try {
-					FileUtils.writeSafely(
-							migratedSaveFile,
-							migratedContent,
-							StandardCharsets.UTF_8,
-							Log.getLogger(),
-							getPluginDataFolder()
+				// If a migration was applied, write the intermediate result to disk for debugging
+				// purposes (e.g. if the subsequent loading fails):
+				if (Debug.isDebugging() && rawDataMigrated) {
+					var migratedSaveFile = saveFile.resolveSibling(
+							saveFile.getFileName() + ".migrated"
 					);
-				} catch (Exception e) {
-					Log.warning("Failed to write migrated save file ("
-							+ PluginUtils.relativize(plugin, migratedSaveFile)
-							+ "). This file is only written for debugging purposes."
-							+ " Continuing the data loading ...", e);
+					Log.info("Writing migrated save file to "
+							+ PluginUtils.relativize(plugin, migratedSaveFile));
+					try {
+						FileUtils.writeSafely(
+								migratedSaveFile,
+								migratedContent,
+								StandardCharsets.UTF_8,
+								Log.getLogger(),
+								getPluginDataFolder()
+						);
+					} catch (Exception e) {
+						Log.warning("Failed to write migrated save file ("
+								+ PluginUtils.relativize(plugin, migratedSaveFile)
+								+ "). This file is only written for debugging purposes."
+								+ " Continuing the data loading ...", e);
+					}
 				}
-			}
 
-			// Since Bukkit 1.16.5, this automatically clears the save data before loading the new
-			// entries:
-			saveData.loadFromString(migratedContent);
-		} catch (InvalidDataFormatException e) {
-			Log.severe("Failed to load the save file! Note: Server downgrades or manually "
-					+ "editing the save file are not supported!", e);
-			return false; // Disable without save
-		} catch (Exception e) {
-			Log.severe("Failed to load the save file!", e);
-			return false; // Disable without save
+				// Since Bukkit 1.16.5, this automatically clears the save data before loading the
+				// new entries:
+				saveData.loadFromString(migratedContent);
+			} catch (InvalidDataFormatException e) {
+				Log.severe("Failed to load the save file! Note: Server downgrades or manually "
+						+ "editing the save file are not supported!", e);
+				return false; // Disable without save
+			} catch (Exception e) {
+				Log.severe("Failed to load the save file!", e);
+				return false; // Disable without save
+			}
 		}
 
 		// Insert the data version as the first (top) entry:
@@ -558,6 +646,26 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		return true;
 	}
 
+	// Returns true if the save data has been loaded from the binary snapshot.
+	private boolean loadBinarySnapshot() {
+		long startNanos = System.nanoTime();
+		Map<String, @Nullable Object> snapshotData;
+		try {
+			snapshotData = binarySnapshot.load(DataVersion.current().toString(), saveFile);
+		} catch (Exception e) {
+			Log.warning("Failed to load the binary save snapshot! Loading the save file instead.",
+					e);
+			return false;
+		}
+		if (snapshotData == null) return false; // No up-to-date snapshot
+
+		saveData.clear();
+		saveData.setAll(snapshotData);
+		Log.info("Loaded the shopkeeper data from the binary save snapshot ("
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms).");
+		return true;
+	}
+
 	private @Nullable ShopkeeperData getShopkeeperData(int shopkeeperId) {
 		DataContainer shopkeeperDataContainer = saveData.getContainer(String.valueOf(shopkeeperId));
 		if (shopkeeperDataContainer == null) {
@@ -705,6 +813,9 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 				// The next save removes the data from the save file on disk:
 				unsavedDeletedShopkeepers.add(shopkeeperId);
+
+				// Deletions are persisted with priority:
+				saveScheduler.requestSave(SaveScheduler.Priority.HIGH);
 			}
 
 			// Remove the shopkeeper from the dirty and unsaved shopkeepers (there is no need to
@@ -810,23 +921,39 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	@Override
 	public void saveDelayed() {
 		this.requestSave();
-		if (Settings.saveInstantly && delayedSaveTask == null) {
-			new DelayedSaveTask().start();
+		if (Settings.saveInstantly) {
+			// This coalesces with any already scheduled save:
+			saveScheduler.requestSave(SaveScheduler.Priority.NORMAL);
 		} // Else: The periodic save task will trigger a save at some point.
 	}
 
-	private class DelayedSaveTask implements Runnable {
-
-		void start() {
-			assert delayedSaveTask == null;
-			delayedSaveTask = SchedulerUtils.runGlobalTaskScheduler(plugin, this, DELAYED_SAVE_TICKS);
-		}
+	/**
+	 * Requests a delayed save that is performed with a shorter delay than
+	 * {@link #saveDelayed()}.
+	 * <p>
+	 * This is meant for data changes that are more costly to lose, such as changes of shop
+	 * ownership. Like {@link #saveDelayed()}, this respects the minimum interval between
+	 * consecutive saves, and only schedules a save if {@link Settings#saveInstantly} is enabled.
+	 */
+	public void saveSoon() {
+		this.requestSave();
+		if (Settings.saveInstantly) {
+			saveScheduler.requestSave(SaveScheduler.Priority.HIGH);
+		} // Else: The periodic save task will trigger a save at some point.
+	}
 
-		@Override
-		public void run() {
-			delayedSaveTask = null;
-			saveIfDirty();
+	/**
+	 * Gets a summary of the statistics about the recently requested and performed saves.
+	 * 
+	 * @return the save statistics summary
+	 */
+	public String getSaveStatisticsString() {
+		String statistics = saveStatistics.getStatisticsString();
+		if (Settings.saveInstantly) {
+			statistics += ", avg tick: " + TextUtils.format(saveScheduler.getAverageTickMillis())
+					+ " ms";
 		}
+		return statistics;
 	}
 
 	@Override
@@ -868,18 +995,27 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		Set<AbstractShopkeeper> savingDirtyShopkeepers = new LinkedHashSet<>();
 		// The shopkeepers that we were not able to save for some reason:
 		private final Set<AbstractShopkeeper> failedToSave = new LinkedHashSet<>();
+		// The shopkeepers whose serialization by their regions did not complete in time for this
+		// save:
+		private final Set<AbstractShopkeeper> deferredShopkeepers = new LinkedHashSet<>();
+		// Completes once the regions have serialized the dirty shopkeepers of this save:
+		private CompletableFuture<?> asyncPreparation = CompletableFuture.completedFuture(null);
 
 		/* Last save */
 		// These variables get replaced during the next save.
 		// Note: Explicit synchronization is not needed for these variables, because they already
-		// get synchronized before they are used, either by the Bukkit Scheduler (when starting the
-		// async task and when going back to the main thread by starting a sync task), or/and via
-		// synchronization with the save task's lock.
+		// get synchronized before they are used, either by the IO executor (when submitting the
+		// execution), the global region scheduler (when going back to the global region thread for
+		// the sync callback), or/and via the completion of the execution when it is awaited.
 		private boolean savingSucceeded = false;
 		private long lastSaveErrorMsgMillis = 0L;
+		// Captured during preparation, so that the setting remains constant during the save:
+		private boolean writeBinarySnapshot = false;
+		private long lastSnapshotCompactionMillis = System.currentTimeMillis();
+		private boolean snapshotCompactionDue = false;
 
-		SaveTask(Plugin plugin) {
-			super(plugin);
+		SaveTask(SKShopkeepersPlugin plugin) {
+			super(plugin, plugin.getIOExecutor());
 		}
 
 		void onDisable() {
@@ -904,17 +1040,18 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 		@Override
 		protected void prepare() {
-			// Stop any active delayed save task:
-			if (delayedSaveTask != null) {
-				delayedSaveTask.cancel();
-				delayedSaveTask = null;
-			}
+			// This save covers any scheduled delayed save:
+			saveScheduler.onSaveStarted();
 
 			// Set up the file header:
 			// This replaces any previously existing and loaded header and thereby ensures that it
 			// is always up-to-date after we have saved the file.
 			saveData.getConfig().options().setHeader(HEADER);
 
+			writeBinarySnapshot = Settings.saveBinarySnapshot;
+			snapshotCompactionDue = (System.currentTimeMillis() - lastSnapshotCompactionMillis
+					>= SNAPSHOT_COMPACTION_INTERVAL_MILLIS);
+
 			// Reset the pendingSaveRequest flag here (and not just after a successful save), so
 			// that we can track any save requests that occur in the meantime, which require another
 			// save later:
@@ -928,44 +1065,106 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			dirtyShopkeepers = newDirtyShopkeepers;
 
 			// Save the data of dirty shopkeepers:
-			assert failedToSave.isEmpty();
-			savingDirtyShopkeepers.forEach(this::saveShopkeeper);
+			// For async saves, the shopkeepers are serialized on their owning regions, and the
+			// execution is only started once the regions are done. Sync saves, such as during
+			// plugin disable, serialize the shopkeepers on the current thread.
+			assert failedToSave.isEmpty() && deferredShopkeepers.isEmpty();
+			asyncPreparation = snapshotPreparer.prepare(
+					savingDirtyShopkeepers,
+					this.isAsyncExecution(),
+					this::createSnapshot,
+					this::mergeSnapshot
+			);
 		}
 
-		private void saveShopkeeper(AbstractShopkeeper shopkeeper) {
-			// Note: The shopkeeper might no longer be valid (loaded).
-			assert shopkeeper.isDirty();
-			String key = String.valueOf(shopkeeper.getId());
-			Object previousData = saveData.get(key);
-			// This replaces the previous shopkeeper data:
-			ShopkeeperData newData = ShopkeeperData.ofNonNull(saveData.createContainer(key));
+		@Override
+		protected CompletableFuture<?> getAsyncPreparation() {
+			return asyncPreparation;
+		}
+
+		// Potentially run on the region thread that owns the shopkeeper. Returns null if the
+		// shopkeeper could not be saved.
+		private @Nullable DataContainer createSnapshot(AbstractShopkeeper shopkeeper) {
+			// Note: The shopkeeper might no longer be valid (loaded). It might also no longer be
+			// marked as dirty, if its serialization was deferred during the previous save, but its
+			// region still serialized it afterwards.
+			DataContainer snapshot = DataContainer.create();
+			ShopkeeperData newData = ShopkeeperData.ofNonNull(snapshot);
 			try {
 				shopkeeper.save(newData, false); // May reference externally stored data
 			} catch (Exception e) {
-				// Error while saving shopkeeper data:
-				// Restore previous shopkeeper data and then skip this shopkeeper.
-				saveData.set(key, previousData);
+				// Error while saving shopkeeper data: Skip this shopkeeper.
 				Log.warning(shopkeeper.getLogPrefix() + "Saving failed!", e);
-				// We remember the shopkeeper and keep it marked as dirty, so that the next save of
-				// all shopkeepers attempts to save it again.
-				// However, we won't automatically initiate a new save for this shopkeeper as the
-				// risk is high that saving will fail again anyway.
-				failedToSave.add(shopkeeper);
-				return;
+				return null;
 			}
 
 			// Remove the separately stored shopkeeper id from the shopkeeper data:
 			newData.set(AbstractShopkeeper.ID.getUnvalidatedSaver(), null);
 
-			// We transferred the shopkeeper's data into the storage. Reset the shopkeeper's dirty
-			// flag:
+			// We captured the shopkeeper's data. Reset the shopkeeper's dirty flag:
+			// This happens on the thread that owns the shopkeeper, so that we do not miss any
+			// concurrent changes to the shopkeeper.
 			shopkeeper.onSave();
+			return snapshot;
+		}
+
+		private void mergeSnapshot(AbstractShopkeeper shopkeeper, @Nullable DataContainer snapshot) {
+			if (snapshot == null) {
+				// We keep the previous shopkeeper data, remember the shopkeeper, and keep it marked
+				// as dirty, so that the next save of all shopkeepers attempts to save it again.
+				// However, we won't automatically initiate a new save for this shopkeeper as the
+				// risk is high that saving will fail again anyway.
+				failedToSave.add(shopkeeper);
+				return;
+			}
+
+			// This replaces the previous shopkeeper data:
+			String key = String.valueOf(shopkeeper.getId());
+			saveData.set(key, snapshot.serialize());
 		}
 
 		// Can be run async or sync.
 		@Override
 		protected void execute() {
+			// Merge the snapshots that have been created by the regions:
+			snapshotPreparer.complete(this::mergeSnapshot, deferredShopkeepers::add);
+
 			savingSucceeded = this.saveToFile(saveData);
+			if (savingSucceeded) {
+				this.updateBinarySnapshot();
+
+				// Periodically remove no longer referenced snapshot records: Only if the saved data
+				// includes the latest data of all previously dirty shopkeepers. The records that
+				// have been appended during this session might not be referenced by the save data
+				// yet and are therefore kept.
+				if (snapshotCompactionDue
+						&& failedToSave.isEmpty() && deferredShopkeepers.isEmpty()) {
+					lastSnapshotCompactionMillis = System.currentTimeMillis();
+					SKShopkeeperStorage.this.compactSnapshotStore(false);
+				}
+			}
+		}
+
+		// Writes the binary snapshot of the just saved data, or removes any previous snapshot if
+		// binary snapshots are disabled.
+		private void updateBinarySnapshot() {
+			if (!writeBinarySnapshot) {
+				binarySnapshot.delete();
+				return;
+			}
+
+			String dataVersion = saveData.getString(DATA_VERSION_KEY);
+			if (dataVersion == null) {
+				dataVersion = DataVersion.current().toString();
+			}
+			try {
+				binarySnapshot.write(saveData.getValues(), dataVersion, saveFile);
+			} catch (Exception e) {
+				// The shopkeeper data has nevertheless been saved to the save file. We remove any
+				// previous snapshot, so that it is not mistaken for the current data:
+				Log.warning("Failed to write the binary save snapshot!", e);
+				binarySnapshot.delete();
+			}
 		}
 
 		// Returns true if the saving was successful.
@@ -1068,6 +1267,12 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		protected void syncCallback() {
 			// Print debug info:
 			printDebugInfo();
+			saveStatistics.onSaveCompleted(
+					savingDirtyShopkeepers.size() + unsavedDeletedShopkeepers.size(),
+					this.getTotalDuration(),
+					this.getPreparationDuration(),
+					savingSucceeded
+			);
 
 			if (savingSucceeded) {
 				// Saving succeeded:
@@ -1098,6 +1303,7 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					// The 'unsaved' shopkeepers only contains the shopkeepers whose data we
 					// transferred, but failed to persist.
 					if (failedToSave.contains(shopkeeper)) return;
+					if (deferredShopkeepers.contains(shopkeeper)) return;
 
 					// Ignore the shopkeeper if it has been marked as dirty again in the meantime:
 					if (dirtyShopkeepers.contains(shopkeeper)) return;
@@ -1114,6 +1320,11 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			// Transfer the shopkeepers that we failed to save to the dirty shopkeepers:
 			dirtyShopkeepers.addAll(failedToSave);
 			failedToSave.clear();
+
+			// The deferred shopkeepers are saved again with the next save:
+			boolean saveDeferredShopkeepers = !deferredShopkeepers.isEmpty();
+			dirtyShopkeepers.addAll(deferredShopkeepers);
+			deferredShopkeepers.clear();
 			// Note: Any shopkeepers that have been deleted in the meantime are removed again from
 			// the dirtyShopkeepers when the shopkeepersToDelete are processed in the following.
 
@@ -1126,6 +1337,9 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 			// Any other remaining post-processing that should happen after the storage's state has
 			// been updated:
+			if (savingSucceeded && saveDeferredShopkeepers) {
+				saveDelayed();
+			}
 			if (!savingSucceeded) {
 				// Attempt the save again after a short delay (this requests another save):
 				// However, during the final save attempt during plugin disable, this is skipped and
@@ -1171,9 +1385,19 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					sb.append(", ").append(failedToSave.size()).append(" failed to save");
 				}
 
+				// Deferred to the next save:
+				if (!deferredShopkeepers.isEmpty()) {
+					sb.append(", ").append(deferredShopkeepers.size()).append(" deferred");
+				}
+
 				// Timing summary:
+				// The preparation (serialization of the shopkeepers) and the execution (writing of
+				// the save file) are listed separately.
 				sb.append("): ");
 				sb.append(this.getExecutionTimingString());
+				sb.append(" [Preparation: ").append(snapshotPreparer.getStatisticsString()).append("]");
+				sb.append(" [Snapshot store: ").append(snapshotStore.getStatisticsString())
+						.append("]");
 
 				// Failure indicator:
 				if (!savingSucceeded) {
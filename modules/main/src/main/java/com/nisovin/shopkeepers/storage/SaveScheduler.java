@@ -0,0 +1,258 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.debug.DebugOptions;
+import com.nisovin.shopkeepers.util.bukkit.Ticks;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+/**
+ * Schedules the delayed saves of the {@link SKShopkeeperStorage}.
+ * <p>
+ * Shopkeepers can be marked as dirty at a high rate, for example during heavy trading. Instead of
+ * triggering a new save for each delayed save request, the requests are coalesced into a single
+ * scheduled save:
+ * <ul>
+ * <li>There is at most one scheduled save at any time. Any delayed save requests that are
+ * received before the scheduled save is executed are covered by it.
+ * <li>Consecutive saves are separated by at least {@link #MIN_SAVE_INTERVAL_MILLIS}, which bounds
+ * the rate at which the save file is written.
+ * <li>{@link Priority#HIGH High priority} requests, such as for the deletion of shopkeepers or
+ * changes of shop ownership, use a shorter delay and can move an already scheduled save forward.
+ * <li>When the server is under high tick load, the delay of {@link Priority#NORMAL normal}
+ * requests is extended, up to {@link #MAX_SAVE_DELAY_MILLIS}.
+ * </ul>
+ * <p>
+ * The save requests are recorded in the {@link SaveStatistics} of the storage.
+ * <p>
+ * The save requests can be submitted from any thread. The saves themselves are triggered on the
+ * global region thread.
+ */
+final class SaveScheduler {
+
+	/**
+	 * The priority of a save request.
+	 */
+	enum Priority {
+		/**
+		 * Regular data changes that can be persisted at some point.
+		 */
+		NORMAL,
+		/**
+		 * Data changes that are more costly to lose, such as the deletion of shopkeepers or changes
+		 * of shop ownership.
+		 */
+		HIGH;
+	}
+
+	private static final long NORMAL_SAVE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+	private static final long HIGH_PRIORITY_SAVE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(2L);
+	private static final long MIN_SAVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10L);
+	private static final long MAX_SAVE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(3L);
+
+	// The tick load is sampled once per second. Each sample is weighted into the average tick
+	// duration, so that single lag spikes do not immediately affect the save delays.
+	private static final int LOAD_SAMPLE_PERIOD_TICKS = 20;
+	private static final double LOAD_SAMPLE_WEIGHT = 0.25D;
+	// Above this average tick duration (~16 TPS), normal save requests are delayed further:
+	private static final double HIGH_LOAD_TICK_MILLIS = 60.0D;
+	private static final double MAX_LOAD_BACKOFF_FACTOR = 6.0D;
+
+	private final Plugin plugin;
+	private final Runnable saveAction;
+	private final SaveStatistics statistics;
+
+	private boolean enabled = false;
+	private @Nullable ScheduledTask loadSamplingTask = null;
+
+	/* Scheduled save */
+	private @Nullable ScheduledTask scheduledSaveTask = null;
+	// Only valid if there is a scheduled save:
+	private long scheduledSaveNanos;
+	private long lastSaveNanos;
+
+	/* Tick load */
+	private long lastLoadSampleNanos;
+	private double averageTickMillis = Ticks.DURATION_MILLIS;
+
+	/**
+	 * Creates a new {@link SaveScheduler}.
+	 *
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param saveAction
+	 *            the action that triggers the save, invoked on the global region thread, not
+	 *            <code>null</code>
+	 * @param statistics
+	 *            the statistics that the save requests are recorded in, not <code>null</code>
+	 */
+	SaveScheduler(Plugin plugin, Runnable saveAction, SaveStatistics statistics) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(saveAction, "saveAction is null");
+		Validate.notNull(statistics, "statistics is null");
+		this.plugin = plugin;
+		this.saveAction = saveAction;
+		this.statistics = statistics;
+	}
+
+	synchronized void onEnable() {
+		if (enabled) return;
+		enabled = true;
+
+		long nowNanos = System.nanoTime();
+		// Allow the first save right away:
+		lastSaveNanos = nowNanos - TimeUnit.MILLISECONDS.toNanos(MIN_SAVE_INTERVAL_MILLIS);
+		lastLoadSampleNanos = nowNanos;
+		averageTickMillis = Ticks.DURATION_MILLIS;
+
+		loadSamplingTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, task -> {
+			this.sampleTickLoad();
+		}, LOAD_SAMPLE_PERIOD_TICKS, LOAD_SAMPLE_PERIOD_TICKS);
+	}
+
+	synchronized void onDisable() {
+		if (!enabled) return;
+		enabled = false;
+
+		if (loadSamplingTask != null) {
+			loadSamplingTask.cancel();
+			loadSamplingTask = null;
+		}
+		this.cancelScheduledSave();
+	}
+
+	// TICK LOAD
+
+	private synchronized void sampleTickLoad() {
+		long nowNanos = System.nanoTime();
+		double sampleTickMillis = (double) (nowNanos - lastLoadSampleNanos)
+				/ TimeUnit.MILLISECONDS.toNanos(1L) / LOAD_SAMPLE_PERIOD_TICKS;
+		lastLoadSampleNanos = nowNanos;
+		averageTickMillis += LOAD_SAMPLE_WEIGHT * (sampleTickMillis - averageTickMillis);
+	}
+
+	/**
+	 * Gets the sampled average tick duration of the global region.
+	 *
+	 * @return the average tick duration in milliseconds
+	 */
+	synchronized double getAverageTickMillis() {
+		return averageTickMillis;
+	}
+
+	// Returns a factor >= 1 by which normal save requests are delayed.
+	private double getLoadBackoffFactor() {
+		if (averageTickMillis <= HIGH_LOAD_TICK_MILLIS) return 1.0D;
+		double factor = averageTickMillis / Ticks.DURATION_MILLIS;
+		return Math.min(factor * factor, MAX_LOAD_BACKOFF_FACTOR);
+	}
+
+	// SCHEDULING
+
+	/**
+	 * Requests a delayed save with the given priority.
+	 * <p>
+	 * If there already is a scheduled save that is executed no later than the save that this
+	 * request would schedule, this request is covered by the already scheduled save.
+	 *
+	 * @param priority
+	 *            the priority, not <code>null</code>
+	 */
+	synchronized void requestSave(Priority priority) {
+		Validate.notNull(priority, "priority is null");
+		if (!enabled) return;
+
+		long delayMillis;
+		boolean backedOff = false;
+		if (priority == Priority.HIGH) {
+			delayMillis = HIGH_PRIORITY_SAVE_DELAY_MILLIS;
+		} else {
+			delayMillis = NORMAL_SAVE_DELAY_MILLIS;
+			double backoffFactor = this.getLoadBackoffFactor();
+			if (backoffFactor > 1.0D) {
+				backedOff = true;
+				delayMillis = Math.min((long) (delayMillis * backoffFactor), MAX_SAVE_DELAY_MILLIS);
+			}
+		}
+
+		long nowNanos = System.nanoTime();
+		long saveNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		// Bound the write rate:
+		long earliestSaveNanos = lastSaveNanos
+				+ TimeUnit.MILLISECONDS.toNanos(MIN_SAVE_INTERVAL_MILLIS);
+		if (saveNanos - earliestSaveNanos < 0) {
+			saveNanos = earliestSaveNanos;
+		}
+
+		if (scheduledSaveTask != null) {
+			if (scheduledSaveNanos - saveNanos <= 0) {
+				// Covered by the already scheduled save:
+				statistics.onSaveRequested(priority, backedOff, true);
+				return;
+			}
+			// Move the scheduled save forward:
+			this.cancelScheduledSave();
+		}
+		statistics.onSaveRequested(priority, backedOff, false);
+
+		long delayTicks = Math.max(1L, Ticks.fromNanos(saveNanos - nowNanos));
+		try {
+			scheduledSaveTask = Bukkit.getGlobalRegionScheduler().runDelayed(plugin, task -> {
+				this.runScheduledSave(task);
+			}, delayTicks);
+			scheduledSaveNanos = saveNanos;
+			Log.debug(DebugOptions.saveScheduling, () -> "Scheduled " + priority + " priority save in "
+					+ delayTicks + " ticks.");
+		} catch (IllegalPluginAccessException e) {
+			// Couldn't register task: The plugin got disabled just now.
+			scheduledSaveTask = null;
+		}
+	}
+
+	private void runScheduledSave(ScheduledTask task) {
+		synchronized (this) {
+			// Ignore the task if it has been replaced in the meantime:
+			if (scheduledSaveTask != task) return;
+			scheduledSaveTask = null;
+		}
+		// Not synchronized: The save may invoke callbacks of this scheduler.
+		saveAction.run();
+	}
+
+	private void cancelScheduledSave() {
+		if (scheduledSaveTask != null) {
+			scheduledSaveTask.cancel();
+			scheduledSaveTask = null;
+		}
+	}
+
+	/**
+	 * Checks if there currently is a scheduled save.
+	 *
+	 * @return <code>true</code> if a save is scheduled
+	 */
+	synchronized boolean isSaveScheduled() {
+		return (scheduledSaveTask != null);
+	}
+
+	// SAVE CALLBACKS
+
+	/**
+	 * Informs this scheduler that a save is about to be prepared, regardless of whether it was
+	 * triggered by this scheduler.
+	 * <p>
+	 * Any scheduled save is cancelled, since it is covered by this save.
+	 */
+	synchronized void onSaveStarted() {
+		lastSaveNanos = System.nanoTime();
+		this.cancelScheduledSave();
+	}
+}
@@ -0,0 +1,174 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import com.nisovin.shopkeepers.debug.DebugOptions;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Keeps statistics about the requested and performed saves of the {@link SKShopkeeperStorage}.
+ * <p>
+ * The saves are recorded by the save task, regardless of whether the saves are triggered by the
+ * {@link SaveScheduler} or by the periodic save task. The statistics are reset with each statistics
+ * period, and logged when the period ends if the {@link DebugOptions#saveScheduling} debug option
+ * is enabled.
+ * <p>
+ * This class is thread-safe.
+ */
+final class SaveStatistics {
+
+	private static final long STATISTICS_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+
+	// Reset with each statistics period:
+	private long statisticsPeriodStartNanos = System.nanoTime();
+	private int requestsCount;
+	private int coalescedRequestsCount;
+	private int highPriorityRequestsCount;
+	private int backedOffRequestsCount;
+	private int savesCount;
+	private int failedSavesCount;
+	private long totalSaveDurationMillis;
+	private long maxSaveDurationMillis;
+	private long totalPreparationDurationMillis;
+	private long maxPreparationDurationMillis;
+	private int maxSavedShopkeepersCount;
+	// Not reset with each statistics period:
+	private long lastSaveDurationMillis;
+	private int lastSavedShopkeepersCount;
+
+	SaveStatistics() {
+	}
+
+	/**
+	 * Resets all statistics and starts a new statistics period.
+	 */
+	synchronized void reset() {
+		this.resetPeriod(System.nanoTime());
+		lastSaveDurationMillis = 0L;
+		lastSavedShopkeepersCount = 0;
+	}
+
+	private void resetPeriod(long nowNanos) {
+		statisticsPeriodStartNanos = nowNanos;
+		requestsCount = 0;
+		coalescedRequestsCount = 0;
+		highPriorityRequestsCount = 0;
+		backedOffRequestsCount = 0;
+		savesCount = 0;
+		failedSavesCount = 0;
+		totalSaveDurationMillis = 0L;
+		maxSaveDurationMillis = 0L;
+		totalPreparationDurationMillis = 0L;
+		maxPreparationDurationMillis = 0L;
+		maxSavedShopkeepersCount = 0;
+	}
+
+	/**
+	 * Records a delayed save request.
+	 *
+	 * @param priority
+	 *            the priority of the request, not <code>null</code>
+	 * @param backedOff
+	 *            <code>true</code> if the request was delayed further due to a high tick load
+	 * @param coalesced
+	 *            <code>true</code> if the request was covered by an already scheduled save
+	 */
+	synchronized void onSaveRequested(
+			SaveScheduler.Priority priority,
+			boolean backedOff,
+			boolean coalesced
+	) {
+		requestsCount++;
+		if (priority == SaveScheduler.Priority.HIGH) {
+			highPriorityRequestsCount++;
+		}
+		if (backedOff) {
+			backedOffRequestsCount++;
+		}
+		if (coalesced) {
+			coalescedRequestsCount++;
+		}
+	}
+
+	/**
+	 * Records a completed save.
+	 * <p>
+	 * If the current statistics period has ended, the statistics are logged and a new period is
+	 * started.
+	 *
+	 * @param savedShopkeepersCount
+	 *            the number of dirty and deleted shopkeepers that were processed by the save
+	 * @param durationMillis
+	 *            the total duration of the save in milliseconds
+	 * @param preparationDurationMillis
+	 *            the part of the total duration that was spent preparing the save data, in
+	 *            milliseconds
+	 * @param succeeded
+	 *            <code>true</code> if the save succeeded
+	 */
+	synchronized void onSaveCompleted(
+			int savedShopkeepersCount,
+			long durationMillis,
+			long preparationDurationMillis,
+			boolean succeeded
+	) {
+		savesCount++;
+		if (!succeeded) {
+			failedSavesCount++;
+		}
+		totalSaveDurationMillis += durationMillis;
+		if (durationMillis > maxSaveDurationMillis) {
+			maxSaveDurationMillis = durationMillis;
+		}
+		totalPreparationDurationMillis += preparationDurationMillis;
+		if (preparationDurationMillis > maxPreparationDurationMillis) {
+			maxPreparationDurationMillis = preparationDurationMillis;
+		}
+		if (savedShopkeepersCount > maxSavedShopkeepersCount) {
+			maxSavedShopkeepersCount = savedShopkeepersCount;
+		}
+		lastSaveDurationMillis = durationMillis;
+		lastSavedShopkeepersCount = savedShopkeepersCount;
+
+		long nowNanos = System.nanoTime();
+		long statisticsPeriodNanos = nowNanos - statisticsPeriodStartNanos;
+		if (statisticsPeriodNanos >= TimeUnit.MILLISECONDS.toNanos(STATISTICS_PERIOD_MILLIS)) {
+			Log.debug(DebugOptions.saveScheduling,
+					() -> "Save statistics: " + this.getStatisticsString()
+			);
+			this.resetPeriod(nowNanos);
+		}
+	}
+
+	/**
+	 * Gets a summary of the save statistics of the current statistics period.
+	 *
+	 * @return the statistics summary
+	 */
+	synchronized String getStatisticsString() {
+		long periodMillis = TimeUnit.NANOSECONDS.toMillis(
+				System.nanoTime() - statisticsPeriodStartNanos
+		);
+		double periodMinutes = Math.max(periodMillis, 1L) / 60000.0D;
+		double avgSaveDurationMillis = (double) totalSaveDurationMillis / Math.max(savesCount, 1);
+		double avgPreparationDurationMillis = (double) totalPreparationDurationMillis
+				/ Math.max(savesCount, 1);
+		return "period " + TextUtils.format(periodMinutes) + " min"
+				+ ", requests (total | coalesced | high priority | backed off): "
+				+ requestsCount + " | " + coalescedRequestsCount
+				+ " | " + highPriorityRequestsCount + " | " + backedOffRequestsCount
+				+ ", saves (count | failed | per min): "
+				+ savesCount + " | " + failedSavesCount
+				+ " | " + TextUtils.format(savesCount / periodMinutes)
+				+ ", save duration (avg | max | last): "
+				+ TextUtils.format(avgSaveDurationMillis) + " ms"
+				+ " | " + maxSaveDurationMillis + " ms"
+				+ " | " + lastSaveDurationMillis + " ms"
+				+ ", preparation (avg | max): "
+				+ TextUtils.format(avgPreparationDurationMillis) + " ms"
+				+ " | " + maxPreparationDurationMillis + " ms"
+				+ ", saved shopkeepers (max | last): "
+				+ maxSavedShopkeepersCount + " | " + lastSavedShopkeepersCount;
+	}
+}
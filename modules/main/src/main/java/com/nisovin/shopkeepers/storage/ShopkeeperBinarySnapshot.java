@@ -0,0 +1,401 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * A compact binary copy of the shopkeeper save data that is written alongside the save file.
+ * <p>
+ * The snapshot stores one length-prefixed record per top-level entry of the save data (i.e. per
+ * shopkeeper, plus the data version). The record values are stored in a structured binary format
+ * that mirrors the types that can be stored inside the save file: Strings, numbers, booleans,
+ * lists, maps, and {@link ConfigurationSerializable}s such as item stacks.
+ * <p>
+ * When the shopkeeper data is loaded, the snapshot is memory-mapped and its records are decoded
+ * in parallel. This avoids reading the whole save file into memory and parsing it as YAML.
+ * However, the save file remains the authoritative copy of the shopkeeper data: The snapshot is
+ * only used if it has been written for the current version of the save file (i.e. the save file
+ * has not been modified since then) and by the current data version. Otherwise, the data is
+ * loaded from the save file as usual, which also applies any data migrations.
+ */
+final class ShopkeeperBinarySnapshot {
+
+	private static final int MAGIC = 0x534B4253; // "SKBS"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INTEGER = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_FLOAT = 5;
+	private static final byte TYPE_BOOLEAN = 6;
+	private static final byte TYPE_LIST = 7;
+	private static final byte TYPE_MAP = 8;
+	private static final byte TYPE_SERIALIZABLE = 9;
+
+	private static final class RecordSlice {
+
+		private final String key;
+		private final ByteBuffer data;
+
+		RecordSlice(String key, ByteBuffer data) {
+			this.key = key;
+			this.data = data;
+		}
+	}
+
+	private final Path file;
+
+	ShopkeeperBinarySnapshot(Path file) {
+		Validate.notNull(file, "file is null");
+		this.file = file;
+	}
+
+	/**
+	 * Gets the path of the snapshot file.
+	 *
+	 * @return the snapshot file
+	 */
+	Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Deletes the snapshot file, if it exists.
+	 */
+	void delete() {
+		try {
+			FileUtils.deleteIfExists(file);
+		} catch (IOException e) {
+			Log.warning("Failed to delete the binary save snapshot!", e);
+		}
+	}
+
+	/**
+	 * Writes the given save data to the snapshot file.
+	 * <p>
+	 * This is expected to be called after the given save data has been successfully written to
+	 * the given save file. The snapshot is first written to a temporary file, which then replaces
+	 * any previous snapshot.
+	 *
+	 * @param saveData
+	 *            the top-level entries of the save data, not <code>null</code>
+	 * @param dataVersion
+	 *            the data version of the save data, not <code>null</code>
+	 * @param saveFile
+	 *            the save file that contains the same data, not <code>null</code>
+	 * @throws IOException
+	 *             if the snapshot cannot be written, or the save data contains values that cannot
+	 *             be stored in the binary format
+	 */
+	void write(Map<? extends String, ?> saveData, String dataVersion, Path saveFile)
+			throws IOException {
+		Validate.notNull(saveData, "saveData is null");
+		Validate.notNull(dataVersion, "dataVersion is null");
+		Validate.notNull(saveFile, "saveFile is null");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeString(out, dataVersion);
+		out.writeLong(Files.size(saveFile));
+		out.writeLong(Files.getLastModifiedTime(saveFile).toMillis());
+		out.writeInt(saveData.size());
+
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream recordOut = new DataOutputStream(recordBytes);
+		for (Entry<? extends String, ?> entry : saveData.entrySet()) {
+			recordBytes.reset();
+			writeValue(recordOut, entry.getValue());
+			recordOut.flush();
+
+			writeString(out, entry.getKey());
+			out.writeInt(recordBytes.size());
+			recordBytes.writeTo(out);
+		}
+		out.flush();
+
+		Path tempFile = FileUtils.getTempSibling(file);
+		FileUtils.createParentDirectories(tempFile);
+		try (FileChannel channel = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE
+		)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		FileUtils.moveFile(tempFile, file, Log.getLogger());
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] stringBytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(stringBytes.length);
+		out.write(stringBytes);
+	}
+
+	private static void writeValue(DataOutputStream out, @Nullable Object value)
+			throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+		} else if (value instanceof String) {
+			out.writeByte(TYPE_STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.writeByte(TYPE_INTEGER);
+			out.writeInt(((Number) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(TYPE_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(TYPE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(TYPE_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(TYPE_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			out.writeByte(TYPE_LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				writeValue(out, element);
+			}
+		} else if (value instanceof ConfigurationSection) {
+			out.writeByte(TYPE_MAP);
+			writeMap(out, ((ConfigurationSection) value).getValues(false));
+		} else if (value instanceof Map) {
+			out.writeByte(TYPE_MAP);
+			writeMap(out, (Map<?, ?>) value);
+		} else if (value instanceof ConfigurationSerializable) {
+			ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+			out.writeByte(TYPE_SERIALIZABLE);
+			writeString(out, ConfigurationSerialization.getAlias(serializable.getClass()));
+			writeMap(out, serializable.serialize());
+		} else {
+			throw new IOException("Unsupported value type: " + value.getClass().getName());
+		}
+	}
+
+	private static void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+		out.writeInt(map.size());
+		for (Entry<?, ?> entry : map.entrySet()) {
+			Object key = entry.getKey();
+			if (!(key instanceof String)) {
+				throw new IOException("Unsupported map key: " + key);
+			}
+			writeString(out, (String) key);
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	/**
+	 * Loads the save data from the snapshot file.
+	 * <p>
+	 * The records are decoded in parallel.
+	 *
+	 * @param dataVersion
+	 *            the current data version, not <code>null</code>
+	 * @param saveFile
+	 *            the save file, not <code>null</code>
+	 * @return the top-level entries of the save data, in their original order, or
+	 *         <code>null</code> if there is no snapshot, or if the snapshot is outdated
+	 * @throws IOException
+	 *             if the snapshot cannot be read or is corrupted
+	 */
+	@Nullable Map<String, @Nullable Object> load(String dataVersion, Path saveFile)
+			throws IOException {
+		Validate.notNull(dataVersion, "dataVersion is null");
+		Validate.notNull(saveFile, "saveFile is null");
+		if (!Files.exists(file) || !Files.exists(saveFile)) return null;
+
+		List<RecordSlice> records;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping remains valid after the channel has been closed:
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY,
+					0L,
+					channel.size()
+			);
+			records = readRecords(buffer, dataVersion, saveFile);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Corrupted binary save snapshot!", e);
+		}
+		if (records == null) return null;
+
+		// Decode the records in parallel:
+		List<@Nullable Object> values;
+		try {
+			values = records.parallelStream().map(record -> {
+				try {
+					return readValue(record.data);
+				} catch (IOException e) {
+					throw new IllegalStateException("Failed to decode record '" + record.key
+							+ "': " + e.getMessage(), e);
+				}
+			}).toList();
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted binary save snapshot!", e);
+		}
+
+		Map<String, @Nullable Object> saveData = new LinkedHashMap<>();
+		for (int i = 0; i < records.size(); i++) {
+			saveData.put(records.get(i).key, values.get(i));
+		}
+		return saveData;
+	}
+
+	// Returns null if the snapshot is outdated.
+	private @Nullable List<RecordSlice> readRecords(
+			ByteBuffer buffer,
+			String dataVersion,
+			Path saveFile
+	) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Invalid binary save snapshot file: " + file);
+		}
+		int formatVersion = buffer.getInt();
+		if (formatVersion != FORMAT_VERSION) {
+			Log.debug("Ignoring binary save snapshot of unsupported format version: "
+					+ formatVersion);
+			return null;
+		}
+		String snapshotDataVersion = readString(buffer);
+		long saveFileSize = buffer.getLong();
+		long saveFileLastModified = buffer.getLong();
+		if (!snapshotDataVersion.equals(dataVersion)
+				|| saveFileSize != Files.size(saveFile)
+				|| saveFileLastModified != Files.getLastModifiedTime(saveFile).toMillis()) {
+			Log.debug("Ignoring outdated binary save snapshot.");
+			return null;
+		}
+
+		int recordCount = buffer.getInt();
+		if (recordCount < 0) {
+			throw new IOException("Invalid record count: " + recordCount);
+		}
+		List<RecordSlice> records = new ArrayList<>(recordCount);
+		for (int i = 0; i < recordCount; i++) {
+			String key = readString(buffer);
+			int length = buffer.getInt();
+			if (length < 0 || length > buffer.remaining()) {
+				throw new IOException("Invalid length of record '" + key + "': " + length);
+			}
+			// Each record is decoded from its own view of the mapped file:
+			ByteBuffer data = buffer.slice(buffer.position(), length);
+			buffer.position(buffer.position() + length);
+			records.add(new RecordSlice(key, data));
+		}
+		return records;
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		ByteBuffer stringBytes = buffer.slice(buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		return StandardCharsets.UTF_8.decode(stringBytes).toString();
+	}
+
+	private static @Nullable Object readValue(ByteBuffer buffer) throws IOException {
+		byte type = buffer.get();
+		switch (type) {
+		case TYPE_NULL:
+			return null;
+		case TYPE_STRING:
+			return readString(buffer);
+		case TYPE_INTEGER:
+			return buffer.getInt();
+		case TYPE_LONG:
+			return buffer.getLong();
+		case TYPE_DOUBLE:
+			return buffer.getDouble();
+		case TYPE_FLOAT:
+			return buffer.getFloat();
+		case TYPE_BOOLEAN:
+			return (buffer.get() != 0);
+		case TYPE_LIST: {
+			int size = readSize(buffer);
+			List<@Nullable Object> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				list.add(readValue(buffer));
+			}
+			return list;
+		}
+		case TYPE_MAP:
+			return readMap(buffer, null);
+		case TYPE_SERIALIZABLE: {
+			String alias = readString(buffer);
+			// Same as when the object is loaded from the save file:
+			Map<String, @Nullable Object> serialized = readMap(buffer, alias);
+			ConfigurationSerializable object = ConfigurationSerialization.deserializeObject(
+					serialized
+			);
+			if (object == null) {
+				throw new IOException("Failed to deserialize object of type '" + alias + "'!");
+			}
+			return object;
+		}
+		default:
+			throw new IOException("Unknown value type: " + type);
+		}
+	}
+
+	private static Map<String, @Nullable Object> readMap(
+			ByteBuffer buffer,
+			@Nullable String serializableAlias
+	) throws IOException {
+		int size = readSize(buffer);
+		Map<String, @Nullable Object> map = new LinkedHashMap<>();
+		if (serializableAlias != null) {
+			map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, serializableAlias);
+		}
+		for (int i = 0; i < size; i++) {
+			String key = readString(buffer);
+			map.put(key, readValue(buffer));
+		}
+		return map;
+	}
+
+	private static int readSize(ByteBuffer buffer) throws IOException {
+		int size = buffer.getInt();
+		// Each element occupies at least one byte:
+		if (size < 0 || size > buffer.remaining()) {
+			throw new IOException("Invalid size: " + size);
+		}
+		return size;
+	}
+}
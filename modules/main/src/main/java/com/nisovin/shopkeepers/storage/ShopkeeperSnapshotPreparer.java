@@ -0,0 +1,309 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Creates the save data snapshots of dirty shopkeepers on the region threads that own them.
+ * <p>
+ * On Folia, the thread that prepares a save does not own the regions of the saved shopkeepers.
+ * Instead of serializing all dirty shopkeepers on the preparing thread, the shopkeepers are
+ * grouped into batches by their region section and each batch is serialized by a task on the
+ * owning region. The serialized data of each shopkeeper is written into a separate snapshot that is
+ * only accessed by the thread that creates it, so no locking is required while serializing. The
+ * preparing thread does not wait for the batches: Once all batches have completed, the save
+ * {@link #complete(BiConsumer, Consumer) completes} by merging the snapshots in a single pass.
+ * <p>
+ * Virtual shopkeepers, shopkeepers in unloaded worlds, and shopkeepers in regions that are owned by
+ * the preparing thread are serialized directly on the preparing thread. If a region does not
+ * process its batch in time, for example because it is being unloaded, the batch expires. The
+ * shopkeepers of expired batches, and of batches that have not completed yet when the save is
+ * completed early, for example during plugin disable, are not serialized by any other thread, but
+ * deferred to the next save.
+ * <p>
+ * This class is not thread-safe: Each preparation is started by a single preparing thread and
+ * afterwards completed by a single thread, and a new preparation is only started after the
+ * previous one has been completed.
+ */
+final class ShopkeeperSnapshotPreparer {
+
+	// Folia's regions are composed of sections of 16x16 chunks (the default region section size).
+	// All chunks of a section are owned by the same region, so a batch of shopkeepers in the same
+	// section can be serialized by a single region task.
+	private static final int SECTION_CHUNK_SHIFT = 4;
+	// For small numbers of shopkeepers, the overhead of scheduling the region tasks outweighs the
+	// benefit of the parallel serialization:
+	private static final int MIN_PARALLEL_SHOPKEEPERS = 64;
+	private static final long REGION_TIMEOUT_TICKS = 100L; // 5 seconds
+
+	private static final class SectionKey {
+
+		private final String worldName;
+		private final int sectionX;
+		private final int sectionZ;
+
+		SectionKey(String worldName, int sectionX, int sectionZ) {
+			this.worldName = worldName;
+			this.sectionX = sectionX;
+			this.sectionZ = sectionZ;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = worldName.hashCode();
+			result = 31 * result + sectionX;
+			result = 31 * result + sectionZ;
+			return result;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof SectionKey)) return false;
+			SectionKey other = (SectionKey) obj;
+			return sectionX == other.sectionX
+					&& sectionZ == other.sectionZ
+					&& worldName.equals(other.worldName);
+		}
+	}
+
+	private static final class Batch {
+
+		private final World world;
+		// The chunk that determines the owning region:
+		private final int chunkX;
+		private final int chunkZ;
+		private final List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		// Each element is only written by the thread that claimed this batch. The completion of the
+		// future publishes the snapshots to the completing thread. Remains null if the batch
+		// expired.
+		private @Nullable DataContainer @Nullable [] snapshots = null;
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+		private final CompletableFuture<@Nullable Void> completed = new CompletableFuture<>();
+
+		Batch(World world, int chunkX, int chunkZ) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+		// Only invoked by the thread that claimed this batch.
+		void createSnapshots(Function<AbstractShopkeeper, @Nullable DataContainer> snapshotter) {
+			try {
+				@Nullable DataContainer[] snapshots = new @Nullable DataContainer[shopkeepers.size()];
+				for (int i = 0; i < snapshots.length; i++) {
+					snapshots[i] = snapshotter.apply(shopkeepers.get(i));
+				}
+				this.snapshots = snapshots;
+			} finally {
+				completed.complete(null);
+			}
+		}
+
+		// Only invoked by the thread that claimed this batch.
+		void expire() {
+			completed.complete(null);
+		}
+	}
+
+	private final Plugin plugin;
+
+	// The region batches of the current preparation, until the preparation is completed:
+	private List<Batch> pendingBatches = Collections.emptyList();
+
+	/* Statistics of the last preparation */
+	private int regionBatchesCount = 0;
+	private int deferredBatchesCount = 0;
+	private int directlySerializedCount = 0;
+
+	ShopkeeperSnapshotPreparer(Plugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Starts to create the snapshots of the given shopkeepers.
+	 * <p>
+	 * The snapshots are created by the given snapshotter, possibly in parallel on several region
+	 * threads. The snapshotter is expected to handle any errors itself and return <code>null</code>
+	 * if the shopkeeper could not be serialized. The snapshots that are created on the calling
+	 * thread are immediately passed to the given merge function. The snapshots that are created by
+	 * the regions are merged once the preparation is {@link #complete(BiConsumer, Consumer)
+	 * completed}.
+	 * <p>
+	 * This does not wait for the regions to create their snapshots.
+	 *
+	 * @param shopkeepers
+	 *            the shopkeepers to serialize
+	 * @param parallel
+	 *            <code>true</code> to serialize the shopkeepers on their owning regions,
+	 *            <code>false</code> to serialize all shopkeepers on the calling thread
+	 * @param snapshotter
+	 *            creates the snapshot of a shopkeeper, or returns <code>null</code> if the
+	 *            shopkeeper could not be serialized
+	 * @param merger
+	 *            merges the snapshot of a shopkeeper into the save data
+	 * @return a future that completes once all regions have created their snapshots, or their
+	 *         batches expired, and the preparation is ready to be completed
+	 */
+	CompletableFuture<?> prepare(
+			Collection<? extends AbstractShopkeeper> shopkeepers,
+			boolean parallel,
+			Function<AbstractShopkeeper, @Nullable DataContainer> snapshotter,
+			BiConsumer<AbstractShopkeeper, @Nullable DataContainer> merger
+	) {
+		Validate.State.isTrue(pendingBatches.isEmpty(),
+				"The previous preparation has not been completed yet!");
+		regionBatchesCount = 0;
+		deferredBatchesCount = 0;
+		directlySerializedCount = 0;
+
+		if (!parallel || !plugin.isEnabled() || shopkeepers.size() < MIN_PARALLEL_SHOPKEEPERS) {
+			shopkeepers.forEach(shopkeeper -> {
+				merger.accept(shopkeeper, snapshotter.apply(shopkeeper));
+			});
+			directlySerializedCount = shopkeepers.size();
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// Group the shopkeepers by their region section:
+		List<AbstractShopkeeper> directShopkeepers = new ArrayList<>();
+		Map<SectionKey, Batch> batches = new HashMap<>();
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
+			World world = (chunkCoords != null) ? chunkCoords.getWorld() : null;
+			if (chunkCoords == null || world == null) {
+				// Virtual shopkeeper or unloaded world: Not owned by any region.
+				directShopkeepers.add(shopkeeper);
+				continue;
+			}
+
+			int chunkX = chunkCoords.getChunkX();
+			int chunkZ = chunkCoords.getChunkZ();
+			SectionKey sectionKey = new SectionKey(
+					world.getName(),
+					chunkX >> SECTION_CHUNK_SHIFT,
+					chunkZ >> SECTION_CHUNK_SHIFT
+			);
+			Batch batch = batches.computeIfAbsent(sectionKey, key -> {
+				return new Batch(world, chunkX, chunkZ);
+			});
+			batch.shopkeepers.add(shopkeeper);
+		}
+
+		// Start the region tasks:
+		List<Batch> regionBatches = new ArrayList<>(batches.size());
+		for (Batch batch : batches.values()) {
+			if (Bukkit.isOwnedByCurrentRegion(batch.world, batch.chunkX, batch.chunkZ)) {
+				directShopkeepers.addAll(batch.shopkeepers);
+				continue;
+			}
+			regionBatches.add(batch);
+			Bukkit.getRegionScheduler().execute(plugin, batch.world, batch.chunkX, batch.chunkZ, () -> {
+				if (batch.claim()) {
+					batch.createSnapshots(snapshotter);
+				}
+			});
+		}
+		regionBatchesCount = regionBatches.size();
+		pendingBatches = regionBatches;
+
+		// Meanwhile, serialize the remaining shopkeepers on this thread:
+		directShopkeepers.forEach(shopkeeper -> {
+			merger.accept(shopkeeper, snapshotter.apply(shopkeeper));
+		});
+		directlySerializedCount = directShopkeepers.size();
+
+		if (regionBatches.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// Expire the batches that the regions have not started in time:
+		SchedulerUtils.runGlobalTaskScheduler(plugin, () -> {
+			regionBatches.forEach(batch -> {
+				if (batch.claim()) {
+					batch.expire();
+				}
+			});
+		}, REGION_TIMEOUT_TICKS);
+
+		return CompletableFuture.allOf(regionBatches.stream()
+				.map(batch -> batch.completed)
+				.toArray(CompletableFuture<?>[]::new));
+	}
+
+	/**
+	 * Completes the current preparation by merging the snapshots that have been created by the
+	 * regions.
+	 * <p>
+	 * This does not wait for any regions: The shopkeepers of batches that expired, or that have not
+	 * been completed by their regions yet, are passed to the given deferrer instead. The regions no
+	 * longer start any batches that they have not started yet.
+	 *
+	 * @param merger
+	 *            merges the snapshot of a shopkeeper into the save data
+	 * @param deferrer
+	 *            receives the shopkeepers whose serialization is deferred to the next save
+	 */
+	void complete(
+			BiConsumer<AbstractShopkeeper, @Nullable DataContainer> merger,
+			Consumer<AbstractShopkeeper> deferrer
+	) {
+		List<Batch> regionBatches = pendingBatches;
+		pendingBatches = Collections.emptyList();
+		for (Batch batch : regionBatches) {
+			if (batch.claim()) {
+				// The region has not started the batch yet:
+				batch.expire();
+			}
+
+			// Only access the snapshots once the batch has completed:
+			@Nullable DataContainer[] snapshots = batch.completed.isDone() ? batch.snapshots : null;
+			if (snapshots == null) {
+				deferredBatchesCount++;
+				batch.shopkeepers.forEach(deferrer);
+				continue;
+			}
+
+			for (int i = 0; i < snapshots.length; i++) {
+				merger.accept(batch.shopkeepers.get(i), snapshots[i]);
+			}
+		}
+	}
+
+	/**
+	 * Gets a summary of the statistics of the last preparation.
+	 *
+	 * @return the statistics summary
+	 */
+	String getStatisticsString() {
+		return regionBatchesCount + " region batches"
+				+ (deferredBatchesCount > 0 ? " (" + deferredBatchesCount + " deferred)" : "")
+				+ ", " + directlySerializedCount + " serialized directly";
+	}
+}
@@ -0,0 +1,467 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.shopkeeper.ShopkeeperData;
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.data.persistence.InvalidDataFormatException;
+import com.nisovin.shopkeepers.util.data.persistence.bukkit.BukkitConfigDataStore;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * An append-only file that stores the data of shopkeeper snapshots outside of the save file.
+ * <p>
+ * Each record stores the compressed data of a single snapshot, together with the id of the
+ * shopkeeper the snapshot belongs to. Records are identified by a record id that is unique within
+ * the store. The save file only stores the snapshot metadata and the record id, and the snapshot
+ * data is only loaded from this store when it is actually needed.
+ * <p>
+ * Records are never modified. Records that are no longer referenced by the save data are only
+ * removed when the store is {@link #compact(Set, boolean) compacted}. If the server crashes while a
+ * record is being appended, the incomplete record is discarded when the store is opened the next
+ * time.
+ * <p>
+ * This class is thread-safe. However, records are expected to only be appended by a single thread
+ * at a time, such as the plugin's IO thread.
+ */
+public final class ShopkeeperSnapshotStore {
+
+	private static final int MAGIC = 0x534B5353; // "SKSS"
+	private static final int FORMAT_VERSION = 1;
+	private static final int FILE_HEADER_SIZE = Integer.BYTES * 2;
+	// Record id, shopkeeper id, data length:
+	private static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES * 2;
+	private static final String DATA_KEY = "data";
+	// Compaction is skipped as long as the unreferenced records remain below this size and do not
+	// exceed the size of the referenced records:
+	private static final long MIN_COMPACTION_GARBAGE_BYTES = 1024L * 1024L;
+
+	private static final class Record {
+
+		private final int shopkeeperId;
+		private final long position; // Position of the record data
+		private final int length;
+
+		Record(int shopkeeperId, long position, int length) {
+			this.shopkeeperId = shopkeeperId;
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	private final Path file;
+	private @Nullable FileChannel channel = null;
+	private final Map<Long, Record> records = new HashMap<>();
+	private long nextRecordId = 1L;
+	// The records starting at this id have been appended since the store was opened:
+	private long firstSessionRecordId = 1L;
+
+	ShopkeeperSnapshotStore(Path file) {
+		Validate.notNull(file, "file is null");
+		this.file = file;
+	}
+
+	/**
+	 * Checks if this store is currently open.
+	 *
+	 * @return <code>true</code> if open
+	 */
+	public synchronized boolean isOpen() {
+		return channel != null;
+	}
+
+	/**
+	 * Opens this store and reads the index of the stored records.
+	 * <p>
+	 * Does nothing if the store is already open.
+	 *
+	 * @throws IOException
+	 *             if the store cannot be opened
+	 */
+	synchronized void open() throws IOException {
+		if (channel != null) return;
+
+		this.openChannel();
+		firstSessionRecordId = nextRecordId;
+	}
+
+	private void openChannel() throws IOException {
+		assert channel == null;
+		FileUtils.createParentDirectories(file);
+		FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE
+		);
+		try {
+			this.readIndex(channel);
+		} catch (IOException e) {
+			channel.close();
+			records.clear();
+			throw e;
+		}
+		this.channel = channel;
+	}
+
+	private void readIndex(FileChannel channel) throws IOException {
+		records.clear();
+		nextRecordId = 1L;
+
+		long fileSize = channel.size();
+		if (fileSize == 0L) {
+			this.writeFileHeader(channel);
+			return;
+		}
+
+		ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		readFully(channel, fileHeader, 0L);
+		fileHeader.flip();
+		if (fileHeader.getInt() != MAGIC) {
+			throw new IOException("Invalid snapshot store file: " + file);
+		}
+		int formatVersion = fileHeader.getInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot store format version (" + formatVersion
+					+ "): " + file);
+		}
+
+		long position = FILE_HEADER_SIZE;
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		while (position + RECORD_HEADER_SIZE <= fileSize) {
+			recordHeader.clear();
+			readFully(channel, recordHeader, position);
+			recordHeader.flip();
+			long recordId = recordHeader.getLong();
+			int shopkeeperId = recordHeader.getInt();
+			int length = recordHeader.getInt();
+			long dataPosition = position + RECORD_HEADER_SIZE;
+			if (length < 0 || dataPosition + length > fileSize) break; // Incomplete record
+
+			records.put(recordId, new Record(shopkeeperId, dataPosition, length));
+			nextRecordId = Math.max(nextRecordId, recordId + 1);
+			position = dataPosition + length;
+		}
+
+		if (position < fileSize) {
+			Log.warning("Discarding an incomplete record at the end of the snapshot store ("
+					+ (fileSize - position) + " bytes). Did the server crash while saving?");
+			channel.truncate(position);
+		}
+	}
+
+	private void writeFileHeader(FileChannel channel) throws IOException {
+		ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		fileHeader.putInt(MAGIC);
+		fileHeader.putInt(FORMAT_VERSION);
+		fileHeader.flip();
+		writeFully(channel, fileHeader, channel.size());
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+			throws IOException {
+		long currentPosition = position;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, currentPosition);
+			if (read < 0) {
+				throw new IOException("Unexpected end of the snapshot store file!");
+			}
+			currentPosition += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+			throws IOException {
+		long currentPosition = position;
+		while (buffer.hasRemaining()) {
+			currentPosition += channel.write(buffer, currentPosition);
+		}
+	}
+
+	private FileChannel getChannel() throws IOException {
+		FileChannel channel = this.channel;
+		if (channel == null) {
+			throw new IOException("The snapshot store is not open!");
+		}
+		return channel;
+	}
+
+	/**
+	 * Closes this store.
+	 */
+	synchronized void close() {
+		FileChannel channel = this.channel;
+		if (channel == null) return;
+		this.channel = null;
+		records.clear();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Log.warning("Failed to close the snapshot store!", e);
+		}
+	}
+
+	/**
+	 * Appends the given snapshot data to this store.
+	 * <p>
+	 * The data is compressed and durably written before this method returns. This blocks the
+	 * calling thread and is therefore expected to be called on the plugin's IO thread.
+	 *
+	 * @param shopkeeperId
+	 *            the id of the shopkeeper the snapshot belongs to
+	 * @param shopkeeperData
+	 *            the snapshot data, not <code>null</code>
+	 * @return the id of the new record
+	 * @throws IOException
+	 *             if the data cannot be written
+	 */
+	public long append(int shopkeeperId, ShopkeeperData shopkeeperData) throws IOException {
+		Validate.notNull(shopkeeperData, "shopkeeperData is null");
+		// Serialize and compress the data outside the lock:
+		byte[] data = compress(serialize(shopkeeperData));
+
+		FileChannel channel;
+		long recordId;
+		long position;
+		synchronized (this) {
+			channel = this.getChannel();
+			recordId = nextRecordId++;
+			position = channel.size();
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + data.length);
+			buffer.putLong(recordId);
+			buffer.putInt(shopkeeperId);
+			buffer.putInt(data.length);
+			buffer.put(data);
+			buffer.flip();
+			try {
+				writeFully(channel, buffer, position);
+			} catch (IOException e) {
+				this.discardRecord(channel, position);
+				throw e;
+			}
+		}
+
+		// Flush the record outside the lock, so that concurrent loads are not blocked meanwhile:
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			synchronized (this) {
+				this.discardRecord(channel, position);
+			}
+			throw e;
+		}
+
+		synchronized (this) {
+			if (this.channel != channel) {
+				// The record is not contained in the compacted store:
+				throw new IOException("The snapshot store was closed or compacted concurrently!");
+			}
+			long dataPosition = position + RECORD_HEADER_SIZE;
+			records.put(recordId, new Record(shopkeeperId, dataPosition, data.length));
+			return recordId;
+		}
+	}
+
+	// Discards the partially written record, unless the store was closed or compacted meanwhile.
+	private void discardRecord(FileChannel channel, long position) throws IOException {
+		if (this.channel != channel) return;
+		channel.truncate(position);
+	}
+
+	/**
+	 * Loads the snapshot data of the specified record.
+	 *
+	 * @param recordId
+	 *            the record id
+	 * @return the loaded snapshot data, not <code>null</code>
+	 * @throws InvalidDataException
+	 *             if the record does not exist or its data cannot be read
+	 */
+	public ShopkeeperData load(long recordId) throws InvalidDataException {
+		byte[] data;
+		synchronized (this) {
+			Record record = records.get(recordId);
+			if (record == null) {
+				throw new InvalidDataException("Snapshot record " + recordId + " is missing in the"
+						+ " snapshot store!");
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(record.length);
+			try {
+				readFully(this.getChannel(), buffer, record.position);
+			} catch (IOException e) {
+				throw new InvalidDataException("Failed to read snapshot record " + recordId + ": "
+						+ e.getMessage(), e);
+			}
+			data = buffer.array();
+		}
+
+		// Decompress and deserialize the data outside the lock:
+		try {
+			return deserialize(decompress(data));
+		} catch (IOException e) {
+			throw new InvalidDataException("Failed to decompress snapshot record " + recordId
+					+ ": " + e.getMessage(), e);
+		}
+	}
+
+	private static String serialize(ShopkeeperData shopkeeperData) {
+		BukkitConfigDataStore dataStore = BukkitConfigDataStore.ofNewYamlConfig();
+		dataStore.set(DATA_KEY, shopkeeperData.serialize());
+		return dataStore.saveToString();
+	}
+
+	private static ShopkeeperData deserialize(String serializedData) throws InvalidDataException {
+		BukkitConfigDataStore dataStore = BukkitConfigDataStore.ofNewYamlConfig();
+		try {
+			dataStore.loadFromString(serializedData);
+		} catch (InvalidDataFormatException e) {
+			throw new InvalidDataException(e.getMessage(), e);
+		}
+		DataContainer dataContainer = dataStore.getContainer(DATA_KEY);
+		if (dataContainer == null) {
+			throw new InvalidDataException("Missing snapshot data!");
+		}
+		return ShopkeeperData.ofNonNull(DataContainer.ofNonNull(dataContainer.getValuesCopy()));
+	}
+
+	private static byte[] compress(String data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(data.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private static String decompress(byte[] data) throws IOException {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Removes all records that are not referenced anymore.
+	 * <p>
+	 * The records of shopkeepers that are not loaded, for example because they failed to load, are
+	 * expected to be included in the given referenced records. The store is only rewritten if the
+	 * unreferenced records take up a significant amount of space. Record ids remain stable.
+	 * <p>
+	 * The live records are copied without holding the lock, so that concurrent loads are not
+	 * blocked meanwhile. If records are appended in the meantime, the compaction is skipped.
+	 *
+	 * @param referencedRecordIds
+	 *            the ids of the records that are still referenced
+	 * @param removeSessionRecords
+	 *            <code>false</code> to keep all records that have been appended since the store was
+	 *            opened, for example because the given referenced records might not include the
+	 *            records of snapshots that have not been saved yet
+	 * @return the number of removed records
+	 * @throws IOException
+	 *             if the compaction fails, in which case the store remains unchanged
+	 */
+	int compact(Set<Long> referencedRecordIds, boolean removeSessionRecords) throws IOException {
+		Validate.notNull(referencedRecordIds, "referencedRecordIds is null");
+		FileChannel channel;
+		long recordIdLimit;
+		Map<Long, Record> liveRecords = new LinkedHashMap<>();
+		int garbageRecords = 0;
+		synchronized (this) {
+			channel = this.getChannel();
+			recordIdLimit = nextRecordId;
+
+			long liveBytes = 0L;
+			long garbageBytes = 0L;
+			for (Map.Entry<Long, Record> entry : records.entrySet()) {
+				long recordId = entry.getKey();
+				Record record = entry.getValue();
+				long recordSize = RECORD_HEADER_SIZE + record.length;
+				if (referencedRecordIds.contains(recordId)
+						|| (!removeSessionRecords && recordId >= firstSessionRecordId)) {
+					liveBytes += recordSize;
+					liveRecords.put(recordId, record);
+				} else {
+					garbageBytes += recordSize;
+					garbageRecords++;
+				}
+			}
+			if (garbageRecords == 0) return 0;
+			if (garbageBytes < MIN_COMPACTION_GARBAGE_BYTES && garbageBytes <= liveBytes) return 0;
+		}
+
+		// Records are never modified, so they can be copied concurrently to other reads:
+		Path tempFile = FileUtils.getTempSibling(file);
+		try (FileChannel tempChannel = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE
+		)) {
+			this.writeFileHeader(tempChannel);
+			for (Map.Entry<Long, Record> entry : liveRecords.entrySet()) {
+				Record record = entry.getValue();
+				ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+				buffer.putLong(entry.getKey());
+				buffer.putInt(record.shopkeeperId);
+				buffer.putInt(record.length);
+				readFully(channel, buffer, record.position);
+				buffer.flip();
+				writeFully(tempChannel, buffer, tempChannel.size());
+			}
+			tempChannel.force(true);
+		}
+
+		synchronized (this) {
+			if (this.channel != channel || nextRecordId != recordIdLimit) {
+				// The store was closed, or records were appended in the meantime:
+				Files.deleteIfExists(tempFile);
+				return 0;
+			}
+
+			// Replace the store file. The records are re-indexed when the store is re-opened.
+			channel.close();
+			this.channel = null;
+			try {
+				FileUtils.moveFile(tempFile, file, Log.getLogger());
+			} finally {
+				// Re-open the store, either with the compacted or with the previous file:
+				this.openChannel();
+				// Do not reuse the ids of removed records:
+				nextRecordId = Math.max(nextRecordId, recordIdLimit);
+			}
+		}
+		return garbageRecords;
+	}
+
+	/**
+	 * Gets a summary of the store statistics.
+	 *
+	 * @return the statistics summary
+	 */
+	public synchronized String getStatisticsString() {
+		long dataBytes = 0L;
+		for (Record record : records.values()) {
+			dataBytes += record.length;
+		}
+		return records.size() + " snapshot records (" + (dataBytes / 1024L) + " KiB compressed)";
+	}
+}
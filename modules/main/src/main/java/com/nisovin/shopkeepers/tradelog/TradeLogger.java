@@ -26,4 +26,12 @@ public interface TradeLogger {
 	 * any pending writes to complete.
 	 */
 	public void flush();
+
+	/**
+	 * Gets a one-line summary of the statistics of this trade logger, such as the number of
+	 * buffered, logged, and dropped trades, and the durations of the previous writes.
+	 * 
+	 * @return the statistics String
+	 */
+	public String getStatisticsString();
 }
@@ -2,6 +2,7 @@ package com.nisovin.shopkeepers.tradelog;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
@@ -17,6 +18,7 @@ import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.tradelog.csv.CsvTradeLogger;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
 import com.nisovin.shopkeepers.tradelog.sqlite.SQLiteTradeLogger;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.trading.MergedTrades;
 import com.nisovin.shopkeepers.util.trading.TradeMerger;
@@ -25,6 +27,7 @@ import com.nisovin.shopkeepers.util.trading.TradeMerger.MergeMode;
 public class TradeLoggers implements Listener {
 
 	private final Plugin plugin;
+	private final SingleWriterExecutor ioExecutor;
 	private final List<TradeLogger> loggers = new ArrayList<>();
 	// In order to represent the logged trades more compactly, we merge equivalent trades that are
 	// triggered in quick succession over a certain period of time. The maximum merge duration is
@@ -37,9 +40,11 @@ public class TradeLoggers implements Listener {
 	private @Nullable TradeMerger tradeMerger;
 	private boolean enabled = false;
 
-	public TradeLoggers(Plugin plugin) {
+	public TradeLoggers(Plugin plugin, SingleWriterExecutor ioExecutor) {
 		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(ioExecutor, "ioExecutor is null");
 		this.plugin = plugin;
+		this.ioExecutor = ioExecutor;
 	}
 
 	public void onEnable() {
@@ -58,10 +63,10 @@ public class TradeLoggers implements Listener {
 
 		switch (Settings.tradeLogStorage) {
 		case CSV:
-			loggers.add(new CsvTradeLogger(plugin));
+			loggers.add(new CsvTradeLogger(plugin, ioExecutor));
 			break;
 		case SQLITE:
-			loggers.add(new SQLiteTradeLogger(plugin));
+			loggers.add(new SQLiteTradeLogger(plugin, ioExecutor));
 			break;
 		case DISABLED:
 		default:
@@ -88,6 +93,13 @@ public class TradeLoggers implements Listener {
 		loggers.clear();
 	}
 
+	public String getStatisticsString() {
+		if (loggers.isEmpty()) return "Disabled";
+		return loggers.stream()
+				.map(TradeLogger::getStatisticsString)
+				.collect(Collectors.joining(", "));
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	void onTradeCompleted(ShopkeeperTradeCompletedEvent event) {
 		if (loggers.isEmpty()) return; // Nothing to log
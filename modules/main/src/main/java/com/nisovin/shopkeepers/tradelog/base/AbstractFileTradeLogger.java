@@ -6,6 +6,7 @@ import org.bukkit.plugin.Plugin;
 
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
 import com.nisovin.shopkeepers.tradelog.TradeLogger;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 
 /**
  * Base class for file-based {@link TradeLogger}s with a single concurrent writer.
@@ -22,8 +23,12 @@ public abstract class AbstractFileTradeLogger extends AbstractSingleWriterTradeL
 	 */
 	protected final Path tradeLogsFolder;
 
-	public AbstractFileTradeLogger(Plugin plugin, TradeLogStorageType storageType) {
-		super(plugin, storageType);
+	public AbstractFileTradeLogger(
+			Plugin plugin,
+			TradeLogStorageType storageType,
+			SingleWriterExecutor ioExecutor
+	) {
+		super(plugin, storageType, ioExecutor);
 
 		this.tradeLogsFolder = plugin.getDataFolder().toPath().resolve(TRADE_LOGS_FOLDER);
 	}
@@ -3,14 +3,18 @@ package com.nisovin.shopkeepers.tradelog.base;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitTask;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
@@ -24,8 +28,10 @@ import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
 import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.bukkit.SingletonTask;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
 import com.nisovin.shopkeepers.util.java.Retry;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.java.ThrowableUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.java.VoidCallable;
@@ -35,6 +41,15 @@ import com.nisovin.shopkeepers.util.logging.Log;
  * Base class for {@link TradeLogger}s with a single concurrent writer. Trades are buffered and
  * periodically persisted in batches.
  * <p>
+ * Trades can be logged from any thread. They are buffered in a lock-free queue that is drained by
+ * the global region thread, and the trades are written by the shared {@link SingleWriterExecutor IO
+ * executor}.
+ * <p>
+ * The number of buffered trades is limited by {@link Settings#tradeLogQueueCapacity}, so that the
+ * buffer cannot grow without limit if the storage is unavailable or slow for a longer period of
+ * time. Trades that exceed this limit are dropped and counted, and admins are warned about it in
+ * the server log.
+ * <p>
  * If any initial setup is required, override {@link #preSetup()}, {@link #asyncSetup()} and
  * {@link #postSetup()} accordingly.
  */
@@ -45,6 +60,7 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	private static final int SAVE_MAX_ATTEMPTS = 20;
 	private static final long SAVE_RETRY_DELAY_MILLIS = 25L;
 	private static final long SAVE_ERROR_MSG_THROTTLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final long DROPPED_TRADES_MSG_THROTTLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
 	protected final Plugin plugin;
 	protected final TradeLogStorageType storageType;
@@ -53,23 +69,49 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	private final SetupTask setupTask;
 	private boolean setupCompleted = false;
 
-	private boolean enabled = true;
+	private volatile boolean enabled = true;
 
+	// The max number of buffered trades, or 0 if there is no limit:
+	private final int queueCapacity;
+	// Trades that have been logged by any thread. Drained by the global region thread:
+	private final Queue<TradeRecord> queued = new ConcurrentLinkedQueue<>();
+	// Trades that are saved with the next batch, e.g. the unsaved trades of a failed previous save.
+	// Only accessed by the global region thread:
 	private List<TradeRecord> pending = new ArrayList<>();
+	// The number of queued, pending, and currently saved trades:
+	private final AtomicInteger bufferedCount = new AtomicInteger();
+	private final AtomicBoolean delayedSaveRequested = new AtomicBoolean();
 	private final SaveTask saveTask;
 	private @Nullable ScheduledTask delayedSaveTask = null;
+
+	// Statistics:
+	private final AtomicInteger maxBufferedCount = new AtomicInteger();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong lastDroppedMsgMillis = new AtomicLong();
+	// Only updated by the global region thread:
+	private volatile long loggedCount = 0L;
+	private volatile int writesCount = 0;
+	private volatile long totalWriteDurationMillis = 0L;
+	private volatile long maxWriteDurationMillis = 0L;
+	private volatile long lastWriteDurationMillis = 0L;
 	// This is reset to the current configuration value prior to every save. This ensures that the
 	// value of this setting remains constant during the save and does not differ for the items of
 	// the trades that are being saved as part of the same batch.
 	private boolean logItemMetadata;
 
-	public AbstractSingleWriterTradeLogger(Plugin plugin, TradeLogStorageType storageType) {
+	public AbstractSingleWriterTradeLogger(
+			Plugin plugin,
+			TradeLogStorageType storageType,
+			SingleWriterExecutor ioExecutor
+	) {
 		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(ioExecutor, "ioExecutor is null");
 		this.plugin = plugin;
 		this.storageType = storageType;
 		this.logPrefix = storageType.toString() + " trade log: ";
-		this.setupTask = new SetupTask(plugin);
-		this.saveTask = new SaveTask(plugin);
+		this.queueCapacity = Settings.tradeLogQueueCapacity;
+		this.setupTask = new SetupTask(plugin, ioExecutor);
+		this.saveTask = new SaveTask(plugin, ioExecutor);
 	}
 
 	@Override
@@ -81,7 +123,7 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	}
 
 	/**
-	 * Override this to perform any setup that needs to happen on the server's main thread before
+	 * Override this to perform any setup that needs to happen on the global region thread before
 	 * {@link #asyncSetup()} is invoked.
 	 */
 	protected void preSetup() {
@@ -93,13 +135,13 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	 * If the setup fails, consider calling {@link #disable(String)} during {@link #postSetup()}.
 	 * <p>
 	 * In certain circumstances, such as the plugin shutting down again before the setup has been
-	 * completed, this might also be called on the main thread.
+	 * completed, this might also be called on the thread that shuts down the plugin.
 	 */
 	protected void asyncSetup() {
 	}
 
 	/**
-	 * Override this to perform any setup that needs to happen on the server's main thread after
+	 * Override this to perform any setup that needs to happen on the global region thread after
 	 * {@link #asyncSetup()} completes.
 	 */
 	protected void postSetup() {
@@ -107,8 +149,8 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 
 	private class SetupTask extends SingletonTask {
 
-		private SetupTask(Plugin plugin) {
-			super(plugin);
+		private SetupTask(Plugin plugin, SingleWriterExecutor ioExecutor) {
+			super(plugin, ioExecutor);
 		}
 
 		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
@@ -162,18 +204,72 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 		enabled = false;
 		this.cancelDelayedSave();
 		pending.clear();
+		queued.clear();
+		bufferedCount.set(0);
 	}
 
+	// This may be called from any thread.
 	@Override
 	public void logTrade(TradeRecord trade) {
 		if (!enabled) return;
 
-		pending.add(trade);
+		if (!this.reserveBufferSlot()) {
+			this.onTradeDropped();
+			return;
+		}
+		queued.add(trade);
 
 		// It is likely for there to be additional trades to log in the immediate future. In order
 		// to reduce IO overhead, we do not trigger a save right away, but buffer the incoming trade
 		// records over a short period of time.
-		this.savePendingDelayed();
+		this.requestSavePendingDelayed();
+	}
+
+	// Returns false if the buffer is full.
+	private boolean reserveBufferSlot() {
+		int newBufferedCount;
+		while (true) {
+			int count = bufferedCount.get();
+			if (queueCapacity > 0 && count >= queueCapacity) return false;
+
+			newBufferedCount = count + 1;
+			if (bufferedCount.compareAndSet(count, newBufferedCount)) break;
+		}
+		maxBufferedCount.accumulateAndGet(newBufferedCount, Math::max);
+		return true;
+	}
+
+	private void onTradeDropped() {
+		long dropped = droppedCount.incrementAndGet();
+
+		// Inform admins about the issue (throttled to once every x minutes):
+		long nowMillis = System.currentTimeMillis();
+		long lastMsgMillis = lastDroppedMsgMillis.get();
+		if (Math.abs(nowMillis - lastMsgMillis) <= DROPPED_TRADES_MSG_THROTTLE_MILLIS) return;
+		if (!lastDroppedMsgMillis.compareAndSet(lastMsgMillis, nowMillis)) return;
+
+		Log.severe(logPrefix + "Too many trades are waiting to be logged (max " + queueCapacity
+				+ ")! Trades are dropped until the pending trades have been logged. Dropped trades"
+				+ " so far: " + dropped);
+	}
+
+	// The pending trades are only accessed by the global region thread.
+	private void requestSavePendingDelayed() {
+		if (Bukkit.isGlobalTickThread()) {
+			this.savePendingDelayed();
+			return;
+		}
+
+		// Tasks can only be registered while enabled. During plugin disable, the queued trades are
+		// saved by the flush.
+		if (!plugin.isEnabled()) return;
+
+		// At most one request is forwarded to the global region thread at a time:
+		if (!delayedSaveRequested.compareAndSet(false, true)) return;
+		Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
+			delayedSaveRequested.set(false);
+			this.savePendingDelayed();
+		});
 	}
 
 	@Override
@@ -184,7 +280,23 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	}
 
 	private boolean hasPending() {
-		return !pending.isEmpty();
+		return !pending.isEmpty() || !queued.isEmpty();
+	}
+
+	@Override
+	public String getStatisticsString() {
+		int writes = writesCount;
+		double avgWriteDurationMillis = (double) totalWriteDurationMillis / Math.max(writes, 1);
+		return storageType + ": Buffered: " + bufferedCount.get()
+				+ "/" + (queueCapacity > 0 ? String.valueOf(queueCapacity) : "unlimited")
+				+ " (max " + maxBufferedCount.get() + ")"
+				+ " | Logged: " + loggedCount
+				+ " | Dropped: " + droppedCount.get()
+				+ " | Writes: " + writes
+				+ " | Write duration (avg | max | last): "
+				+ TextUtils.format(avgWriteDurationMillis) + " ms"
+				+ " | " + maxWriteDurationMillis + " ms"
+				+ " | " + lastWriteDurationMillis + " ms";
 	}
 
 	private void savePendingDelayed() {
@@ -202,8 +314,18 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 			// There is already a delayed save in progress:
 			return;
 		}
-		;
-		delayedSaveTask = SchedulerUtils.runAsyncTaskLaterOrOmit(plugin, new DelayedSaveTask(), DELAYED_SAVE_TICKS);
+
+		// Tasks can only be registered while enabled:
+		if (!plugin.isEnabled()) return;
+
+		// The save is triggered from the global region thread, which also manages the pending
+		// trades:
+		DelayedSaveTask task = new DelayedSaveTask();
+		delayedSaveTask = Bukkit.getGlobalRegionScheduler().runDelayed(
+				plugin,
+				scheduledTask -> task.run(),
+				DELAYED_SAVE_TICKS
+		);
 	}
 
 	private class DelayedSaveTask implements Runnable {
@@ -238,8 +360,8 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 		private boolean saveSucceeded = false;
 		private long lastSaveErrorMsgMillis = 0L;
 
-		private SaveTask(Plugin plugin) {
-			super(plugin);
+		private SaveTask(Plugin plugin, SingleWriterExecutor ioExecutor) {
+			super(plugin, ioExecutor);
 		}
 
 		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
@@ -272,6 +394,12 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 			saving = pending;
 			pending = temp;
 
+			// Append the queued trades:
+			TradeRecord trade;
+			while ((trade = queued.poll()) != null) {
+				saving.add(trade);
+			}
+
 			// Setup new SaveContext:
 			assert saveContext == null;
 			this.saveContext = new SaveContext(saving);
@@ -289,11 +417,12 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 			SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
 
 			this.printDebugInfo();
+			this.updateStatistics();
 
 			if (!saveSucceeded) {
 				// Save failed:
 
-				// Add the unsaved trades to the front of the pending trades:
+				// Add the unsaved trades to the front of the pending trades (they remain buffered):
 				pending.addAll(0, saveContext.getUnsavedTrades());
 
 				// Attempt the save again after a short delay:
@@ -322,6 +451,19 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 			saving.clear();
 		}
 
+		private void updateStatistics() {
+			SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
+			int savedCount = saving.size() - saveContext.getUnsavedTrades().size();
+			bufferedCount.addAndGet(-savedCount);
+			loggedCount += savedCount;
+
+			long writeDurationMillis = this.getExecutionDuration();
+			writesCount += 1;
+			totalWriteDurationMillis += writeDurationMillis;
+			maxWriteDurationMillis = Math.max(maxWriteDurationMillis, writeDurationMillis);
+			lastWriteDurationMillis = writeDurationMillis;
+		}
+
 		private void printDebugInfo() {
 			Log.debug(() -> {
 				SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
@@ -25,6 +25,7 @@ import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
 import com.nisovin.shopkeepers.util.csv.CsvFormatter;
 import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 import com.nisovin.shopkeepers.util.logging.Log;
 
@@ -75,8 +76,8 @@ public class CsvTradeLogger extends AbstractFileTradeLogger {
 			.escapeNewlines(false)
 			.warnOnNewlines();
 
-	public CsvTradeLogger(Plugin plugin) {
-		super(plugin, TradeLogStorageType.CSV);
+	public CsvTradeLogger(Plugin plugin, SingleWriterExecutor ioExecutor) {
+		super(plugin, TradeLogStorageType.CSV, ioExecutor);
 	}
 
 	private Path getLogFile(Instant timestamp) {
@@ -17,6 +17,7 @@ import com.nisovin.shopkeepers.tradelog.base.AbstractFileTradeLogger;
 import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
 import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
@@ -67,8 +68,8 @@ public class SQLiteTradeLogger extends AbstractFileTradeLogger {
 
 	private volatile @Nullable String setupFailureReason = null;
 
-	public SQLiteTradeLogger(Plugin plugin) {
-		super(plugin, TradeLogStorageType.SQLITE);
+	public SQLiteTradeLogger(Plugin plugin, SingleWriterExecutor ioExecutor) {
+		super(plugin, TradeLogStorageType.SQLITE, ioExecutor);
 
 		this.connectionURL = "jdbc:sqlite:" + tradeLogsFolder.resolve(FILE_NAME);
 
@@ -0,0 +1,68 @@
+package com.nisovin.shopkeepers.ui;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Keeps track of the handlers (such as UI sessions) of the events that are currently being
+ * processed, in order to correlate the early and late processing of the same event.
+ * <p>
+ * The handler of an event is determined once during the early processing of the event and pushed
+ * to the stack. During the late processing of the event, the handler is popped from the stack
+ * again. The stack accounts for events that are recursively called from within the handling of
+ * other events.
+ * <p>
+ * On Folia, events of players in different regions are called concurrently on different threads.
+ * Since the early and late processing of an event, and any recursively called events, always take
+ * place on the same thread, each thread uses its own stack.
+ *
+ * @param <H>
+ *            the type of event handler
+ */
+final class EventHandlerStack<H> {
+
+	// Indicates on the stack that there is no handler for a particular event.
+	private static final Object NO_HANDLER = new Object();
+
+	private final ThreadLocal<Deque<Object>> stack = ThreadLocal.withInitial(ArrayDeque::new);
+
+	EventHandlerStack() {
+	}
+
+	/**
+	 * Pushes the handler of an event that is about to be processed by the current thread.
+	 *
+	 * @param handler
+	 *            the handler, or <code>null</code> if the event is not handled
+	 */
+	void push(@Nullable H handler) {
+		stack.get().push(handler != null ? handler : NO_HANDLER);
+	}
+
+	/**
+	 * Pops the handler of the event whose processing by the current thread is about to complete.
+	 *
+	 * @return the handler that was pushed for the event, or <code>null</code> if the event is not
+	 *         handled
+	 */
+	@Nullable H pop() {
+		Object handler = stack.get().poll();
+		Validate.State.notNull(handler, "No event is being processed by the current thread!");
+		if (handler == NO_HANDLER) return null;
+		return Unsafe.cast(handler);
+	}
+
+	/**
+	 * Gets the number of events that are currently being processed by the current thread.
+	 *
+	 * @return the number of events being processed by the current thread
+	 */
+	int getDepth() {
+		return stack.get().size();
+	}
+}
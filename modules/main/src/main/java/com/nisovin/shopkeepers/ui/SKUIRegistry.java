@@ -3,11 +3,11 @@ package com.nisovin.shopkeepers.ui;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryCloseEvent;
@@ -36,7 +36,10 @@ public class SKUIRegistry extends AbstractTypeRegistry<AbstractUIType>
 	private final UIListener uiListener;
 
 	// Player id -> UI session
-	private final Map<UUID, SKUISession> uiSessions = new HashMap<>();
+	// Concurrent: On Folia, the UI sessions of different players are started and ended on different
+	// region threads. The views on this map are weakly consistent: Iterations do not fail, but
+	// might not reflect sessions that are concurrently started or ended.
+	private final Map<UUID, SKUISession> uiSessions = new ConcurrentHashMap<>();
 	private final Collection<? extends SKUISession> uiSessionsView
 			= Collections.unmodifiableCollection(uiSessions.values());
 
@@ -138,6 +141,12 @@ public class SKUIRegistry extends AbstractTypeRegistry<AbstractUIType>
 			return false;
 		}
 
+		if (shopkeeper != null && shopkeeper.isInTransit()) {
+			Log.debug(() -> "Player " + playerName + " cannot open UI '" + uiIdentifier
+					+ "': Shopkeeper is being moved.");
+			return false;
+		}
+
 		if (!uiHandler.canOpen(player, silentRequest)) {
 			Log.debug(() -> "Player " + playerName + " cannot open UI '" + uiIdentifier + "'.");
 			return false;
@@ -306,7 +315,6 @@ public class SKUIRegistry extends AbstractTypeRegistry<AbstractUIType>
 	public void abortUISessions() {
 		// Copy to prevent concurrent modifications:
 		new ArrayList<>(this.getUISessions()).forEach(SKUISession::abort);
-		assert uiSessions.isEmpty();
 	}
 
 	@Override
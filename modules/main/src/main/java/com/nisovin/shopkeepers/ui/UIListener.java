@@ -1,11 +1,10 @@
 package com.nisovin.shopkeepers.ui;
 
-import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.bukkit.Bukkit;
@@ -26,7 +25,6 @@ import org.bukkit.inventory.InventoryView;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.util.bukkit.EventUtils;
@@ -47,27 +45,24 @@ class UIListener implements Listener {
 					InventoryCloseEvent.class
 			)));
 
-	// This object indicates on the eventHandlerStack that no UI session is handling a particular
-	// inventory event.
-	private static final Object NO_UI_SESSION = new Object();
-
 	private final ShopkeepersPlugin plugin;
 	private final SKUIRegistry uiRegistry;
-	private final Set<Class<? extends Event>> handledEventTypes = new HashSet<>();
+	// Concurrent: Checked by any thread that requests a UI. Modifications are synchronized.
+	private final Set<Class<? extends Event>> handledEventTypes = ConcurrentHashMap.newKeySet();
 
-	// Stores the UI session (or NO_UI_SESSION) that handles the currently processed inventory
-	// event.
+	// Stores the UI session (or null) that handles the currently processed inventory event.
 	// The handling UI session is determined once during the early processing of the event, added to
-	// the stack, and then retrieved from the stack during the late processing of the event. We use
-	// a stack here to account for plugins that might recursively call other inventory events from
-	// within their event handler.
+	// the stack, and then retrieved from the stack during the late processing of the event. The
+	// stack accounts for plugins that might recursively call other inventory events from within
+	// their event handler, and for inventory events that are called concurrently on different
+	// threads on Folia.
 	// Usually, the UI sessions are expected to still be valid during the late event handling. This
 	// assumption is in accordance with the description of the InventoryClickEvent, which states
 	// that event handlers are supposed to not invoke any operations that might close the player's
 	// current inventory view. However, in order to guard against plugins that ignore this Bukkit
 	// API note, we check if the UI session is still valid and skip the late event handling if it is
 	// not.
-	private final Deque<Object> eventHandlerStack = new ArrayDeque<>();
+	private final EventHandlerStack<SKUISession> eventHandlerStack = new EventHandlerStack<>();
 
 	UIListener(ShopkeepersPlugin plugin, SKUIRegistry uiRegistry) {
 		Validate.notNull(plugin, "plugin is null");
@@ -83,7 +78,9 @@ class UIListener implements Listener {
 
 	void onDisable() {
 		HandlerList.unregisterAll(this);
-		handledEventTypes.clear(); // Reset
+		synchronized (handledEventTypes) {
+			handledEventTypes.clear(); // Reset
+		}
 	}
 
 	// Note: It is safe to dynamically register event handlers for new types of not yet handled
@@ -96,6 +93,13 @@ class UIListener implements Listener {
 	void registerEventType(Class<? extends InventoryEvent> eventClass) {
 		Validate.notNull(eventClass, "eventClass is null");
 		if (handledEventTypes.contains(eventClass)) return; // Already handled
+		synchronized (handledEventTypes) {
+			this.registerEventTypeIfMissing(eventClass);
+		}
+	}
+
+	private void registerEventTypeIfMissing(Class<? extends InventoryEvent> eventClass) {
+		if (handledEventTypes.contains(eventClass)) return; // Registered concurrently
 		Class<? extends Event> registrationClass = EventUtils.getEventRegistrationClass(eventClass);
 		// Already handled as part of a parent class:
 		if (!handledEventTypes.add(registrationClass)) return;
@@ -184,7 +188,7 @@ class UIListener implements Listener {
 		}
 
 		// Keep track of the UI session:
-		eventHandlerStack.push(uiSession != null ? uiSession : NO_UI_SESSION);
+		eventHandlerStack.push(uiSession);
 
 		if (uiSession != null) {
 			this.debugInventoryEvent(event);
@@ -196,10 +200,8 @@ class UIListener implements Listener {
 	}
 
 	private void onInventoryEventLate(InventoryEvent event) {
-		// Not expected to be empty:
-		Object handlingUISession = Unsafe.assertNonNull(eventHandlerStack.pop());
-		if (handlingUISession == NO_UI_SESSION) return; // Ignore the event
-		SKUISession uiSession = (SKUISession) handlingUISession;
+		SKUISession uiSession = eventHandlerStack.pop();
+		if (uiSession == null) return; // Ignore the event
 
 		// Check if the UI session is still valid. This is usually expected to be the case, but this
 		// assumption can be violated by plugins that (incorrectly) close the inventory view during
@@ -2,19 +2,21 @@ package com.nisovin.shopkeepers.ui.editor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Sound;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
@@ -33,6 +35,7 @@ import com.nisovin.shopkeepers.ui.villager.editor.VillagerEditorHandler;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
 import com.nisovin.shopkeepers.util.bukkit.SoundEffect;
 import com.nisovin.shopkeepers.util.inventory.InventoryViewUtils;
+import com.nisovin.shopkeepers.util.inventory.ItemData;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.MathUtils;
 import com.nisovin.shopkeepers.util.java.StringUtils;
@@ -80,10 +83,13 @@ public abstract class AbstractEditorHandler extends UIHandler {
 	private final @Nullable Button[] bakedButtons = new @Nullable Button[BUTTON_MAX_ROWS * COLUMNS_PER_ROW];
 	private boolean dirtyButtons = false;
 	private boolean setup = false; // lazy setup
+	private volatile @Nullable PageIcons pageIcons = null; // Lazily created
 
 	protected final TradingRecipesAdapter tradingRecipesAdapter;
 
-	private final Map<UUID, EditorSession> editorSessions = new HashMap<>();
+	// Concurrent: On Folia, the sessions of different players are started, used, and ended on
+	// different region threads.
+	private final Map<UUID, EditorSession> editorSessions = new ConcurrentHashMap<>();
 
 	protected AbstractEditorHandler(
 			AbstractUIType uiType,
@@ -287,22 +293,44 @@ public abstract class AbstractEditorHandler extends UIHandler {
 		inventory.setItem(this.getItem2Slot(column), ItemUtils.asItemStackOrNull(item2));
 	}
 
-	// TODO Avoid creating new TradingRecipeDraft objects here and instead update the drafts of the
-	// session?
 	// This replaces items matching the empty slot placeholders with null items in the returned
 	// TradingRecipeDraft.
 	protected TradingRecipeDraft getTradingRecipe(Inventory inventory, int column) {
+		return this.getTradingRecipe(inventory, column, null);
+	}
+
+	// Returns the given previous recipe, instead of a new TradingRecipeDraft, if its items match
+	// the items of the trade column. Returns TradingRecipeDraft#EMPTY for empty trade columns.
+	protected final TradingRecipeDraft getTradingRecipe(
+			Inventory inventory,
+			int column,
+			@Nullable TradingRecipeDraft previousRecipe
+	) {
 		assert inventory != null;
 		assert this.isTradeColumn(column);
 		ItemStack resultItem = this.getTradeResultItem(inventory, column);
 		ItemStack item1 = this.getTradeItem1(inventory, column);
 		ItemStack item2 = this.getTradeItem2(inventory, column);
+		if (resultItem == null && item1 == null && item2 == null) {
+			return TradingRecipeDraft.EMPTY;
+		}
+		if (previousRecipe != null && previousRecipe.areItemsEqual(resultItem, item1, item2)) {
+			return previousRecipe;
+		}
 		return new TradingRecipeDraft(resultItem, item1, item2);
 	}
 
 	protected final void updateTradeColumn(Inventory inventory, int column) {
 		TradingRecipeDraft recipe = this.getTradingRecipe(inventory, column);
 		this.setTradeColumn(inventory, column, recipe);
+
+		// The trade column now displays the recipe:
+		for (HumanEntity viewer : inventory.getViewers()) {
+			EditorSession editorSession = editorSessions.get(viewer.getUniqueId());
+			if (editorSession != null && editorSession.getInventory() == inventory) {
+				editorSession.setDisplayedTrade(column, recipe);
+			}
+		}
 	}
 
 	protected final boolean isEmptyTrade(Inventory inventory, int column) {
@@ -358,7 +386,7 @@ public abstract class AbstractEditorHandler extends UIHandler {
 			public @Nullable ItemStack getIcon(EditorSession editorSession) {
 				int page = editorSession.getCurrentPage();
 				if (page <= 1) return null;
-				return createPrevPageIcon(page);
+				return getPageIcons().getPrevPageIcon(page);
 			}
 
 			@Override
@@ -389,7 +417,7 @@ public abstract class AbstractEditorHandler extends UIHandler {
 			public @Nullable ItemStack getIcon(EditorSession editorSession) {
 				int page = editorSession.getCurrentPage();
 				if (page >= getMaxTradesPages()) return null;
-				return createNextPageIcon(page);
+				return getPageIcons().getNextPageIcon(page);
 			}
 
 			@Override
@@ -419,7 +447,7 @@ public abstract class AbstractEditorHandler extends UIHandler {
 			@Override
 			public @Nullable ItemStack getIcon(EditorSession editorSession) {
 				int page = editorSession.getCurrentPage();
-				return createCurrentPageIcon(page);
+				return getPageIcons().getCurrentPageIcon(page);
 			}
 
 			@Override
@@ -495,6 +523,96 @@ public abstract class AbstractEditorHandler extends UIHandler {
 
 	protected abstract ItemStack createTradeSetupIcon();
 
+	/**
+	 * The page bar icons for all pages.
+	 * <p>
+	 * The icons are created once and then shared by all editor sessions, and recreated when the
+	 * page item settings, the page button messages, or the max number of pages change (e.g. after
+	 * a reload). The icons are only inserted into inventories, which copies them, and are
+	 * therefore not modified.
+	 */
+	private static final class PageIcons {
+
+		private final int maxPages;
+		private final ItemData previousPageItem;
+		private final ItemData nextPageItem;
+		private final ItemData currentPageItem;
+		private final String previousPageName;
+		private final List<String> previousPageLore;
+		private final String nextPageName;
+		private final List<String> nextPageLore;
+		private final String currentPageName;
+		private final List<String> currentPageLore;
+
+		// Index: page - 1
+		private final ItemStack[] prevPageIcons;
+		private final ItemStack[] nextPageIcons;
+		private final ItemStack[] currentPageIcons;
+
+		PageIcons(AbstractEditorHandler editorHandler) {
+			this.maxPages = editorHandler.getMaxTradesPages();
+			this.previousPageItem = Settings.previousPageItem;
+			this.nextPageItem = Settings.nextPageItem;
+			this.currentPageItem = Settings.currentPageItem;
+			this.previousPageName = Messages.buttonPreviousPage;
+			this.previousPageLore = Messages.buttonPreviousPageLore;
+			this.nextPageName = Messages.buttonNextPage;
+			this.nextPageLore = Messages.buttonNextPageLore;
+			this.currentPageName = Messages.buttonCurrentPage;
+			this.currentPageLore = Messages.buttonCurrentPageLore;
+
+			this.prevPageIcons = new ItemStack[maxPages];
+			this.nextPageIcons = new ItemStack[maxPages];
+			this.currentPageIcons = new ItemStack[maxPages];
+			for (int page = 1; page <= maxPages; page++) {
+				prevPageIcons[page - 1] = editorHandler.createPrevPageIcon(page);
+				nextPageIcons[page - 1] = editorHandler.createNextPageIcon(page);
+				currentPageIcons[page - 1] = editorHandler.createCurrentPageIcon(page);
+			}
+		}
+
+		boolean isUpToDate(AbstractEditorHandler editorHandler) {
+			return maxPages == editorHandler.getMaxTradesPages()
+					&& previousPageItem == Settings.previousPageItem
+					&& nextPageItem == Settings.nextPageItem
+					&& currentPageItem == Settings.currentPageItem
+					&& previousPageName == Messages.buttonPreviousPage
+					&& previousPageLore == Messages.buttonPreviousPageLore
+					&& nextPageName == Messages.buttonNextPage
+					&& nextPageLore == Messages.buttonNextPageLore
+					&& currentPageName == Messages.buttonCurrentPage
+					&& currentPageLore == Messages.buttonCurrentPageLore;
+		}
+
+		private ItemStack getIcon(ItemStack[] icons, int page) {
+			assert page >= 1 && page <= maxPages;
+			return icons[page - 1];
+		}
+
+		ItemStack getPrevPageIcon(int page) {
+			return this.getIcon(prevPageIcons, page);
+		}
+
+		ItemStack getNextPageIcon(int page) {
+			return this.getIcon(nextPageIcons, page);
+		}
+
+		ItemStack getCurrentPageIcon(int page) {
+			return this.getIcon(currentPageIcons, page);
+		}
+	}
+
+	private PageIcons getPageIcons() {
+		PageIcons pageIcons = this.pageIcons;
+		if (pageIcons == null || !pageIcons.isUpToDate(this)) {
+			// Concurrent callers might create the icons multiple times, but they all end up with
+			// equivalent icons:
+			pageIcons = new PageIcons(this);
+			this.pageIcons = pageIcons;
+		}
+		return pageIcons;
+	}
+
 	private void bakeButtons() {
 		if (!dirtyButtons) return;
 
@@ -665,33 +783,36 @@ public abstract class AbstractEditorHandler extends UIHandler {
 		int recipeStartIndex = (page - 1) * TRADES_COLUMNS;
 		for (int column = 0; column < TRADES_COLUMNS; column++) {
 			int recipeIndex = recipeStartIndex + column;
+			TradingRecipeDraft recipe;
 			if (recipeIndex < recipes.size()) {
 				// Insert trading recipe:
-				TradingRecipeDraft recipe = recipes.get(recipeIndex);
-				this.setTradeColumn(inventory, column, recipe);
+				recipe = recipes.get(recipeIndex);
 			} else {
 				// Insert empty slot placeholders:
-				this.setTradeColumn(inventory, column, TradingRecipeDraft.EMPTY);
+				recipe = TradingRecipeDraft.EMPTY;
 			}
+
+			// Skip the column if it already displays the recipe (e.g. empty columns on subsequent
+			// pages):
+			if (editorSession.getDisplayedTrade(column) == recipe) continue;
+
+			this.setTradeColumn(inventory, column, recipe);
+			editorSession.setDisplayedTrade(column, recipe);
 		}
 	}
 
 	protected void setupTradesPageBar(EditorSession editorSession) {
 		assert editorSession != null;
 		Inventory inventory = editorSession.getInventory();
-		// Clear page bar area:
-		for (int i = TRADES_PAGE_BAR_START; i <= TRADES_PAGE_BAR_END; ++i) {
-			inventory.setItem(i, null);
-		}
-
-		// Insert buttons:
+		// Insert buttons and clear the remaining slots of the page bar area:
 		@Nullable Button[] buttons = this.getTradesPageBarButtons();
 		for (int i = 0; i < buttons.length; ++i) {
 			Button button = buttons[i];
-			if (button == null) continue;
-			ItemStack icon = button.getIcon(editorSession);
-			if (icon == null) continue;
-			inventory.setItem(button.getSlot(), icon);
+			ItemStack icon = null;
+			if (button != null) {
+				icon = button.getIcon(editorSession);
+			}
+			inventory.setItem(TRADES_PAGE_BAR_START + i, icon);
 		}
 	}
 
@@ -806,6 +927,22 @@ public abstract class AbstractEditorHandler extends UIHandler {
 		this.switchPage(editorSession, editorState.getCurrentPage(), true);
 	}
 
+	@Override
+	protected void onInventoryEventEarly(UISession uiSession, InventoryEvent event) {
+		assert uiSession != null && event != null;
+		// Clicks on the trades page bar only switch pages. Any other clicks or drags might modify
+		// the trade columns, possibly also delayed:
+		if (event instanceof InventoryClickEvent) {
+			if (this.isTradesPageBar(((InventoryClickEvent) event).getRawSlot())) return;
+		} else if (!(event instanceof InventoryDragEvent)) {
+			return;
+		}
+
+		EditorSession editorSession = this.getEditorSession(uiSession.getPlayer());
+		if (editorSession == null) return;
+		editorSession.invalidateDisplayedTrades();
+	}
+
 	@Override
 	protected void onInventoryDragEarly(UISession uiSession, InventoryDragEvent event) {
 		assert uiSession != null && event != null;
@@ -964,8 +1101,14 @@ public abstract class AbstractEditorHandler extends UIHandler {
 
 		// Replace recipes:
 		for (int column = 0; column < TRADES_COLUMNS; column++) {
-			TradingRecipeDraft recipeDraft = this.getTradingRecipe(inventory, column);
 			int recipeIndex = startIndex + column;
+			// Only read the trade columns from the inventory that might have changed since they
+			// were set up, and reuse the session's drafts if their items did not change:
+			TradingRecipeDraft recipeDraft = editorSession.getDisplayedTrade(column);
+			if (recipeDraft == null) {
+				TradingRecipeDraft previousDraft = recipes.get(recipeIndex);
+				recipeDraft = this.getTradingRecipe(inventory, column, previousDraft);
+			}
 			recipes.set(recipeIndex, recipeDraft);
 		}
 	}
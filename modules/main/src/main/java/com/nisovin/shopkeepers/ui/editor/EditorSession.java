@@ -1,9 +1,11 @@
 package com.nisovin.shopkeepers.ui.editor;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ui.UISession;
 import com.nisovin.shopkeepers.shopkeeper.TradingRecipeDraft;
@@ -18,6 +20,10 @@ public class EditorSession {
 	private final List<TradingRecipeDraft> recipes;
 	private final Inventory inventory;
 	private int currentPage = 1;
+	// The recipe drafts that the trade columns of the inventory currently display, or null for
+	// columns that might have been modified since they were set up:
+	private final @Nullable TradingRecipeDraft[] displayedTrades
+			= new @Nullable TradingRecipeDraft[AbstractEditorHandler.TRADES_COLUMNS];
 
 	protected EditorSession(
 			UISession uiSession,
@@ -60,4 +66,24 @@ public class EditorSession {
 	public final List<TradingRecipeDraft> getRecipes() {
 		return recipes;
 	}
+
+	/**
+	 * Gets the recipe draft that the specified trade column currently displays.
+	 * 
+	 * @param column
+	 *            the trade column
+	 * @return the displayed recipe draft, or <code>null</code> if the trade column might have been
+	 *         modified since it was set up
+	 */
+	@Nullable TradingRecipeDraft getDisplayedTrade(int column) {
+		return displayedTrades[column];
+	}
+
+	void setDisplayedTrade(int column, @Nullable TradingRecipeDraft recipe) {
+		displayedTrades[column] = recipe;
+	}
+
+	void invalidateDisplayedTrades() {
+		Arrays.fill(displayedTrades, null);
+	}
 }
@@ -2,9 +2,14 @@ package com.nisovin.shopkeepers.ui.trading;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bukkit.Bukkit;
 import org.bukkit.Statistic;
 import org.bukkit.entity.Player;
@@ -20,8 +25,10 @@ import org.bukkit.inventory.Merchant;
 import org.bukkit.inventory.MerchantInventory;
 import org.bukkit.inventory.MerchantRecipe;
 import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeCompletedEvent;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
@@ -66,6 +73,11 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 	protected static final int RESULT_ITEM_SLOT_ID = 2;
 
 	private final List<TradingListener> tradingListeners = new ArrayList<>();
+	// The trading recipes that the merchant recipes of the currently open trading windows
+	// correspond to, by player unique id. Only contains entries for windows whose merchant recipes
+	// match these trading recipes index by index.
+	private final Map<UUID, List<? extends TradingRecipe>> openTradingRecipes
+			= new ConcurrentHashMap<>();
 
 	public TradingHandler(AbstractShopkeeper shopkeeper) {
 		this(SKDefaultUITypes.TRADING(), shopkeeper);
@@ -160,7 +172,10 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 		}
 
 		// Open merchant:
-		return (player.openMerchant(merchant, true) != null);
+		if (player.openMerchant(merchant, true) == null) return false;
+
+		openTradingRecipes.put(player.getUniqueId(), recipes);
+		return true;
 	}
 
 	protected Merchant setupMerchant(String title, List<? extends TradingRecipe> recipes) {
@@ -201,6 +216,18 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 		return Messages.tradingTitlePrefix + title;
 	}
 
+	/**
+	 * Updates the trades of the trading window of the given player, if they are no longer
+	 * up-to-date.
+	 * <p>
+	 * If the trading recipes that the player's current merchant recipes are based on are known,
+	 * this only compares the trading recipes and only recreates the merchant recipes that changed
+	 * (e.g. due to a change of their stock state). Otherwise, this recreates and compares all
+	 * merchant recipes.
+	 * 
+	 * @param player
+	 *            the player, not <code>null</code>
+	 */
 	protected void updateTrades(Player player) {
 		// Check if the currently open inventory still corresponds to this UI:
 		if (!this.isOpen(player)) return;
@@ -209,15 +236,21 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 		assert openInventory.getType() == InventoryType.MERCHANT;
 		MerchantInventory merchantInventory = (MerchantInventory) openInventory.getTopInventory();
 		Merchant merchant = merchantInventory.getMerchant();
-		List<MerchantRecipe> oldMerchantRecipes = merchant.getRecipes();
 
 		Shopkeeper shopkeeper = this.getShopkeeper();
 		List<? extends TradingRecipe> recipes = shopkeeper.getTradingRecipes(player);
-		List<MerchantRecipe> newMerchantRecipes = this.createMerchantRecipes(recipes);
-		if (MerchantUtils.MERCHANT_RECIPES_IGNORE_USES_EXCEPT_BLOCKED.equals(
-				oldMerchantRecipes,
-				newMerchantRecipes
-		)) {
+		UUID playerId = player.getUniqueId();
+		@Nullable List<? extends TradingRecipe> oldRecipes = openTradingRecipes.get(playerId);
+		boolean updated;
+		if (oldRecipes != null
+				&& oldRecipes.size() == merchant.getRecipeCount()
+				&& recipes.size() >= oldRecipes.size()) {
+			updated = this.updateChangedTrades(merchant, oldRecipes, recipes);
+		} else {
+			updated = this.updateAllTrades(merchant, recipes);
+		}
+
+		if (!updated) {
 			Log.debug(() -> shopkeeper.getLogPrefix() + "Trades are still up-to-date for player "
 					+ player.getName());
 			return; // Recipes did not change
@@ -225,15 +258,102 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 		Log.debug(() -> shopkeeper.getLogPrefix() + "Updating trades for player "
 				+ player.getName());
 
+		if (merchant.getRecipeCount() == recipes.size()) {
+			openTradingRecipes.put(playerId, recipes);
+		} else {
+			// The merchant recipes include dummy recipes:
+			openTradingRecipes.remove(playerId);
+		}
+
+		// Update recipes for the client:
+		NMSManager.getProvider().updateTrades(player);
+	}
+
+	// Only recreates the merchant recipes whose trading recipes changed. Expects that the new
+	// trading recipes are no fewer than the old trading recipes. Returns true if the merchant
+	// recipes were updated.
+	private boolean updateChangedTrades(
+			Merchant merchant,
+			List<? extends TradingRecipe> oldRecipes,
+			List<? extends TradingRecipe> newRecipes
+	) {
+		int oldRecipeCount = oldRecipes.size();
+		int newRecipeCount = newRecipes.size();
+		assert newRecipeCount >= oldRecipeCount;
+
+		boolean updated = false;
+		for (int i = 0; i < oldRecipeCount; ++i) {
+			TradingRecipe newRecipe = newRecipes.get(i);
+			// Compares the items and the stock state:
+			if (newRecipe.equals(oldRecipes.get(i))) continue;
+
+			merchant.setRecipe(i, this.createMerchantRecipe(newRecipe));
+			updated = true;
+		}
+
+		if (newRecipeCount > oldRecipeCount) {
+			// The merchant's recipe list is not necessarily modifiable:
+			List<MerchantRecipe> merchantRecipes = new ArrayList<>(merchant.getRecipes());
+			for (int i = oldRecipeCount; i < newRecipeCount; ++i) {
+				merchantRecipes.add(this.createMerchantRecipe(newRecipes.get(i)));
+			}
+			merchant.setRecipes(merchantRecipes);
+			updated = true;
+		}
+		return updated;
+	}
+
+	// Recreates and compares all merchant recipes. Returns true if the merchant recipes were
+	// updated.
+	private boolean updateAllTrades(Merchant merchant, List<? extends TradingRecipe> recipes) {
+		List<MerchantRecipe> oldMerchantRecipes = merchant.getRecipes();
+		List<MerchantRecipe> newMerchantRecipes = this.createMerchantRecipes(recipes);
+		if (MerchantUtils.MERCHANT_RECIPES_IGNORE_USES_EXCEPT_BLOCKED.equals(
+				oldMerchantRecipes,
+				newMerchantRecipes
+		)) {
+			return false;
+		}
+
 		// It is not safe to reduce the number of trading recipes for the player, so we may need to
 		// add dummy recipes:
 		this.ensureNoFewerRecipes(oldMerchantRecipes, newMerchantRecipes);
 
 		// Set merchant's recipes:
 		merchant.setRecipes(newMerchantRecipes);
+		return true;
+	}
 
-		// Update recipes for the client:
-		NMSManager.getProvider().updateTrades(player);
+	/**
+	 * Updates the trades of the trading player, and of all other players that currently trade with
+	 * the same shopkeeper, since the applied trades might have affected the stock of the
+	 * shopkeeper.
+	 * 
+	 * @param tradingPlayer
+	 *            the trading player, not <code>null</code>
+	 */
+	protected void updateTradesAfterTrading(Player tradingPlayer) {
+		this.updateTrades(tradingPlayer);
+
+		Plugin plugin = ShopkeepersPlugin.getInstance();
+		Collection<? extends UISession> uiSessions = ShopkeepersAPI.getUIRegistry().getUISessions(
+				this.getShopkeeper(),
+				this.getUIType()
+		);
+		uiSessions.forEach(uiSession -> {
+			Player player = uiSession.getPlayer();
+			if (player == tradingPlayer) return;
+
+			if (Bukkit.isOwnedByCurrentRegion(player)) {
+				this.updateTrades(player);
+			} else {
+				// On Folia, the player might be owned by another region:
+				player.getScheduler().run(plugin, task -> {
+					if (!uiSession.isValid()) return;
+					this.updateTrades(player);
+				}, null);
+			}
+		});
 	}
 
 	// Dynamically modifying trades (e.g. their blocked state, or properties such as their items),
@@ -297,7 +417,8 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 
 	@Override
 	protected void onInventoryClose(UISession uiSession, @Nullable InventoryCloseEvent closeEvent) {
-		// Callback for subclasses.
+		// Subclasses are expected to call this super method when overriding it.
+		openTradingRecipes.remove(uiSession.getPlayer().getUniqueId());
 	}
 
 	// TRADE PROCESSING
@@ -468,7 +589,7 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 				this.commonApplyTrade(trade);
 			}
 
-			this.updateTrades(player);
+			this.updateTradesAfterTrading(player);
 		} else if (action == InventoryAction.DROP_ONE_SLOT || action == InventoryAction.DROP_ALL_SLOT) {
 			// Not supported for now, since this might be tricky to accurately reproduce.
 			// dropItemNaturally is not equivalent to the player himself dropping the item and
@@ -522,7 +643,7 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 					this.commonApplyTrade(trade);
 				}
 
-				this.updateTrades(player);
+				this.updateTradesAfterTrading(player);
 			}
 		} else if (action == InventoryAction.MOVE_TO_OTHER_INVENTORY) {
 			// Trades as often as possible (depending on offered items and inventory space) for the
@@ -612,7 +733,7 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 				}
 			}
 
-			this.updateTrades(player);
+			this.updateTradesAfterTrading(player);
 		} else {
 			// The inventory action involves the result slot, but does not usually trigger a trade,
 			// or is not supported yet.
@@ -851,6 +972,13 @@ public class TradingHandler extends AbstractShopkeeperUIHandler {
 	// Returns false if the trade was aborted.
 	private boolean handleTrade(Trade trade) {
 		assert trade != null;
+		// The shopkeeper might have started to move to another region since the UI was opened:
+		if (this.getShopkeeper().isInTransit()) {
+			this.debugPreventedTrade(trade.getTradingPlayer(), "The shopkeeper is being moved.");
+			this.onTradeAborted(trade.getTradingContext(), false);
+			return false;
+		}
+
 		// Shopkeeper-specific checks and preparation:
 		if (!this.prepareTrade(trade)) {
 			// The trade got cancelled for some shopkeeper-specific reason:
@@ -35,9 +35,6 @@ import com.nisovin.shopkeepers.util.logging.Log;
 
 public final class EntityUtils {
 
-	// Temporarily re-used location object:
-	private static final Location SHARED_LOCATION = new Location(null, 0, 0, 0);
-
 	private static final Set<Material> LAVA = Collections.singleton(Material.LAVA);
 
 	/**
@@ -182,20 +179,27 @@ public final class EntityUtils {
 		if (world == null) return null;
 
 		double radiusSq = radius * radius;
-		Player nearestPlayer = null;
-		double nearestDistanceSq = Double.MAX_VALUE;
-		for (Player player : SKShopkeepersPlugin.getInstance().getPlayerMap().getPlayers(world.getName())) {
-			Location playerLocation = Unsafe.assertNonNull(player.getLocation(SHARED_LOCATION));
-			double distanceSq = LocationUtils.getDistanceSquared(playerLocation, location);
-			if (distanceSq <= radiusSq
-					&& distanceSq < nearestDistanceSq
-					&& filter.test(player)) {
-				nearestPlayer = player;
-				nearestDistanceSq = distanceSq;
-			}
-			SHARED_LOCATION.setWorld(null); // Reset
-		}
-		return nearestPlayer;
+		// Not shared, since this can be invoked concurrently by different region threads:
+		Location playerLocation = new Location(null, 0, 0, 0);
+		@Nullable Player[] nearestPlayer = new @Nullable Player[1];
+		double[] nearestDistanceSq = new double[] { Double.MAX_VALUE };
+		SKShopkeepersPlugin.getInstance().getPlayerMap().forEachNearbyPlayer(
+				world.getName(),
+				location.getX(),
+				location.getZ(),
+				radius,
+				player -> {
+					player.getLocation(playerLocation);
+					double distanceSq = LocationUtils.getDistanceSquared(playerLocation, location);
+					if (distanceSq <= radiusSq
+							&& distanceSq < nearestDistanceSq[0]
+							&& filter.test(player)) {
+						nearestPlayer[0] = player;
+						nearestDistanceSq[0] = distanceSq;
+					}
+				}
+		);
+		return nearestPlayer[0];
 	}
 
 	public static List<Player> getNearbyPlayers(Location location, double radius) {
@@ -212,15 +216,21 @@ public final class EntityUtils {
 		if (world == null) return players;
 
 		double radiusSq = radius * radius;
-		SKShopkeepersPlugin.getInstance().getPlayerMap().getPlayers(world.getName()).forEach(player -> {
-			assert player != null;
-			Location playerLocation = Unsafe.assertNonNull(player.getLocation(SHARED_LOCATION));
-			if (LocationUtils.getDistanceSquared(playerLocation, location) <= radiusSq
-					&& filter.test(Unsafe.assertNonNull(player))) {
-				players.add(player);
-			}
-			SHARED_LOCATION.setWorld(null); // Reset
-		});
+		// Not shared, since this can be invoked concurrently by different region threads:
+		Location playerLocation = new Location(null, 0, 0, 0);
+		SKShopkeepersPlugin.getInstance().getPlayerMap().forEachNearbyPlayer(
+				world.getName(),
+				location.getX(),
+				location.getZ(),
+				radius,
+				player -> {
+					player.getLocation(playerLocation);
+					if (LocationUtils.getDistanceSquared(playerLocation, location) <= radiusSq
+							&& filter.test(player)) {
+						players.add(player);
+					}
+				}
+		);
 		return players;
 	}
 
@@ -1,34 +1,48 @@
 package com.nisovin.shopkeepers.util.bukkit;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.Plugin;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.java.SingleWriterExecutor;
 import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
- * Represents a task that is triggered from the server's main thread and of which only one execution
- * can take place simultaneously.
+ * Represents a task of which only one execution can take place simultaneously.
  * <p>
- * The task is usually run asynchronously, but it may also run on the server's main thread (for
- * example when forcing an immediate execution, such as during shutdown).
+ * The task is usually executed on the writer thread of a {@link SingleWriterExecutor}, but it may
+ * also run on the current thread (for example when forcing an immediate execution, such as during
+ * shutdown). Each execution is prepared and post-processed on the global region thread.
  * <p>
  * While the task is already running asynchronously, any subsequent requests to execute the task are
  * deferred until after the task finishes its current execution. The next execution of the task is
  * then responsible to perform the work that has accumulated in the meantime.
  * <p>
- * If not noted otherwise, all methods are meant to be called from the main thread. The task cannot
- * be interacted with from within executions, such as attempting to trigger another execution.
+ * Requests to execute the task are accepted from any server thread. Requests from other threads
+ * than the global region thread are forwarded to the global region thread, so that the task state
+ * is only modified by one thread during normal operation, and so that region threads do not need
+ * to wait for the task. The returned futures can be used to react to the completion of the
+ * requested execution. The task cannot be interacted with from within executions, such as
+ * attempting to trigger another execution.
+ * <p>
+ * If the executor's queue is full, the execution is submitted again after a short delay.
  * <p>
  * A possible use case is an IO task that writes to a specific file, but of which only one execution
  * is allowed to take place at the same time.
  */
 public abstract class SingletonTask {
 
+	// The delay before an execution is submitted again after the executor rejected it:
+	private static final long RESUBMIT_DELAY_TICKS = 1L;
+
 	private enum State {
 		/**
 		 * Default state when no execution is in progress.
@@ -45,8 +59,7 @@ public abstract class SingletonTask {
 		/**
 		 * An execution is in progress.
 		 * <p>
-		 * For an asynchronous execution this state may get set asynchronously. In this case,
-		 * checking for it has to be guarded by the execution lock.
+		 * For an asynchronous execution this state is set by the writer thread.
 		 */
 		EXECUTING,
 		/**
@@ -56,24 +69,30 @@ public abstract class SingletonTask {
 	}
 
 	private final Plugin plugin;
-	// The lock used to coordinate the main thread with threads executing the task asynchronously.
-	// Note: This lock is not acquired for synchronous executions.
+	private final SingleWriterExecutor executor;
+	// Guards the state of this task. The writer thread does not acquire this lock: It coordinates
+	// with the other threads by claiming the execution (see InternalAsyncTask).
 	// Note: This lock is not provided to the outside of this class, because it is not suited for
 	// the coordination with other tasks. Each task execution completes with the execution of its
-	// synchronous callback. So instead, other tasks can use #awaitExecutions() to wait for any
-	// current and pending executions to complete.
-	private final Object executionLock = new Object();
-
-	private State state = State.NOT_RUNNING;
-	// The Bukkit task asynchronously executing this task. Only relevant for async executions.
-	private @Nullable ScheduledTask asyncTask = null;
-	// The (internal) callbacks of the current execution:
-	// Run immediately, possibly asynchronously:
-	private @Nullable Runnable internalCallback = null;
+	// synchronous callback. So instead, other tasks can use the futures returned by #run(), or
+	// #awaitExecutions() to wait for any current and pending executions to complete.
+	private final Object stateLock = new Object();
+
+	private volatile State state = State.NOT_RUNNING;
+	// The thread that currently runs the preparation, synchronous execution, or synchronous
+	// callback. Used to detect interactions with the task from within its execution.
+	private @Nullable Thread syncExecutionThread = null;
+	// The current asynchronous execution. Only relevant for async executions.
+	private @Nullable InternalAsyncTask asyncTask = null;
+	// The synchronous callback of the current execution:
 	private @Nullable Runnable internalSyncCallback = null;
+	// Completed after the synchronous callback of the current execution:
+	private @Nullable CompletableFuture<Void> completion = null;
 	// Flag that indicates whether the task should execute again after its current execution
 	// finishes:
-	private boolean runAgain = false;
+	private volatile boolean runAgain = false;
+	// Completed after the synchronous callback of the pending next execution:
+	private @Nullable CompletableFuture<Void> nextCompletion = null;
 	// Whether the pending next execution shall be executed synchronously:
 	private boolean runAgainSync = false;
 
@@ -85,14 +104,15 @@ public abstract class SingletonTask {
 	private long startTimeNanos;
 	private long preparationEndTimeNanos;
 	private long preparationDurationMillis;
-	private long lockAcquireDurationMillis;
 	private long executionDelayMillis;
 	private long executionDurationMillis;
 	private long totalDurationMillis;
 
-	public SingletonTask(Plugin plugin) {
+	public SingletonTask(Plugin plugin, SingleWriterExecutor executor) {
 		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(executor, "executor is null");
 		this.plugin = plugin;
+		this.executor = executor;
 	}
 
 	/**
@@ -101,7 +121,6 @@ public abstract class SingletonTask {
 	 * @return <code>true</code> if an execution is in progress
 	 */
 	public final boolean isRunning() {
-		assert Bukkit.isPrimaryThread();
 		return (state != State.NOT_RUNNING);
 	}
 
@@ -111,7 +130,6 @@ public abstract class SingletonTask {
 	 * @return <code>true</code> if there is an execution that is currently being post-processed
 	 */
 	public final boolean isPostProcessing() {
-		assert Bukkit.isPrimaryThread();
 		return (state == State.SYNC_CALLBACK);
 	}
 
@@ -125,23 +143,15 @@ public abstract class SingletonTask {
 		return runAgain;
 	}
 
-	private boolean isWithinSyncExecution() {
-		assert Bukkit.isPrimaryThread();
-		return (state == State.PREPARING)
-				|| (asyncTask == null && state == State.EXECUTING)
-				|| (state == State.SYNC_CALLBACK);
-	}
-
-	private void validateMainThreadAndNotWithinExecution() {
-		Validate.State.isTrue(Bukkit.isPrimaryThread(),
-				"This operation has to be called from the main thread!");
-		if (this.isWithinSyncExecution()) {
+	private void validateNotWithinExecution() {
+		assert Thread.holdsLock(stateLock);
+		if (syncExecutionThread == Thread.currentThread() || executor.isWriterThread()) {
 			Validate.State.error(
 					"This operation is not allowed to be called from within the task's execution!"
 			);
 		}
 		// Note: If there is an async execution in progress, we may observe state PENDING or state
-		// EXECUTING. Calling this method from the main thread is allowed in this case.
+		// EXECUTING. Calling this method from another thread is allowed in this case.
 	}
 
 	/**
@@ -154,32 +164,56 @@ public abstract class SingletonTask {
 	 * {@link #execute()}, or {@link #syncCallback()}.
 	 */
 	public final void shutdown() {
-		this.validateMainThreadAndNotWithinExecution();
 		// Wait for any current async execution to finish. This may also trigger and wait for any
 		// other pending execution.
 		this.awaitExecutions();
 	}
 
 	/**
-	 * 请求 （异步） 执行任务。
+	 * Requests an (asynchronous) execution of the task.
+	 * <p>
+	 * If an asynchronous execution is already in progress, another execution is triggered once the
+	 * current execution completes.
 	 * <p>
-	 * 如果异步执行已在进行中，则一旦
-	 * 当前执行完成。
+	 * If this is called from another thread than the global region thread, the request is
+	 * forwarded to the global region thread.
 	 * <p>
-	 * 在插件禁用期间（在插件已被标记为 {@link Plugin#isEnabled（） 之后
-	 * disabled}），则不支持异步执行。然后，任何执行请求都将采用
-	 * 立即放置。
+	 * Asynchronous executions are not supported during plugin disable (after the plugin has
+	 * already been marked as {@link Plugin#isEnabled() disabled}). Any execution requests take
+	 * place immediately then.
 	 * <p>
-	 * 此方法不能从执行中调用，即从 {@link #prepare（）} 中调用，
-	 * {@link #execute（）} 或 {@link #syncCallback（）}。
+	 * This method cannot be called from within an execution, i.e. from within {@link #prepare()},
+	 * {@link #execute()}, or {@link #syncCallback()}.
+	 * 
+	 * @return a future that completes once the requested execution, including its synchronous
+	 *         callback, has completed, or that is cancelled if the request could not be forwarded
+	 *         to the global region thread
 	 */
-	public final void run() {
-		if (plugin.isEnabled()) {
-			this.runTask(true);
-		} else {
+	public final CompletableFuture<Void> run() {
+		if (!plugin.isEnabled()) {
 			// During plugin disable, all executions take place immediately:
-			this.runTask(false);
+			return this.runTask(false);
+		}
+		if (Bukkit.isGlobalTickThread()) {
+			return this.runTask(true);
 		}
+
+		CompletableFuture<Void> request = new CompletableFuture<>();
+		try {
+			Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
+				this.run().whenComplete((result, error) -> {
+					if (error != null) {
+						request.completeExceptionally(error);
+					} else {
+						request.complete(null);
+					}
+				});
+			});
+		} catch (IllegalPluginAccessException e) {
+			// Couldn't register task: The plugin got disabled just now.
+			request.cancel(false);
+		}
+		return request;
 	}
 
 	/**
@@ -187,7 +221,8 @@ public abstract class SingletonTask {
 	 * <p>
 	 * If an asynchronous execution is already in progress, this method waits for it to finish
 	 * before performing the requested execution. This method blocks until the requested execution
-	 * completes.
+	 * completes. It is therefore meant to be only used in situations in which the caller needs to
+	 * wait for the execution anyway, such as during plugin disable.
 	 * <p>
 	 * This method cannot be called from within an execution, i.e. from within {@link #prepare()},
 	 * {@link #execute()}, or {@link #syncCallback()}.
@@ -199,15 +234,18 @@ public abstract class SingletonTask {
 	/**
 	 * Waits (blocking!) for any current and pending executions to complete.
 	 * <p>
+	 * This method is meant to be only used in situations in which the caller needs to wait for
+	 * the task anyway, such as during plugin disable or reload.
+	 * <p>
 	 * This method cannot be called from within an execution, i.e. from within {@link #prepare()},
 	 * {@link #execute()}, or {@link #syncCallback()}.
 	 * <p>
 	 * Implementation notes:<br>
-	 * If an async execution has already been scheduled, but not yet started, the async execution is
-	 * cancelled and then run synchronously. This is because the Bukkit scheduler starts async tasks
-	 * from within the main thread, which we are blocking currently. Also note: We do not skip the
-	 * execution in this case in order to ensure that progress is made. Otherwise, frequent requests
-	 * to start the task could continually abort the task so that it is never able to complete.
+	 * If an async execution has already been submitted, but not yet been started by the writer
+	 * thread, the async execution is taken over and run synchronously. This avoids waiting for any
+	 * other tasks that are queued in the executor. Also note: We do not skip the execution in this
+	 * case in order to ensure that progress is made. Otherwise, frequent requests to start the task
+	 * could continually abort the task so that it is never able to complete.
 	 * <p>
 	 * Otherwise, if the async execution has already started, this will wait for it to finish. The
 	 * sync callback will then need to be manually run by us in order to complete the previous
@@ -218,177 +256,222 @@ public abstract class SingletonTask {
 	 * finish.
 	 */
 	public final void awaitExecutions() {
-		this.validateMainThreadAndNotWithinExecution();
-		if (asyncTask == null) {
-			// There is no async execution in progress.
-			// Assertion: Consequently, there is also no pending request to run the task again.
-			assert !runAgain;
-			return;
-		}
+		synchronized (stateLock) {
+			this.validateNotWithinExecution();
+			InternalAsyncTask asyncTask = this.asyncTask;
+			if (asyncTask == null) {
+				// There is no async execution in progress.
+				// Assertion: Consequently, there is also no pending request to run the task again.
+				assert !runAgain;
+				return;
+			}
 
-		// If an async execution is currently executing, acquiring the lock will wait for it to
-		// finish.
-		// If the async execution has not taken the lock yet, then it is either still pending to be
-		// started by the Scheduler on the main thread (which we are currently blocking), or it has
-		// already been started but not acquired the lock yet. In the latter case there may or may
-		// not already exist a worker thread for it, and it may or may not have checked its
-		// cancellation state yet.
-		synchronized (executionLock) {
-			if (state == State.PENDING) {
-				// The task has not yet started its execution / taken the lock yet.
-				// We cancel it and manually run it here. Note: We cancel this within the locked
-				// section, because the cancellation is only required (and effective) if the task
-				// has not started executing yet. Reliably checking for this state requires the
-				// lock.
-				// However, a worker thread may already exist for it and the task may already have
-				// checked its cancellation state. This is why the async task has to check its
-				// cancellation state again within the locked section in order to reliably detect
-				// it.
-				assert asyncTask != null;
-				asyncTask.cancel();
-			} else {
-				assert state == State.EXECUTING;
-				// Because we were able to acquire the lock, and we are no longer in state PENDING,
-				// the task must already have finished its execution and async callback. However,
-				// its sync callback is still pending to be run. We will manually run it here.
+			// Any other pending execution will take place immediately:
+			runAgainSync = true;
+			try {
+				if (asyncTask.claim()) {
+					// The writer thread has not started the execution yet: We take it over and run
+					// it here.
+					// We reset the asyncTask variable here to indicate that we are synchronously
+					// executing. The asyncExecution variable still reflects the original state.
+					this.asyncTask = null;
+					this.executeTask(null);
+					// Assertion: This also invoked the sync callback.
+					assert internalSyncCallback == null;
+				} else {
+					// The execution has already been started by the writer thread. Wait for it to
+					// complete. The sync callback is then still pending and run by us.
+					asyncTask.awaitExecution();
+					// This will reset the execution state, so that the pending task for the sync
+					// callback can detect that it has already been run here.
+					Unsafe.assertNonNull(internalSyncCallback).run();
+				}
+				// Note: The sync callback of the previous execution also triggered and immediately
+				// executed any pending execution.
+			} finally {
+				runAgainSync = false; // Reset
 			}
-		}
-		// Else: state is PENDING and execution got cancelled:
-		boolean hasExecuted = (state == State.EXECUTING);
-
-		// If the execution got cancelled, we manually run it here.
-		// Any other pending execution will take place immediately:
-		runAgainSync = true;
-		if (!hasExecuted) {
-			// We reset the asyncTask variable here to indicate that we are synchronously executing
-			// (required for the validation of runTask(boolean)). The asyncExecution variable still
-			// reflects the original state.
-			asyncTask = null;
-			this.executeTask(null);
-			// Assertion: This will also invoke the immediate callback, which invokes the sync
-			// callback, which executes immediately as well because we are already in the main
-			// thread here.
-			assert internalSyncCallback == null;
-		} else {
-			// Else: The execution took place asynchronously, so the sync callback must still be
-			// pending.
-			Unsafe.assertNonNull(internalSyncCallback).run();
-			// This will reset the execution state, so that the pending task for the sync callback
-			// can detect that it has already been run here.
-		}
-		// Note: The sync callback of the previous execution will also trigger and immediately
-		// execute any pending execution.
-		runAgainSync = false; // Reset
 
-		// At this point, any previously executing and pending executions have been completed, and
-		// any state related to them has been reset.
+			// At this point, any previously executing and pending executions have been completed,
+			// and any state related to them has been reset.
+		}
 	}
 
-	private void runTask(boolean async) {
-		this.validateMainThreadAndNotWithinExecution();
-		// During plugin disable, only synchronous executions are allowed, because the Bukkit
-		// Scheduler does no longer accept new tasks. This has to be ensured by the caller (i.e.
-		// other methods of this class).
-		Validate.State.isTrue(!async || plugin.isEnabled(),
-				"Cannot execute asynchronously during or after plugin disable!");
+	private CompletableFuture<Void> runTask(boolean async) {
+		synchronized (stateLock) {
+			this.validateNotWithinExecution();
+			// During plugin disable, only synchronous executions are allowed, because we can no
+			// longer schedule the sync callbacks. This has to be ensured by the caller (i.e. other
+			// methods of this class).
+			Validate.State.isTrue(!async || plugin.isEnabled(),
+					"Cannot execute asynchronously during or after plugin disable!");
+
+			// Is another async execution already in progress?
+			if (asyncTask != null) {
+				// Trigger another execution once the current execution finishes:
+				runAgain = true;
+				CompletableFuture<Void> nextCompletion = this.nextCompletion;
+				if (nextCompletion == null) {
+					nextCompletion = new CompletableFuture<>();
+					this.nextCompletion = nextCompletion;
+				}
+				if (!async) {
+					// Wait for the current async execution to finish and then immediately execute
+					// again:
+					this.awaitExecutions();
+				} // Else: This execution will be triggered once the current execution finishes.
+				return nextCompletion;
+			} // Else: There is no other execution in progress currently.
+			assert state == State.NOT_RUNNING;
+			assert internalSyncCallback == null;
+			assert completion == null;
+			assert !runAgain;
+			// Other execution information and statistics get incrementally overwritten during the
+			// next execution.
+
+			// An execution that was requested during the previous execution completes this
+			// execution's future:
+			CompletableFuture<Void> completion = this.nextCompletion;
+			this.nextCompletion = null;
+			if (completion == null) {
+				completion = new CompletableFuture<>();
+			}
+			this.completion = completion;
+
+			// Keep track of information and statistics about this execution:
+			asyncExecution = async;
+			startTimeNanos = System.nanoTime();
+
+			// User preparation:
+			state = State.PREPARING;
+			syncExecutionThread = Thread.currentThread();
+			try {
+				this.prepare();
+			} finally {
+				syncExecutionThread = null;
+			}
+
+			// Sync callback: Gets run after the execution has completed. This is run prior to any
+			// subsequent execution and is responsible to reset any state associated with this
+			// execution.
+			// Note: This needs to be a new runnable (cannot be a lambda), in order to be able to
+			// reliable use the object's identity to identify whether the callback has already been
+			// run.
+			internalSyncCallback = this.createInternalSyncCallbackTask();
+
+			preparationEndTimeNanos = System.nanoTime();
+			preparationDurationMillis = TimeUnit.NANOSECONDS.toMillis(
+					preparationEndTimeNanos - startTimeNanos
+			);
+			state = State.PENDING;
 
-		// Is another async execution already in progress?
-		if (asyncTask != null) {
-			// Trigger another execution once the current execution finishes:
-			runAgain = true;
 			if (async) {
-				// This execution will be triggered once the current async execution finishes.
-				return;
+				// Asynchronous execution:
+				// If the async execution gets taken over later, a new execution (and new
+				// asyncTask) may get prepared before the submitted execution is actually run. We
+				// therefore cannot retrieve the executing task from this class' asyncTask variable.
+				// Instead, the execution captures its task.
+				// The execution is only submitted once any asynchronous work of the preparation
+				// has completed.
+				InternalAsyncTask asyncTask = this.createInternalAsyncTask();
+				this.asyncTask = asyncTask;
+				asyncTask.submitAfter(this.getAsyncPreparation());
 			} else {
-				// Wait for the current async execution to finish and then immediately execute
-				// again:
-				this.awaitExecutions();
-				return;
+				// Synchronous execution:
+				this.executeTask(null);
 			}
-		} // Else: There is no other execution in progress currently.
-		assert state == State.NOT_RUNNING;
-		assert asyncTask == null;
-		assert internalCallback == null;
-		assert internalSyncCallback == null;
-		assert !runAgain;
-		// Other execution information and statistics get incrementally overwritten during the next
-		// execution.
-
-		// Keep track of information and statistics about this execution:
-		asyncExecution = async;
-		startTimeNanos = System.nanoTime();
-
-		// User preparation:
-		state = State.PREPARING;
-		this.prepare();
-
-		// Immediate callback (possibly run asynchronously):
-		internalCallback = () -> {
-			assert state == State.EXECUTING;
-			// Ensure that we continue on the main thread for the synchronous callback:
-			// This gets omitted here if the plugin got disabled during an asynchronous execution.
-			// In this case the sync callback is manually run when the shutdown is handled on the
-			// main thread.
-			// Assertion: The syncCallback is still the one associated with this callback's
-			// execution. Preparation of any subsequent execution either waits for the previous
-			// execution and this callback to complete, or the async task for this execution and
-			// callback are cancelled and invoked manually.
-			// Also note: If this callback is run from the main thread, the sync callback is run
-			// immediately.
-			SchedulerUtils.runOnMainThreadOrOmit(
-					plugin,
-					Unsafe.assertNonNull(internalSyncCallback)
-			);
-		};
-
-		// Sync callback: Gets run on the main thread after the execution has completed. This is run
-		// prior to any subsequent execution and is responsible to reset any state associated with
-		// this execution.
-		// Note: This needs to be a new runnable (cannot be a lambda), in order to be able to
-		// reliable use the object's identity to identify whether the callback has already been run.
-		internalSyncCallback = this.createInternalSyncCallbackTask();
-
-		preparationEndTimeNanos = System.nanoTime();
-		preparationDurationMillis = TimeUnit.NANOSECONDS.toMillis(
-				preparationEndTimeNanos - startTimeNanos
-		);
-		state = State.PENDING;
-
-		if (async) {
-			// Asynchronous execution:
-			// If the async task gets cancelled later, a new execution (and new asyncTask) may get
-			// prepared before this task is actually run. We therefore cannot retrieve the executing
-			// task from this class' asyncTask variable. Instead we capture the task here.
-			// TODO Measure the time it takes to schedule the async task as part of the preparation?
-			// Tricky, since in general there is no guarantee about the order in which the task and
-			// any following instructions are executed.
-			this.asyncTask = this.createInternalAsyncTask().runTaskAsynchronously();
-		} else {
-			// Synchronous execution:
-			this.executeTask(null);
+			return completion;
 		}
 	}
 
 	/**
-	 * The type of the task determines how it is shown and merged with other tasks in timings
-	 * reports. This task class is only exposed so that subclasses can construct task instances of a
-	 * custom distinct type that derives from this type. The behavior of this task cannot be changed
-	 * by subclasses.
+	 * Represents an asynchronous execution of this task.
+	 * <p>
+	 * Each execution is either started by the writer thread of the executor, or
+	 * {@link SingletonTask#awaitExecutions() taken over} by another thread that needs to wait for
+	 * it. Whichever thread claims the execution first runs it.
+	 * <p>
+	 * This task class is only exposed so that subclasses can construct task instances of a custom
+	 * distinct type that derives from this type, which helps to identify the task in thread dumps
+	 * and debugging output. The behavior of this task cannot be changed by subclasses.
 	 */
-	public abstract class InternalAsyncTask{
+	public abstract class InternalAsyncTask {
 
-		private @Nullable ScheduledTask task; // Captured Bukkit task
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+		// Completed once the claiming writer thread has executed the task:
+		private final CompletableFuture<Void> executed = new CompletableFuture<>();
 
 		protected InternalAsyncTask() {
 		}
 
-		private ScheduledTask runTaskAsynchronously() {
-			this.task = Bukkit.getAsyncScheduler().runNow(plugin, t -> {
-				executeTask(task);
+		private boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+		private void submitAfter(CompletableFuture<?> preparation) {
+			if (preparation.isDone()) {
+				this.submit();
+				return;
+			}
+
+			// This may complete on any thread:
+			preparation.whenComplete((result, error) -> {
+				if (claimed.get()) return; // Already taken over
+				this.submit();
+			});
+		}
+
+		private void submit() {
+			executor.submit(() -> {
+				if (this.claim()) {
+					try {
+						executeTask(this);
+					} finally {
+						executed.complete(null);
+					}
+				}
+				return null;
+			}).whenComplete((result, error) -> {
+				if (error == null) return;
+				if (error instanceof RejectedExecutionException) {
+					this.onRejected();
+				} else {
+					Log.severe("Error during the execution of task "
+							+ SingletonTask.this.getClass().getName(), error);
+				}
 			});
-			return task;
 		}
 
+		// Back-pressure: The executor's queue is full.
+		private void onRejected() {
+			if (claimed.get()) return; // Already taken over
+
+			Log.debug(() -> "Executor queue is full: Submitting task "
+					+ SingletonTask.this.getClass().getName() + " again later.");
+			// If the plugin is being disabled, the resubmission is omitted, and the execution is
+			// instead taken over when the task is awaited during shutdown:
+			SchedulerUtils.runGlobalTaskScheduler(plugin, this::submit, RESUBMIT_DELAY_TICKS);
+		}
+
+		// Waits (blocking!) for the execution by the writer thread to complete.
+		private void awaitExecution() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					executed.get();
+					break;
+				} catch (InterruptedException e) {
+					// Keep waiting, but restore the interrupt status afterwards:
+					interrupted = true;
+				} catch (Exception e) {
+					// The execution failed. This has already been logged.
+					break;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	/**
@@ -399,51 +482,60 @@ public abstract class SingletonTask {
 	protected abstract InternalAsyncTask createInternalAsyncTask();
 
 	/**
-	 * 任务的类型决定了它在计时中的显示方式以及与其他任务的合并方式
-	 * 报告。此任务类仅公开，以便子类可以构造
-	 * 从此类型派生的自定义单值类型。无法更改此任务的行为
-	 * 按子类。
+	 * The synchronous callback of an execution.
+	 * <p>
+	 * This task class is only exposed so that subclasses can construct task instances of a custom
+	 * distinct type that derives from this type. The behavior of this task cannot be changed by
+	 * subclasses.
 	 */
 	public class InternalSyncCallbackTask implements Runnable {
 		@Override
 		public final void run() {
-			// We omit running this callback if it has already been run (for example when awaiting
-			// the execution to finish).
-			// We check the identity of the callback here (instead of checking for null), because if
-			// the callback has already been run manually, another execution (and its sync callback)
-			// might already have been prepared while the task for this callback (started by the
-			// async callback) was still pending execution.
-			if (internalSyncCallback != this) {
-				return;
-			}
-
-			// Reset state related to the previous execution.
-			// It is important that these get reset in the sync execution context so that we can
-			// reason about them within the main thread without requiring synchronization.
-			internalSyncCallback = null;
-			// Note: The (async) callback has already been run at this point.
-			internalCallback = null;
-			asyncTask = null;
-
-			assert state == State.EXECUTING;
-			state = State.SYNC_CALLBACK;
+			synchronized (stateLock) {
+				// We omit running this callback if it has already been run (for example when
+				// awaiting the execution to finish).
+				// We check the identity of the callback here (instead of checking for null),
+				// because if the callback has already been run manually, another execution (and
+				// its sync callback) might already have been prepared while the task for this
+				// callback (started by the async execution) was still pending execution.
+				if (internalSyncCallback != this) {
+					return;
+				}
 
-			// Synchronous user callback:
-			syncCallback();
+				// Reset state related to the previous execution.
+				internalSyncCallback = null;
+				asyncTask = null;
+				CompletableFuture<Void> completion = Unsafe.assertNonNull(
+						SingletonTask.this.completion
+				);
+				SingletonTask.this.completion = null;
 
-			// This execution has been completed:
-			state = State.NOT_RUNNING;
+				assert state == State.EXECUTING;
+				state = State.SYNC_CALLBACK;
+
+				// Synchronous user callback:
+				Thread previousSyncExecutionThread = syncExecutionThread;
+				syncExecutionThread = Thread.currentThread();
+				try {
+					syncCallback();
+				} finally {
+					syncExecutionThread = previousSyncExecutionThread;
+					// This execution has been completed:
+					state = State.NOT_RUNNING;
+					completion.complete(null);
+				}
 
-			// Trigger another execution if there is a pending execution request:
-			if (runAgain) {
-				runAgain = false;
-				if (runAgainSync) {
-					SingletonTask.this.runImmediately();
-				} else {
-					SingletonTask.this.run();
+				// Trigger another execution if there is a pending execution request:
+				if (runAgain) {
+					runAgain = false;
+					if (runAgainSync) {
+						SingletonTask.this.runTask(false);
+					} else {
+						SingletonTask.this.runTask(plugin.isEnabled());
+					}
 				}
+				assert !runAgain;
 			}
-			assert !runAgain;
 		}
 	}
 
@@ -454,63 +546,55 @@ public abstract class SingletonTask {
 	 */
 	protected abstract InternalSyncCallbackTask createInternalSyncCallbackTask();
 
-	// Potentially run asynchronously.
+	// Potentially run on the writer thread.
 	// asyncTask: The async task executing this method. Null for sync executions.
-	// If the async task got cancelled and another execution has already been started, this may not
-	// match the current value of this class' asyncTask variable.
-	private void executeTask(@Nullable ScheduledTask asyncTask) {
-		if (asyncTask != null) {
-			// Asynchronous execution:
-			// Requires the lock for coordination with the main thread, and might have been
-			// cancelled.
-			final long lockAcquireStartTimeNanos = System.nanoTime();
-			synchronized (executionLock) {
-				final long localLockAcquireDurationMillis = TimeUnit.NANOSECONDS.toMillis(
-						System.nanoTime() - lockAcquireStartTimeNanos
-				);
-
-				// If the async task has been cancelled, we skip the execution.
-				// In this case, the execution and callbacks are run on the main thread (when this
-				// execution got cancelled).
-				// The async task has already checked the cancellation state. However, there is a
-				// race condition between checking the state and the actual execution. Checking it
-				// here again within the locked section avoids this race condition.
-				if (asyncTask.isCancelled()) {
-					return;
-				}
-
-				// We only set the timing information if this task has not been cancelled.
-				// Otherwise, another task might already be in progress.
-				lockAcquireDurationMillis = localLockAcquireDurationMillis;
-
-				// Actual execution:
-				this.doExecuteTask();
-			}
-		} else {
-			// Synchronous execution:
-			// Does not require the lock.
-			lockAcquireDurationMillis = 0L;
-
-			// Actual execution:
-			this.doExecuteTask();
-		}
-	}
-
-	// Potentially run asynchronously.
-	private void doExecuteTask() {
+	// If the async task got taken over and another execution has already been started, this may
+	// not match the current value of this class' asyncTask variable.
+	private void executeTask(@Nullable InternalAsyncTask asyncTask) {
 		// Execution has started:
 		state = State.EXECUTING;
 		final long executionStartTimeNanos = System.nanoTime();
+		// For async executions, this includes the time the execution waited for the asynchronous
+		// preparation and in the executor's queue:
 		executionDelayMillis = TimeUnit.NANOSECONDS.toMillis(
 				executionStartTimeNanos - preparationEndTimeNanos
 		);
 
-		// User execution:
-		this.execute();
-
-		// Immediate (potentially async) callback:
-		Unsafe.assertNonNull(internalCallback).run();
+		if (asyncTask != null) {
+			// User execution:
+			try {
+				this.execute();
+			} finally {
+				this.updateExecutionStatistics(executionStartTimeNanos);
+				// Continue on the global region thread for the synchronous callback:
+				// This gets omitted here if the plugin got disabled during the asynchronous
+				// execution. In this case the sync callback is manually run when the shutdown is
+				// handled.
+				// Assertion: The syncCallback is still the one associated with this execution.
+				// Preparation of any subsequent execution either waits for this execution and its
+				// sync callback to complete, or this execution is taken over and the callback is
+				// invoked manually.
+				SchedulerUtils.runOnMainThreadOrOmit(
+						plugin,
+						Unsafe.assertNonNull(internalSyncCallback)
+				);
+			}
+		} else {
+			// Synchronous execution:
+			Thread previousSyncExecutionThread = syncExecutionThread;
+			syncExecutionThread = Thread.currentThread();
+			try {
+				this.execute();
+			} finally {
+				syncExecutionThread = previousSyncExecutionThread;
+				this.updateExecutionStatistics(executionStartTimeNanos);
+			}
+			// The sync callback is run immediately:
+			Unsafe.assertNonNull(internalSyncCallback).run();
+		}
+	}
 
+	private void updateExecutionStatistics(long executionStartTimeNanos) {
 		final long executionEndTimeNanos = System.nanoTime();
 		executionDurationMillis = TimeUnit.NANOSECONDS.toMillis(
 				executionEndTimeNanos - executionStartTimeNanos
@@ -526,8 +610,8 @@ public abstract class SingletonTask {
 	 * Checks whether the last execution has (initially) been asynchronous.
 	 * <p>
 	 * Note that if a request is made to immediately execute the task, any currently pending
-	 * asynchronous execution may actually take place synchronously on the main thread but still be
-	 * considered 'asynchronous' by this method.
+	 * asynchronous execution may actually take place synchronously on the current thread but still
+	 * be considered 'asynchronous' by this method.
 	 *
 	 * @return <code>true</code> if asynchronous
 	 */
@@ -544,21 +628,6 @@ public abstract class SingletonTask {
 		return preparationDurationMillis;
 	}
 
-	/**
-	 * Gets the duration it took to acquire the execution lock.
-	 * <p>
-	 * The lock is only acquired for asynchronous executions. For synchronous executions this
-	 * returns <code>0</code>.
-	 * <p>
-	 * This value might be useful for debugging purposes and should usually be relatively small
-	 * (less than <code>1</code> millisecond).
-	 *
-	 * @return the duration in milliseconds it took to acquire the execution lock
-	 */
-	public final long getLockAcquireDuration() {
-		return lockAcquireDurationMillis;
-	}
-
 	/**
 	 * Gets the delay between the task {@link #prepare() preparation} and the actual start of the
 	 * previous execution.
@@ -566,9 +635,9 @@ public abstract class SingletonTask {
 	 * Synchronous executions take place immediately after preparation. Consequently, this value
 	 * will usually only be interesting for {@link #isAsyncExecution() asynchronous executions}.
 	 * <p>
-	 * For asynchronous executions this includes the time it took to acquire the
-	 * {@link #getLockAcquireDuration() execution lock}, but which should usually be very small and
-	 * therefore not noticeable in this statistic.
+	 * For asynchronous executions this includes the time the execution waited for any
+	 * {@link #getAsyncPreparation() asynchronous preparation} to complete and for the executor's
+	 * writer thread to become available.
 	 *
 	 * @return the execution delay in milliseconds
 	 */
@@ -636,11 +705,6 @@ public abstract class SingletonTask {
 				sb.append("Sync execution delay: ");
 			}
 			sb.append(executionDelayMillis).append(" ms");
-
-			// The lock acquire duration is part of the execution delay:
-			if (lockAcquireDurationMillis > 0) {
-				sb.append(" (Lock delay: ").append(lockAcquireDurationMillis).append(" ms)");
-			}
 		}
 
 		if (executionDurationMillis > 0) {
@@ -662,19 +726,47 @@ public abstract class SingletonTask {
 	/////
 
 	/**
-	 * This is run on the main thread to prepare a new task execution.
+	 * This is run to prepare a new task execution.
+	 * <p>
+	 * This is usually run on the global region thread, but may also run on another thread that
+	 * requests an immediate execution, such as during plugin disable.
 	 */
 	protected abstract void prepare();
 
+	/**
+	 * Gets a future that completes once any asynchronous work that has been started by the last
+	 * {@link #prepare() preparation} has completed.
+	 * <p>
+	 * This is invoked after each preparation of an asynchronous execution. The execution is only
+	 * submitted to the executor once the returned future has completed, regardless of whether it
+	 * completed normally or exceptionally. The returned future is therefore expected to always
+	 * complete eventually.
+	 * <p>
+	 * If the execution is {@link #awaitExecutions() taken over} before the returned future has
+	 * completed, for example during plugin disable, the execution takes place without waiting for
+	 * the asynchronous preparation. The {@link #execute() execution} has to account for that.
+	 * <p>
+	 * By default, this returns an already completed future.
+	 *
+	 * @return the future, not <code>null</code>
+	 */
+	protected CompletableFuture<?> getAsyncPreparation() {
+		return CompletableFuture.completedFuture(null);
+	}
+
 	/**
 	 * The execution of the task.
 	 * <p>
-	 * This is potentially (but not necessarily) run asynchronously.
+	 * This is potentially (but not necessarily) run asynchronously on the writer thread of the
+	 * executor.
 	 */
 	protected abstract void execute();
 
 	/**
-	 * This is run on the main thread after the task has been executed.
+	 * This is run after the task has been executed.
+	 * <p>
+	 * This is usually run on the global region thread, but may also run on another thread that
+	 * awaits the execution, such as during plugin disable.
 	 */
 	protected abstract void syncCallback();
 }
@@ -73,6 +73,19 @@ public final class NumberSerializers {
 		}
 	};
 
+	/**
+	 * A {@link DataSerializer} for {@link Long} values.
+	 * <p>
+	 * During {@link DataSerializer#deserialize(Object) deserialization}, this
+	 * {@link DataSerializer} tries to convert the given data to a {@link Long}.
+	 */
+	public static final DataSerializer<Long> LONG = new NumberSerializer<Long>(Long.class) {
+		@Override
+		public @Nullable Long deserializeNumber(Object data) throws InvalidDataException {
+			return ConversionUtils.toLong(data);
+		}
+	};
+
 	/**
 	 * A {@link DataSerializer} for {@link Float} values.
 	 * <p>
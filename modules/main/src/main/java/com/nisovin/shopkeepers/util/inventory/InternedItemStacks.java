@@ -0,0 +1,130 @@
+package com.nisovin.shopkeepers.util.inventory;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.nullness.qual.PolyNull;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+
+/**
+ * A pool of interned {@link UnmodifiableItemStack}s.
+ * <p>
+ * Many shopkeepers store offers with equal items, such as the same currency or the same enchanted
+ * book. When these items are {@link #intern(UnmodifiableItemStack) interned}, all equal items
+ * usually share a single instance, which reduces the memory usage and allows most comparisons of
+ * interned items to be decided by identity. However, equal items are not guaranteed to be
+ * interned as the same instance, so interned items are still compared by their contents if they
+ * are not the same instance.
+ * <p>
+ * The pool only weakly references its items: Interned items that are no longer used are garbage
+ * collected and then automatically removed from the pool.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class InternedItemStacks {
+
+	// The pool key of an item, which caches the hash of the item.
+	static final class Key {
+
+		private final ItemStack item;
+		private final int hashCode;
+
+		Key(ItemStack item) {
+			this.item = item;
+			this.hashCode = hash(item);
+		}
+
+		private static int hash(ItemStack item) {
+			if (!item.hasItemMeta()) {
+				// Plain items skip the copy of their item meta:
+				return 31 * item.getType().hashCode() + item.getAmount();
+			}
+			return item.hashCode(); // Copies the item meta
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && item.equals(other.item);
+		}
+	}
+
+	// Maps the keys of the interned items to the interned items. The keys are strongly referenced
+	// by the interned items, so the entries remain available for as long as their interned items
+	// are in use. The hash of each item is only computed once, when its key is created for the
+	// lookup.
+	private static final Map<Key, WeakReference<SKUnmodifiableItemStack>> POOL
+			= new WeakHashMap<>();
+
+	/* Statistics */
+	private static long requests = 0L;
+	private static long hits = 0L;
+
+	/**
+	 * Gets the interned item that is {@link ItemStack#equals(Object) equal} to the given item.
+	 * <p>
+	 * If there is no such interned item yet, the given item is interned and returned. The given
+	 * item is assumed to be immutable.
+	 *
+	 * @param itemStack
+	 *            the item stack, can be <code>null</code>
+	 * @return the interned item stack, or <code>null</code> if the given item stack is
+	 *         <code>null</code>
+	 */
+	public static @PolyNull UnmodifiableItemStack intern(
+			@PolyNull UnmodifiableItemStack itemStack
+	) {
+		if (!(itemStack instanceof SKUnmodifiableItemStack)) return itemStack;
+		SKUnmodifiableItemStack skItemStack = (SKUnmodifiableItemStack) itemStack;
+		if (skItemStack.isInterned()) return skItemStack;
+
+		@SuppressWarnings("deprecation")
+		Key key = new Key(skItemStack.getInternalItemStack());
+		synchronized (InternedItemStacks.class) {
+			requests++;
+			WeakReference<SKUnmodifiableItemStack> internedRef = POOL.get(key);
+			SKUnmodifiableItemStack interned = (internedRef != null) ? internedRef.get() : null;
+			if (interned != null) {
+				hits++;
+				return interned;
+			}
+
+			// Replace any stale entry whose interned item has already been collected, but whose key
+			// has not been removed yet: Since put retains the existing key, the new entry would
+			// otherwise be removed once that key is collected, even though the new interned item is
+			// still in use.
+			if (internedRef != null) {
+				POOL.remove(key);
+			}
+			skItemStack.setInterned(key);
+			POOL.put(key, new WeakReference<>(skItemStack));
+			return skItemStack;
+		}
+	}
+
+	/**
+	 * Gets a summary of the pool statistics.
+	 * <p>
+	 * The number of shared items indicates how many separate item copies have been avoided so far.
+	 *
+	 * @return the statistics summary
+	 */
+	public static synchronized String getStatisticsString() {
+		return "interned items: " + POOL.size()
+				+ ", requests | shared: " + requests + " | " + hits;
+	}
+
+	private InternedItemStacks() {
+	}
+}
@@ -35,12 +35,29 @@ public class SKUnmodifiableItemStack implements UnmodifiableItemStack {
 	// ----
 
 	private final ItemStack delegate;
+	// Whether this item is part of the InternedItemStacks pool:
+	private volatile boolean interned = false;
+	// Keeps the pool entry of this item alive while this item is in use:
+	private @Nullable InternedItemStacks.Key internKey = null;
 
 	private SKUnmodifiableItemStack(@ReadOnly ItemStack itemStack) {
 		assert itemStack != null;
 		this.delegate = itemStack;
 	}
 
+	boolean isInterned() {
+		return interned;
+	}
+
+	void setInterned() {
+		interned = true;
+	}
+
+	void setInterned(InternedItemStacks.Key internKey) {
+		this.internKey = internKey;
+		this.setInterned();
+	}
+
 	/**
 	 * Gets the underlying {@link ItemStack}.
 	 * <p>
@@ -451,6 +451,56 @@ public final class FileUtils {
 			Charset charset,
 			Logger logger,
 			@Nullable Path basePath
+	) throws IOException {
+		Validate.notNull(content, "content is null");
+		Validate.notNull(charset, "charset is null");
+		writeSafely(path, tempPath -> {
+			try (Writer writer = Files.newBufferedWriter(tempPath, charset)) {
+				writer.write(content);
+			}
+		}, logger, basePath);
+	}
+
+	/**
+	 * Safely writes the given binary content to a file at the specified path.
+	 * <p>
+	 * This behaves like {@link #writeSafely(Path, String, Charset, Logger, Path)}, but writes the
+	 * given bytes as they are.
+	 * 
+	 * @param path
+	 *            the file path
+	 * @param content
+	 *            the file content
+	 * @param logger
+	 *            the {@link Logger} to use for certain warnings
+	 * @param basePath
+	 *            if specified, any error or warning messages that include path strings will use the
+	 *            path relative to this base path instead
+	 * @throws IOException
+	 *             if the operation fails
+	 */
+	public static void writeSafely(
+			Path path,
+			byte[] content,
+			Logger logger,
+			@Nullable Path basePath
+	) throws IOException {
+		Validate.notNull(content, "content is null");
+		writeSafely(path, tempPath -> {
+			Files.write(tempPath, content);
+		}, logger, basePath);
+	}
+
+	@FunctionalInterface
+	private interface ContentWriter {
+		void write(Path tempPath) throws IOException;
+	}
+
+	private static void writeSafely(
+			Path path,
+			ContentWriter contentWriter,
+			Logger logger,
+			@Nullable Path basePath
 	) throws IOException {
 		var tempPath = getTempSibling(path);
 		assert tempPath != null;
@@ -473,8 +523,8 @@ public final class FileUtils {
 		}
 
 		// Create new temporary file and write data to it:
-		try (Writer writer = Files.newBufferedWriter(tempPath, charset)) {
-			writer.write(content);
+		try {
+			contentWriter.write(tempPath);
 		} catch (IOException e) {
 			throw new IOException("Could not write temporary file ("
 					+ relativize(basePath, tempPath) + "): " + ThrowableUtils.getDescription(e), e);
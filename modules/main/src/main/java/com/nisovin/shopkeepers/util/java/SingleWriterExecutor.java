@@ -0,0 +1,203 @@
+package com.nisovin.shopkeepers.util.java;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An executor that runs all submitted tasks one after the other on a single dedicated writer
+ * thread.
+ * <p>
+ * This is meant for IO tasks, such as writes to a specific file, of which only one is allowed to
+ * take place at the same time. Since all tasks are executed by the same thread, they are executed
+ * in the order in which they were submitted and do not need to coordinate with each other.
+ * <p>
+ * The number of queued tasks is limited. Instead of blocking the submitting thread, tasks that are
+ * submitted while the queue is full are rejected: The returned future then completes
+ * exceptionally with a {@link RejectedExecutionException}, and it is up to the caller to submit
+ * the task again later.
+ * <p>
+ * The executor can be {@link #start() started} again after it has been {@link #shutdown(long)
+ * shut down}.
+ */
+public final class SingleWriterExecutor {
+
+	private final String threadName;
+	private final int queueCapacity;
+
+	// Synchronized on this executor:
+	private @Nullable ThreadPoolExecutor executor = null;
+	private volatile @Nullable Thread writerThread = null;
+
+	// Statistics:
+	private final AtomicLong submittedTasks = new AtomicLong();
+	private final AtomicLong rejectedTasks = new AtomicLong();
+	private final AtomicLong completedTasks = new AtomicLong();
+	private volatile int maxQueuedTasks = 0;
+
+	/**
+	 * Creates a new {@link SingleWriterExecutor}.
+	 * <p>
+	 * The executor needs to be {@link #start() started} before it accepts tasks.
+	 *
+	 * @param threadName
+	 *            the name of the writer thread, not <code>null</code> or empty
+	 * @param queueCapacity
+	 *            the maximum number of tasks that can wait for their execution, at least
+	 *            <code>1</code>
+	 */
+	public SingleWriterExecutor(String threadName, int queueCapacity) {
+		Validate.notEmpty(threadName, "threadName is null or empty");
+		Validate.isTrue(queueCapacity > 0, "queueCapacity has to be positive");
+		this.threadName = threadName;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Starts this executor, if it is not already running.
+	 */
+	public synchronized void start() {
+		if (executor != null) return; // Already running
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				1,
+				1,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				runnable -> {
+					Thread thread = new Thread(runnable, threadName);
+					thread.setDaemon(true);
+					writerThread = thread;
+					return thread;
+				}
+		);
+		// Rejected tasks are reported via their futures:
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		this.executor = executor;
+	}
+
+	/**
+	 * Checks if this executor is running and accepts new tasks.
+	 *
+	 * @return <code>true</code> if running
+	 */
+	public synchronized boolean isRunning() {
+		return (executor != null);
+	}
+
+	/**
+	 * Checks if the current thread is the writer thread of this executor.
+	 *
+	 * @return <code>true</code> if called from the writer thread
+	 */
+	public boolean isWriterThread() {
+		return (Thread.currentThread() == writerThread);
+	}
+
+	/**
+	 * Gets the number of tasks that are currently waiting for their execution.
+	 *
+	 * @return the number of queued tasks
+	 */
+	public synchronized int getQueuedTasks() {
+		ThreadPoolExecutor executor = this.executor;
+		if (executor == null) return 0;
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Submits the given task for execution on the writer thread.
+	 * <p>
+	 * This never blocks. If this executor is not running, or if its queue is full, the returned
+	 * future completes exceptionally with a {@link RejectedExecutionException}.
+	 *
+	 * @param <T>
+	 *            the type of the result
+	 * @param task
+	 *            the task, not <code>null</code>
+	 * @return a future that completes with the result of the task once it has been executed
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task) {
+		Validate.notNull(task, "task is null");
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Runnable execution = () -> {
+			try {
+				future.complete(task.call());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			} finally {
+				completedTasks.incrementAndGet();
+			}
+		};
+
+		synchronized (this) {
+			ThreadPoolExecutor executor = this.executor;
+			try {
+				if (executor == null) {
+					throw new RejectedExecutionException("Executor '" + threadName
+							+ "' is not running!");
+				}
+				executor.execute(execution);
+			} catch (RejectedExecutionException e) {
+				rejectedTasks.incrementAndGet();
+				future.completeExceptionally(e);
+				return future;
+			}
+
+			submittedTasks.incrementAndGet();
+			int queuedTasks = executor.getQueue().size();
+			if (queuedTasks > maxQueuedTasks) {
+				maxQueuedTasks = queuedTasks;
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * Stops accepting new tasks and waits (blocking!) for the already submitted tasks to complete.
+	 *
+	 * @param timeoutMillis
+	 *            the maximum duration to wait in milliseconds
+	 * @return <code>true</code> if all submitted tasks have been completed, <code>false</code> if
+	 *         the timeout has been reached
+	 */
+	public boolean shutdown(long timeoutMillis) {
+		ThreadPoolExecutor executor;
+		synchronized (this) {
+			executor = this.executor;
+			if (executor == null) return true; // Not running
+			this.executor = null;
+		}
+
+		executor.shutdown();
+		try {
+			return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// Restore the interrupt status and abort waiting:
+			Thread.currentThread().interrupt();
+			return executor.isTerminated();
+		} finally {
+			writerThread = null;
+		}
+	}
+
+	/**
+	 * Gets a one-line summary of the statistics of this executor.
+	 *
+	 * @return the statistics summary
+	 */
+	public String getStatisticsString() {
+		return "Submitted: " + submittedTasks.get()
+				+ " | Completed: " + completedTasks.get()
+				+ " | Rejected: " + rejectedTasks.get()
+				+ " | Queued: " + this.getQueuedTasks() + "/" + queueCapacity
+				+ " (max " + maxQueuedTasks + ")";
+	}
+}
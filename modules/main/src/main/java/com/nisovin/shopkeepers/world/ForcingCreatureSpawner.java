@@ -1,28 +1,34 @@
 package com.nisovin.shopkeepers.world;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Entity;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.CreatureSpawnEvent;
-import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
-import com.nisovin.shopkeepers.util.bukkit.LocationUtils;
-import com.nisovin.shopkeepers.util.logging.Log;
+import com.nisovin.shopkeepers.util.java.Validate;
 
 /**
  * Tries to bypass other plugins that block the spawning of mobs (e.g. region protection plugins).
+ * <p>
+ * Forced spawns are tracked per entity: The entity is expected to be registered via
+ * {@link #forceCreatureSpawn(Entity)} inside the pre-spawn callback of {@code World#spawn}, i.e.
+ * before the entity is added to the world and the corresponding {@link CreatureSpawnEvent} is
+ * called. On Folia, concurrent spawns in different regions therefore do not interfere with each
+ * other.
  */
 public class ForcingCreatureSpawner implements Listener {
 
 	private final SKShopkeepersPlugin plugin;
 
-	private @Nullable Location nextSpawnLocation = null;
-	private @Nullable EntityType nextEntityType = null;
+	// Entities whose next spawn is forced:
+	private final Set<Entity> forcedEntities = ConcurrentHashMap.newKeySet();
 
 	public ForcingCreatureSpawner(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -35,51 +41,42 @@ public class ForcingCreatureSpawner implements Listener {
 	public void onDisable() {
 		HandlerList.unregisterAll(this);
 
-		// Reset any pending forced spawn:
-		this.resetForcedCreatureSpawn();
+		// Reset any pending forced spawns:
+		forcedEntities.clear();
 	}
 
 	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = false)
 	void onCreatureSpawn(CreatureSpawnEvent event) {
-		if (nextSpawnLocation == null) return;
-		if (this.matchesForcedCreatureSpawn(event)) {
+		if (forcedEntities.isEmpty()) return;
+		if (forcedEntities.remove(event.getEntity())) {
 			event.setCancelled(false);
-		} else {
-			// Unexpected.
-			Log.debug(() -> "Forced entity spawning seems to be out of sync: "
-					+ "Forced spawning was activated for an entity of type " + nextEntityType
-					+ " at location " + nextSpawnLocation + ", but a different entity of type "
-					+ event.getEntityType() + " was spawned at location " + event.getLocation()
-					+ ".");
 		}
-
-		this.resetForcedCreatureSpawn();
-	}
-
-	private boolean matchesForcedCreatureSpawn(CreatureSpawnEvent event) {
-		return event.getEntityType() == nextEntityType
-				&& LocationUtils.getSafeDistanceSquared(event.getLocation(), nextSpawnLocation) < 0.6D;
 	}
 
 	/**
-	 * Tries to force the subsequent spawn attempt for the specified entity type at the specified
-	 * location.
+	 * Tries to force the subsequent spawn of the given entity.
+	 * <p>
+	 * This is expected to be called right before the entity is added to the world, i.e. inside the
+	 * pre-spawn callback of the spawn method. Once the spawn attempt has completed, the caller is
+	 * expected to invoke {@link #resetForcedCreatureSpawn(Entity)}, in case the entity was not
+	 * actually added to the world.
 	 * 
-	 * @param location
-	 *            the spawn location
-	 * @param entityType
-	 *            the entity type
+	 * @param entity
+	 *            the entity that is about to be spawned, not <code>null</code>
 	 */
-	public void forceCreatureSpawn(Location location, EntityType entityType) {
-		this.nextSpawnLocation = location;
-		this.nextEntityType = entityType;
+	public void forceCreatureSpawn(Entity entity) {
+		Validate.notNull(entity, "entity is null");
+		forcedEntities.add(entity);
 	}
 
 	/**
-	 * Resets any pending forced creature spawn.
+	 * Resets the pending forced spawn of the given entity, if there is one.
+	 * 
+	 * @param entity
+	 *            the entity, not <code>null</code>
 	 */
-	public void resetForcedCreatureSpawn() {
-		nextSpawnLocation = null;
-		nextEntityType = null;
+	public void resetForcedCreatureSpawn(Entity entity) {
+		Validate.notNull(entity, "entity is null");
+		forcedEntities.remove(entity);
 	}
 }
@@ -1,40 +1,51 @@
 package com.nisovin.shopkeepers.world;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
 import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.Plugin;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
  * Tracks the location of players to optimize operations such as finding nearby players.
  * <p>
- * We currently only track players by the world they are in, since we expect that a more granular
- * tracking, e.g. by chunk, does not provide much of an additional benefit on typical servers: For
- * example, when Minecraft's entity AI needs to find the nearby players, they also iterate over the
- * list of players inside the entity's world.<br/>
+ * Players are tracked by the world and the chunk they are in. Radius queries via
+ * {@link #forEachNearbyPlayer(String, double, double, double, Consumer)} only inspect the players
+ * inside the chunks that overlap the queried radius, instead of all players inside the world.
+ * <p>
  * Unlike Bukkit's {@link World#getPlayers()}, {@link #getPlayers(String)} does not instantiate a
  * new list on every invocation, which is more suitable for tasks that run very frequently, such as
  * every tick.
+ * <p>
+ * On Folia, the player events are called on the region threads that own the respective players,
+ * and queries can be invoked concurrently from any region thread. All data structures are
+ * therefore thread-safe. The tracked chunk of a player is only updated by the thread that owns the
+ * player, but queries by other threads may temporarily observe a player inside its previous chunk.
  */
 public final class PlayerMap {
 
@@ -60,7 +71,7 @@ public final class PlayerMap {
 			Player player = event.getPlayer();
 			if (!player.isOnline()) return; // Player is no longer online
 
-			addPlayer(event.getPlayer());
+			updatePlayer(player, player.getLocation());
 		}
 
 		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -70,12 +81,35 @@ public final class PlayerMap {
 			Location toLocation = event.getTo();
 			if (toLocation == null) return;
 
-			World fromWorld = Unsafe.assertNonNull(event.getFrom().getWorld());
-			World toWorld = Unsafe.assertNonNull(toLocation.getWorld());
-			if (fromWorld.equals(toWorld)) return;
+			updatePlayer(event.getPlayer(), toLocation);
+		}
 
-			Player player = event.getPlayer();
-			updatePlayer(player, fromWorld, toWorld);
+		@EventHandler(priority = EventPriority.MONITOR)
+		void onPlayerRespawn(PlayerRespawnEvent event) {
+			updatePlayer(event.getPlayer(), event.getRespawnLocation());
+		}
+
+		// Called very frequently: We only update the player if the chunk changed.
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		void onPlayerMove(PlayerMoveEvent event) {
+			Location fromLocation = event.getFrom();
+			Location toLocation = event.getTo();
+			if (isSameChunk(fromLocation, toLocation)) return;
+
+			updatePlayer(event.getPlayer(), toLocation);
+		}
+
+		// Players riding vehicles don't trigger PlayerMoveEvents.
+		@EventHandler(priority = EventPriority.MONITOR)
+		void onVehicleMove(VehicleMoveEvent event) {
+			Location toLocation = event.getTo();
+			if (isSameChunk(event.getFrom(), toLocation)) return;
+
+			for (Entity passenger : event.getVehicle().getPassengers()) {
+				if (passenger instanceof Player) {
+					updatePlayer((Player) passenger, toLocation);
+				}
+			}
 		}
 
 		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -86,16 +120,66 @@ public final class PlayerMap {
 
 	private static final class WorldData {
 
-		private final List<Player> players = new ArrayList<>();
+		// Copy-on-write: Only modified when players enter or leave the world.
+		private final List<Player> players = new CopyOnWriteArrayList<>();
 		private final List<Player> playersView = Collections.unmodifiableList(players);
+		// Chunk key -> players inside the chunk. Empty chunk entries are removed.
+		private final Map<Long, Set<Player>> playersByChunk = new ConcurrentHashMap<>();
 
 		private WorldData(String worldName) {
 			Validate.notNull(worldName, "worldName is null");
 		}
+
+		private void addToChunk(Player player, long chunkKey) {
+			playersByChunk.compute(chunkKey, (key, chunkPlayers) -> {
+				if (chunkPlayers == null) {
+					chunkPlayers = ConcurrentHashMap.newKeySet();
+				}
+				chunkPlayers.add(player);
+				return chunkPlayers;
+			});
+		}
+
+		private boolean removeFromChunk(Player player, long chunkKey) {
+			boolean[] removed = new boolean[1];
+			playersByChunk.computeIfPresent(chunkKey, (key, chunkPlayers) -> {
+				removed[0] = chunkPlayers.remove(player);
+				return chunkPlayers.isEmpty() ? null : chunkPlayers;
+			});
+			return removed[0];
+		}
+	}
+
+	// The world and chunk a player is currently tracked in. Only modified by the thread that owns
+	// the player.
+	private static final class PlayerEntry {
+
+		private final String worldName;
+		private final long chunkKey;
+
+		private PlayerEntry(String worldName, long chunkKey) {
+			this.worldName = worldName;
+			this.chunkKey = chunkKey;
+		}
+	}
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private static int toChunkCoord(double blockCoord) {
+		return ((int) Math.floor(blockCoord)) >> 4;
+	}
+
+	private static boolean isSameChunk(Location location1, Location location2) {
+		return (location1.getBlockX() >> 4) == (location2.getBlockX() >> 4)
+				&& (location1.getBlockZ() >> 4) == (location2.getBlockZ() >> 4)
+				&& location1.getWorld() == location2.getWorld();
 	}
 
 	private final Plugin plugin;
-	private final Map<String, WorldData> worlds = new HashMap<>();
+	private final Map<String, WorldData> worlds = new ConcurrentHashMap<>();
+	private final Map<UUID, PlayerEntry> players = new ConcurrentHashMap<>();
 	private final PlayerListener listener = new PlayerListener();
 
 	public PlayerMap(Plugin plugin) {
@@ -109,13 +193,14 @@ public final class PlayerMap {
 		for (Player player : Bukkit.getOnlinePlayers()) {
 			assert player != null;
 			// This creates the necessary world entries:
-			this.addPlayer(player);
+			this.updatePlayer(player, player.getLocation());
 		}
 	}
 
 	public void onDisable() {
 		HandlerList.unregisterAll(listener);
 		worlds.clear();
+		players.clear();
 	}
 
 	// DATA
@@ -135,25 +220,60 @@ public final class PlayerMap {
 
 	private @Nullable WorldData removeWorldData(String worldName) {
 		assert worldName != null;
+		// Players can no longer be inside the world at this point, but we remove any remaining
+		// player entries for consistency:
+		players.values().removeIf(entry -> entry.worldName.equals(worldName));
 		return worlds.remove(worldName);
 	}
 
-	private void addPlayer(Player player) {
-		this.addPlayer(player.getWorld(), player);
-	}
+	/**
+	 * Adds or moves the given player to the world and chunk of the given location.
+	 * <p>
+	 * This is expected to be called by the thread that owns the player.
+	 *
+	 * @param player
+	 *            the player, not <code>null</code>
+	 * @param location
+	 *            the player's new location, not <code>null</code>
+	 */
+	void updatePlayer(Player player, Location location) {
+		World world = location.getWorld();
+		if (world == null) return;
 
-	private void addPlayer(World world, Player player) {
 		String worldName = world.getName();
+		long chunkKey = getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+		@Nullable PlayerEntry oldEntry = players.get(player.getUniqueId());
+		if (oldEntry != null) {
+			if (oldEntry.chunkKey == chunkKey && oldEntry.worldName.equals(worldName)) {
+				return; // Unchanged
+			}
+			boolean worldChanged = !oldEntry.worldName.equals(worldName);
+			this.removePlayer(player, oldEntry, worldChanged);
+		}
+
 		WorldData worldData = this.getOrCreateWorldData(worldName);
-		worldData.players.add(player);
+		if (oldEntry == null || !oldEntry.worldName.equals(worldName)) {
+			worldData.players.add(player);
+		}
+		worldData.addToChunk(player, chunkKey);
+		players.put(player.getUniqueId(), new PlayerEntry(worldName, chunkKey));
 	}
 
-	private void removePlayer(Player player) {
-		this.removePlayer(player.getWorld(), player);
+	void removePlayer(Player player) {
+		@Nullable PlayerEntry entry = players.remove(player.getUniqueId());
+		if (entry == null) {
+			Log.warning("PlayerMap: Failed to remove player '" + player.getName()
+					+ "': Player not found. This indicates a bug. Consider reporting this issue "
+					+ "together with information on how to reproduce it.");
+			return;
+		}
+		this.removePlayer(player, entry, true);
 	}
 
-	private void removePlayer(World world, Player player) {
-		String worldName = world.getName();
+	// Removes the player from its tracked chunk, and optionally from its tracked world. Does not
+	// remove the player entry.
+	private void removePlayer(Player player, PlayerEntry entry, boolean removeFromWorld) {
+		String worldName = entry.worldName;
 		@Nullable WorldData worldData = this.getWorldData(worldName);
 		if (worldData == null) {
 			Log.warning("PlayerMap: Failed to remove player '" + player.getName()
@@ -163,17 +283,15 @@ public final class PlayerMap {
 			return;
 		}
 
-		if (!worldData.players.remove(player)) {
+		if (!worldData.removeFromChunk(player, entry.chunkKey)) {
 			Log.warning("PlayerMap: Failed to remove player '" + player.getName()
-					+ "': Player not found in data for world '" + worldName + "'. This indicates a"
+					+ "': Player not found in data for world '" + worldName + "'. This indicates a "
 					+ "bug. Consider reporting this issue together with information on how to "
 					+ "reproduce it.");
 		}
-	}
-
-	private void updatePlayer(Player player, World oldWorld, World newWorld) {
-		this.removePlayer(oldWorld, player);
-		this.addPlayer(newWorld, player);
+		if (removeFromWorld) {
+			worldData.players.remove(player);
+		}
 	}
 
 	// QUERIES
@@ -183,7 +301,7 @@ public final class PlayerMap {
 	 * <p>
 	 * Unlike {@link World#getPlayers()}, this does not instantiate a new list and is therefore also
 	 * suited to be called very frequently.
-	 * 
+	 *
 	 * @param worldName
 	 *            the world name
 	 * @return an unmodifiable view on the players inside the world, not <code>null</code>
@@ -194,4 +312,60 @@ public final class PlayerMap {
 
 		return worldData.playersView;
 	}
+
+	/**
+	 * Invokes the given action for all players inside the chunks that overlap the specified
+	 * horizontal radius around the given coordinates.
+	 * <p>
+	 * This is only a coarse preselection: The action can also be invoked for players that are
+	 * located outside the radius, so callers are expected to check the exact distances themselves.
+	 * <p>
+	 * If the radius covers more chunks than there are players inside the world, this iterates the
+	 * players of the world instead.
+	 *
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the x coordinate
+	 * @param z
+	 *            the z coordinate
+	 * @param radius
+	 *            the radius, not negative
+	 * @param action
+	 *            the action to invoke, not <code>null</code>
+	 */
+	public void forEachNearbyPlayer(
+			String worldName,
+			double x,
+			double z,
+			double radius,
+			Consumer<? super Player> action
+	) {
+		Validate.isTrue(radius >= 0.0D, "radius cannot be negative");
+		Validate.notNull(action, "action is null");
+		@Nullable WorldData worldData = this.getWorldData(worldName);
+		if (worldData == null) return;
+
+		int minChunkX = toChunkCoord(x - radius);
+		int maxChunkX = toChunkCoord(x + radius);
+		int minChunkZ = toChunkCoord(z - radius);
+		int maxChunkZ = toChunkCoord(z + radius);
+		long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+		if (chunkCount > worldData.playersByChunk.size()) {
+			// There are fewer occupied chunks than chunks to look up: Inspecting all players of the
+			// world is cheaper.
+			worldData.players.forEach(action);
+			return;
+		}
+
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				long chunkKey = getChunkKey(chunkX, chunkZ);
+				@Nullable Set<Player> chunkPlayers = worldData.playersByChunk.get(chunkKey);
+				if (chunkPlayers == null) continue;
+
+				chunkPlayers.forEach(action);
+			}
+		}
+	}
 }
@@ -0,0 +1,124 @@
+package com.nisovin.shopkeepers.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+public class EventHandlerStackTest {
+
+	private static final int THREADS = 16;
+	private static final int EVENTS_PER_THREAD = 50000;
+	private static final int MAX_RECURSION_DEPTH = 3;
+	private static final int SESSIONS_PER_THREAD = 8;
+
+	@Test
+	public void testRecursiveEvents() {
+		EventHandlerStack<String> stack = new EventHandlerStack<>();
+		stack.push("outer");
+		stack.push(null);
+		stack.push("inner");
+		assertEquals(3, stack.getDepth());
+		assertEquals("inner", stack.pop());
+		assertNull(stack.pop());
+		assertEquals("outer", stack.pop());
+		assertEquals(0, stack.getDepth());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPopWithoutPush() {
+		EventHandlerStack<String> stack = new EventHandlerStack<>();
+		stack.pop();
+	}
+
+	@Test
+	public void testStacksAreThreadLocal() throws Exception {
+		EventHandlerStack<String> stack = new EventHandlerStack<>();
+		stack.push("main");
+		AtomicInteger otherThreadDepth = new AtomicInteger(-1);
+		Thread thread = new Thread(() -> otherThreadDepth.set(stack.getDepth()));
+		thread.start();
+		thread.join();
+		assertEquals(0, otherThreadDepth.get());
+		assertEquals("main", stack.pop());
+	}
+
+	// Simulates the early and late processing of inventory events of many players that are called
+	// concurrently on different threads, including recursively called events.
+	@Test
+	public void testConcurrentInterleavedEvents() throws Exception {
+		EventHandlerStack<String> stack = new EventHandlerStack<>();
+		CyclicBarrier startBarrier = new CyclicBarrier(THREADS);
+		AtomicInteger mismatches = new AtomicInteger();
+		AtomicInteger remainingDepth = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				int threadId = thread;
+				futures.add(executor.submit(() -> {
+					Random random = new Random(threadId);
+					startBarrier.await();
+					for (int event = 0; event < EVENTS_PER_THREAD; event++) {
+						processEvent(stack, threadId, random, 0, mismatches);
+					}
+					remainingDepth.addAndGet(stack.getDepth());
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(1L, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals("Mismatched early and late event handlers", 0, mismatches.get());
+		assertEquals("Unprocessed events", 0, remainingDepth.get());
+	}
+
+	private static @Nullable String randomHandler(int threadId, Random random) {
+		int session = random.nextInt(SESSIONS_PER_THREAD + 1);
+		// Some events are not handled by any UI session:
+		if (session == SESSIONS_PER_THREAD) return null;
+		return "thread-" + threadId + "-session-" + session;
+	}
+
+	private static void processEvent(
+			EventHandlerStack<String> stack,
+			int threadId,
+			Random random,
+			int depth,
+			AtomicInteger mismatches
+	) {
+		String handler = randomHandler(threadId, random);
+		// Early event processing:
+		stack.push(handler);
+
+		// Some plugin recursively calls another inventory event:
+		if (depth < MAX_RECURSION_DEPTH && random.nextInt(4) == 0) {
+			processEvent(stack, threadId, random, depth + 1, mismatches);
+		}
+		if (random.nextInt(16) == 0) {
+			// Increase the interleaving with other threads:
+			Thread.yield();
+		}
+
+		// Late event processing:
+		String lateHandler = stack.pop();
+		if (!Objects.equals(handler, lateHandler)) {
+			mismatches.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.nisovin.shopkeepers.util.inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+
+public class InternedItemStacksTest {
+
+	// An item stack that is compared by its id, and that does not depend on the server
+	// implementation.
+	private static final class TestItemStack extends ItemStack {
+
+		private final String id;
+
+		TestItemStack(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public int getAmount() {
+			return 1;
+		}
+
+		// Hashed via hashCode, like items with item meta:
+		@Override
+		public boolean hasItemMeta() {
+			return true;
+		}
+
+		@Override
+		public boolean isSimilar(@Nullable ItemStack stack) {
+			return stack instanceof TestItemStack && id.equals(((TestItemStack) stack).id);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			return obj instanceof ItemStack && this.isSimilar((ItemStack) obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return id.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "TestItemStack{" + id + "}";
+		}
+	}
+
+	private static SKUnmodifiableItemStack item(String id) {
+		return (SKUnmodifiableItemStack) SKUnmodifiableItemStack.of(new TestItemStack(id));
+	}
+
+	// Returns false if the referenced object was not garbage collected in time.
+	private static boolean awaitCollection(WeakReference<?> ref) throws InterruptedException {
+		for (int i = 0; i < 100 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		return ref.get() == null;
+	}
+
+	@Test
+	public void testEqualItemsShareInstance() {
+		UnmodifiableItemStack first = InternedItemStacks.intern(item("shared"));
+		UnmodifiableItemStack second = InternedItemStacks.intern(item("shared"));
+		assertSame(first, second);
+	}
+
+	@Test
+	public void testDistinctInternedItemsAreComparedByContent() {
+		SKUnmodifiableItemStack first = item("distinct");
+		SKUnmodifiableItemStack second = item("distinct");
+		first.setInterned();
+		second.setInterned();
+		assertEquals(first, second);
+		assertEquals(second, first);
+		assertTrue(first.isSimilar(second));
+		assertTrue(second.isSimilar(first));
+	}
+
+	@Test
+	public void testStaleEntryIsReplaced() throws InterruptedException {
+		// The underlying item stack of the first interned item outlives the interned item, for
+		// example because it is still referenced by a shallow copy:
+		ItemStack staleKey = new TestItemStack("stale");
+		UnmodifiableItemStack first = InternedItemStacks.intern(SKUnmodifiableItemStack.of(staleKey));
+		WeakReference<UnmodifiableItemStack> firstRef = new WeakReference<>(first);
+		first = null;
+		assumeTrue(awaitCollection(firstRef));
+
+		UnmodifiableItemStack second = InternedItemStacks.intern(item("stale"));
+
+		// Once the stale key is collected, the second interned item has to remain in the pool:
+		WeakReference<ItemStack> staleKeyRef = new WeakReference<>(staleKey);
+		staleKey = null;
+		assumeTrue(awaitCollection(staleKeyRef));
+
+		UnmodifiableItemStack third = InternedItemStacks.intern(item("stale"));
+		assertSame(second, third);
+	}
+}